@@ -0,0 +1,516 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Benchmark suite covering load, simulate and minimize phases of every program
+ * and the parser. The <i>JMH</i> benchmarks of <code>jmh/</code> measure its
+ * operations in forked JVMs and should be preferred for published numbers;
+ * this harness is a quick check which needs nothing but the JDK:
+ * 
+ * <pre>
+ * javac -d out src/*.java bench/*.java
+ * java -cp out Benchmarks [--only=&lt;prefix&gt;] [--states=100,10000] ...
+ * </pre>
+ * 
+ * Every parameter accepts a comma separated list of values and every benchmark
+ * runs for each combination of parameters it uses:
+ * <ul>
+ * <li><code>--states</code> number of automaton states,</li>
+ * <li><code>--symbols</code> alphabet size,</li>
+ * <li><code>--redundancy</code> share of DKA states which are equivalent copies
+ * of other states,</li>
+ * <li><code>--epsilon</code> probability that a state has epsilon
+ * transitions,</li>
+ * <li><code>--stack</code> stack depth reached by PDA, configurations are
+ * printed with whole stack so output grows quadratically with it,</li>
+ * <li><code>--depth</code> nesting depth of parser input,</li>
+ * <li><code>--length</code> length of input sequences and tape,</li>
+ * <li><code>--guesses</code> number of nondeterministic choices of explored
+ * <i>Turing machine</i> and of minimized epsilon-NFA,</li>
+ * <li><code>--threads</code> number of threads of parallel minimization,
+ * matching and exploration.</li>
+ * </ul>
+ * Options <code>--warmup</code>, <code>--iterations</code> and
+ * <code>--time</code> (milliseconds per iteration) control measurement, and
+ * <code>--seed</code> the workloads generated by {@link Workloads}.
+ * <p>
+ * Besides time per operation, allocated bytes per operation and allocation rate
+ * of benchmark thread are reported together with number and duration of
+ * garbage collections during measurement.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class Benchmarks {
+
+	/**
+	 * Default seed of generated workloads.
+	 */
+	private static final long SEED = 42;
+
+	/**
+	 * Default values of parameters.
+	 */
+	private static final String[][] DEFAULTS = { { "states", "1000,100000" }, { "symbols", "4,16" },
+			{ "redundancy", "0,0.3" }, { "epsilon", "0.1,0.5" }, { "stack", "100,1000" },
+			{ "depth", "1000,100000" }, { "length", "1000,100000" }, { "guesses", "12,16" },
+			{ "threads", "1,4" }, { "warmup", "3" },
+			{ "iterations", "5" }, { "time", "500" }, { "seed", Long.toString(SEED) }, { "only", "" } };
+
+	/**
+	 * Number of input sequences in simulation workloads.
+	 */
+	private static final int SEQUENCES = 10;
+
+	/**
+	 * Share of unreachable states in DKA workloads.
+	 */
+	private static final double UNREACHABLE = 0.05;
+
+	/**
+	 * Length of input sequence in matching workloads.
+	 */
+	private static final int MATCH_LENGTH = 1 << 24;
+
+	/**
+	 * Result of every operation is folded into this field, so that it can not be
+	 * eliminated as dead code.
+	 */
+	private static volatile int sink;
+
+	/**
+	 * Operation whose duration is measured.
+	 */
+	@FunctionalInterface
+	private interface Operation {
+
+		/**
+		 * Runs operation once.
+		 * 
+		 * @return result of operation.
+		 * @throws Exception if operation fails.
+		 */
+		Object run() throws Exception;
+	}
+
+	/**
+	 * Workload written by one of {@link Workloads} methods.
+	 */
+	@FunctionalInterface
+	private interface Workload {
+
+		/**
+		 * Writes workload.
+		 * 
+		 * @param out where workload is written.
+		 * @throws IOException if workload could not be written.
+		 */
+		void write(Appendable out) throws IOException;
+	}
+
+	/**
+	 * One benchmark: its name, parameters it uses and setup which prepares
+	 * operation for concrete values of those parameters.
+	 */
+	private static class Benchmark {
+
+		/**
+		 * Name.
+		 */
+		final String name;
+
+		/**
+		 * Names of parameters used by this benchmark.
+		 */
+		final String[] parameters;
+
+		/**
+		 * Setup of operation.
+		 */
+		final Function<Map<String, String>, Operation> setup;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name       name.
+		 * @param parameters names of used parameters.
+		 * @param setup      setup of operation.
+		 */
+		Benchmark(String name, String[] parameters, Function<Map<String, String>, Operation> setup) {
+			this.name = name;
+			this.parameters = parameters;
+			this.setup = setup;
+		}
+	}
+
+	/**
+	 * Main entry of benchmark suite.
+	 * 
+	 * @param args options.
+	 * @throws Exception if a benchmark fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String[] option : DEFAULTS) {
+			options.put(option[0], option[1]);
+		}
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			String key = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : null;
+			if (key == null || !options.containsKey(key)) {
+				System.err.println("Unknown option: " + arg);
+				System.exit(1);
+			}
+			options.put(key, arg.substring(equals + 1));
+		}
+
+		System.out.printf("%-22s %-52s %12s %10s %14s %12s %6s %8s%n", "benchmark", "parameters", "ns/op",
+				"error", "B/op", "MB/s alloc", "gc", "gc ms");
+		for (Benchmark benchmark : benchmarks(Long.parseLong(options.get("seed")))) {
+			if (!benchmark.name.startsWith(options.get("only"))) {
+				continue;
+			}
+			for (Map<String, String> parameters : combinations(benchmark.parameters, options)) {
+				Operation operation = benchmark.setup.apply(parameters);
+				measure(benchmark.name, parameters, operation, Integer.parseInt(options.get("warmup")),
+						Integer.parseInt(options.get("iterations")), Long.parseLong(options.get("time")));
+			}
+		}
+	}
+
+	/**
+	 * Prepares operation of benchmark <code>name</code> for concrete values of
+	 * its parameters, so that the same operations can be measured by another
+	 * harness, such as <i>JMH</i> benchmarks of <code>jmh/</code>.
+	 * 
+	 * @param name       name of benchmark, for example
+	 *                   <code>MinDka.minimize</code>.
+	 * @param parameters values of parameters used by benchmark.
+	 * @return operation, every call runs it once.
+	 * @throws IllegalArgumentException if there is no such benchmark or value of
+	 *                                  some of its parameters is missing.
+	 */
+	public static Callable<Object> operation(String name, Map<String, String> parameters) {
+		for (Benchmark benchmark : benchmarks(SEED)) {
+			if (!benchmark.name.equals(name)) {
+				continue;
+			}
+			for (String parameter : benchmark.parameters) {
+				if (!parameters.containsKey(parameter)) {
+					throw new IllegalArgumentException("Missing parameter " + parameter + " of " + name);
+				}
+			}
+			Operation operation = benchmark.setup.apply(parameters);
+			return operation::run;
+		}
+		throw new IllegalArgumentException("Unknown benchmark: " + name);
+	}
+
+	/**
+	 * Creates every benchmark.
+	 * 
+	 * @param seed seed of generated workloads.
+	 * @return benchmarks.
+	 */
+	private static List<Benchmark> benchmarks(long seed) {
+		List<Benchmark> benchmarks = new ArrayList<>();
+		String[] dka = { "states", "symbols", "redundancy" };
+		Function<Map<String, String>, byte[]> dkaInput = p -> bytes(out -> Workloads.dka(new Random(seed),
+				Workloads.Shape.RANDOM, integer(p, "states"), integer(p, "symbols"),
+				Double.parseDouble(p.get("redundancy")), UNREACHABLE, out));
+		benchmarks.add(new Benchmark("MinDka.load", dka, p -> {
+			byte[] input = dkaInput.apply(p);
+			return () -> load(input, CompiledAutomaton.Kind.DKA);
+		}));
+		benchmarks.add(new Benchmark("MinDka.minimize", dka, p -> {
+			byte[] input = dkaInput.apply(p);
+			Dka automaton = load(input, CompiledAutomaton.Kind.DKA).dka();
+			return () -> DkaMinimizer.minimize(automaton);
+		}));
+		String[] parallel = { "states", "symbols", "redundancy", "threads" };
+		benchmarks.add(new Benchmark("MinDka.parallel", parallel, p -> {
+			Dka automaton = DkaMinimizer
+					.removeUnreachableStates(load(dkaInput.apply(p), CompiledAutomaton.Kind.DKA).dka());
+			ForkJoinPool pool = new ForkJoinPool(integer(p, "threads"));
+			return () -> DkaMinimizer.removeIdenticalStates(automaton, pool);
+		}));
+		benchmarks.add(new Benchmark("MinDka.match", parallel, p -> {
+			Dka automaton = load(dkaInput.apply(p), CompiledAutomaton.Kind.DKA).dka();
+			int[] sequence = new Random(seed).ints(MATCH_LENGTH, 0, automaton.symbolCount()).toArray();
+			ChunkedSimulation chunked = new ChunkedSimulation(new ForkJoinPool(integer(p, "threads")));
+			return () -> chunked.finalState(automaton, sequence);
+		}));
+		benchmarks.add(new Benchmark("MinDka.tableMatch", dka, p -> {
+			Dka automaton = DkaMinimizer.minimize(load(dkaInput.apply(p), CompiledAutomaton.Kind.DKA).dka());
+			int[] sequence = new Random(seed).ints(MATCH_LENGTH, 0, automaton.symbolCount()).toArray();
+			Dka.Matcher matcher = automaton.matcher();
+			return () -> matcher.match(sequence);
+		}));
+		benchmarks.add(new Benchmark("MinDka.compiledMatch", dka, p -> {
+			Dka automaton = DkaMinimizer.minimize(load(dkaInput.apply(p), CompiledAutomaton.Kind.DKA).dka());
+			int[] sequence = new Random(seed).ints(MATCH_LENGTH, 0, automaton.symbolCount()).toArray();
+			Dka.Matcher matcher = DkaCompiler.compile(automaton, new AutomatonCache(null));
+			return () -> (matcher == null ? automaton.matcher() : matcher).match(sequence);
+		}));
+
+		String[] enka = { "states", "symbols", "epsilon", "length" };
+		Function<Map<String, String>, byte[]> enkaInput = p -> bytes(out -> Workloads.enka(new Random(seed),
+				integer(p, "states"), integer(p, "symbols"), Double.parseDouble(p.get("epsilon")), SEQUENCES,
+				integer(p, "length"), out));
+		benchmarks.add(new Benchmark("SimEnka.load", enka, p -> {
+			byte[] input = enkaInput.apply(p);
+			return () -> load(input, CompiledAutomaton.Kind.ENKA);
+		}));
+		benchmarks.add(new Benchmark("SimEnka.simulate", enka, p -> {
+			CompiledAutomaton automaton = load(enkaInput.apply(p), CompiledAutomaton.Kind.ENKA);
+			StringBuilder sb = new StringBuilder();
+			return () -> {
+				sb.setLength(0);
+				for (int[] sequence : automaton.sequences()) {
+					automaton.enka().simulate(sequence, sb);
+				}
+				return sb.length();
+			};
+		}));
+
+		String[] guessing = { "guesses" };
+		benchmarks.add(new Benchmark("MinDka.brzozowski", guessing, p -> {
+			Enka automaton = load(bytes(out -> Workloads.guessingEnka(integer(p, "guesses"), out)),
+					CompiledAutomaton.Kind.ENKA).enka();
+			return () -> EnkaMinimizer.minimize(automaton);
+		}));
+
+		String[] pa = { "stack" };
+		benchmarks.add(new Benchmark("SimPa.load", pa, p -> {
+			byte[] input = bytes(out -> Workloads.pa(new Random(seed), integer(p, "stack"), SEQUENCES, out));
+			return () -> load(input, CompiledAutomaton.Kind.PA);
+		}));
+		benchmarks.add(new Benchmark("SimPa.simulate", pa, p -> {
+			CompiledAutomaton automaton = load(
+					bytes(out -> Workloads.pa(new Random(seed), integer(p, "stack"), SEQUENCES, out)),
+					CompiledAutomaton.Kind.PA);
+			StringBuilder sb = new StringBuilder();
+			return () -> {
+				sb.setLength(0);
+				for (int[] sequence : automaton.sequences()) {
+					automaton.pa().simulate(sequence, sb);
+				}
+				return sb.length();
+			};
+		}));
+
+		String[] ts = { "length" };
+		benchmarks.add(new Benchmark("SimTS.load", ts, p -> {
+			byte[] input = bytes(out -> Workloads.ts(new Random(seed), integer(p, "length"), 1, out));
+			return () -> load(input, CompiledAutomaton.Kind.TS);
+		}));
+		benchmarks.add(new Benchmark("SimTS.simulate", ts, p -> {
+			TS machine = load(bytes(out -> Workloads.ts(new Random(seed), integer(p, "length"), 1, out)),
+					CompiledAutomaton.Kind.TS).ts();
+			return () -> machine.simulate(Integer.MAX_VALUE);
+		}));
+		benchmarks.add(new Benchmark("SimTS.compiled", ts, p -> {
+			TS machine = load(bytes(out -> Workloads.ts(new Random(seed), integer(p, "length"), 1, out)),
+					CompiledAutomaton.Kind.TS).ts();
+			TS.Runner runner = TSCompiler.compile(machine);
+			return runner == null ? () -> machine.simulate(Integer.MAX_VALUE)
+					: () -> machine.simulate(runner, Integer.MAX_VALUE);
+		}));
+
+		String[] nts = { "guesses", "threads" };
+		benchmarks.add(new Benchmark("SimTS.explore", nts, p -> {
+			Nts machine = new AutomatonReader(ByteBuffer.wrap(
+					bytes(out -> Workloads.nts(new Random(seed), integer(p, "guesses"), out)))).readNts();
+			ForkJoinPool pool = integer(p, "threads") == 1 ? null : new ForkJoinPool(integer(p, "threads"));
+			return () -> machine.explore(pool, Long.MAX_VALUE).configuration();
+		}));
+
+		String[] parser = { "depth" };
+		benchmarks.add(new Benchmark("Parser.trace", parser, p -> {
+			char[] input = new String(bytes(out -> Workloads.parser(integer(p, "depth"), true, out)),
+					StandardCharsets.UTF_8).toCharArray();
+			Parser instance = new Parser(true);
+			return () -> instance.parse(input, OutputStream.nullOutputStream());
+		}));
+		benchmarks.add(new Benchmark("Parser.noTrace", parser, p -> {
+			char[] input = new String(bytes(out -> Workloads.parser(integer(p, "depth"), true, out)),
+					StandardCharsets.UTF_8).toCharArray();
+			Parser instance = new Parser(false);
+			return () -> instance.parse(input, OutputStream.nullOutputStream());
+		}));
+		benchmarks.add(new Benchmark("Parser.editNearEnd", parser, p -> {
+			char[] input = new String(bytes(out -> Workloads.parser(integer(p, "depth"), true, out)),
+					StandardCharsets.UTF_8).toCharArray();
+			IncrementalParser instance = new IncrementalParser(true);
+			try {
+				instance.parse(input, OutputStream.nullOutputStream());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			// breaks and restores the last but one sign
+			int position = input.length - 2;
+			return () -> instance.edit(position, position + 1, "c") & instance.edit(position, position + 1, "b");
+		}));
+		benchmarks.add(new Benchmark("EarleyParser.trace", parser, p -> {
+			char[] input = new String(bytes(out -> Workloads.parser(integer(p, "depth"), true, out)),
+					StandardCharsets.UTF_8).toCharArray();
+			EarleyParser instance = new EarleyParser(Grammar.parserGrammar(), true);
+			return () -> instance.parse(input, OutputStream.nullOutputStream());
+		}));
+		return benchmarks;
+	}
+
+	/**
+	 * Parses text definition of automaton.
+	 * 
+	 * @param input text definition.
+	 * @param kind  kind of automaton.
+	 * @return loaded automaton.
+	 */
+	private static CompiledAutomaton load(byte[] input, CompiledAutomaton.Kind kind) {
+		return CompiledAutomaton.parse(new AutomatonReader(ByteBuffer.wrap(input)), kind);
+	}
+
+	/**
+	 * Runs warmup and measured iterations of <code>operation</code> and prints
+	 * one line of results.
+	 * 
+	 * @param name       name of benchmark.
+	 * @param parameters values of parameters.
+	 * @param operation  operation.
+	 * @param warmup     number of warmup iterations.
+	 * @param iterations number of measured iterations.
+	 * @param time       minimal duration of iteration in milliseconds.
+	 * @throws Exception if operation fails.
+	 */
+	private static void measure(String name, Map<String, String> parameters, Operation operation, int warmup,
+			int iterations, long time) throws Exception {
+		for (int i = 0; i < warmup; i++) {
+			iteration(operation, time);
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long[] gcBefore = gc();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		double[] nanosPerOperation = new double[iterations];
+		long operations = 0;
+		long nanos = 0;
+		for (int i = 0; i < iterations; i++) {
+			long[] result = iteration(operation, time);
+			operations += result[0];
+			nanos += result[1];
+			nanosPerOperation[i] = (double) result[1] / result[0];
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		long[] gcAfter = gc();
+
+		double mean = Arrays.stream(nanosPerOperation).average().orElse(0);
+		double variance = Arrays.stream(nanosPerOperation).map(x -> (x - mean) * (x - mean)).sum()
+				/ Math.max(1, iterations - 1);
+		System.out.printf(Locale.ROOT, "%-22s %-52s %12.1f %10.1f %14.1f %12.1f %6d %8d%n", name, parameters,
+				mean, Math.sqrt(variance), (double) allocated / operations, allocated * 1e3 / nanos,
+				gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+	}
+
+	/**
+	 * Runs <code>operation</code> repeatedly for at least <code>time</code>
+	 * milliseconds.
+	 * 
+	 * @param operation operation.
+	 * @param time      minimal duration in milliseconds.
+	 * @return number of operations and elapsed nanoseconds.
+	 * @throws Exception if operation fails.
+	 */
+	private static long[] iteration(Operation operation, long time) throws Exception {
+		long limit = time * 1_000_000L;
+		long start = System.nanoTime();
+		long elapsed;
+		long operations = 0;
+		int hash = 0;
+		do {
+			hash += System.identityHashCode(operation.run());
+			operations++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < limit);
+		sink += hash;
+		return new long[] { operations, elapsed };
+	}
+
+	/**
+	 * @return total number and total duration in milliseconds of garbage
+	 *         collections so far.
+	 */
+	private static long[] gc() {
+		long count = 0;
+		long time = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, collector.getCollectionCount());
+			time += Math.max(0, collector.getCollectionTime());
+		}
+		return new long[] { count, time };
+	}
+
+	/**
+	 * Creates every combination of values of given parameters.
+	 * 
+	 * @param names   names of parameters.
+	 * @param options options with comma separated values.
+	 * @return list of combinations, each one mapping parameter onto its value.
+	 */
+	private static List<Map<String, String>> combinations(String[] names, Map<String, String> options) {
+		List<Map<String, String>> combinations = new ArrayList<>();
+		combinations.add(new LinkedHashMap<>());
+		for (String name : names) {
+			List<Map<String, String>> next = new ArrayList<>();
+			for (Map<String, String> combination : combinations) {
+				for (String value : options.get(name).split(",")) {
+					Map<String, String> extended = new LinkedHashMap<>(combination);
+					extended.put(name, value.trim());
+					next.add(extended);
+				}
+			}
+			combinations = next;
+		}
+		return combinations;
+	}
+
+	/**
+	 * @param parameters values of parameters.
+	 * @param name       name of parameter.
+	 * @return integer value of parameter.
+	 */
+	private static int integer(Map<String, String> parameters, String name) {
+		return Integer.parseInt(parameters.get(name));
+	}
+
+	/**
+	 * @param workload workload.
+	 * @return UTF-8 bytes of text written by workload.
+	 */
+	private static byte[] bytes(Workload workload) {
+		StringBuilder sb = new StringBuilder();
+		try {
+			workload.write(sb);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,157 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Program which generates large synthetic inputs for every program, using
+ * {@link Workloads}:
+ * 
+ * <pre>
+ * java -cp out Generator dka --states=1000000 --symbols=8 --redundancy=0.2 --unreachable=0.1 &gt; dka.txt
+ * java -cp out Generator enka --states=100000 --epsilon=0.3 --sequences=10 --length=1000
+ * java -cp out Generator guessing --guesses=20
+ * java -cp out Generator pa --depth=10000 --sequences=5
+ * java -cp out Generator ts --length=1000000 --passes=10
+ * java -cp out Generator nts --guesses=20
+ * java -cp out Generator parser --depth=1000000 --count=1
+ * </pre>
+ * 
+ * Output is written onto {@link System#out} or into file given by
+ * <code>--output</code>, and is always the same for the same options and
+ * <code>--seed</code>. Option <code>--shape</code> chooses between
+ * <code>random</code> and <code>counter</code> DKA. For machines, number of
+ * steps until halt, run by <code>SimTS --whole-tape</code>, is printed onto
+ * {@link System#err}. With
+ * <code>--count</code> greater than one, parser inputs of random depth are
+ * written one per line, for <code>Parser --batch</code>, and share
+ * <code>--invalid</code> of them is not accepted.
+ * 
+ * @author dbrcina
+ *
+ */
+public class Generator {
+
+	/**
+	 * Default values of options.
+	 */
+	private static final String[][] DEFAULTS = { { "states", "1000" }, { "symbols", "4" }, { "shape", "random" },
+			{ "redundancy", "0.2" }, { "unreachable", "0.1" }, { "epsilon", "0.2" }, { "sequences", "10" },
+			{ "length", "1000" }, { "depth", "1000" }, { "passes", "1" }, { "count", "1" }, { "invalid", "0" },
+			{ "guesses", "16" }, { "seed", "42" }, { "output", "" } };
+
+	/**
+	 * Size of output buffer.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Main entry of this program.
+	 * 
+	 * @param args kind of workload followed by options.
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: Generator dka|enka|guessing|pa|ts|nts|parser [--option=value]...");
+			System.exit(1);
+		}
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String[] option : DEFAULTS) {
+			options.put(option[0], option[1]);
+		}
+		for (int i = 1; i < args.length; i++) {
+			int equals = args[i].indexOf('=');
+			String key = args[i].startsWith("--") && equals > 2 ? args[i].substring(2, equals) : null;
+			if (key == null || !options.containsKey(key)) {
+				System.err.println("Unknown option: " + args[i]);
+				System.exit(1);
+			}
+			options.put(key, args[i].substring(equals + 1));
+		}
+
+		String output = options.get("output");
+		try (OutputStream stream = output.isEmpty() ? System.out : Files.newOutputStream(Paths.get(output));
+				Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8),
+						BUFFER_SIZE)) {
+			generate(args[0], options, out);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Writes workload of given kind.
+	 * 
+	 * @param kind    kind of workload.
+	 * @param options options.
+	 * @param out     where workload is written.
+	 * @throws IOException if workload could not be written.
+	 */
+	private static void generate(String kind, Map<String, String> options, Writer out) throws IOException {
+		Random random = new Random(Long.parseLong(options.get("seed")));
+		switch (kind) {
+		case "dka":
+			Workloads.dka(random, Workloads.Shape.valueOf(options.get("shape").toUpperCase(Locale.ROOT)),
+					integer(options, "states"), integer(options, "symbols"), decimal(options, "redundancy"),
+					decimal(options, "unreachable"), out);
+			break;
+		case "enka":
+			Workloads.enka(random, integer(options, "states"), integer(options, "symbols"),
+					decimal(options, "epsilon"), integer(options, "sequences"), integer(options, "length"), out);
+			break;
+		case "guessing":
+			Workloads.guessingEnka(integer(options, "guesses"), out);
+			break;
+		case "pa":
+			Workloads.pa(random, integer(options, "depth"), integer(options, "sequences"), out);
+			break;
+		case "ts":
+			int length = integer(options, "length");
+			int passes = integer(options, "passes");
+			Workloads.ts(random, length, passes, out);
+			System.err.println("steps: " + Workloads.tsSteps(length, passes));
+			break;
+		case "nts":
+			Workloads.nts(random, integer(options, "guesses"), out);
+			break;
+		case "parser":
+			int depth = integer(options, "depth");
+			int count = integer(options, "count");
+			double invalid = decimal(options, "invalid");
+			for (int i = 0; i < count; i++) {
+				Workloads.parser(i == 0 ? depth : random.nextInt(depth + 1), random.nextDouble() >= invalid, out);
+				out.write('\n');
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown kind: " + kind);
+		}
+	}
+
+	/**
+	 * @param options options.
+	 * @param name    name of option.
+	 * @return integer value of option.
+	 */
+	private static int integer(Map<String, String> options, String name) {
+		return Integer.parseInt(options.get(name));
+	}
+
+	/**
+	 * @param options options.
+	 * @param name    name of option.
+	 * @return decimal value of option.
+	 */
+	private static double decimal(Map<String, String> options, String name) {
+		return Double.parseDouble(options.get(name));
+	}
+}
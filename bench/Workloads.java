@@ -0,0 +1,382 @@
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Synthetic inputs for benchmarks and load tests, written in exact text format
+ * of every program. Every workload is fully determined by its parameters and
+ * the seed of given {@link Random}.
+ * <p>
+ * Workloads are streamed onto an {@link Appendable}, so they can be written
+ * directly to a file. Only transition tables of generated DKA are kept in
+ * memory, one <code>int</code> per transition.
+ * </p>
+ *
+ * @author dbrcina
+ *
+ */
+public class Workloads {
+
+	/**
+	 * Shape of a generated DKA.
+	 */
+	public enum Shape {
+		/**
+		 * Random transitions, all states reachable through a spanning tree.
+		 */
+		RANDOM,
+		/**
+		 * Counter modulo number of states, symbol <code>i</code> adds
+		 * <code>i + 1</code>.
+		 */
+		COUNTER
+	}
+
+	/**
+	 * Probability that a generated state is acceptable.
+	 */
+	private static final double ACCEPTABLE = 0.3;
+
+	/**
+	 * Constructor is private, class only has static methods.
+	 */
+	private Workloads() {
+	}
+
+	/**
+	 * Writes DKA for <code>MinDka</code>. A share of states are redundant copies
+	 * of other states, each one reachable and equivalent to its original, and a
+	 * share of states are unreachable, so both phases of minimization have work
+	 * to do.
+	 *
+	 * @param random      source of randomness.
+	 * @param shape       shape of reachable part.
+	 * @param states      total number of states.
+	 * @param symbols     number of alphabet symbols.
+	 * @param redundancy  share of states which are redundant copies.
+	 * @param unreachable share of states which are unreachable.
+	 * @param out         where automaton is written.
+	 * @throws IOException if automaton could not be written.
+	 */
+	public static void dka(Random random, Shape shape, int states, int symbols, double redundancy,
+			double unreachable, Appendable out) throws IOException {
+		int copies = (int) Math.round(states * redundancy);
+		int unreachables = (int) Math.round(states * unreachable);
+		int core = Math.max(1, states - copies - unreachables);
+		states = core + copies + unreachables;
+		int k = symbols;
+		int[] transitions = new int[states * k];
+		boolean[] acceptable = new boolean[states];
+		// slots which keep core states reachable must not be redirected
+		boolean[] fixed = new boolean[core * k];
+
+		for (int state = 0; state < core; state++) {
+			acceptable[state] = random.nextDouble() < ACCEPTABLE;
+			for (int symbol = 0; symbol < k; symbol++) {
+				transitions[state * k + symbol] = shape == Shape.COUNTER ? (state + symbol + 1) % core
+						: random.nextInt(core);
+			}
+		}
+		if (shape == Shape.COUNTER) {
+			for (int state = 0; state < core; state++) {
+				fixed[state * k] = true;
+			}
+		} else {
+			for (int state = 1; state < core; state++) {
+				transitions[state - 1] = state;
+				fixed[state - 1] = true;
+			}
+		}
+
+		int free = core * k - (shape == Shape.COUNTER ? core : core - 1);
+		for (int copy = core; copy < core + copies; copy++) {
+			int original = random.nextInt(core);
+			if (free > 0) {
+				int slot;
+				do {
+					slot = random.nextInt(core * k);
+				} while (fixed[slot]);
+				original = transitions[slot];
+				transitions[slot] = copy;
+			}
+			System.arraycopy(transitions, original * k, transitions, copy * k, k);
+			acceptable[copy] = acceptable[original];
+		}
+		for (int state = core + copies; state < states; state++) {
+			acceptable[state] = random.nextDouble() < ACCEPTABLE;
+			for (int symbol = 0; symbol < k; symbol++) {
+				transitions[state * k + symbol] = random.nextInt(states);
+			}
+		}
+
+		names(out, "q", states).append('\n');
+		names(out, "s", symbols).append('\n');
+		boolean first = true;
+		for (int state = 0; state < states; state++) {
+			if (acceptable[state]) {
+				out.append(first ? "q" : ",q").append(Integer.toString(state));
+				first = false;
+			}
+		}
+		out.append("\nq0\n");
+		for (int state = 0; state < states; state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				out.append('q').append(Integer.toString(state)).append(",s").append(Integer.toString(symbol))
+						.append("->q").append(Integer.toString(transitions[state * k + symbol])).append('\n');
+			}
+		}
+	}
+
+	/**
+	 * Writes random epsilon-NFA for <code>SimEnka</code>, preceded by input
+	 * sequences.
+	 *
+	 * @param random    source of randomness.
+	 * @param states    number of states.
+	 * @param symbols   number of alphabet symbols.
+	 * @param epsilon   probability that a state has epsilon transitions.
+	 * @param sequences number of input sequences.
+	 * @param length    length of every input sequence.
+	 * @param out       where automaton is written.
+	 * @throws IOException if automaton could not be written.
+	 */
+	public static void enka(Random random, int states, int symbols, double epsilon, int sequences, int length,
+			Appendable out) throws IOException {
+		for (int i = 0; i < sequences; i++) {
+			if (i > 0) {
+				out.append('|');
+			}
+			for (int j = 0; j < length; j++) {
+				out.append(j > 0 ? ",s" : "s").append(Integer.toString(random.nextInt(symbols)));
+			}
+		}
+		out.append('\n');
+		names(out, "q", states).append('\n');
+		names(out, "s", symbols).append('\n');
+		acceptable(out, random, states).append('\n');
+		out.append("q0\n");
+		for (int state = 0; state < states; state++) {
+			for (int symbol = 0; symbol < symbols; symbol++) {
+				if (random.nextInt(4) != 0) {
+					out.append('q').append(Integer.toString(state)).append(",s").append(Integer.toString(symbol))
+							.append("->");
+					targets(out, random, states, 1 + random.nextInt(2)).append('\n');
+				}
+			}
+			if (random.nextDouble() < epsilon) {
+				out.append('q').append(Integer.toString(state)).append(",$->");
+				targets(out, random, states, 1 + random.nextInt(2)).append('\n');
+			}
+		}
+	}
+
+	/**
+	 * Writes epsilon-NFA for <code>MinDka --enka</code> which guesses states of
+	 * a ring of <code>guesses</code> states: symbol <code>0</code> moves every
+	 * guess one state further and symbol <code>1</code> adds a guess in the
+	 * first state, so its DKA has <code>2^guesses</code> states. Symbol
+	 * <code>E</code> leads every state into the only acceptable state, so
+	 * minimal DKA has two states and so has DKA of its reversal.
+	 *
+	 * @param guesses number of states of ring.
+	 * @param out     where automaton is written.
+	 * @throws IOException if automaton could not be written.
+	 */
+	public static void guessingEnka(int guesses, Appendable out) throws IOException {
+		out.append("1,0,1,E\n");
+		names(out, "g", guesses).append(",f\n");
+		out.append("0,1,E\nf\ng0\n");
+		for (int state = 0; state < guesses; state++) {
+			out.append('g').append(Integer.toString(state)).append(",0->g")
+					.append(Integer.toString((state + 1) % guesses)).append('\n');
+			out.append('g').append(Integer.toString(state)).append(",1->g0");
+			if (state > 0) {
+				out.append(",g").append(Integer.toString(state));
+			}
+			out.append('\n');
+			out.append('g').append(Integer.toString(state)).append(",E->f\n");
+		}
+	}
+
+	/**
+	 * Writes deterministic PDA for <code>SimPa</code> which accepts
+	 * <i>a<sup>n</sup>b<sup>n</sup></i>, preceded by input sequences. The first
+	 * sequence pushes exactly <code>depth</code> symbols onto stack and pops
+	 * them, the others reach random depth up to <code>depth</code> and every
+	 * fourth of them is unbalanced.
+	 *
+	 * @param random    source of randomness.
+	 * @param depth     maximal stack depth.
+	 * @param sequences number of input sequences.
+	 * @param out       where automaton is written.
+	 * @throws IOException if automaton could not be written.
+	 */
+	public static void pa(Random random, int depth, int sequences, Appendable out) throws IOException {
+		for (int i = 0; i < sequences; i++) {
+			if (i > 0) {
+				out.append('|');
+			}
+			int pushes = i == 0 ? depth : 1 + random.nextInt(depth);
+			int pops = i % 4 == 3 ? random.nextInt(2 * pushes) + 1 : pushes;
+			for (int j = 0; j < pushes + pops; j++) {
+				if (j > 0) {
+					out.append(',');
+				}
+				out.append(j < pushes ? 'a' : 'b');
+			}
+		}
+		out.append('\n');
+		out.append("q0,q1,q2\na,b\nK,A\nq2\nq0\nK\n");
+		out.append("q0,a,K->q0,AK\n");
+		out.append("q0,a,A->q0,AA\n");
+		out.append("q0,b,A->q1,$\n");
+		out.append("q1,b,A->q1,$\n");
+		out.append("q1,$,K->q2,K\n");
+	}
+
+	/**
+	 * Writes <i>Turing machine</i> for <code>SimTS</code> which sweeps over
+	 * <code>length</code> cells between two end markers <code>passes</code>
+	 * times, inverting every cell it passes. Run with
+	 * <code>SimTS --whole-tape</code>, it halts after exactly
+	 * {@link #tsSteps(int, int)} steps.
+	 *
+	 * @param random source of randomness.
+	 * @param length number of cells between markers.
+	 * @param passes number of passes, at least <code>1</code>.
+	 * @param out    where machine is written.
+	 * @throws IOException if machine could not be written.
+	 */
+	public static void ts(Random random, int length, int passes, Appendable out) throws IOException {
+		for (int pass = 0; pass < passes; pass++) {
+			out.append('p').append(Integer.toString(pass)).append(',');
+		}
+		out.append("h\n0,1\n0,1,S,E,B\nB\nS");
+		for (int i = 0; i < length; i++) {
+			out.append(random.nextBoolean() ? '1' : '0');
+		}
+		out.append("E\nh\np0\n1\n");
+		for (int pass = 0; pass < passes; pass++) {
+			String state = "p" + pass;
+			String move = pass % 2 == 0 ? "R" : "L";
+			String marker = pass % 2 == 0 ? "E" : "S";
+			String next = pass == passes - 1 ? "h" : "p" + (pass + 1);
+			out.append(state).append(",0->").append(state).append(",1,").append(move).append('\n');
+			out.append(state).append(",1->").append(state).append(",0,").append(move).append('\n');
+			out.append(state).append(',').append(marker).append("->").append(next).append(',').append(marker)
+					.append(pass % 2 == 0 ? ",L" : ",R").append('\n');
+		}
+	}
+
+	/**
+	 * Writes nondeterministic <i>Turing machine</i> for
+	 * <code>SimTS --nondeterministic</code> which guesses every one of
+	 * <code>guesses</code> cells while moving right and accepts when it reaches
+	 * the end marker, so every level of exploration doubles until all
+	 * <code>2^guesses</code> branches accept together.
+	 *
+	 * @param random  source of randomness.
+	 * @param guesses number of guessed cells.
+	 * @param out     where machine is written.
+	 * @throws IOException if machine could not be written.
+	 */
+	public static void nts(Random random, int guesses, Appendable out) throws IOException {
+		out.append("g,h\n0,1\n0,1,E,B\nB\n");
+		for (int i = 0; i < guesses; i++) {
+			out.append(random.nextBoolean() ? '1' : '0');
+		}
+		out.append("E\nh\ng\n0\n");
+		out.append("g,0->g,0,R|g,1,R\n");
+		out.append("g,1->g,1,R|g,0,R\n");
+		out.append("g,E->h,E,L\n");
+	}
+
+	/**
+	 * Returns number of steps done by machine written by
+	 * {@link #ts(Random, int, int, Appendable)}.
+	 *
+	 * @param length number of cells between markers.
+	 * @param passes number of passes.
+	 * @return number of steps.
+	 */
+	public static long tsSteps(int length, int passes) {
+		return (long) passes * (length + 1);
+	}
+
+	/**
+	 * Writes input for <code>Parser</code> which nests <i>B - production</i>
+	 * <code>depth</code> times. Unless it is <code>valid</code>, its last sign
+	 * is missing.
+	 *
+	 * @param depth nesting depth.
+	 * @param valid whether input is accepted.
+	 * @param out   where input is written.
+	 * @throws IOException if input could not be written.
+	 */
+	public static void parser(int depth, boolean valid, Appendable out) throws IOException {
+		for (int i = 0; i < depth; i++) {
+			out.append("aacc");
+		}
+		out.append(valid || depth > 0 ? "aa" : "a");
+		for (int i = 0; i < depth; i++) {
+			out.append(valid || i < depth - 1 ? "bc" : "b");
+		}
+	}
+
+	/**
+	 * Appends comma separated names <code>prefix0..prefix(n-1)</code>.
+	 *
+	 * @param out    where names are appended.
+	 * @param prefix prefix of every name.
+	 * @param n      number of names.
+	 * @return <code>out</code>.
+	 * @throws IOException if names could not be appended.
+	 */
+	private static Appendable names(Appendable out, String prefix, int n) throws IOException {
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				out.append(',');
+			}
+			out.append(prefix).append(Integer.toString(i));
+		}
+		return out;
+	}
+
+	/**
+	 * Appends randomly chosen acceptable states.
+	 *
+	 * @param out    where states are appended.
+	 * @param random source of randomness.
+	 * @param states number of states.
+	 * @return <code>out</code>.
+	 * @throws IOException if states could not be appended.
+	 */
+	private static Appendable acceptable(Appendable out, Random random, int states) throws IOException {
+		boolean first = true;
+		for (int state = 0; state < states; state++) {
+			if (random.nextDouble() < ACCEPTABLE) {
+				out.append(first ? "q" : ",q").append(Integer.toString(state));
+				first = false;
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Appends up to <code>count</code> distinct random states in increasing
+	 * order.
+	 *
+	 * @param out    where states are appended.
+	 * @param random source of randomness.
+	 * @param states number of states.
+	 * @param count  number of drawn states.
+	 * @return <code>out</code>.
+	 * @throws IOException if states could not be appended.
+	 */
+	private static Appendable targets(Appendable out, Random random, int states, int count) throws IOException {
+		int[] targets = random.ints(count, 0, states).sorted().distinct().toArray();
+		for (int i = 0; i < targets.length; i++) {
+			out.append(i > 0 ? ",q" : "q").append(Integer.toString(targets[i]));
+		}
+		return out;
+	}
+}
@@ -0,0 +1,35 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Minimization of epsilon-NFA straight into minimal DKA by <code>EnkaMinimizer</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class BrzozowskiBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Number of nondeterministic choices.
+	 */
+	@Param({ "12", "16" })
+	public String guesses;
+
+	@Override
+	protected String program() {
+		return "MinDka";
+	}
+
+	/**
+	 * Minimizes epsilon-NFA.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object brzozowski() throws Exception {
+		return operation.call();
+	}
+}
@@ -0,0 +1,35 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Parsing by <code>EarleyParser</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class EarleyParserBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Nesting depth of parser input.
+	 */
+	@Param({ "1000", "100000" })
+	public String depth;
+
+	@Override
+	protected String program() {
+		return "EarleyParser";
+	}
+
+	/**
+	 * Parses input and prints trace.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object trace() throws Exception {
+		return operation.call();
+	}
+}
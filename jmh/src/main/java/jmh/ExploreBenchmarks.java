@@ -0,0 +1,41 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Exploration of nondeterministic <i>Turing machine</i> by <code>SimTS</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class ExploreBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Number of nondeterministic choices.
+	 */
+	@Param({ "12", "16" })
+	public String guesses;
+
+	/**
+	 * Number of threads.
+	 */
+	@Param({ "1", "4" })
+	public String threads;
+
+	@Override
+	protected String program() {
+		return "SimTS";
+	}
+
+	/**
+	 * Explores configurations of machine.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object explore() throws Exception {
+		return operation.call();
+	}
+}
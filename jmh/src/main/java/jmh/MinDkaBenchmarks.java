@@ -0,0 +1,80 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Loading, minimization and matching of DKA by <code>MinDka</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class MinDkaBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Number of automaton states.
+	 */
+	@Param({ "1000", "100000" })
+	public String states;
+
+	/**
+	 * Alphabet size.
+	 */
+	@Param({ "4", "16" })
+	public String symbols;
+
+	/**
+	 * Share of DKA states which are equivalent copies of other states.
+	 */
+	@Param({ "0", "0.3" })
+	public String redundancy;
+
+	@Override
+	protected String program() {
+		return "MinDka";
+	}
+
+	/**
+	 * Loads DKA.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object load() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Minimizes DKA.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object minimize() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Matches input by transition table of minimal DKA.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object tableMatch() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Matches input by bytecode compiled minimal DKA.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object compiledMatch() throws Exception {
+		return operation.call();
+	}
+}
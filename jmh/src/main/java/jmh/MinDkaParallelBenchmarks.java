@@ -0,0 +1,64 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Parallel minimization and matching of DKA by <code>MinDka</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class MinDkaParallelBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Number of automaton states.
+	 */
+	@Param({ "1000", "100000" })
+	public String states;
+
+	/**
+	 * Alphabet size.
+	 */
+	@Param({ "4", "16" })
+	public String symbols;
+
+	/**
+	 * Share of DKA states which are equivalent copies of other states.
+	 */
+	@Param({ "0", "0.3" })
+	public String redundancy;
+
+	/**
+	 * Number of threads.
+	 */
+	@Param({ "1", "4" })
+	public String threads;
+
+	@Override
+	protected String program() {
+		return "MinDka";
+	}
+
+	/**
+	 * Removes identical states of DKA in parallel.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object parallel() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Matches input split into chunks matched in parallel.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object match() throws Exception {
+		return operation.call();
+	}
+}
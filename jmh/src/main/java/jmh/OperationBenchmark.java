@@ -0,0 +1,73 @@
+package jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Base of <i>JMH</i> benchmarks of operations defined by
+ * <code>Benchmarks</code>. Operation measured by benchmark method
+ * <code>m</code> of subclass is <code>Benchmarks</code> operation
+ * <code>program.m</code>, prepared once per trial from values of
+ * <code>@Param</code> fields of subclass, so every fork builds only workload of
+ * benchmark it runs.
+ * <p>
+ * <code>Benchmarks</code> is in the default package, which can not be imported,
+ * so operation is obtained reflectively; measured calls are direct.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class OperationBenchmark {
+
+	/**
+	 * Measured operation.
+	 */
+	protected Callable<Object> operation;
+
+	/**
+	 * @return name of program whose operations are measured, prefix of
+	 *         <code>Benchmarks</code> names.
+	 */
+	protected abstract String program();
+
+	/**
+	 * Prepares operation of benchmark which is run.
+	 * 
+	 * @param params parameters of benchmark.
+	 * @throws Exception if there is no such operation or it could not be
+	 *                   prepared.
+	 */
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setup(BenchmarkParams params) throws Exception {
+		String benchmark = params.getBenchmark();
+		String name = program() + benchmark.substring(benchmark.lastIndexOf('.'));
+		Map<String, String> parameters = new HashMap<>();
+		for (String key : params.getParamsKeys()) {
+			parameters.put(key, params.getParam(key));
+		}
+		operation = (Callable<Object>) Class.forName("Benchmarks").getMethod("operation", String.class, Map.class)
+				.invoke(null, name, parameters);
+	}
+}
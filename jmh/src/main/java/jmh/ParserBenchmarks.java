@@ -0,0 +1,57 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Parsing by recursive descent <code>Parser</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class ParserBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Nesting depth of parser input.
+	 */
+	@Param({ "1000", "100000" })
+	public String depth;
+
+	@Override
+	protected String program() {
+		return "Parser";
+	}
+
+	/**
+	 * Parses input and prints trace.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object trace() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Parses input without trace.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object noTrace() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Reparses input edited near its end.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object editNearEnd() throws Exception {
+		return operation.call();
+	}
+}
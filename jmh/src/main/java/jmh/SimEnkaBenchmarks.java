@@ -0,0 +1,64 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Loading and simulation of epsilon-NFA by <code>SimEnka</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class SimEnkaBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Number of automaton states.
+	 */
+	@Param({ "1000", "100000" })
+	public String states;
+
+	/**
+	 * Alphabet size.
+	 */
+	@Param({ "4", "16" })
+	public String symbols;
+
+	/**
+	 * Probability that a state has epsilon transitions.
+	 */
+	@Param({ "0.1", "0.5" })
+	public String epsilon;
+
+	/**
+	 * Length of input sequences and tape.
+	 */
+	@Param({ "1000", "100000" })
+	public String length;
+
+	@Override
+	protected String program() {
+		return "SimEnka";
+	}
+
+	/**
+	 * Loads epsilon-NFA.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object load() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Simulates every input sequence.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object simulate() throws Exception {
+		return operation.call();
+	}
+}
@@ -0,0 +1,46 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Loading and simulation of PDA by <code>SimPa</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class SimPaBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Stack depth reached by PDA.
+	 */
+	@Param({ "100", "1000" })
+	public String stack;
+
+	@Override
+	protected String program() {
+		return "SimPa";
+	}
+
+	/**
+	 * Loads PDA.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object load() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Simulates every input sequence.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object simulate() throws Exception {
+		return operation.call();
+	}
+}
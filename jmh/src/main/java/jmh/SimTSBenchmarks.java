@@ -0,0 +1,57 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Loading and simulation of <i>Turing machine</i> by <code>SimTS</code>.
+ * 
+ * @author dbrcina
+ *
+ */
+public class SimTSBenchmarks extends OperationBenchmark {
+
+	/**
+	 * Length of input sequences and tape.
+	 */
+	@Param({ "1000", "100000" })
+	public String length;
+
+	@Override
+	protected String program() {
+		return "SimTS";
+	}
+
+	/**
+	 * Loads Turing machine.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object load() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Simulates machine by its transition table.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object simulate() throws Exception {
+		return operation.call();
+	}
+
+	/**
+	 * Simulates bytecode compiled machine.
+	 * 
+	 * @return result of operation.
+	 * @throws Exception if operation fails.
+	 */
+	@Benchmark
+	public Object compiled() throws Exception {
+		return operation.call();
+	}
+}
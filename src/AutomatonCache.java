@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Directory of compiled automata keyed by SHA-256 hash of their text
+ * definitions. A repeated run on the same input maps its
+ * {@link CompiledAutomaton} image instead of parsing text again.
+ * <p>
+ * Cache is enabled by option <code>--cache=&lt;directory&gt;</code>. Image which
+ * can not be read is ignored and replaced, and failure to store an image never
+ * fails the program. Class files of generated code, see
+ * {@link #compile(String, String)}, are kept in the same directory.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class AutomatonCache {
+
+	/**
+	 * Prefix of option which enables cache.
+	 */
+	public static final String CACHE_OPTION = "--cache=";
+
+	/**
+	 * Extension of image files.
+	 */
+	private static final String EXTENSION = ".bin";
+
+	/**
+	 * Extension of class files of generated code.
+	 */
+	private static final String CLASS_EXTENSION = ".class";
+
+	/**
+	 * Cache directory or <code>null</code> if cache is disabled.
+	 */
+	private final Path directory;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param directory cache directory or <code>null</code> if cache is disabled.
+	 */
+	public AutomatonCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Creates cache from program arguments.
+	 * 
+	 * @param args program arguments.
+	 * @return cache, disabled if option {@value #CACHE_OPTION} is not given.
+	 */
+	public static AutomatonCache of(String[] args) {
+		for (String arg : args) {
+			if (arg.startsWith(CACHE_OPTION)) {
+				return new AutomatonCache(Paths.get(arg.substring(CACHE_OPTION.length())));
+			}
+		}
+		return new AutomatonCache(null);
+	}
+
+	/**
+	 * Loads automaton described by program arguments: from input file or
+	 * {@link System#in}, through this cache if it is enabled.
+	 * 
+	 * @param args program arguments.
+	 * @param kind kind of automaton.
+	 * @return loaded automaton.
+	 * @throws IOException if input could not be read.
+	 */
+	public static CompiledAutomaton load(String[] args, CompiledAutomaton.Kind kind) throws IOException {
+		return of(args).load(AutomatonReader.open(args), kind);
+	}
+
+	/**
+	 * Loads automaton from <code>reader</code>, or from its cached image if input
+	 * was already compiled.
+	 * 
+	 * @param reader reader positioned at the start of input.
+	 * @param kind   kind of automaton.
+	 * @return loaded automaton.
+	 */
+	public CompiledAutomaton load(AutomatonReader reader, CompiledAutomaton.Kind kind) {
+		if (directory == null) {
+			return CompiledAutomaton.parse(reader, kind);
+		}
+		Path file = directory.resolve(key(reader.input()) + "." + kind.name().toLowerCase() + EXTENSION);
+		if (Files.isRegularFile(file)) {
+			try {
+				return CompiledAutomaton.map(file, kind);
+			} catch (IOException e) {
+				// stale or corrupted image, it is replaced below
+			}
+		}
+		CompiledAutomaton automaton = CompiledAutomaton.parse(reader, kind);
+		store(automaton::write, file);
+		return automaton;
+	}
+
+	/**
+	 * Compiles generated source by {@link ClassCompiler}, or loads its class file
+	 * if the same source was already compiled. Class files are kept next to
+	 * images, keyed by hash of source.
+	 * 
+	 * @param className simple name of class.
+	 * @param source    source code.
+	 * @return class file.
+	 * @throws IllegalStateException if source could not be compiled.
+	 */
+	public byte[] compile(String className, String source) {
+		if (directory == null) {
+			return ClassCompiler.compile(className, source);
+		}
+		Path file = directory.resolve(key(StandardCharsets.UTF_8.encode(source)) + CLASS_EXTENSION);
+		if (Files.isRegularFile(file)) {
+			try {
+				return Files.readAllBytes(file);
+			} catch (IOException e) {
+				// unreadable class file, it is replaced below
+			}
+		}
+		byte[] classFile = ClassCompiler.compile(className, source);
+		store(temporary -> Files.write(temporary, classFile), file);
+		return classFile;
+	}
+
+	/**
+	 * Writes content into a temporary file which is then moved to
+	 * <code>file</code>, so concurrent runs never see a partial file.
+	 * 
+	 * @param content writer of content.
+	 * @param file    target file.
+	 */
+	private void store(Content content, Path file) {
+		Path temporary = null;
+		try {
+			Files.createDirectories(directory);
+			temporary = Files.createTempFile(directory, "automaton", ".tmp");
+			content.write(temporary);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Could not store " + file.getFileName() + ": " + e.getMessage());
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes key of input.
+	 * 
+	 * @param input input, read from its position to its limit.
+	 * @return hexadecimal SHA-256 hash of input.
+	 */
+	static String key(ByteBuffer input) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(input);
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writer of content of a cached file.
+	 */
+	private interface Content {
+
+		/**
+		 * Writes content.
+		 * 
+		 * @param file where content is written.
+		 * @throws IOException if content could not be written.
+		 */
+		void write(Path file) throws IOException;
+	}
+}
@@ -0,0 +1,137 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Client of {@link AutomatonServer}. One client keeps one connection and can
+ * send any number of requests over it.
+ * <p>
+ * As a program it sends one request, given as program name followed by the
+ * same arguments that program takes, and prints its output:
+ * </p>
+ * 
+ * <pre>
+ * java AutomatonClient SimEnka [--socket=&lt;path&gt; | --port=&lt;port&gt;] [file] &lt; input
+ * </pre>
+ * 
+ * @author dbrcina
+ *
+ */
+public class AutomatonClient implements AutoCloseable {
+
+	/**
+	 * Connection.
+	 */
+	private final SocketChannel channel;
+
+	/**
+	 * Input of connection.
+	 */
+	private final DataInputStream in;
+
+	/**
+	 * Output of connection.
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * Buffer for chunks of response.
+	 */
+	private byte[] chunk = new byte[1 << 13];
+
+	/**
+	 * Constructor, connects to service.
+	 * 
+	 * @param address address of service.
+	 * @throws IOException if connection could not be established.
+	 */
+	public AutomatonClient(SocketAddress address) throws IOException {
+		if (address instanceof UnixDomainSocketAddress) {
+			channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+		} else {
+			channel = SocketChannel.open();
+		}
+		channel.connect(address);
+		if (address instanceof InetSocketAddress) {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		}
+		in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+	}
+
+	/**
+	 * Main entry of this program.
+	 * 
+	 * @param args program name followed by its arguments.
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: AutomatonClient MinDka|SimEnka|SimPa|SimTS [options] [file]");
+			System.exit(1);
+		}
+		String[] rest = new String[args.length - 1];
+		System.arraycopy(args, 1, rest, 0, rest.length);
+		String file = null;
+		for (String arg : rest) {
+			if (!arg.startsWith("--")) {
+				file = arg;
+				break;
+			}
+		}
+		try (AutomatonClient client = new AutomatonClient(AutomatonServer.address(rest))) {
+			byte[] input = file == null ? System.in.readAllBytes() : Files.readAllBytes(Paths.get(file));
+			client.run(args[0], input, System.out);
+			System.out.flush();
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Sends one request and copies its output onto <code>output</code> as it
+	 * arrives. If program fails while its output is streamed, output copied so
+	 * far is incomplete and exception is thrown after it.
+	 * 
+	 * @param program name of program.
+	 * @param input   text input of program.
+	 * @param output  where output of program is copied.
+	 * @throws IOException if request failed or connection was lost.
+	 */
+	public void run(String program, byte[] input, OutputStream output) throws IOException {
+		out.writeUTF(program);
+		out.writeInt(input.length);
+		out.write(input);
+		out.flush();
+		if (in.readByte() != AutomatonServer.OK) {
+			throw new IOException(in.readUTF());
+		}
+		for (int length = in.readInt(); length > 0; length = in.readInt()) {
+			if (length > chunk.length) {
+				chunk = new byte[length];
+			}
+			in.readFully(chunk, 0, length);
+			output.write(chunk, 0, length);
+		}
+		if (in.readByte() != AutomatonServer.OK) {
+			throw new IOException(in.readUTF());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
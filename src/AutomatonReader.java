@@ -0,0 +1,1049 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reader of the text format shared by all automata programs. Lists of names are
+ * separated by <code>','</code>, input sequences by <code>'|'</code> and
+ * transitions are written as <code>left-&gt;right</code>, one per line, until
+ * the end of input or the first empty line.
+ * <p>
+ * Whole input is kept in one {@link ByteBuffer}, memory mapped when it comes
+ * from a file. It is tokenized in a single pass over bytes, without regular
+ * expressions or intermediate strings, and names are interned directly to
+ * integer indexes. A {@link String} is created only once for every distinct
+ * name.
+ * </p>
+ * <p>
+ * Lists are split the same way as {@link String#split(String)} splits them:
+ * lines are trimmed and trailing empty names are dropped.
+ * </p>
+ * <p>
+ * Every automaton is read by its own method which returns an immutable model.
+ * Programs whose first line contains input sequences should call
+ * {@link #readSequences()} first.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class AutomatonReader {
+
+	/**
+	 * Constant used for separating input sequences.
+	 */
+	private static final byte SEQUENCE_SEPARATOR = '|';
+
+	/**
+	 * Constant used for separating symbols inside text.
+	 */
+	private static final byte SYMBOL_SEPARATOR = ',';
+
+	/**
+	 * Constant used for separating successors of nondeterministic transition.
+	 */
+	private static final byte SUCCESSOR_SEPARATOR = '|';
+
+	/**
+	 * First byte of separator between transitions.
+	 */
+	private static final byte TRANSITION_SEPARATOR_START = '-';
+
+	/**
+	 * Second byte of separator between transitions.
+	 */
+	private static final byte TRANSITION_SEPARATOR_END = '>';
+
+	/**
+	 * Constant representing empty state set.
+	 */
+	private static final byte EMPTY_STATE = '#';
+
+	/**
+	 * Input.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Position of next unread byte.
+	 */
+	private int position;
+
+	/**
+	 * First byte of current trimmed line.
+	 */
+	private int lineStart;
+
+	/**
+	 * Position after the last byte of current trimmed line.
+	 */
+	private int lineEnd;
+
+	/**
+	 * Input symbols interned so far, shared by input sequences and automaton.
+	 */
+	private final Names symbols = new Names();
+
+	/**
+	 * Reusable tokens of a list.
+	 */
+	private final Tokens tokens = new Tokens();
+
+	/**
+	 * Reusable tokens of an inner list.
+	 */
+	private final Tokens innerTokens = new Tokens();
+
+	/**
+	 * First byte of right side of current transition.
+	 */
+	private int rightStart;
+
+	/**
+	 * Position after the last byte of right side of current transition.
+	 */
+	private int rightEnd;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param buffer input, read from its position to its limit.
+	 */
+	public AutomatonReader(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.position = buffer.position();
+	}
+
+	/**
+	 * Creates reader which memory maps <code>file</code>.
+	 * 
+	 * @param file file.
+	 * @return new reader.
+	 * @throws IOException if file could not be mapped.
+	 */
+	public static AutomatonReader open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("File is too large: " + file);
+			}
+			return new AutomatonReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Creates reader which reads all bytes from <code>in</code>.
+	 * 
+	 * @param in input stream.
+	 * @return new reader.
+	 * @throws IOException if input could not be read.
+	 */
+	public static AutomatonReader read(InputStream in) throws IOException {
+		return new AutomatonReader(ByteBuffer.wrap(in.readAllBytes()));
+	}
+
+	/**
+	 * Creates reader for program arguments. The first argument which does not
+	 * start with <code>--</code> is a path of input file, otherwise input is read
+	 * from {@link System#in}.
+	 * 
+	 * @param args program arguments.
+	 * @return new reader.
+	 * @throws IOException if input could not be read.
+	 */
+	public static AutomatonReader open(String[] args) throws IOException {
+		for (String arg : args) {
+			if (!arg.startsWith("--")) {
+				return open(Paths.get(arg));
+			}
+		}
+		return read(System.in);
+	}
+
+	/**
+	 * @return read-only view of the whole input, independent of what was read so
+	 *         far.
+	 */
+	public ByteBuffer input() {
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return read-only view of input which is not read yet.
+	 */
+	public ByteBuffer rest() {
+		ByteBuffer rest = buffer.asReadOnlyBuffer();
+		rest.position(Math.min(position, buffer.limit()));
+		return rest;
+	}
+
+	/**
+	 * @return table of input symbols interned so far, in order of their indexes.
+	 */
+	public SymbolTable symbols() {
+		return symbols.toSymbolTable();
+	}
+
+	/**
+	 * Reads one line of input sequences. Sequences are separated by
+	 * <code>'|'</code> and their symbols by <code>','</code>.
+	 * 
+	 * @return list of sequences, each one given as an array of symbol indexes.
+	 */
+	public List<int[]> readSequences() {
+		nextLine();
+		List<int[]> sequences = new ArrayList<>();
+		split(lineStart, lineEnd, SEQUENCE_SEPARATOR, tokens);
+		for (int i = 0; i < tokens.count; i++) {
+			split(tokens.start(i), tokens.end(i), SYMBOL_SEPARATOR, innerTokens);
+			int[] sequence = new int[innerTokens.count];
+			for (int j = 0; j < sequence.length; j++) {
+				sequence[j] = symbols.intern(buffer, innerTokens.start(j), innerTokens.end(j));
+			}
+			sequences.add(sequence);
+		}
+		return sequences;
+	}
+
+	/**
+	 * Reads one line of input sequences against symbols of an already loaded
+	 * automaton. Symbols are not interned, those not in <code>alphabet</code>
+	 * are given as <code>-1</code>.
+	 * 
+	 * @param alphabet input symbols of automaton.
+	 * @return list of sequences, each one given as an array of symbol indexes.
+	 */
+	public List<int[]> readSequences(SymbolTable alphabet) {
+		nextLine();
+		Names names = Names.of(alphabet);
+		List<int[]> sequences = new ArrayList<>();
+		split(lineStart, lineEnd, SEQUENCE_SEPARATOR, tokens);
+		for (int i = 0; i < tokens.count; i++) {
+			split(tokens.start(i), tokens.end(i), SYMBOL_SEPARATOR, innerTokens);
+			int[] sequence = new int[innerTokens.count];
+			for (int j = 0; j < sequence.length; j++) {
+				sequence[j] = names.find(buffer, innerTokens.start(j), innerTokens.end(j));
+			}
+			sequences.add(sequence);
+		}
+		return sequences;
+	}
+
+	/**
+	 * Skips one line, such as the line of input sequences of an automaton which
+	 * is already loaded.
+	 */
+	public void skipLine() {
+		nextLine();
+	}
+
+	/**
+	 * Reads deterministic finite automaton.
+	 * 
+	 * @return automaton.
+	 */
+	public Dka readDka() {
+		Names states = Names.of(SymbolTable.sorted(nextList()));
+		Names symbols = Names.of(SymbolTable.sorted(nextList()));
+		boolean[] acceptable = acceptable(states);
+		nextLine();
+		int initialState = state(states, lineStart, lineEnd);
+
+		int k = symbols.size();
+		int[] transitions = new int[states.size() * k];
+		Arrays.fill(transitions, Dka.UNDEFINED);
+		while (nextTransition()) {
+			int symbol = symbols.find(buffer, tokens.start(1), tokens.end(1));
+			if (symbol == -1) {
+				throw new IllegalArgumentException("Unknown symbol: " + tokens.string(buffer, 1));
+			}
+			transitions[state(states, tokens.start(0), tokens.end(0)) * k + symbol] = state(states,
+					innerTokens.start(0), innerTokens.end(0));
+		}
+		return new Dka(states.toSymbolTable(), symbols.toSymbolTable(), acceptable, initialState, transitions);
+	}
+
+	/**
+	 * Reads epsilon-NFA. Symbols of previously read input sequences are interned
+	 * as well.
+	 * 
+	 * @return automaton.
+	 */
+	public Enka readEnka() {
+		Names states = Names.of(SymbolTable.sorted(nextList()));
+		internList(symbols);
+		boolean[] acceptable = acceptable(states);
+		nextLine();
+		int initialState = state(states, lineStart, lineEnd);
+		int epsilon = symbols.intern(Enka.EPSILON);
+
+		IntList keys = new IntList();
+		IntList targets = new IntList();
+		IntList epsilonKeys = new IntList();
+		IntList epsilonTargets = new IntList();
+		while (nextTransition()) {
+			int state = state(states, tokens.start(0), tokens.end(0));
+			int symbol = symbols.intern(buffer, tokens.start(1), tokens.end(1));
+			keys.add(state);
+			keys.add(symbol);
+			keys.add(targets.size());
+			nextStates(states, targets, false);
+			keys.add(targets.size());
+			if (symbol == epsilon) {
+				epsilonKeys.add(state);
+				epsilonKeys.add(epsilonTargets.size());
+				nextStates(states, epsilonTargets, true);
+				epsilonKeys.add(epsilonTargets.size());
+			}
+		}
+
+		int n = states.size();
+		int k = symbols.size();
+		int[][] transitions = new int[n * k][];
+		for (int i = 0; i < keys.size(); i += 4) {
+			transitions[keys.get(i) * k + keys.get(i + 1)] = targets.sortedRange(keys.get(i + 2), keys.get(i + 3));
+		}
+		int[][] epsilonTransitions = new int[n][];
+		for (int i = 0; i < epsilonKeys.size(); i += 3) {
+			epsilonTransitions[epsilonKeys.get(i)] = epsilonTargets.sortedRange(epsilonKeys.get(i + 1),
+					epsilonKeys.get(i + 2));
+		}
+		return new Enka(states.toSymbolTable(), symbols.toSymbolTable(), acceptable, initialState, transitions,
+				epsilonTransitions);
+	}
+
+	/**
+	 * Reads deterministic pushdown automaton. Symbols of previously read input
+	 * sequences are interned as well.
+	 * 
+	 * @return automaton.
+	 */
+	public Pa readPa() {
+		Names states = new Names();
+		internList(states);
+		symbols.intern(Pa.EPSILON);
+		internList(symbols);
+		Names stackSymbols = new Names();
+		stackSymbols.intern(Pa.EPSILON);
+		internList(stackSymbols);
+		nextLine();
+		int acceptableStart = lineStart;
+		int acceptableEnd = lineEnd;
+		nextLine();
+		int initialState = states.intern(buffer, lineStart, lineEnd);
+		nextLine();
+		int initialStackSymbol = stackSymbols.intern(buffer, lineStart, lineEnd);
+
+		IntList keys = new IntList();
+		IntList nextStates = new IntList();
+		List<int[]> pushes = new ArrayList<>();
+		while (nextTransition()) {
+			keys.add(states.intern(buffer, tokens.start(0), tokens.end(0)));
+			keys.add(symbols.intern(buffer, tokens.start(1), tokens.end(1)));
+			keys.add(stackSymbols.intern(buffer, tokens.start(2), tokens.end(2)));
+			nextStates.add(states.intern(buffer, innerTokens.start(0), innerTokens.end(0)));
+			pushes.add(characters(stackSymbols, innerTokens.start(1), innerTokens.end(1)));
+		}
+
+		int ks = symbols.size();
+		int kt = stackSymbols.size();
+		long size = (long) states.size() * ks * kt;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Pushdown automaton is too large.");
+		}
+		int[] lookup = new int[(int) size];
+		Arrays.fill(lookup, Pa.UNDEFINED);
+		for (int i = 0; i < keys.size(); i += 3) {
+			lookup[(keys.get(i) * ks + keys.get(i + 1)) * kt + keys.get(i + 2)] = i / 3;
+		}
+		return new Pa(states.toSymbolTable(), symbols.toSymbolTable(), stackSymbols.toSymbolTable(),
+				acceptable(states, acceptableStart, acceptableEnd), initialState, initialStackSymbol, lookup,
+				nextStates.toArray(), pushes.toArray(new int[pushes.size()][]));
+	}
+
+	/**
+	 * Reads deterministic <i>Turing machine</i>.
+	 * 
+	 * @return machine.
+	 */
+	public TS readTS() {
+		TuringHeader header = readTuringHeader();
+		IntList rules = readTuringRules(header, false);
+
+		int k = header.tapeSymbols.size();
+		int[] nextStates = new int[header.states.size() * k];
+		int[] writes = new int[nextStates.length];
+		int[] moves = new int[nextStates.length];
+		Arrays.fill(nextStates, TS.UNDEFINED);
+		for (int i = 0; i < rules.size(); i += 5) {
+			int index = rules.get(i) * k + rules.get(i + 1);
+			nextStates[index] = rules.get(i + 2);
+			writes[index] = rules.get(i + 3);
+			moves[index] = rules.get(i + 4);
+		}
+		return new TS(header.states.toSymbolTable(), header.tapeSymbols.toSymbolTable(), header.tape,
+				acceptable(header.states, header.acceptableStart, header.acceptableEnd), header.initialState,
+				header.initialPosition, nextStates, writes, moves);
+	}
+
+	/**
+	 * Reads nondeterministic <i>Turing machine</i>. Right side of transition
+	 * may list several successors separated by <code>|</code>, and successors
+	 * of repeated left sides are joined, in order of definition.
+	 * 
+	 * @return machine.
+	 */
+	public Nts readNts() {
+		TuringHeader header = readTuringHeader();
+		IntList rules = readTuringRules(header, true);
+
+		int k = header.tapeSymbols.size();
+		int[] first = new int[header.states.size() * k + 1];
+		for (int i = 0; i < rules.size(); i += 5) {
+			first[rules.get(i) * k + rules.get(i + 1) + 1]++;
+		}
+		for (int i = 1; i < first.length; i++) {
+			first[i] += first[i - 1];
+		}
+		int[] filled = Arrays.copyOf(first, first.length - 1);
+		int[] nextStates = new int[rules.size() / 5];
+		int[] writes = new int[nextStates.length];
+		int[] moves = new int[nextStates.length];
+		for (int i = 0; i < rules.size(); i += 5) {
+			int transition = filled[rules.get(i) * k + rules.get(i + 1)]++;
+			nextStates[transition] = rules.get(i + 2);
+			writes[transition] = rules.get(i + 3);
+			moves[transition] = rules.get(i + 4);
+		}
+		return new Nts(header.states.toSymbolTable(), header.tapeSymbols.toSymbolTable(), header.tape,
+				acceptable(header.states, header.acceptableStart, header.acceptableEnd), header.initialState,
+				header.initialPosition, first, nextStates, writes, moves);
+	}
+
+	/**
+	 * Reads lines of <i>Turing machine</i> which precede its transitions.
+	 * 
+	 * @return header.
+	 */
+	private TuringHeader readTuringHeader() {
+		TuringHeader header = new TuringHeader();
+		internList(header.states);
+		// input symbols are not needed for simulation
+		nextLine();
+		internList(header.tapeSymbols);
+		nextLine();
+		header.tapeSymbols.intern(buffer, lineStart, lineEnd);
+		nextLine();
+		header.tape = characters(header.tapeSymbols, lineStart, lineEnd);
+		nextLine();
+		header.acceptableStart = lineStart;
+		header.acceptableEnd = lineEnd;
+		nextLine();
+		header.initialState = header.states.intern(buffer, lineStart, lineEnd);
+		nextLine();
+		header.initialPosition = Integer.parseInt(Names.decode(buffer, lineStart, lineEnd));
+		return header;
+	}
+
+	/**
+	 * Reads transitions of <i>Turing machine</i>.
+	 * 
+	 * @param header       header of machine, its states and tape symbols are
+	 *                     interned.
+	 * @param alternatives whether right side is split into successors by
+	 *                     <code>|</code>.
+	 * @return five numbers per transition: state, read symbol, next state,
+	 *         written symbol and head movement.
+	 */
+	private IntList readTuringRules(TuringHeader header, boolean alternatives) {
+		IntList rules = new IntList();
+		while (nextTransition()) {
+			int state = header.states.intern(buffer, tokens.start(0), tokens.end(0));
+			int symbol = header.tapeSymbols.intern(buffer, tokens.start(1), tokens.end(1));
+			int start = rightStart;
+			while (true) {
+				int end = start;
+				while (alternatives && end < rightEnd && buffer.get(end) != SUCCESSOR_SEPARATOR) {
+					end++;
+				}
+				if (alternatives) {
+					split(start, end, SYMBOL_SEPARATOR, innerTokens);
+				}
+				rules.add(state);
+				rules.add(symbol);
+				rules.add(header.states.intern(buffer, innerTokens.start(0), innerTokens.end(0)));
+				rules.add(header.tapeSymbols.intern(buffer, innerTokens.start(1), innerTokens.end(1)));
+				boolean right = innerTokens.end(2) - innerTokens.start(2) == 1
+						&& buffer.get(innerTokens.start(2)) == 'R';
+				rules.add(right ? TS.RIGHT : TS.LEFT);
+				if (!alternatives || end == rightEnd) {
+					break;
+				}
+				start = end + 1;
+			}
+		}
+		return rules;
+	}
+
+	/**
+	 * Moves onto next line and trims it.
+	 * 
+	 * @return <code>true</code> if there was next line, <code>false</code> at the
+	 *         end of input.
+	 */
+	private boolean tryNextLine() {
+		int limit = buffer.limit();
+		if (position >= limit) {
+			return false;
+		}
+		int start = position;
+		int end = start;
+		while (end < limit && buffer.get(end) != '\n') {
+			end++;
+		}
+		position = end + 1;
+		while (start < end && (buffer.get(start) & 0xff) <= ' ') {
+			start++;
+		}
+		while (end > start && (buffer.get(end - 1) & 0xff) <= ' ') {
+			end--;
+		}
+		lineStart = start;
+		lineEnd = end;
+		return true;
+	}
+
+	/**
+	 * Moves onto next line and trims it.
+	 * 
+	 * @throws IllegalArgumentException if there are no more lines.
+	 */
+	private void nextLine() {
+		if (!tryNextLine()) {
+			throw new IllegalArgumentException("Unexpected end of input.");
+		}
+	}
+
+	/**
+	 * Reads next line as a list of names separated by <code>','</code>.
+	 * 
+	 * @return array of names.
+	 */
+	private String[] nextList() {
+		nextLine();
+		split(lineStart, lineEnd, SYMBOL_SEPARATOR, tokens);
+		String[] names = new String[tokens.count];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = tokens.string(buffer, i);
+		}
+		return names;
+	}
+
+	/**
+	 * Reads next line as a list of names separated by <code>','</code> and interns
+	 * them into <code>names</code>.
+	 * 
+	 * @param names where names are interned.
+	 */
+	private void internList(Names names) {
+		nextLine();
+		split(lineStart, lineEnd, SYMBOL_SEPARATOR, tokens);
+		for (int i = 0; i < tokens.count; i++) {
+			names.intern(buffer, tokens.start(i), tokens.end(i));
+		}
+	}
+
+	/**
+	 * Reads next transition line. Left side is split into {@link #tokens} and
+	 * right side, which is kept in {@link #rightStart} and {@link #rightEnd},
+	 * into {@link #innerTokens}.
+	 * 
+	 * @return <code>true</code> if transition was read, <code>false</code> if
+	 *         there are no more transitions.
+	 */
+	private boolean nextTransition() {
+		if (!tryNextLine() || lineStart == lineEnd) {
+			return false;
+		}
+		int separator = find(lineStart, lineEnd);
+		if (separator == -1) {
+			throw new IllegalArgumentException(
+					"Missing transition separator: " + Names.decode(buffer, lineStart, lineEnd));
+		}
+		int end = find(separator + 2, lineEnd);
+		rightStart = separator + 2;
+		rightEnd = end == -1 ? lineEnd : end;
+		split(lineStart, separator, SYMBOL_SEPARATOR, tokens);
+		split(rightStart, rightEnd, SYMBOL_SEPARATOR, innerTokens);
+		return true;
+	}
+
+	/**
+	 * Finds first transition separator <code>-&gt;</code> in given range.
+	 * 
+	 * @param start first byte.
+	 * @param end   position after the last byte.
+	 * @return position of separator or <code>-1</code>.
+	 */
+	private int find(int start, int end) {
+		for (int i = start; i + 1 < end; i++) {
+			if (buffer.get(i) == TRANSITION_SEPARATOR_START && buffer.get(i + 1) == TRANSITION_SEPARATOR_END) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Splits given range by <code>separator</code> into <code>result</code>, the
+	 * same way {@link String#split(String)} does.
+	 * 
+	 * @param start     first byte.
+	 * @param end       position after the last byte.
+	 * @param separator separator.
+	 * @param result    where tokens are stored.
+	 */
+	private void split(int start, int end, byte separator, Tokens result) {
+		result.count = 0;
+		if (start == end) {
+			result.add(start, end);
+			return;
+		}
+		int tokenStart = start;
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == separator) {
+				result.add(tokenStart, i);
+				tokenStart = i + 1;
+			}
+		}
+		result.add(tokenStart, end);
+		while (result.count > 0 && result.start(result.count - 1) == result.end(result.count - 1)) {
+			result.count--;
+		}
+	}
+
+	/**
+	 * Returns index of state whose name is in given range.
+	 * 
+	 * @param states states.
+	 * @param start  first byte.
+	 * @param end    position after the last byte.
+	 * @return index of state.
+	 * @throws IllegalArgumentException if state is unknown.
+	 */
+	private int state(Names states, int start, int end) {
+		int state = states.find(buffer, start, end);
+		if (state == -1) {
+			throw new IllegalArgumentException("Unknown state: " + Names.decode(buffer, start, end));
+		}
+		return state;
+	}
+
+	/**
+	 * Reads next line as a list of acceptable states.
+	 * 
+	 * @param states states.
+	 * @return flags of acceptable states.
+	 */
+	private boolean[] acceptable(Names states) {
+		nextLine();
+		return acceptable(states, lineStart, lineEnd);
+	}
+
+	/**
+	 * Creates flags of acceptable states listed in given range. Unknown names are
+	 * ignored.
+	 * 
+	 * @param states states.
+	 * @param start  first byte.
+	 * @param end    position after the last byte.
+	 * @return flags of acceptable states.
+	 */
+	private boolean[] acceptable(Names states, int start, int end) {
+		boolean[] acceptable = new boolean[states.size()];
+		split(start, end, SYMBOL_SEPARATOR, tokens);
+		for (int i = 0; i < tokens.count; i++) {
+			int state = states.find(buffer, tokens.start(i), tokens.end(i));
+			if (state != -1) {
+				acceptable[state] = true;
+			}
+		}
+		return acceptable;
+	}
+
+	/**
+	 * Parses right side of epsilon-NFA transition from {@link #innerTokens}. Empty
+	 * state set is skipped and, for epsilon transitions, it ends the list.
+	 * 
+	 * @param states  states.
+	 * @param result  where next states are added.
+	 * @param epsilon <code>true</code> if transition is epsilon transition.
+	 */
+	private void nextStates(Names states, IntList result, boolean epsilon) {
+		for (int i = 0; i < innerTokens.count; i++) {
+			int start = innerTokens.start(i);
+			int end = innerTokens.end(i);
+			if (end - start == 1 && buffer.get(start) == EMPTY_STATE) {
+				if (epsilon) {
+					return;
+				}
+				continue;
+			}
+			result.add(state(states, start, end));
+		}
+	}
+
+	/**
+	 * Interns every character in given range as a separate name.
+	 * 
+	 * @param names where characters are interned.
+	 * @param start first byte.
+	 * @param end   position after the last byte.
+	 * @return indexes of characters.
+	 */
+	private int[] characters(Names names, int start, int end) {
+		if (start == end) {
+			return new int[] { names.intern("") };
+		}
+		IntList result = new IntList();
+		int i = start;
+		while (i < end) {
+			int next = Math.min(i + characterLength(buffer.get(i)), end);
+			result.add(names.intern(buffer, i, next));
+			i = next;
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * Returns number of bytes of UTF-8 encoded character which starts with
+	 * <code>first</code> byte.
+	 * 
+	 * @param first first byte of character.
+	 * @return number of bytes.
+	 */
+	private static int characterLength(byte first) {
+		int b = first & 0xff;
+		if (b < 0xc0) {
+			return 1;
+		} else if (b < 0xe0) {
+			return 2;
+		} else if (b < 0xf0) {
+			return 3;
+		}
+		return 4;
+	}
+
+	/**
+	 * Lines of <i>Turing machine</i> which precede its transitions.
+	 */
+	private static class TuringHeader {
+
+		/**
+		 * States, more are interned by transitions.
+		 */
+		private final Names states = new Names();
+
+		/**
+		 * Tape symbols, more are interned by transitions.
+		 */
+		private final Names tapeSymbols = new Names();
+
+		/**
+		 * Initial tape record.
+		 */
+		private int[] tape;
+
+		/**
+		 * First byte of line of acceptable states.
+		 */
+		private int acceptableStart;
+
+		/**
+		 * Position after the last byte of line of acceptable states.
+		 */
+		private int acceptableEnd;
+
+		/**
+		 * Initial state.
+		 */
+		private int initialState;
+
+		/**
+		 * Initial position of head.
+		 */
+		private int initialPosition;
+	}
+
+	/**
+	 * Growable list of token ranges.
+	 */
+	private static class Tokens {
+
+		/**
+		 * Start and end of every token.
+		 */
+		private int[] bounds = new int[16];
+
+		/**
+		 * Number of tokens.
+		 */
+		private int count;
+
+		/**
+		 * Adds token.
+		 * 
+		 * @param start first byte.
+		 * @param end   position after the last byte.
+		 */
+		void add(int start, int end) {
+			if (2 * count + 2 > bounds.length) {
+				bounds = Arrays.copyOf(bounds, bounds.length * 2);
+			}
+			bounds[2 * count] = start;
+			bounds[2 * count + 1] = end;
+			count++;
+		}
+
+		/**
+		 * @param token token index.
+		 * @return first byte of token.
+		 */
+		int start(int token) {
+			checkIndex(token);
+			return bounds[2 * token];
+		}
+
+		/**
+		 * @param token token index.
+		 * @return position after the last byte of token.
+		 */
+		int end(int token) {
+			checkIndex(token);
+			return bounds[2 * token + 1];
+		}
+
+		/**
+		 * @param buffer input.
+		 * @param token  token index.
+		 * @return decoded token.
+		 */
+		String string(ByteBuffer buffer, int token) {
+			return Names.decode(buffer, start(token), end(token));
+		}
+
+		/**
+		 * Checks whether token exists.
+		 * 
+		 * @param token token index.
+		 * @throws IllegalArgumentException if it does not exist.
+		 */
+		private void checkIndex(int token) {
+			if (token >= count) {
+				throw new IllegalArgumentException("Missing part of transition.");
+			}
+		}
+	}
+
+	/**
+	 * Interner of names given as UTF-8 encoded byte ranges. Lookup hashes and
+	 * compares bytes directly, so no {@link String} is created for names which
+	 * were already seen.
+	 */
+	static class Names {
+
+		/**
+		 * Encoded names ordered by their indexes.
+		 */
+		private byte[][] encoded = new byte[16][];
+
+		/**
+		 * Names ordered by their indexes.
+		 */
+		private String[] names = new String[16];
+
+		/**
+		 * Open addressing table of indexes increased by one, <code>0</code> marks
+		 * empty slot.
+		 */
+		private int[] table = new int[32];
+
+		/**
+		 * Number of names.
+		 */
+		private int size;
+
+		/**
+		 * Creates interner which contains names of <code>table</code> under the same
+		 * indexes.
+		 * 
+		 * @param table table of names.
+		 * @return new interner.
+		 */
+		static Names of(SymbolTable table) {
+			Names names = new Names();
+			for (int i = 0; i < table.size(); i++) {
+				names.intern(table.name(i));
+			}
+			return names;
+		}
+
+		/**
+		 * Decodes given range.
+		 * 
+		 * @param buffer input.
+		 * @param start  first byte.
+		 * @param end    position after the last byte.
+		 * @return decoded text.
+		 */
+		static String decode(ByteBuffer buffer, int start, int end) {
+			byte[] bytes = new byte[end - start];
+			buffer.get(start, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * @return number of names.
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Interns <code>name</code>.
+		 * 
+		 * @param name name.
+		 * @return index of name.
+		 */
+		int intern(String name) {
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			return intern(ByteBuffer.wrap(bytes), 0, bytes.length);
+		}
+
+		/**
+		 * Returns index of name in given range, assigning next free index if it was
+		 * not seen before.
+		 * 
+		 * @param buffer input.
+		 * @param start  first byte.
+		 * @param end    position after the last byte.
+		 * @return index of name.
+		 */
+		int intern(ByteBuffer buffer, int start, int end) {
+			int slot = slot(buffer, start, end, hash(buffer, start, end));
+			if (table[slot] != 0) {
+				return table[slot] - 1;
+			}
+			if (size == names.length) {
+				names = Arrays.copyOf(names, size * 2);
+				encoded = Arrays.copyOf(encoded, size * 2);
+			}
+			byte[] bytes = new byte[end - start];
+			buffer.get(start, bytes);
+			encoded[size] = bytes;
+			names[size] = new String(bytes, StandardCharsets.UTF_8);
+			table[slot] = ++size;
+			if (2 * size > table.length) {
+				rehash();
+			}
+			return size - 1;
+		}
+
+		/**
+		 * Returns index of name in given range.
+		 * 
+		 * @param buffer input.
+		 * @param start  first byte.
+		 * @param end    position after the last byte.
+		 * @return index of name or <code>-1</code> if it was not interned.
+		 */
+		int find(ByteBuffer buffer, int start, int end) {
+			return table[slot(buffer, start, end, hash(buffer, start, end))] - 1;
+		}
+
+		/**
+		 * @return new table with all names interned so far.
+		 */
+		SymbolTable toSymbolTable() {
+			return new SymbolTable(Arrays.copyOf(names, size));
+		}
+
+		/**
+		 * Finds slot which contains given name or empty slot where it should be put.
+		 * 
+		 * @param buffer input.
+		 * @param start  first byte.
+		 * @param end    position after the last byte.
+		 * @param hash   hash of name.
+		 * @return slot.
+		 */
+		private int slot(ByteBuffer buffer, int start, int end, int hash) {
+			int mask = table.length - 1;
+			int slot = hash & mask;
+			while (table[slot] != 0 && !matches(encoded[table[slot] - 1], buffer, start, end)) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/**
+		 * Doubles the size of {@link #table}.
+		 */
+		private void rehash() {
+			table = new int[table.length * 2];
+			int mask = table.length - 1;
+			for (int i = 0; i < size; i++) {
+				byte[] bytes = encoded[i];
+				int slot = hash(ByteBuffer.wrap(bytes), 0, bytes.length) & mask;
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = i + 1;
+			}
+		}
+
+		/**
+		 * Calculates hash of given range.
+		 * 
+		 * @param buffer input.
+		 * @param start  first byte.
+		 * @param end    position after the last byte.
+		 * @return hash.
+		 */
+		private static int hash(ByteBuffer buffer, int start, int end) {
+			int hash = 0x811c9dc5;
+			for (int i = start; i < end; i++) {
+				hash = (hash ^ buffer.get(i)) * 0x01000193;
+			}
+			return hash ^ (hash >>> 16);
+		}
+
+		/**
+		 * Compares encoded name with given range.
+		 * 
+		 * @param bytes  encoded name.
+		 * @param buffer input.
+		 * @param start  first byte.
+		 * @param end    position after the last byte.
+		 * @return <code>true</code> if they are equal.
+		 */
+		private static boolean matches(byte[] bytes, ByteBuffer buffer, int start, int end) {
+			if (bytes.length != end - start) {
+				return false;
+			}
+			for (int i = 0; i < bytes.length; i++) {
+				if (bytes[i] != buffer.get(start + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,542 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+/**
+ * Long-running service which runs all four programs without paying JVM startup
+ * for every automaton. It listens on a Unix-domain socket given by
+ * <code>--socket=&lt;path&gt;</code> or on loopback port given by
+ * <code>--port=&lt;port&gt;</code>, {@value #DEFAULT_PORT} by default.
+ * <p>
+ * Every request names the program (<code>MinDka</code>, <code>SimEnka</code>,
+ * <code>SimPa</code> or <code>SimTS</code>) and carries its whole text input.
+ * Response starts with {@link #OK} followed by exactly the output the program
+ * would print, streamed in chunks and closed by a status, or with
+ * {@link #ERROR} followed by a message if input could not be loaded:
+ * </p>
+ * 
+ * <pre>
+ * request:  UTF program, int length, byte[length] input
+ * response: byte OK, (int length, byte[length] output)*, int 0, status
+ *         | byte ERROR, UTF message
+ * status:   byte OK | byte ERROR, UTF message
+ * </pre>
+ * 
+ * Trailing status tells a complete output from one cut short by a failure of
+ * program, whose output streamed so far is then followed by {@link #ERROR}.
+ * Input longer than <code>--max-input=&lt;bytes&gt;</code>
+ * ({@value #DEFAULT_MAX_INPUT} by default) is refused by {@link #ERROR} and its
+ * connection is closed. A stale Unix-domain socket is replaced, but any other
+ * file at its path is left alone and the service does not start.
+ * <p>
+ * Any number of requests can be sent over one connection. Every connection is
+ * served on its own virtual thread when the runtime has them, otherwise on a
+ * pooled platform thread. Loaded automata are kept in an LRU cache of
+ * {@code --cache-size} entries keyed by SHA-256 hash of program and definition
+ * of automaton, without the line of input sequences. Sequences of every request
+ * are read against symbols of the cached automaton, so requests which only
+ * change them do not parse automaton again.
+ * {@link AutomatonClient} is a client of this service.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class AutomatonServer {
+
+	/**
+	 * Default loopback port.
+	 */
+	public static final int DEFAULT_PORT = 7878;
+
+	/**
+	 * Status of successful response.
+	 */
+	public static final byte OK = 0;
+
+	/**
+	 * Status of failed response.
+	 */
+	public static final byte ERROR = 1;
+
+	/**
+	 * Option for path of Unix-domain socket.
+	 */
+	public static final String SOCKET_OPTION = "--socket=";
+
+	/**
+	 * Option for loopback port.
+	 */
+	public static final String PORT_OPTION = "--port=";
+
+	/**
+	 * Option for number of cached automata.
+	 */
+	private static final String CACHE_SIZE_OPTION = "--cache-size=";
+
+	/**
+	 * Default number of cached automata.
+	 */
+	private static final int DEFAULT_CACHE_SIZE = 256;
+
+	/**
+	 * Option for maximal length of input in bytes.
+	 */
+	private static final String MAX_INPUT_OPTION = "--max-input=";
+
+	/**
+	 * Default maximal length of input in bytes.
+	 */
+	private static final int DEFAULT_MAX_INPUT = 1 << 28;
+
+	/**
+	 * Maximal length of message of {@link #ERROR}, in characters.
+	 */
+	private static final int MAX_MESSAGE_LENGTH = 1 << 10;
+
+	/**
+	 * Type of file in mode of <code>unix</code> file attribute view.
+	 */
+	private static final int FILE_TYPE_MASK = 0170000;
+
+	/**
+	 * Type of Unix-domain socket in mode of <code>unix</code> file attribute
+	 * view.
+	 */
+	private static final int SOCKET_TYPE = 0140000;
+
+	/**
+	 * Size of one chunk of streamed output.
+	 */
+	private static final int CHUNK_SIZE = 1 << 13;
+
+	/**
+	 * Programs served by this service.
+	 */
+	enum Program {
+		/**
+		 * Minimization of DKA.
+		 */
+		MIN_DKA("MinDka", CompiledAutomaton.Kind.DKA, (automaton, out) -> MinDka.run(automaton.dka(), out)),
+		/**
+		 * Simulation of epsilon-NFA.
+		 */
+		SIM_ENKA("SimEnka", CompiledAutomaton.Kind.ENKA,
+				(automaton, out) -> SimEnka.simulation(automaton.enka(), automaton.sequences(), out)),
+		/**
+		 * Simulation of pushdown automaton.
+		 */
+		SIM_PA("SimPa", CompiledAutomaton.Kind.PA,
+				(automaton, out) -> SimPa.simulation(automaton.pa(), automaton.sequences(), out)),
+		/**
+		 * Simulation of Turing machine.
+		 */
+		SIM_TS("SimTS", CompiledAutomaton.Kind.TS, (automaton, out) -> out.print(automaton.ts().simulate()));
+
+		/**
+		 * Name of program.
+		 */
+		private final String name;
+
+		/**
+		 * Kind of automaton read by program.
+		 */
+		private final CompiledAutomaton.Kind kind;
+
+		/**
+		 * Runs program on loaded automaton and prints its output.
+		 */
+		private final BiConsumer<CompiledAutomaton, PrintStream> runner;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name   name of program.
+		 * @param kind   kind of automaton read by program.
+		 * @param runner runs program and prints its output.
+		 */
+		Program(String name, CompiledAutomaton.Kind kind, BiConsumer<CompiledAutomaton, PrintStream> runner) {
+			this.name = name;
+			this.kind = kind;
+			this.runner = runner;
+		}
+
+		/**
+		 * @param name name of program.
+		 * @return program or <code>null</code> if there is no such program.
+		 */
+		static Program of(String name) {
+			for (Program program : values()) {
+				if (program.name.equals(name)) {
+					return program;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Loaded automata, least recently used first.
+	 */
+	private final Map<String, CompiledAutomaton> cache;
+
+	/**
+	 * Maximal length of input in bytes.
+	 */
+	private final int maxInput;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param cacheSize maximal number of cached automata.
+	 * @param maxInput  maximal length of input in bytes.
+	 */
+	public AutomatonServer(int cacheSize, int maxInput) {
+		this.maxInput = maxInput;
+		this.cache = new LinkedHashMap<String, CompiledAutomaton>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompiledAutomaton> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Main entry of this program.
+	 * 
+	 * @param args options.
+	 */
+	public static void main(String[] args) {
+		int cacheSize = DEFAULT_CACHE_SIZE;
+		int maxInput = DEFAULT_MAX_INPUT;
+		for (String arg : args) {
+			if (arg.startsWith(CACHE_SIZE_OPTION)) {
+				cacheSize = Integer.parseInt(arg.substring(CACHE_SIZE_OPTION.length()));
+			}
+			if (arg.startsWith(MAX_INPUT_OPTION)) {
+				maxInput = Integer.parseInt(arg.substring(MAX_INPUT_OPTION.length()));
+			}
+		}
+		try {
+			new AutomatonServer(cacheSize, maxInput).serve(address(args));
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Creates address of service from program arguments.
+	 * 
+	 * @param args program arguments.
+	 * @return Unix-domain address if {@value #SOCKET_OPTION} is given, otherwise
+	 *         loopback address.
+	 */
+	public static SocketAddress address(String[] args) {
+		int port = DEFAULT_PORT;
+		for (String arg : args) {
+			if (arg.startsWith(SOCKET_OPTION)) {
+				return UnixDomainSocketAddress.of(arg.substring(SOCKET_OPTION.length()));
+			}
+			if (arg.startsWith(PORT_OPTION)) {
+				port = Integer.parseInt(arg.substring(PORT_OPTION.length()));
+			}
+		}
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+	}
+
+	/**
+	 * Accepts connections on <code>address</code> until this thread is
+	 * interrupted.
+	 * 
+	 * @param address address of service.
+	 * @throws IOException if service could not be started.
+	 */
+	public void serve(SocketAddress address) throws IOException {
+		ServerSocketChannel server;
+		if (address instanceof UnixDomainSocketAddress) {
+			Path path = ((UnixDomainSocketAddress) address).getPath();
+			removeStaleSocket(path);
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException ignored) {
+				}
+			}));
+		} else {
+			server = ServerSocketChannel.open();
+		}
+		ExecutorService executor = executor();
+		try (server) {
+			server.bind(address);
+			System.err.println("Listening on " + address);
+			while (!Thread.currentThread().isInterrupted()) {
+				SocketChannel channel = server.accept();
+				executor.execute(() -> serve(channel));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Deletes Unix-domain socket left at <code>path</code> by a previous run.
+	 * 
+	 * @param path path of socket.
+	 * @throws IOException if there is another kind of file at <code>path</code>
+	 *                     or its kind can not be checked.
+	 */
+	private static void removeStaleSocket(Path path) throws IOException {
+		if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+			return;
+		}
+		int mode;
+		try {
+			mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+		} catch (UnsupportedOperationException e) {
+			throw new IOException("Could not check whether " + path + " is a socket.", e);
+		}
+		if ((mode & FILE_TYPE_MASK) != SOCKET_TYPE) {
+			throw new IOException(path + " exists and is not a socket.");
+		}
+		Files.delete(path);
+	}
+
+	/**
+	 * Serves requests of one connection until it is closed.
+	 * 
+	 * @param channel connection.
+	 */
+	private void serve(SocketChannel channel) {
+		try (channel;
+				DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel), CHUNK_SIZE + Integer.BYTES))) {
+			if (channel.getLocalAddress() instanceof InetSocketAddress) {
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			}
+			while (true) {
+				String name;
+				try {
+					name = in.readUTF();
+				} catch (EOFException e) {
+					return;
+				}
+				int length = in.readInt();
+				if (length < 0 || length > maxInput) {
+					// rest of request is not read, so connection can not go on
+					out.writeByte(ERROR);
+					out.writeUTF("Input length " + length + " is not between 0 and " + maxInput + ".");
+					out.flush();
+					return;
+				}
+				byte[] input = new byte[length];
+				in.readFully(input);
+				handle(Program.of(name), name, input, out);
+				out.flush();
+			}
+		} catch (IOException e) {
+			// connection was closed by client
+		}
+	}
+
+	/**
+	 * Runs one request and writes its response.
+	 * 
+	 * @param program program or <code>null</code> if it is unknown.
+	 * @param name    name of program.
+	 * @param input   text input of program.
+	 * @param out     where response is written.
+	 * @throws IOException if response could not be written.
+	 */
+	private void handle(Program program, String name, byte[] input, DataOutputStream out) throws IOException {
+		CompiledAutomaton automaton;
+		try {
+			if (program == null) {
+				throw new IllegalArgumentException("Unknown program: " + name);
+			}
+			automaton = load(program, input);
+		} catch (RuntimeException | VirtualMachineError e) {
+			out.writeByte(ERROR);
+			out.writeUTF(message(e));
+			return;
+		}
+		out.writeByte(OK);
+		PrintStream printer = new PrintStream(new ChunkedOutputStream(out), false, StandardCharsets.UTF_8);
+		Throwable failure = null;
+		try {
+			program.runner.accept(automaton, printer);
+		} catch (RuntimeException | VirtualMachineError e) {
+			failure = e;
+			System.err.println(name + " failed:");
+			e.printStackTrace();
+		}
+		printer.close();
+		if (printer.checkError()) {
+			throw new IOException("Response could not be written.");
+		}
+		if (failure == null) {
+			out.writeByte(OK);
+		} else {
+			out.writeByte(ERROR);
+			out.writeUTF(message(failure));
+		}
+	}
+
+	/**
+	 * @param failure failure of request.
+	 * @return message of {@link #ERROR}, shortened to
+	 *         {@value #MAX_MESSAGE_LENGTH} characters.
+	 */
+	private static String message(Throwable failure) {
+		String message = String.valueOf(failure);
+		return message.length() <= MAX_MESSAGE_LENGTH ? message : message.substring(0, MAX_MESSAGE_LENGTH);
+	}
+
+	/**
+	 * Returns loaded automaton with input sequences of <code>input</code>.
+	 * Automaton is taken from cache, which is keyed by its definition only, and
+	 * parsed on a miss.
+	 * 
+	 * @param program program.
+	 * @param input   text input of program.
+	 * @return loaded automaton.
+	 */
+	CompiledAutomaton load(Program program, byte[] input) {
+		AutomatonReader reader = new AutomatonReader(ByteBuffer.wrap(input));
+		if (program.kind.hasSequences()) {
+			reader.skipLine();
+		}
+		String key = program.name + ':' + AutomatonCache.key(reader.rest());
+		CompiledAutomaton automaton;
+		synchronized (cache) {
+			automaton = cache.get(key);
+		}
+		if (automaton == null) {
+			automaton = CompiledAutomaton.parseDefinition(reader, program.kind);
+			synchronized (cache) {
+				cache.put(key, automaton);
+			}
+		}
+		return automaton.withSequences(new AutomatonReader(ByteBuffer.wrap(input)));
+	}
+
+	/**
+	 * Creates executor which runs every task on a new virtual thread if runtime
+	 * supports them, otherwise on a cached pool of daemon platform threads.
+	 * 
+	 * @return executor.
+	 */
+	private static ExecutorService executor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Output stream which writes data as length-prefixed chunks and an empty
+	 * chunk on close, without closing underlying stream.
+	 */
+	private static class ChunkedOutputStream extends OutputStream {
+
+		/**
+		 * Underlying stream.
+		 */
+		private final DataOutputStream out;
+
+		/**
+		 * Data of current chunk.
+		 */
+		private final byte[] chunk = new byte[CHUNK_SIZE];
+
+		/**
+		 * Number of bytes in current chunk.
+		 */
+		private int size;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param out underlying stream.
+		 */
+		ChunkedOutputStream(DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (size == chunk.length) {
+				writeChunk();
+			}
+			chunk[size++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (size == chunk.length) {
+					writeChunk();
+				}
+				int n = Math.min(len, chunk.length - size);
+				System.arraycopy(b, off, chunk, size, n);
+				size += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			writeChunk();
+			out.writeInt(0);
+		}
+
+		/**
+		 * Writes current chunk if it is not empty.
+		 * 
+		 * @throws IOException if chunk could not be written.
+		 */
+		private void writeChunk() throws IOException {
+			if (size > 0) {
+				out.writeInt(size);
+				out.write(chunk, 0, size);
+				size = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,472 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parallel simulation of one long input sequence.
+ * <p>
+ * Sequence is split into chunks, one per task. Every chunk is first simulated
+ * speculatively from every state it could start in: those are the states
+ * reachable by the symbol just before the chunk, or the initial states for the
+ * first chunk. Since one step of {@link Enka} distributes over union of states,
+ * the result is a mapping from every such state to states after the chunk,
+ * and states at start of every chunk follow by applying mappings one after
+ * another. Speculative runs which reach the same set are merged, so their
+ * number usually drops to a few within a couple of steps.
+ * </p>
+ * <p>
+ * Trace of {@link Enka#simulate(int[], StringBuilder)} is then produced
+ * exactly from states at start of every block of {@value #BLOCK_SIZE} symbols.
+ * Once all runs of a chunk are merged, those states are already known from
+ * speculation, unless chunk starts with no states at all; before that, chunk
+ * is simulated again from its known start states. Blocks are rendered in
+ * parallel and printed in order, a few at a time.
+ * </p>
+ *
+ * @author dbrcina
+ *
+ */
+public class ChunkedSimulation {
+
+	/**
+	 * Number of symbols rendered by one task.
+	 */
+	public static final int BLOCK_SIZE = 1 << 16;
+
+	/**
+	 * Number of speculative runs, summed over chunks.
+	 */
+	private static final Metrics.Counter RUNS = Metrics.counter("SimEnka.speculativeRuns");
+
+	/**
+	 * Pool which runs tasks.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool pool which runs tasks.
+	 */
+	public ChunkedSimulation(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Checks whether <code>sequence</code> is long enough to be split.
+	 *
+	 * @param sequence input sequence.
+	 * @return <code>true</code> if sequence has at least two blocks per thread.
+	 */
+	public boolean worthSplitting(int[] sequence) {
+		return sequence.length / BLOCK_SIZE >= 2 * pool.getParallelism();
+	}
+
+	/**
+	 * Simulates <code>enka</code> on <code>sequence</code> and prints the same
+	 * line as {@link Enka#simulate(int[], StringBuilder)} produces.
+	 *
+	 * @param enka     automaton.
+	 * @param sequence input sequence of symbol indexes.
+	 * @param out      where result is printed.
+	 */
+	public void simulate(Enka enka, int[] sequence, PrintStream out) {
+		int chunks = chunks(sequence);
+		BitSet initial = new BitSet(enka.stateCount());
+		enka.initialStates(initial);
+
+		// states which may start every chunk
+		Map<Integer, BitSet> frontiers = new HashMap<>();
+		for (int chunk = 1; chunk < chunks; chunk++) {
+			frontiers.computeIfAbsent(sequence[chunkStart(sequence, chunks, chunk) - 1],
+					symbol -> frontier(enka, symbol));
+		}
+		int blocks = (sequence.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int[][] blockStarts = new int[blocks][];
+		List<EnkaMapping> mappings = Parallelism.parallel(pool, chunks, chunk -> new EnkaMapping(enka, sequence,
+				chunkStart(sequence, chunks, chunk), chunkStart(sequence, chunks, chunk + 1),
+				chunk == 0 ? initial : frontiers.get(sequence[chunkStart(sequence, chunks, chunk) - 1]),
+				blockStarts));
+
+		BitSet[] starts = new BitSet[chunks];
+		starts[0] = initial;
+		for (int chunk = 1; chunk < chunks; chunk++) {
+			starts[chunk] = mappings.get(chunk - 1).apply(starts[chunk - 1], enka.stateCount());
+		}
+
+		// exact states at start of every block before runs of chunk merged
+		Parallelism.parallel(pool, chunks, chunk -> {
+			int from = chunkStart(sequence, chunks, chunk);
+			int to = chunkStart(sequence, chunks, chunk + 1);
+			if (starts[chunk].isEmpty()) {
+				for (int i = (from + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE; i < to; i += BLOCK_SIZE) {
+					blockStarts[i / BLOCK_SIZE] = new int[0];
+				}
+				return null;
+			}
+			BitSet current = (BitSet) starts[chunk].clone();
+			BitSet next = new BitSet(enka.stateCount());
+			for (int i = from; i < mappings.get(chunk).merged; i++) {
+				if (i % BLOCK_SIZE == 0) {
+					blockStarts[i / BLOCK_SIZE] = current.stream().toArray();
+				}
+				enka.step(current, sequence[i], next);
+				BitSet tmp = current;
+				current = next;
+				next = tmp;
+			}
+			return null;
+		});
+
+		// blocks rendered in parallel, a window at a time
+		int window = pool.getParallelism() * 2;
+		for (int first = 0; first < blocks; first += window) {
+			int offset = first;
+			List<StringBuilder> texts = Parallelism.parallel(pool, Math.min(window, blocks - first),
+					i -> render(enka, sequence, blockStarts[offset + i], offset + i));
+			for (StringBuilder text : texts) {
+				out.print(text);
+			}
+		}
+		out.print('\n');
+	}
+
+	/**
+	 * Finds state of <code>dka</code> after reading <code>sequence</code>.
+	 *
+	 * @param dka      automaton.
+	 * @param sequence input sequence of symbol indexes, <code>-1</code> for
+	 *                 symbol not in alphabet.
+	 * @return final state or {@link Dka#UNDEFINED} if some transition is not
+	 *         defined.
+	 */
+	public int finalState(Dka dka, int[] sequence) {
+		int chunks = chunks(sequence);
+		List<DkaMapping> mappings = Parallelism.parallel(pool, chunks, chunk -> {
+			int from = chunkStart(sequence, chunks, chunk);
+			int to = chunkStart(sequence, chunks, chunk + 1);
+			return new DkaMapping(dka, sequence, from, to, chunk == 0 ? -1 : sequence[from - 1]);
+		});
+		int state = dka.initialState();
+		for (DkaMapping mapping : mappings) {
+			state = mapping.apply(state);
+		}
+		return state;
+	}
+
+	/**
+	 * @param sequence input sequence.
+	 * @return number of chunks.
+	 */
+	private int chunks(int[] sequence) {
+		return Parallelism.tasks(pool, sequence.length / BLOCK_SIZE);
+	}
+
+	/**
+	 * @param sequence input sequence.
+	 * @param chunks   number of chunks.
+	 * @param chunk    chunk.
+	 * @return index of the first symbol of <code>chunk</code>.
+	 */
+	private static int chunkStart(int[] sequence, int chunks, int chunk) {
+		return (int) ((long) sequence.length * chunk / chunks);
+	}
+
+	/**
+	 * Finds states which can be current right after reading
+	 * <code>symbol</code>.
+	 *
+	 * @param enka   automaton.
+	 * @param symbol symbol, <code>-1</code> for symbol not in alphabet.
+	 * @return states.
+	 */
+	private static BitSet frontier(Enka enka, int symbol) {
+		BitSet frontier = new BitSet(enka.stateCount());
+		if (symbol < 0) {
+			return frontier;
+		}
+		for (int state = 0; state < enka.stateCount(); state++) {
+			for (int next : enka.next(state, symbol)) {
+				if (!frontier.get(next)) {
+					for (int reachable : enka.closure(next)) {
+						frontier.set(reachable);
+					}
+				}
+			}
+		}
+		return frontier;
+	}
+
+	/**
+	 * Renders one block of trace.
+	 *
+	 * @param enka     automaton.
+	 * @param sequence input sequence.
+	 * @param start    states at start of block.
+	 * @param block    block.
+	 * @return states after every step of block, preceded by initial states for
+	 *         the first block.
+	 */
+	private static StringBuilder render(Enka enka, int[] sequence, int[] start, int block) {
+		StringBuilder text = new StringBuilder();
+		BitSet current = new BitSet(enka.stateCount());
+		BitSet next = new BitSet(enka.stateCount());
+		for (int state : start) {
+			current.set(state);
+		}
+		if (block == 0) {
+			enka.appendStates(current, text);
+		}
+		int to = (int) Math.min(sequence.length, (long) (block + 1) * BLOCK_SIZE);
+		for (int i = block * BLOCK_SIZE; i < to; i++) {
+			enka.step(current, sequence[i], next);
+			text.append(Enka.STEP_SEPARATOR);
+			enka.appendStates(next, text);
+			BitSet tmp = current;
+			current = next;
+			next = tmp;
+		}
+		return text;
+	}
+
+	/**
+	 * Finds representative of merged run, compressing path on the way.
+	 *
+	 * @param parents parent of every run, or run itself if it is not merged.
+	 * @param run     run.
+	 * @return representative.
+	 */
+	private static int find(int[] parents, int run) {
+		int root = run;
+		while (parents[root] != root) {
+			root = parents[root];
+		}
+		while (parents[run] != root) {
+			int next = parents[run];
+			parents[run] = root;
+			run = next;
+		}
+		return root;
+	}
+
+	/**
+	 * Mapping of one chunk of epsilon-NFA simulation, from every state which
+	 * may start chunk to states after it.
+	 */
+	private static class EnkaMapping {
+
+		/**
+		 * Speculative run of every state, <code>-1</code> for states which
+		 * cannot start chunk.
+		 */
+		private final int[] runs;
+
+		/**
+		 * States after chunk, per run which was not merged into other.
+		 */
+		private final BitSet[] results;
+
+		/**
+		 * Index of symbol from which all runs are merged into one, so states do
+		 * not depend on start of chunk unless it is empty.
+		 */
+		private final int merged;
+
+		/**
+		 * Simulates chunk from every state of <code>frontier</code>. Once all
+		 * runs are merged, states at start of every following block are stored
+		 * into <code>blockStarts</code>.
+		 *
+		 * @param enka        automaton.
+		 * @param sequence    input sequence.
+		 * @param from        index of the first symbol of chunk.
+		 * @param to          index after the last symbol of chunk.
+		 * @param frontier    states which may start chunk.
+		 * @param blockStarts states at start of every block.
+		 */
+		EnkaMapping(Enka enka, int[] sequence, int from, int to, BitSet frontier, int[][] blockStarts) {
+			int n = enka.stateCount();
+			int count = frontier.cardinality();
+			if (Metrics.ENABLED) {
+				RUNS.add(count);
+			}
+			runs = new int[n];
+			results = new BitSet[count];
+			int[] parents = new int[count];
+			int[] live = new int[count];
+			int run = 0;
+			for (int state = 0; state < n; state++) {
+				runs[state] = frontier.get(state) ? run++ : -1;
+			}
+			for (int state = frontier.nextSetBit(0); state >= 0; state = frontier.nextSetBit(state + 1)) {
+				results[runs[state]] = new BitSet();
+				results[runs[state]].set(state);
+			}
+			for (run = 0; run < count; run++) {
+				parents[run] = run;
+				live[run] = run;
+			}
+
+			int liveCount = count;
+			BitSet spare = new BitSet(n);
+			Map<BitSet, Integer> seen = new HashMap<>();
+			int merged = count == 1 ? from : to;
+			for (int i = from; i < to && liveCount > 0; i++) {
+				if (merged <= i && i % BLOCK_SIZE == 0) {
+					blockStarts[i / BLOCK_SIZE] = results[live[0]].stream().toArray();
+				}
+				for (int j = 0; j < liveCount; j++) {
+					BitSet current = results[live[j]];
+					enka.step(current, sequence[i], spare);
+					results[live[j]] = spare;
+					spare = current;
+				}
+				if (liveCount > 1) {
+					seen.clear();
+					int size = 0;
+					for (int j = 0; j < liveCount; j++) {
+						Integer same = seen.putIfAbsent(results[live[j]], live[j]);
+						if (same == null) {
+							live[size++] = live[j];
+						} else {
+							parents[live[j]] = same;
+							results[live[j]] = null;
+						}
+					}
+					liveCount = size;
+					if (liveCount == 1) {
+						merged = i + 1;
+					}
+				}
+			}
+			this.merged = merged;
+			for (int state = 0; state < n; state++) {
+				if (runs[state] >= 0) {
+					runs[state] = find(parents, runs[state]);
+				}
+			}
+		}
+
+		/**
+		 * Applies mapping onto <code>start</code>.
+		 *
+		 * @param start states at start of chunk.
+		 * @param n     number of states.
+		 * @return states after chunk.
+		 */
+		BitSet apply(BitSet start, int n) {
+			BitSet result = new BitSet(n);
+			for (int state = start.nextSetBit(0); state >= 0; state = start.nextSetBit(state + 1)) {
+				result.or(results[runs[state]]);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Mapping of one chunk of DKA simulation, from every state which may start
+	 * chunk to state after it.
+	 */
+	private static class DkaMapping {
+
+		/**
+		 * Speculative run of every state, <code>-1</code> for states which
+		 * cannot start chunk.
+		 */
+		private final int[] runs;
+
+		/**
+		 * State after chunk, per run which was not merged into other.
+		 */
+		private final int[] results;
+
+		/**
+		 * Simulates chunk from every state which can be reached by
+		 * <code>previous</code>.
+		 *
+		 * @param dka      automaton.
+		 * @param sequence input sequence.
+		 * @param from     index of the first symbol of chunk.
+		 * @param to       index after the last symbol of chunk.
+		 * @param previous symbol before chunk, <code>-1</code> for the first chunk.
+		 */
+		DkaMapping(Dka dka, int[] sequence, int from, int to, int previous) {
+			int n = dka.stateCount();
+			runs = new int[n];
+			Arrays.fill(runs, -1);
+			int count = 0;
+			if (from == 0) {
+				runs[dka.initialState()] = count++;
+			} else if (previous >= 0) {
+				for (int state = 0; state < n; state++) {
+					int next = dka.next(state, previous);
+					if (next != Dka.UNDEFINED && runs[next] < 0) {
+						runs[next] = count++;
+					}
+				}
+			}
+			if (Metrics.ENABLED) {
+				RUNS.add(count);
+			}
+			results = new int[count];
+			int[] parents = new int[count];
+			int[] live = new int[count];
+			for (int state = 0; state < n; state++) {
+				if (runs[state] >= 0) {
+					results[runs[state]] = state;
+				}
+			}
+			for (int run = 0; run < count; run++) {
+				parents[run] = run;
+				live[run] = run;
+			}
+
+			// run which reached every state in the last step, valid if stamp matches
+			int[] owners = new int[n];
+			int[] stamps = new int[n];
+			int liveCount = count;
+			for (int i = from; i < to && liveCount > 0; i++) {
+				int symbol = sequence[i];
+				int size = 0;
+				for (int j = 0; j < liveCount; j++) {
+					int run = live[j];
+					int next = symbol < 0 ? Dka.UNDEFINED : dka.next(results[run], symbol);
+					results[run] = next;
+					if (next == Dka.UNDEFINED) {
+						continue;
+					}
+					if (stamps[next] == i + 1) {
+						parents[run] = owners[next];
+					} else {
+						stamps[next] = i + 1;
+						owners[next] = run;
+						live[size++] = run;
+					}
+				}
+				liveCount = size;
+			}
+			for (int state = 0; state < n; state++) {
+				if (runs[state] >= 0) {
+					runs[state] = find(parents, runs[state]);
+				}
+			}
+		}
+
+		/**
+		 * Applies mapping onto <code>state</code>.
+		 *
+		 * @param state state at start of chunk.
+		 * @return state after chunk.
+		 */
+		int apply(int state) {
+			if (state == Dka.UNDEFINED || runs[state] < 0) {
+				return Dka.UNDEFINED;
+			}
+			return results[runs[state]];
+		}
+	}
+}
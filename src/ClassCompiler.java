@@ -0,0 +1,143 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiler of generated Java sources into hidden classes.
+ * <p>
+ * Source is compiled in memory by the system Java compiler and resulting class
+ * is defined as a hidden class of this class's package, so it can implement
+ * interfaces of this program and is unloaded together with its instance.
+ * Compiler is not available when program runs on a runtime without
+ * <code>jdk.compiler</code> module; callers then fall back to interpretation.
+ * </p>
+ *
+ * @author dbrcina
+ *
+ */
+public class ClassCompiler {
+
+	/**
+	 * Time spent compiling sources.
+	 */
+	private static final Metrics.Timer COMPILE = Metrics.timer("ClassCompiler.compile");
+
+	/**
+	 * Constructor.
+	 */
+	private ClassCompiler() {
+	}
+
+	/**
+	 * @return <code>true</code> if sources can be compiled.
+	 */
+	public static boolean isAvailable() {
+		return ToolProvider.getSystemJavaCompiler() != null;
+	}
+
+	/**
+	 * Compiles source of one top-level class.
+	 *
+	 * @param className simple name of class, without package.
+	 * @param source    source code.
+	 * @return class file.
+	 * @throws IllegalStateException if compiler is not available or source does
+	 *                               not compile.
+	 */
+	public static byte[] compile(String className, String source) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("Java compiler is not available.");
+		}
+		long start = Metrics.ENABLED ? COMPILE.start() : 0;
+		ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+		StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, null);
+		ForwardingJavaFileManager<StandardJavaFileManager> manager = new ForwardingJavaFileManager<>(standard) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+					FileObject sibling) {
+				return new SimpleJavaFileObject(URI.create("memory:///" + name + kind.extension), kind) {
+					@Override
+					public OutputStream openOutputStream() {
+						return classFile;
+					}
+				};
+			}
+		};
+		JavaFileObject file = new SimpleJavaFileObject(URI.create("memory:///" + className + ".java"),
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		StringWriter errors = new StringWriter();
+		List<String> options = Arrays.asList("-proc:none", "-g:none", "-classpath",
+				System.getProperty("java.class.path"));
+		boolean success = compiler.getTask(errors, manager, null, options, null, List.of(file)).call();
+		if (Metrics.ENABLED) {
+			COMPILE.stop(start);
+		}
+		if (!success) {
+			throw new IllegalStateException("Generated class " + className + " does not compile: " + errors);
+		}
+		return classFile.toByteArray();
+	}
+
+	/**
+	 * Defines hidden class from <code>classFile</code> and creates its instance
+	 * by its public no-argument constructor.
+	 *
+	 * @param <T>       type of instance.
+	 * @param classFile class file.
+	 * @param type      interface which class implements.
+	 * @return new instance.
+	 * @throws IllegalStateException if class could not be defined or
+	 *                               instantiated.
+	 */
+	public static <T> T define(byte[] classFile, Class<T> type) {
+		return define(classFile, null, type);
+	}
+
+	/**
+	 * Defines hidden class from <code>classFile</code> with <code>data</code>,
+	 * which class reads by {@link MethodHandles#classData}, and creates its
+	 * instance by its public no-argument constructor.
+	 *
+	 * @param <T>       type of instance.
+	 * @param classFile class file.
+	 * @param data      class data or <code>null</code> if class has none.
+	 * @param type      interface which class implements.
+	 * @return new instance.
+	 * @throws IllegalStateException if class could not be defined or
+	 *                               instantiated.
+	 */
+	public static <T> T define(byte[] classFile, Object data, Class<T> type) {
+		try {
+			MethodHandles.Lookup lookup = data == null ? MethodHandles.lookup().defineHiddenClass(classFile, true)
+					: MethodHandles.lookup().defineHiddenClassWithClassData(classFile, data, true);
+			Object instance = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+					.invoke();
+			return type.cast(instance);
+		} catch (LinkageError | ReflectiveOperationException e) {
+			throw new IllegalStateException("Generated class could not be defined.", e);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Generated class could not be instantiated.", e);
+		}
+	}
+}
@@ -0,0 +1,713 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Loaded automaton together with input sequences which preceded its definition,
+ * and its compact binary image.
+ * <p>
+ * Image consists of a header followed by sections of 32-bit big-endian integers:
+ * name tables are stored as offsets into one UTF-8 blob, transition tables as
+ * flat arrays and tables of variable length rows (next states, epsilon
+ * closures, pushed stack symbols) as row offsets followed by one flat array.
+ * Epsilon closures are precomputed, so loading an image only copies arrays in
+ * bulk from a memory mapped file.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class CompiledAutomaton {
+
+	/**
+	 * Kinds of automata, each one read by its own program.
+	 */
+	public enum Kind {
+		/**
+		 * Deterministic finite automaton, {@link Dka}.
+		 */
+		DKA(false),
+		/**
+		 * Epsilon-NFA, {@link Enka}.
+		 */
+		ENKA(true),
+		/**
+		 * Deterministic pushdown automaton, {@link Pa}.
+		 */
+		PA(true),
+		/**
+		 * Turing machine, {@link TS}.
+		 */
+		TS(false);
+
+		/**
+		 * Whether definition is preceded by a line of input sequences.
+		 */
+		private final boolean sequences;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param sequences whether definition is preceded by input sequences.
+		 */
+		Kind(boolean sequences) {
+			this.sequences = sequences;
+		}
+
+		/**
+		 * @return <code>true</code> if definition is preceded by a line of input
+		 *         sequences.
+		 */
+		public boolean hasSequences() {
+			return sequences;
+		}
+	}
+
+	/**
+	 * Magic number at the start of every image.
+	 */
+	private static final int MAGIC = 0x41555442;
+
+	/**
+	 * Version of image format, increased on every incompatible change.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Shared empty row.
+	 */
+	private static final int[] NO_VALUES = new int[0];
+
+	/**
+	 * Time spent parsing text definitions.
+	 */
+	private static final Metrics.Timer PARSE = Metrics.timer("automaton.parse");
+
+	/**
+	 * Time spent loading binary images.
+	 */
+	private static final Metrics.Timer MAP = Metrics.timer("automaton.map");
+
+	/**
+	 * Kind of automaton.
+	 */
+	private final Kind kind;
+
+	/**
+	 * Input sequences, empty if kind has none.
+	 */
+	private final List<int[]> sequences;
+
+	/**
+	 * Automaton model.
+	 */
+	private final Object automaton;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param kind      kind of automaton.
+	 * @param sequences input sequences.
+	 * @param automaton automaton model.
+	 */
+	private CompiledAutomaton(Kind kind, List<int[]> sequences, Object automaton) {
+		this.kind = kind;
+		this.sequences = sequences;
+		this.automaton = automaton;
+	}
+
+	/**
+	 * Parses text definition of automaton.
+	 * 
+	 * @param reader reader positioned at the start of input.
+	 * @param kind   kind of automaton.
+	 * @return loaded automaton.
+	 */
+	public static CompiledAutomaton parse(AutomatonReader reader, Kind kind) {
+		long start = Metrics.ENABLED ? PARSE.start() : 0;
+		List<int[]> sequences = kind.sequences ? reader.readSequences() : Collections.emptyList();
+		CompiledAutomaton automaton = new CompiledAutomaton(kind, sequences, readModel(reader, kind));
+		if (Metrics.ENABLED) {
+			PARSE.stop(start);
+		}
+		return automaton;
+	}
+
+	/**
+	 * Parses text definition of automaton without input sequences, so it can be
+	 * reused with other sequences by {@link #withSequences(AutomatonReader)}.
+	 * 
+	 * @param reader reader positioned at the start of definition, after the line
+	 *               of input sequences.
+	 * @param kind   kind of automaton.
+	 * @return loaded automaton without input sequences.
+	 */
+	public static CompiledAutomaton parseDefinition(AutomatonReader reader, Kind kind) {
+		long start = Metrics.ENABLED ? PARSE.start() : 0;
+		CompiledAutomaton automaton = new CompiledAutomaton(kind, Collections.emptyList(), readModel(reader, kind));
+		if (Metrics.ENABLED) {
+			PARSE.stop(start);
+		}
+		return automaton;
+	}
+
+	/**
+	 * Reads line of input sequences against input symbols of this automaton.
+	 * Symbols which are not in its alphabet are given as <code>-1</code>.
+	 * 
+	 * @param reader reader positioned at the line of input sequences.
+	 * @return automaton which shares model of this one, with read sequences, or
+	 *         this automaton if its kind has no input sequences.
+	 */
+	public CompiledAutomaton withSequences(AutomatonReader reader) {
+		if (!kind.sequences) {
+			return this;
+		}
+		SymbolTable symbols = kind == Kind.ENKA ? enka().symbols() : pa().symbols();
+		return new CompiledAutomaton(kind, reader.readSequences(symbols), automaton);
+	}
+
+	/**
+	 * Reads automaton model of given kind.
+	 * 
+	 * @param reader reader positioned at the start of definition.
+	 * @param kind   kind of automaton.
+	 * @return automaton model.
+	 */
+	private static Object readModel(AutomatonReader reader, Kind kind) {
+		Object automaton;
+		switch (kind) {
+		case DKA:
+			automaton = reader.readDka();
+			break;
+		case ENKA:
+			automaton = reader.readEnka();
+			break;
+		case PA:
+			automaton = reader.readPa();
+			break;
+		default:
+			automaton = reader.readTS();
+		}
+		return automaton;
+	}
+
+	/**
+	 * @return kind of automaton.
+	 */
+	public Kind kind() {
+		return kind;
+	}
+
+	/**
+	 * @return input sequences given as arrays of symbol indexes.
+	 */
+	public List<int[]> sequences() {
+		return sequences;
+	}
+
+	/**
+	 * @return deterministic finite automaton.
+	 */
+	public Dka dka() {
+		return (Dka) automaton;
+	}
+
+	/**
+	 * @return epsilon-NFA.
+	 */
+	public Enka enka() {
+		return (Enka) automaton;
+	}
+
+	/**
+	 * @return pushdown automaton.
+	 */
+	public Pa pa() {
+		return (Pa) automaton;
+	}
+
+	/**
+	 * @return Turing machine.
+	 */
+	public TS ts() {
+		return (TS) automaton;
+	}
+
+	/**
+	 * Writes binary image of this automaton into <code>file</code>.
+	 * 
+	 * @param file file.
+	 * @throws IOException if file could not be written.
+	 */
+	public void write(Path file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(kind.ordinal());
+			if (kind.sequences) {
+				writeRows(out, sequences.toArray(new int[sequences.size()][]));
+			}
+			switch (kind) {
+			case DKA:
+				writeDka(out, dka());
+				break;
+			case ENKA:
+				writeEnka(out, enka());
+				break;
+			case PA:
+				writePa(out, pa());
+				break;
+			default:
+				writeTS(out, ts());
+			}
+		}
+	}
+
+	/**
+	 * Loads automaton from binary image stored in <code>file</code>.
+	 * 
+	 * @param file file.
+	 * @param kind expected kind of automaton.
+	 * @return loaded automaton.
+	 * @throws IOException if file could not be read or is not a valid image of
+	 *                     given kind.
+	 */
+	public static CompiledAutomaton map(Path file, Kind kind) throws IOException {
+		long start = Metrics.ENABLED ? MAP.start() : 0;
+		ByteBuffer image;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			image = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			if (image.getInt() != MAGIC || image.getInt() != VERSION || image.getInt() != kind.ordinal()) {
+				throw new IOException("Not a compiled automaton of kind " + kind + ": " + file);
+			}
+			List<int[]> sequences = kind.sequences ? Arrays.asList(readRows(image)) : Collections.emptyList();
+			Object automaton;
+			switch (kind) {
+			case DKA:
+				automaton = readDka(image);
+				break;
+			case ENKA:
+				automaton = readEnka(image);
+				break;
+			case PA:
+				automaton = readPa(image);
+				break;
+			default:
+				automaton = readTS(image);
+			}
+			if (image.hasRemaining()) {
+				throw new IOException("Unexpected data at the end of compiled automaton: " + file);
+			}
+			if (Metrics.ENABLED) {
+				MAP.stop(start);
+			}
+			return new CompiledAutomaton(kind, new ArrayList<>(sequences), automaton);
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new IOException("Corrupted compiled automaton: " + file, e);
+		}
+	}
+
+	/**
+	 * Writes deterministic finite automaton.
+	 * 
+	 * @param out output.
+	 * @param dka automaton.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void writeDka(DataOutputStream out, Dka dka) throws IOException {
+		int n = dka.stateCount();
+		int k = dka.symbolCount();
+		writeNames(out, dka.states());
+		writeNames(out, dka.symbols());
+		writeAcceptable(out, n, dka::isAcceptable);
+		out.writeInt(dka.initialState());
+		out.writeInt(Storage.length(n, k));
+		for (int state = 0; state < n; state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				out.writeInt(dka.next(state, symbol));
+			}
+		}
+	}
+
+	/**
+	 * Reads deterministic finite automaton without copying it. Names of states,
+	 * flags and transitions are views of <code>image</code>, so a mapped image
+	 * stays outside of heap.
+	 * 
+	 * @param image image.
+	 * @return automaton.
+	 */
+	private static Dka readDka(ByteBuffer image) {
+		SymbolTable states = viewNames(image);
+		SymbolTable symbols = readNames(image);
+		int n = image.getInt();
+		ByteBuffer acceptable = view(image, n);
+		skipPadding(image, n);
+		int initialState = image.getInt();
+		int length = image.getInt();
+		IntBuffer transitions = view(image, Storage.length(length, Integer.BYTES)).asIntBuffer();
+		return new Dka(states, symbols, acceptable, initialState, transitions);
+	}
+
+	/**
+	 * Writes epsilon-NFA together with its epsilon closures.
+	 * 
+	 * @param out  output.
+	 * @param enka automaton.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void writeEnka(DataOutputStream out, Enka enka) throws IOException {
+		int n = enka.stateCount();
+		int k = enka.symbolCount();
+		writeNames(out, enka.states());
+		writeNames(out, enka.symbols());
+		writeAcceptable(out, n, enka::isAcceptable);
+		out.writeInt(enka.initialState());
+		int[][] transitions = new int[n * k][];
+		int[][] closures = new int[n][];
+		for (int state = 0; state < n; state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				transitions[state * k + symbol] = enka.next(state, symbol);
+			}
+			closures[state] = enka.closure(state);
+		}
+		writeRows(out, transitions);
+		writeRows(out, closures);
+	}
+
+	/**
+	 * Reads epsilon-NFA.
+	 * 
+	 * @param image image.
+	 * @return automaton.
+	 */
+	private static Enka readEnka(ByteBuffer image) {
+		SymbolTable states = readNames(image);
+		SymbolTable symbols = readNames(image);
+		boolean[] acceptable = readAcceptable(image);
+		int initialState = image.getInt();
+		int[][] transitions = readRows(image);
+		int[][] closures = readRows(image);
+		return new Enka(states, symbols, acceptable, initialState, transitions, closures, true);
+	}
+
+	/**
+	 * Writes pushdown automaton.
+	 * 
+	 * @param out output.
+	 * @param pa  automaton.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void writePa(DataOutputStream out, Pa pa) throws IOException {
+		int n = pa.states().size();
+		int ks = pa.symbols().size();
+		int kt = pa.stackSymbols().size();
+		writeNames(out, pa.states());
+		writeNames(out, pa.symbols());
+		writeNames(out, pa.stackSymbols());
+		writeAcceptable(out, n, pa::isAcceptable);
+		out.writeInt(pa.initialState());
+		out.writeInt(pa.initialStackSymbol());
+		int[] lookup = new int[n * ks * kt];
+		for (int state = 0; state < n; state++) {
+			for (int symbol = 0; symbol < ks; symbol++) {
+				for (int top = 0; top < kt; top++) {
+					lookup[(state * ks + symbol) * kt + top] = pa.transition(state, symbol, top);
+				}
+			}
+		}
+		writeInts(out, lookup);
+		int[] nextStates = new int[pa.transitionCount()];
+		int[][] pushes = new int[nextStates.length][];
+		for (int transition = 0; transition < nextStates.length; transition++) {
+			nextStates[transition] = pa.nextState(transition);
+			pushes[transition] = pa.push(transition);
+		}
+		writeInts(out, nextStates);
+		writeRows(out, pushes);
+	}
+
+	/**
+	 * Reads pushdown automaton.
+	 * 
+	 * @param image image.
+	 * @return automaton.
+	 */
+	private static Pa readPa(ByteBuffer image) {
+		SymbolTable states = readNames(image);
+		SymbolTable symbols = readNames(image);
+		SymbolTable stackSymbols = readNames(image);
+		boolean[] acceptable = readAcceptable(image);
+		int initialState = image.getInt();
+		int initialStackSymbol = image.getInt();
+		int[] lookup = readInts(image);
+		int[] nextStates = readInts(image);
+		int[][] pushes = readRows(image);
+		return new Pa(states, symbols, stackSymbols, acceptable, initialState, initialStackSymbol, lookup,
+				nextStates, pushes);
+	}
+
+	/**
+	 * Writes Turing machine.
+	 * 
+	 * @param out output.
+	 * @param ts  machine.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void writeTS(DataOutputStream out, TS ts) throws IOException {
+		int n = ts.states().size();
+		int k = ts.tapeSymbols().size();
+		writeNames(out, ts.states());
+		writeNames(out, ts.tapeSymbols());
+		writeInts(out, ts.tape());
+		writeAcceptable(out, n, ts::isAcceptable);
+		out.writeInt(ts.initialState());
+		out.writeInt(ts.initialPosition());
+		int[] nextStates = new int[n * k];
+		int[] writes = new int[n * k];
+		int[] moves = new int[n * k];
+		for (int state = 0; state < n; state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				int index = state * k + symbol;
+				nextStates[index] = ts.nextState(state, symbol);
+				writes[index] = ts.write(state, symbol);
+				moves[index] = ts.move(state, symbol);
+			}
+		}
+		writeInts(out, nextStates);
+		writeInts(out, writes);
+		writeInts(out, moves);
+	}
+
+	/**
+	 * Reads Turing machine.
+	 * 
+	 * @param image image.
+	 * @return machine.
+	 */
+	private static TS readTS(ByteBuffer image) {
+		SymbolTable states = readNames(image);
+		SymbolTable tapeSymbols = readNames(image);
+		int[] tape = readInts(image);
+		boolean[] acceptable = readAcceptable(image);
+		int initialState = image.getInt();
+		int initialPosition = image.getInt();
+		int[] nextStates = readInts(image);
+		int[] writes = readInts(image);
+		int[] moves = readInts(image);
+		return new TS(states, tapeSymbols, tape, acceptable, initialState, initialPosition, nextStates, writes,
+				moves);
+	}
+
+	/**
+	 * Writes name table as offsets into one UTF-8 blob, padded to 4 bytes.
+	 * 
+	 * @param out   output.
+	 * @param table name table.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void writeNames(DataOutputStream out, SymbolTable table) throws IOException {
+		byte[][] names = new byte[table.size()][];
+		int[] offsets = new int[names.length + 1];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = table.name(i).getBytes(StandardCharsets.UTF_8);
+			offsets[i + 1] = offsets[i] + names[i].length;
+		}
+		writeInts(out, offsets);
+		for (byte[] name : names) {
+			out.write(name);
+		}
+		pad(out, offsets[names.length]);
+	}
+
+	/**
+	 * Reads name table.
+	 * 
+	 * @param image image.
+	 * @return name table.
+	 */
+	private static SymbolTable readNames(ByteBuffer image) {
+		int[] offsets = readInts(image);
+		int length = offsets[offsets.length - 1];
+		byte[] blob = new byte[length];
+		image.get(blob);
+		skipPadding(image, length);
+		String[] names = new String[offsets.length - 1];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = new String(blob, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+		}
+		return new SymbolTable(names);
+	}
+
+	/**
+	 * Reads name table as a view of <code>image</code>, which decodes names when
+	 * they are needed. Names must be sorted.
+	 * 
+	 * @param image image.
+	 * @return name table.
+	 */
+	private static SymbolTable viewNames(ByteBuffer image) {
+		int count = image.getInt();
+		IntBuffer offsets = view(image, Storage.length(count, Integer.BYTES)).asIntBuffer();
+		int length = offsets.get(count - 1);
+		ByteBuffer blob = view(image, length);
+		skipPadding(image, length);
+		return SymbolTable.mapped(offsets, blob);
+	}
+
+	/**
+	 * Returns next <code>length</code> bytes of <code>image</code> as a new
+	 * buffer and skips them.
+	 * 
+	 * @param image  image.
+	 * @param length number of bytes.
+	 * @return view of bytes, in byte order of image.
+	 */
+	private static ByteBuffer view(ByteBuffer image, int length) {
+		ByteBuffer view = image.slice(image.position(), length).order(image.order());
+		image.position(image.position() + length);
+		return view;
+	}
+
+	/**
+	 * Writes flags of acceptable states, one byte per state, padded to 4 bytes.
+	 * 
+	 * @param out        output.
+	 * @param n          number of states.
+	 * @param acceptable acceptability test.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void writeAcceptable(DataOutputStream out, int n, IntPredicate acceptable) throws IOException {
+		out.writeInt(n);
+		for (int state = 0; state < n; state++) {
+			out.writeByte(acceptable.test(state) ? 1 : 0);
+		}
+		pad(out, n);
+	}
+
+	/**
+	 * Reads flags of acceptable states.
+	 * 
+	 * @param image image.
+	 * @return flags of acceptable states.
+	 */
+	private static boolean[] readAcceptable(ByteBuffer image) {
+		int n = image.getInt();
+		byte[] flags = new byte[n];
+		image.get(flags);
+		skipPadding(image, n);
+		boolean[] acceptable = new boolean[n];
+		for (int state = 0; state < n; state++) {
+			acceptable[state] = flags[state] != 0;
+		}
+		return acceptable;
+	}
+
+	/**
+	 * Writes array prefixed by its length.
+	 * 
+	 * @param out    output.
+	 * @param values values.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	/**
+	 * Reads array prefixed by its length with one bulk copy.
+	 * 
+	 * @param image image.
+	 * @return values.
+	 */
+	private static int[] readInts(ByteBuffer image) {
+		int length = image.getInt();
+		if (length < 0 || length > image.remaining() / Integer.BYTES) {
+			throw new IllegalArgumentException("Invalid array length: " + length);
+		}
+		int[] values = new int[length];
+		image.asIntBuffer().get(values);
+		image.position(image.position() + length * Integer.BYTES);
+		return values;
+	}
+
+	/**
+	 * Writes rows of variable length as row offsets followed by one flat array.
+	 * 
+	 * @param out  output.
+	 * @param rows rows.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void writeRows(DataOutputStream out, int[][] rows) throws IOException {
+		int[] offsets = new int[rows.length + 1];
+		for (int i = 0; i < rows.length; i++) {
+			offsets[i + 1] = offsets[i] + rows[i].length;
+		}
+		writeInts(out, offsets);
+		out.writeInt(offsets[rows.length]);
+		for (int[] row : rows) {
+			for (int value : row) {
+				out.writeInt(value);
+			}
+		}
+	}
+
+	/**
+	 * Reads rows of variable length. Empty rows share one empty array.
+	 * 
+	 * @param image image.
+	 * @return rows.
+	 */
+	private static int[][] readRows(ByteBuffer image) {
+		int[] offsets = readInts(image);
+		int[] values = readInts(image);
+		int[][] rows = new int[offsets.length - 1][];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = offsets[i] == offsets[i + 1] ? NO_VALUES
+					: Arrays.copyOfRange(values, offsets[i], offsets[i + 1]);
+		}
+		return rows;
+	}
+
+	/**
+	 * Pads output after <code>length</code> bytes to a multiple of 4 bytes.
+	 * 
+	 * @param out    output.
+	 * @param length number of bytes written.
+	 * @throws IOException if output could not be written.
+	 */
+	private static void pad(DataOutputStream out, int length) throws IOException {
+		for (int i = length; i % Integer.BYTES != 0; i++) {
+			out.writeByte(0);
+		}
+	}
+
+	/**
+	 * Skips padding after <code>length</code> bytes.
+	 * 
+	 * @param image  image.
+	 * @param length number of bytes read.
+	 */
+	private static void skipPadding(ByteBuffer image, int length) {
+		image.position(image.position() + (-length & (Integer.BYTES - 1)));
+	}
+}
@@ -0,0 +1,272 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Immutable model of deterministic finite automaton (DKA). States and symbols
+ * are interned into {@link SymbolTable}s whose indexes follow natural ordering
+ * of names, so iterating over indexes gives the same order as iterating over a
+ * {@link java.util.TreeSet} of names.
+ * <p>
+ * Transitions are stored in one flat table, row per state and column per
+ * symbol. Undefined transitions are marked with {@link #UNDEFINED}. Tables are
+ * buffers, so they can be kept outside of heap, see {@link Storage}.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class Dka {
+
+	/**
+	 * Value of an undefined transition.
+	 */
+	public static final int UNDEFINED = -1;
+
+	/**
+	 * Every possible state.
+	 */
+	private final SymbolTable states;
+
+	/**
+	 * Alphabet symbols.
+	 */
+	private final SymbolTable symbols;
+
+	/**
+	 * Flags of acceptable states, indexed by state, non-zero for acceptable.
+	 */
+	private final ByteBuffer acceptable;
+
+	/**
+	 * Initial state.
+	 */
+	private final int initialState;
+
+	/**
+	 * Transitions, <code>transitions.get(state * symbolCount + symbol)</code> is
+	 * next state.
+	 */
+	private final IntBuffer transitions;
+
+	/**
+	 * Constructor. Arrays are not copied, caller must not modify them afterwards.
+	 * 
+	 * @param states       every possible state.
+	 * @param symbols      alphabet symbols.
+	 * @param acceptable   flags of acceptable states.
+	 * @param initialState initial state.
+	 * @param transitions  flat transition table.
+	 */
+	public Dka(SymbolTable states, SymbolTable symbols, boolean[] acceptable, int initialState, int[] transitions) {
+		this(states, symbols, flags(acceptable), initialState, IntBuffer.wrap(transitions));
+	}
+
+	/**
+	 * Constructor which uses given tables. Tables are not copied, caller must not
+	 * modify them afterwards.
+	 * 
+	 * @param states       every possible state.
+	 * @param symbols      alphabet symbols.
+	 * @param acceptable   flags of acceptable states, non-zero for acceptable.
+	 * @param initialState initial state.
+	 * @param transitions  flat transition table.
+	 */
+	Dka(SymbolTable states, SymbolTable symbols, ByteBuffer acceptable, int initialState, IntBuffer transitions) {
+		if (acceptable.limit() != states.size() || transitions.limit() != (long) states.size() * symbols.size()) {
+			throw new IllegalArgumentException("Transition table does not match states and symbols.");
+		}
+		this.states = states;
+		this.symbols = symbols;
+		this.acceptable = acceptable;
+		this.initialState = initialState;
+		this.transitions = transitions;
+	}
+
+	/**
+	 * Converts flags of acceptable states into bytes.
+	 * 
+	 * @param acceptable flags of acceptable states.
+	 * @return buffer with one byte per state.
+	 */
+	private static ByteBuffer flags(boolean[] acceptable) {
+		byte[] flags = new byte[acceptable.length];
+		for (int state = 0; state < flags.length; state++) {
+			flags[state] = (byte) (acceptable[state] ? 1 : 0);
+		}
+		return ByteBuffer.wrap(flags);
+	}
+
+	/**
+	 * @return table of states.
+	 */
+	public SymbolTable states() {
+		return states;
+	}
+
+	/**
+	 * @return table of alphabet symbols.
+	 */
+	public SymbolTable symbols() {
+		return symbols;
+	}
+
+	/**
+	 * @return number of states.
+	 */
+	public int stateCount() {
+		return states.size();
+	}
+
+	/**
+	 * @return number of alphabet symbols.
+	 */
+	public int symbolCount() {
+		return symbols.size();
+	}
+
+	/**
+	 * @return initial state.
+	 */
+	public int initialState() {
+		return initialState;
+	}
+
+	/**
+	 * Checks whether <code>state</code> is acceptable.
+	 * 
+	 * @param state state.
+	 * @return <code>true</code> if {@code state} is acceptable, otherwise
+	 *         <code>false</code>.
+	 */
+	public boolean isAcceptable(int state) {
+		return acceptable.get(state) != 0;
+	}
+
+	/**
+	 * Returns next state for <code>state</code> and <code>symbol</code>.
+	 * 
+	 * @param state  current state.
+	 * @param symbol transition symbol.
+	 * @return next state or {@link #UNDEFINED}.
+	 */
+	public int next(int state, int symbol) {
+		return transitions.get(state * symbols.size() + symbol);
+	}
+
+	/**
+	 * @return matcher which walks transition table of this automaton.
+	 */
+	public Matcher matcher() {
+		return new TableMatcher(this);
+	}
+
+	/**
+	 * Maps characters onto symbols whose names are single characters.
+	 * 
+	 * @param symbols alphabet symbols.
+	 * @return symbol of every character up to the largest one used, or
+	 *         {@link #UNDEFINED}.
+	 */
+	static int[] charSymbols(SymbolTable symbols) {
+		int length = 0;
+		for (int symbol = 0; symbol < symbols.size(); symbol++) {
+			if (symbols.name(symbol).length() == 1) {
+				length = Math.max(length, symbols.name(symbol).charAt(0) + 1);
+			}
+		}
+		int[] chars = new int[length];
+		Arrays.fill(chars, UNDEFINED);
+		for (int symbol = 0; symbol < symbols.size(); symbol++) {
+			if (symbols.name(symbol).length() == 1) {
+				chars[symbols.name(symbol).charAt(0)] = symbol;
+			}
+		}
+		return chars;
+	}
+
+	/**
+	 * Acceptance check of whole sequences.
+	 */
+	public interface Matcher {
+
+		/**
+		 * Checks whether automaton accepts <code>symbols</code>.
+		 * 
+		 * @param symbols sequence of symbol indexes.
+		 * @return <code>true</code> if sequence is accepted, <code>false</code>
+		 *         also if it contains an index which is not a symbol.
+		 */
+		boolean match(int[] symbols);
+
+		/**
+		 * Checks whether automaton accepts <code>text</code>, every character
+		 * being the symbol of the same name.
+		 * 
+		 * @param text sequence of characters.
+		 * @return <code>true</code> if text is accepted, <code>false</code> also
+		 *         if it contains a character which is not a symbol.
+		 */
+		boolean match(CharSequence text);
+	}
+
+	/**
+	 * Matcher which looks up every transition in table of automaton.
+	 */
+	private static class TableMatcher implements Matcher {
+
+		/**
+		 * Automaton.
+		 */
+		private final Dka dka;
+
+		/**
+		 * Symbol of every character, see {@link Dka#charSymbols(SymbolTable)}.
+		 */
+		private final int[] chars;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param dka automaton.
+		 */
+		private TableMatcher(Dka dka) {
+			this.dka = dka;
+			this.chars = charSymbols(dka.symbols);
+		}
+
+		@Override
+		public boolean match(int[] symbols) {
+			int k = dka.symbols.size();
+			int state = dka.initialState;
+			for (int symbol : symbols) {
+				if (symbol < 0 || symbol >= k) {
+					return false;
+				}
+				state = dka.transitions.get(state * k + symbol);
+				if (state == UNDEFINED) {
+					return false;
+				}
+			}
+			return dka.isAcceptable(state);
+		}
+
+		@Override
+		public boolean match(CharSequence text) {
+			int k = dka.symbols.size();
+			int state = dka.initialState;
+			for (int i = 0, n = text.length(); i < n; i++) {
+				char c = text.charAt(i);
+				int symbol = c < chars.length ? chars[c] : UNDEFINED;
+				if (symbol == UNDEFINED) {
+					return false;
+				}
+				state = dka.transitions.get(state * k + symbol);
+				if (state == UNDEFINED) {
+					return false;
+				}
+			}
+			return dka.isAcceptable(state);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compiler of {@link Dka} into a {@link Dka.Matcher} specialised for one
+ * automaton.
+ * <p>
+ * Matcher walks a dense table handed to generated class as its class data.
+ * Rows are padded to a power of two and hold offsets of next rows instead of
+ * states, so a step is one addition and one load, and the width of row, the
+ * initial row and the check of symbol are constants of generated code.
+ * Transitions into states from which no acceptable state can be reached reject
+ * at once. A switch per state was tried as well, but jumps through switches of
+ * random transitions were several times slower than loads from table.
+ * </p>
+ * <p>
+ * Generated source is compiled through {@link AutomatonCache}, so with cache
+ * enabled class file of the same automaton is compiled only once.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class DkaCompiler {
+
+	/**
+	 * Name of generated class.
+	 */
+	private static final String CLASS_NAME = "CompiledDka";
+
+	/**
+	 * Constructor.
+	 */
+	private DkaCompiler() {
+	}
+
+	/**
+	 * Compiles <code>dka</code>.
+	 * 
+	 * @param dka   automaton.
+	 * @param cache cache of class files.
+	 * @return matcher or <code>null</code> if automaton is too large or compiler
+	 *         is not available.
+	 */
+	public static Dka.Matcher compile(Dka dka, AutomatonCache cache) {
+		int stride = stride(dka.symbolCount());
+		if ((long) dka.stateCount() * stride > Integer.MAX_VALUE - 8) {
+			return null;
+		}
+		List<Object> data = List.of(table(dka, live(dka), stride), acceptable(dka), Dka.charSymbols(dka.symbols()));
+		try {
+			return ClassCompiler.define(cache.compile(CLASS_NAME, source(dka, stride)), data, Dka.Matcher.class);
+		} catch (IllegalStateException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Finds states from which an acceptable state can be reached.
+	 * 
+	 * @param dka automaton.
+	 * @return flag of every state.
+	 */
+	private static boolean[] live(Dka dka) {
+		int n = dka.stateCount();
+		int k = dka.symbolCount();
+		// reversed transitions as linked lists of sources
+		int[] first = new int[n];
+		int[] next = new int[n * k];
+		int[] source = new int[n * k];
+		Arrays.fill(first, -1);
+		int edges = 0;
+		for (int state = 0; state < n; state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				int target = dka.next(state, symbol);
+				if (target != Dka.UNDEFINED) {
+					source[edges] = state;
+					next[edges] = first[target];
+					first[target] = edges++;
+				}
+			}
+		}
+		boolean[] live = new boolean[n];
+		Deque<Integer> queue = new ArrayDeque<>();
+		for (int state = 0; state < n; state++) {
+			if (dka.isAcceptable(state)) {
+				live[state] = true;
+				queue.add(state);
+			}
+		}
+		while (!queue.isEmpty()) {
+			for (int edge = first[queue.poll()]; edge != -1; edge = next[edge]) {
+				if (!live[source[edge]]) {
+					live[source[edge]] = true;
+					queue.add(source[edge]);
+				}
+			}
+		}
+		return live;
+	}
+
+	/**
+	 * Returns next state, unless it is not live.
+	 * 
+	 * @param dka    automaton.
+	 * @param live   flags of live states.
+	 * @param state  current state.
+	 * @param symbol transition symbol.
+	 * @return next live state or {@link Dka#UNDEFINED}.
+	 */
+	private static int target(Dka dka, boolean[] live, int state, int symbol) {
+		int target = dka.next(state, symbol);
+		return target != Dka.UNDEFINED && live[target] ? target : Dka.UNDEFINED;
+	}
+
+	/**
+	 * @param symbolCount number of symbols.
+	 * @return the smallest power of two not smaller than number of symbols.
+	 */
+	private static int stride(int symbolCount) {
+		return symbolCount <= 1 ? 1 : Integer.highestOneBit(symbolCount - 1) << 1;
+	}
+
+	/**
+	 * Builds dense table of row offsets.
+	 * 
+	 * @param dka    automaton.
+	 * @param live   flags of live states.
+	 * @param stride length of row.
+	 * @return offset of next row at <code>state * stride + symbol</code>, or
+	 *         <code>-1</code> for rejection.
+	 */
+	private static int[] table(Dka dka, boolean[] live, int stride) {
+		int[] table = new int[dka.stateCount() * stride];
+		Arrays.fill(table, -1);
+		for (int state = 0; state < dka.stateCount(); state++) {
+			for (int symbol = 0; symbol < dka.symbolCount(); symbol++) {
+				int target = target(dka, live, state, symbol);
+				if (target != Dka.UNDEFINED) {
+					table[state * stride + symbol] = target * stride;
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @param dka automaton.
+	 * @return flag of every acceptable state.
+	 */
+	private static boolean[] acceptable(Dka dka) {
+		boolean[] acceptable = new boolean[dka.stateCount()];
+		for (int state = 0; state < acceptable.length; state++) {
+			acceptable[state] = dka.isAcceptable(state);
+		}
+		return acceptable;
+	}
+
+	/**
+	 * Generates source of matcher which walks dense table. Table, flags of
+	 * acceptable states and symbols of characters are class data.
+	 * 
+	 * @param dka    automaton.
+	 * @param stride length of row.
+	 * @return source of class {@value #CLASS_NAME}.
+	 */
+	static String source(Dka dka, int stride) {
+		int shift = Integer.numberOfTrailingZeros(stride);
+		int initial = dka.initialState() * stride;
+		StringBuilder sb = new StringBuilder();
+		sb.append("import java.lang.invoke.MethodHandles;\n\n");
+		sb.append("public final class ").append(CLASS_NAME).append(" implements Dka.Matcher {\n");
+		sb.append("\tprivate static final int[] TABLE;\n");
+		sb.append("\tprivate static final boolean[] ACCEPTABLE;\n");
+		sb.append("\tprivate static final int[] CHARS;\n");
+		sb.append("\tstatic {\n");
+		sb.append("\t\ttry {\n");
+		sb.append("\t\t\tMethodHandles.Lookup lookup = MethodHandles.lookup();\n");
+		sb.append("\t\t\tTABLE = MethodHandles.classDataAt(lookup, \"_\", int[].class, 0);\n");
+		sb.append("\t\t\tACCEPTABLE = MethodHandles.classDataAt(lookup, \"_\", boolean[].class, 1);\n");
+		sb.append("\t\t\tCHARS = MethodHandles.classDataAt(lookup, \"_\", int[].class, 2);\n");
+		sb.append("\t\t} catch (IllegalAccessException e) {\n");
+		sb.append("\t\t\tthrow new ExceptionInInitializerError(e);\n");
+		sb.append("\t\t}\n");
+		sb.append("\t}\n\n");
+		sb.append("\tpublic boolean match(int[] symbols) {\n");
+		sb.append("\t\tint row = ").append(initial).append(";\n");
+		sb.append("\t\tfor (int symbol : symbols) {\n");
+		sb.append("\t\t\tif ((symbol & ").append(-stride).append(") != 0) {\n");
+		sb.append("\t\t\t\treturn false;\n");
+		sb.append("\t\t\t}\n");
+		sb.append("\t\t\trow = TABLE[row + symbol];\n");
+		sb.append("\t\t\tif (row < 0) {\n");
+		sb.append("\t\t\t\treturn false;\n");
+		sb.append("\t\t\t}\n");
+		sb.append("\t\t}\n");
+		sb.append("\t\treturn ACCEPTABLE[row >>> ").append(shift).append("];\n");
+		sb.append("\t}\n\n");
+		sb.append("\tpublic boolean match(CharSequence text) {\n");
+		sb.append("\t\tint row = ").append(initial).append(";\n");
+		sb.append("\t\tfor (int i = 0, n = text.length(); i < n; i++) {\n");
+		sb.append("\t\t\tchar c = text.charAt(i);\n");
+		sb.append("\t\t\tif (c >= CHARS.length) {\n");
+		sb.append("\t\t\t\treturn false;\n");
+		sb.append("\t\t\t}\n");
+		sb.append("\t\t\tint symbol = CHARS[c];\n");
+		sb.append("\t\t\tif (symbol < 0) {\n");
+		sb.append("\t\t\t\treturn false;\n");
+		sb.append("\t\t\t}\n");
+		sb.append("\t\t\trow = TABLE[row + symbol];\n");
+		sb.append("\t\t\tif (row < 0) {\n");
+		sb.append("\t\t\t\treturn false;\n");
+		sb.append("\t\t\t}\n");
+		sb.append("\t\t}\n");
+		sb.append("\t\treturn ACCEPTABLE[row >>> ").append(shift).append("];\n");
+		sb.append("\t}\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,851 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Minimization of {@link Dka}. Unreachable states are removed first and then
+ * identical states are merged using Hopcroft's partition refinement, which runs
+ * in <code>O(n log n)</code> per symbol.
+ * <p>
+ * Every class of identical states is replaced by its smallest state, so the
+ * result is the same as the one given by the table filling algorithm.
+ * </p>
+ * <p>
+ * Identical states of very large automata can also be merged in parallel, by
+ * {@link #removeIdenticalStates(Dka, ForkJoinPool)}, which refines partition
+ * in rounds of signatures. Both engines find the same classes, so they give
+ * the same automaton.
+ * </p>
+ * <p>
+ * Every table used by minimization, as well as the minimized automaton, is
+ * allocated by given {@link Storage}, so automata can be minimized outside of
+ * heap.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class DkaMinimizer {
+
+	/**
+	 * Number of removed unreachable states.
+	 */
+	private static final Metrics.Counter UNREACHABLE_STATES = Metrics.counter("MinDka.unreachableStates");
+
+	/**
+	 * Number of states merged into identical states.
+	 */
+	private static final Metrics.Counter MERGED_STATES = Metrics.counter("MinDka.mergedStates");
+
+	/**
+	 * Number of refinement passes, one per splitter block and symbol.
+	 */
+	private static final Metrics.Counter PASSES = Metrics.counter("MinDka.passes");
+
+	/**
+	 * Number of states marked by all passes, partition refinement counterpart of
+	 * pairs marked by the table filling algorithm.
+	 */
+	private static final Metrics.Counter STATES_MARKED = Metrics.counter("MinDka.statesMarked");
+
+	/**
+	 * Number of blocks split by all passes.
+	 */
+	private static final Metrics.Counter BLOCKS_SPLIT = Metrics.counter("MinDka.blocksSplit");
+
+	/**
+	 * Number of rounds of parallel signature refinement.
+	 */
+	private static final Metrics.Counter ROUNDS = Metrics.counter("MinDka.rounds");
+
+	/**
+	 * Time spent merging identical states.
+	 */
+	private static final Metrics.Timer REFINE = Metrics.timer("MinDka.removeIdenticalStates");
+
+	/**
+	 * Utility class.
+	 */
+	private DkaMinimizer() {
+	}
+
+	/**
+	 * Minimizes <code>dka</code>.
+	 * 
+	 * @param dka automaton.
+	 * @return minimized automaton.
+	 */
+	public static Dka minimize(Dka dka) {
+		return minimize(dka, Storage.HEAP);
+	}
+
+	/**
+	 * Minimizes <code>dka</code> using tables allocated by <code>storage</code>.
+	 * 
+	 * @param dka     automaton.
+	 * @param storage allocator of tables.
+	 * @return minimized automaton.
+	 */
+	public static Dka minimize(Dka dka, Storage storage) {
+		return removeIdenticalStates(removeUnreachableStates(dka, storage), storage);
+	}
+
+	/**
+	 * Creates new automaton without states that are not reachable from initial
+	 * state.
+	 * 
+	 * @param dka automaton.
+	 * @return automaton with reachable states only.
+	 */
+	public static Dka removeUnreachableStates(Dka dka) {
+		return removeUnreachableStates(dka, Storage.HEAP);
+	}
+
+	/**
+	 * Creates new automaton without states that are not reachable from initial
+	 * state, using tables allocated by <code>storage</code>.
+	 * 
+	 * @param dka     automaton.
+	 * @param storage allocator of tables.
+	 * @return automaton with reachable states only.
+	 */
+	public static Dka removeUnreachableStates(Dka dka, Storage storage) {
+		int n = dka.stateCount();
+		int k = dka.symbolCount();
+		// reachable states are their own representatives
+		IntBuffer representatives = storage.allocateInts(n);
+		fill(representatives, Dka.UNDEFINED);
+		IntBuffer queue = storage.allocateInts(n);
+		int head = 0;
+		int tail = 0;
+		representatives.put(dka.initialState(), dka.initialState());
+		queue.put(tail++, dka.initialState());
+		while (head < tail) {
+			int state = queue.get(head++);
+			for (int symbol = 0; symbol < k; symbol++) {
+				int next = dka.next(state, symbol);
+				if (next != Dka.UNDEFINED && representatives.get(next) == Dka.UNDEFINED) {
+					representatives.put(next, next);
+					queue.put(tail++, next);
+				}
+			}
+		}
+		if (Metrics.ENABLED) {
+			UNREACHABLE_STATES.add(n - tail);
+		}
+		if (tail == n) {
+			return dka;
+		}
+		return quotient(dka, representatives, storage);
+	}
+
+	/**
+	 * Creates new automaton in which every class of identical states is replaced
+	 * by its smallest state.
+	 * 
+	 * @param dka automaton.
+	 * @return automaton without identical states.
+	 */
+	public static Dka removeIdenticalStates(Dka dka) {
+		return removeIdenticalStates(dka, Storage.HEAP);
+	}
+
+	/**
+	 * Creates new automaton in which every class of identical states is replaced
+	 * by its smallest state, using tables allocated by <code>storage</code>.
+	 * 
+	 * @param dka     automaton.
+	 * @param storage allocator of tables.
+	 * @return automaton without identical states.
+	 */
+	public static Dka removeIdenticalStates(Dka dka, Storage storage) {
+		long start = Metrics.ENABLED ? REFINE.start() : 0;
+		Dka minimized = quotient(dka, representatives(refine(dka, storage), dka.stateCount(), storage), storage);
+		if (Metrics.ENABLED) {
+			MERGED_STATES.add(dka.stateCount() - minimized.stateCount());
+			REFINE.stop(start);
+		}
+		return minimized;
+	}
+
+	/**
+	 * Creates new automaton in which every class of identical states is replaced
+	 * by its smallest state, splitting the work among threads of
+	 * <code>pool</code>. Result is the same as the one of
+	 * {@link #removeIdenticalStates(Dka)}.
+	 * 
+	 * @param dka  automaton.
+	 * @param pool pool which runs refinement.
+	 * @return automaton without identical states.
+	 */
+	public static Dka removeIdenticalStates(Dka dka, ForkJoinPool pool) {
+		return removeIdenticalStates(dka, pool, Storage.HEAP);
+	}
+
+	/**
+	 * Creates new automaton in which every class of identical states is replaced
+	 * by its smallest state, splitting the work among threads of
+	 * <code>pool</code> and using tables allocated by <code>storage</code>.
+	 * 
+	 * @param dka     automaton.
+	 * @param pool    pool which runs refinement.
+	 * @param storage allocator of tables.
+	 * @return automaton without identical states.
+	 */
+	public static Dka removeIdenticalStates(Dka dka, ForkJoinPool pool, Storage storage) {
+		long start = Metrics.ENABLED ? REFINE.start() : 0;
+		IntBuffer blocks = new SignatureRefinement(dka, pool, storage).refine();
+		Dka minimized = quotient(dka, representatives(blocks, dka.stateCount(), storage), storage);
+		if (Metrics.ENABLED) {
+			MERGED_STATES.add(dka.stateCount() - minimized.stateCount());
+			REFINE.stop(start);
+		}
+		return minimized;
+	}
+
+	/**
+	 * Splits states of <code>dka</code> into classes of identical states. Missing
+	 * transitions lead into an implicit rejecting state which gets the last index.
+	 * 
+	 * @param dka     automaton.
+	 * @param storage allocator of tables.
+	 * @return class index for every state, including the implicit one.
+	 */
+	private static IntBuffer refine(Dka dka, Storage storage) {
+		int n = dka.stateCount() + 1;
+		int sink = n - 1;
+		int k = dka.symbolCount();
+		int length = Storage.length(k, n);
+
+		// inverse transitions, grouped by symbol and then by target state
+		IntBuffer inverseStart = storage.allocateInts(length + 1);
+		for (int state = 0; state < n; state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				int index = symbol * n + target(dka, state, symbol, sink) + 1;
+				inverseStart.put(index, inverseStart.get(index) + 1);
+			}
+		}
+		for (int i = 0; i < length; i++) {
+			inverseStart.put(i + 1, inverseStart.get(i + 1) + inverseStart.get(i));
+		}
+		IntBuffer inverse = storage.allocateInts(length);
+		IntBuffer fill = storage.allocateInts(length);
+		for (int i = 0; i < length; i++) {
+			fill.put(i, inverseStart.get(i));
+		}
+		for (int state = 0; state < n; state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				int index = symbol * n + target(dka, state, symbol, sink);
+				int position = fill.get(index);
+				inverse.put(position, state);
+				fill.put(index, position + 1);
+			}
+		}
+		fill = null;
+
+		Partition partition = new Partition(n, storage);
+		for (int state = 0; state < sink; state++) {
+			if (dka.isAcceptable(state)) {
+				partition.mark(state);
+			}
+		}
+		IntBuffer pending = storage.allocateInts(n);
+		int pendingSize = 0;
+		while (partition.hasTouched()) {
+			int split = partition.split(partition.nextTouched());
+			if (split != -1) {
+				pending.put(pendingSize++, split);
+			}
+		}
+
+		IntBuffer splitter = storage.allocateInts(n);
+		long passes = 0;
+		long marked = 0;
+		long splits = 0;
+		while (pendingSize > 0) {
+			int block = pending.get(--pendingSize);
+			int splitterSize = partition.elements(block, splitter);
+			for (int symbol = 0; symbol < k; symbol++) {
+				for (int i = 0; i < splitterSize; i++) {
+					int offset = symbol * n + splitter.get(i);
+					int end = inverseStart.get(offset + 1);
+					for (int j = inverseStart.get(offset); j < end; j++) {
+						partition.mark(inverse.get(j));
+					}
+					if (Metrics.ENABLED) {
+						marked += end - inverseStart.get(offset);
+					}
+				}
+				while (partition.hasTouched()) {
+					int split = partition.split(partition.nextTouched());
+					if (split != -1) {
+						pending.put(pendingSize++, split);
+						if (Metrics.ENABLED) {
+							splits++;
+						}
+					}
+				}
+				if (Metrics.ENABLED) {
+					passes++;
+				}
+			}
+		}
+		if (Metrics.ENABLED) {
+			PASSES.add(passes);
+			STATES_MARKED.add(marked);
+			BLOCKS_SPLIT.add(splits);
+		}
+		return partition.blocks();
+	}
+
+	/**
+	 * Returns next state, replacing undefined transitions with
+	 * <code>sink</code>.
+	 * 
+	 * @param dka    automaton.
+	 * @param state  current state or {@code sink}.
+	 * @param symbol transition symbol.
+	 * @param sink   index of implicit rejecting state.
+	 * @return next state.
+	 */
+	private static int target(Dka dka, int state, int symbol, int sink) {
+		if (state == sink) {
+			return sink;
+		}
+		int next = dka.next(state, symbol);
+		return next == Dka.UNDEFINED ? sink : next;
+	}
+
+	/**
+	 * Fills <code>table</code> with <code>value</code>.
+	 * 
+	 * @param table table.
+	 * @param value value.
+	 */
+	private static void fill(IntBuffer table, int value) {
+		for (int i = 0; i < table.limit(); i++) {
+			table.put(i, value);
+		}
+	}
+
+	/**
+	 * Maps every class index onto its smallest real state.
+	 * 
+	 * @param blocks     class index for every state, including the implicit one.
+	 * @param stateCount number of real states.
+	 * @param storage    allocator of tables.
+	 * @return representative of every real state.
+	 */
+	static IntBuffer representatives(IntBuffer blocks, int stateCount, Storage storage) {
+		IntBuffer smallest = storage.allocateInts(blocks.limit());
+		fill(smallest, Dka.UNDEFINED);
+		IntBuffer representatives = storage.allocateInts(stateCount);
+		for (int state = 0; state < stateCount; state++) {
+			int block = blocks.get(state);
+			if (smallest.get(block) == Dka.UNDEFINED) {
+				smallest.put(block, state);
+			}
+			representatives.put(state, smallest.get(block));
+		}
+		return representatives;
+	}
+
+	/**
+	 * Creates new automaton which contains only states that are their own
+	 * representatives. Transitions are redirected onto representatives and
+	 * states whose representative is {@link Dka#UNDEFINED} are dropped.
+	 * 
+	 * @param dka             automaton.
+	 * @param representatives representative of every state.
+	 * @param storage         allocator of tables.
+	 * @return new automaton.
+	 */
+	static Dka quotient(Dka dka, IntBuffer representatives, Storage storage) {
+		int n = dka.stateCount();
+		int k = dka.symbolCount();
+		IntBuffer newIndexes = storage.allocateInts(n);
+		int count = 0;
+		for (int state = 0; state < n; state++) {
+			newIndexes.put(state, representatives.get(state) == state ? count++ : Dka.UNDEFINED);
+		}
+
+		// names of kept states are a view of the old table
+		IntBuffer names = storage.allocateInts(count);
+		ByteBuffer acceptable = storage.allocateBytes(count);
+		IntBuffer transitions = storage.allocateInts(Storage.length(count, k));
+		for (int state = 0; state < n; state++) {
+			int index = newIndexes.get(state);
+			if (index == Dka.UNDEFINED) {
+				continue;
+			}
+			names.put(index, state);
+			acceptable.put(index, (byte) (dka.isAcceptable(state) ? 1 : 0));
+			for (int symbol = 0; symbol < k; symbol++) {
+				int next = dka.next(state, symbol);
+				transitions.put(index * k + symbol,
+						next == Dka.UNDEFINED ? Dka.UNDEFINED : newIndexes.get(representatives.get(next)));
+			}
+		}
+		return new Dka(SymbolTable.subset(dka.states(), names), dka.symbols(), acceptable,
+				newIndexes.get(representatives.get(dka.initialState())), transitions);
+	}
+
+	/**
+	 * Refinable partition of states into blocks. Every block occupies a
+	 * contiguous range of {@link #elements} and its marked states are kept at the
+	 * beginning of that range.
+	 */
+	private static class Partition {
+
+		/**
+		 * States ordered by blocks.
+		 */
+		private final IntBuffer elements;
+
+		/**
+		 * Position of every state in {@link #elements}.
+		 */
+		private final IntBuffer locations;
+
+		/**
+		 * Block of every state.
+		 */
+		private final IntBuffer blocks;
+
+		/**
+		 * First position of every block.
+		 */
+		private final IntBuffer first;
+
+		/**
+		 * Position after the last marked state of every block.
+		 */
+		private final IntBuffer middle;
+
+		/**
+		 * Position after the last state of every block.
+		 */
+		private final IntBuffer end;
+
+		/**
+		 * Blocks which have at least one marked state.
+		 */
+		private final IntBuffer touched;
+
+		/**
+		 * Number of blocks in {@link #touched}.
+		 */
+		private int touchedSize;
+
+		/**
+		 * Number of blocks.
+		 */
+		private int blockCount;
+
+		/**
+		 * Constructor. All states are put into one block.
+		 * 
+		 * @param n       number of states.
+		 * @param storage allocator of tables.
+		 */
+		Partition(int n, Storage storage) {
+			elements = storage.allocateInts(n);
+			locations = storage.allocateInts(n);
+			blocks = storage.allocateInts(n);
+			first = storage.allocateInts(n);
+			middle = storage.allocateInts(n);
+			end = storage.allocateInts(n);
+			touched = storage.allocateInts(n);
+			for (int i = 0; i < n; i++) {
+				elements.put(i, i);
+				locations.put(i, i);
+			}
+			end.put(0, n);
+			blockCount = 1;
+		}
+
+		/**
+		 * Marks <code>state</code>.
+		 * 
+		 * @param state state.
+		 */
+		void mark(int state) {
+			int block = blocks.get(state);
+			int location = locations.get(state);
+			int boundary = middle.get(block);
+			if (location < boundary) {
+				return;
+			}
+			if (boundary == first.get(block)) {
+				touched.put(touchedSize++, block);
+			}
+			int other = elements.get(boundary);
+			elements.put(boundary, state);
+			locations.put(state, boundary);
+			elements.put(location, other);
+			locations.put(other, location);
+			middle.put(block, boundary + 1);
+		}
+
+		/**
+		 * @return <code>true</code> if some block has marked states.
+		 */
+		boolean hasTouched() {
+			return touchedSize > 0;
+		}
+
+		/**
+		 * @return next block with marked states.
+		 */
+		int nextTouched() {
+			return touched.get(--touchedSize);
+		}
+
+		/**
+		 * Splits <code>block</code> into marked and unmarked states. The smaller part
+		 * becomes a new block and all marks are removed.
+		 * 
+		 * @param block block.
+		 * @return index of new block or <code>-1</code> if block was not split.
+		 */
+		int split(int block) {
+			int blockFirst = first.get(block);
+			int blockMiddle = middle.get(block);
+			int blockEnd = end.get(block);
+			if (blockMiddle == blockEnd || blockMiddle == blockFirst) {
+				middle.put(block, blockFirst);
+				return -1;
+			}
+			int created = blockCount++;
+			if (blockMiddle - blockFirst <= blockEnd - blockMiddle) {
+				first.put(created, blockFirst);
+				end.put(created, blockMiddle);
+				first.put(block, blockMiddle);
+			} else {
+				first.put(created, blockMiddle);
+				end.put(created, blockEnd);
+				end.put(block, blockMiddle);
+			}
+			middle.put(block, first.get(block));
+			middle.put(created, first.get(created));
+			for (int i = first.get(created); i < end.get(created); i++) {
+				blocks.put(elements.get(i), created);
+			}
+			return created;
+		}
+
+		/**
+		 * Copies states of <code>block</code> into <code>destination</code>.
+		 * 
+		 * @param block       block.
+		 * @param destination destination table.
+		 * @return number of copied states.
+		 */
+		int elements(int block, IntBuffer destination) {
+			int from = first.get(block);
+			int size = end.get(block) - from;
+			for (int i = 0; i < size; i++) {
+				destination.put(i, elements.get(from + i));
+			}
+			return size;
+		}
+
+		/**
+		 * @return block of every state.
+		 */
+		IntBuffer blocks() {
+			return blocks;
+		}
+	}
+
+	/**
+	 * Parallel partition refinement in rounds. In every round, each state gets a
+	 * signature made of its block and blocks of its successors, and states with
+	 * equal signatures form blocks of the next partition. Refinement stops when a
+	 * round does not increase number of blocks.
+	 * <p>
+	 * States are distributed into shards by hash of their signature, so equal
+	 * signatures always meet in the same shard and every shard is numbered by one
+	 * task, in its own part of a shared hash table, without any synchronization.
+	 * Number of rounds is bounded by length of the longest word needed to
+	 * distinguish two states, which is small for most automata but linear for
+	 * long chains.
+	 * </p>
+	 */
+	private static class SignatureRefinement {
+
+		/**
+		 * Automaton.
+		 */
+		private final Dka dka;
+
+		/**
+		 * Number of states, including the implicit rejecting one.
+		 */
+		private final int n;
+
+		/**
+		 * Index of implicit rejecting state.
+		 */
+		private final int sink;
+
+		/**
+		 * Pool which runs tasks.
+		 */
+		private final ForkJoinPool pool;
+
+		/**
+		 * Number of chunks of states and also number of shards.
+		 */
+		private final int tasks;
+
+		/**
+		 * Block of every state in current partition.
+		 */
+		private IntBuffer blocks;
+
+		/**
+		 * Block of every state in next partition.
+		 */
+		private IntBuffer refined;
+
+		/**
+		 * Hash of signature of every state.
+		 */
+		private final IntBuffer hashes;
+
+		/**
+		 * States grouped by shards.
+		 */
+		private final IntBuffer order;
+
+		/**
+		 * Hash tables of all shards.
+		 */
+		private final IntBuffer table;
+
+		/**
+		 * Number of states of every chunk in every shard,
+		 * <code>positions[chunk * tasks + shard]</code>, later turned into their
+		 * positions in {@link #order}.
+		 */
+		private final int[] positions;
+
+		/**
+		 * First position of every shard in {@link #order}.
+		 */
+		private final int[] shardStart;
+
+		/**
+		 * Number of blocks found by every shard, later turned into first block of
+		 * every shard.
+		 */
+		private final int[] shardBlocks;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param dka     automaton.
+		 * @param pool    pool which runs tasks.
+		 * @param storage allocator of tables.
+		 */
+		SignatureRefinement(Dka dka, ForkJoinPool pool, Storage storage) {
+			this.dka = dka;
+			this.n = dka.stateCount() + 1;
+			this.sink = n - 1;
+			this.pool = pool;
+			this.tasks = Parallelism.tasks(pool, n);
+			this.blocks = storage.allocateInts(n);
+			this.refined = storage.allocateInts(n);
+			this.hashes = storage.allocateInts(n);
+			this.order = storage.allocateInts(n);
+			this.table = storage.allocateInts(Storage.length(n, 2));
+			this.positions = new int[tasks * tasks];
+			this.shardStart = new int[tasks + 1];
+			this.shardBlocks = new int[tasks];
+		}
+
+		/**
+		 * Refines partition until it is stable.
+		 * 
+		 * @return class index for every state, including the implicit one.
+		 */
+		IntBuffer refine() {
+			boolean accepting = false;
+			boolean rejecting = false;
+			for (int state = 0; state < n; state++) {
+				boolean acceptable = state != sink && dka.isAcceptable(state);
+				blocks.put(state, acceptable ? 1 : 0);
+				accepting |= acceptable;
+				rejecting |= !acceptable;
+			}
+			int blockCount = accepting && rejecting ? 2 : 1;
+			long rounds = 0;
+			while (true) {
+				int count = round();
+				IntBuffer tmp = blocks;
+				blocks = refined;
+				refined = tmp;
+				rounds++;
+				if (count == blockCount) {
+					break;
+				}
+				blockCount = count;
+			}
+			if (Metrics.ENABLED) {
+				ROUNDS.add(rounds);
+			}
+			return blocks;
+		}
+
+		/**
+		 * Computes next partition into {@link #refined}.
+		 * 
+		 * @return number of blocks of next partition.
+		 */
+		private int round() {
+			parallel(chunk -> {
+				int offset = chunk * tasks;
+				Arrays.fill(positions, offset, offset + tasks, 0);
+				for (int state = chunkStart(chunk); state < chunkStart(chunk + 1); state++) {
+					int hash = hash(state);
+					hashes.put(state, hash);
+					positions[offset + shard(hash)]++;
+				}
+			});
+			int position = 0;
+			for (int shard = 0; shard < tasks; shard++) {
+				shardStart[shard] = position;
+				for (int chunk = 0; chunk < tasks; chunk++) {
+					int count = positions[chunk * tasks + shard];
+					positions[chunk * tasks + shard] = position;
+					position += count;
+				}
+			}
+			shardStart[tasks] = position;
+			parallel(chunk -> {
+				int offset = chunk * tasks;
+				for (int state = chunkStart(chunk); state < chunkStart(chunk + 1); state++) {
+					order.put(positions[offset + shard(hashes.get(state))]++, state);
+				}
+			});
+			parallel(this::number);
+			int count = 0;
+			for (int shard = 0; shard < tasks; shard++) {
+				int blocksOfShard = shardBlocks[shard];
+				shardBlocks[shard] = count;
+				count += blocksOfShard;
+			}
+			parallel(shard -> {
+				int first = shardBlocks[shard];
+				for (int i = shardStart[shard]; i < shardStart[shard + 1]; i++) {
+					int state = order.get(i);
+					refined.put(state, refined.get(state) + first);
+				}
+			});
+			return count;
+		}
+
+		/**
+		 * Numbers distinct signatures of states of <code>shard</code> from zero,
+		 * using open addressing hash table of representative states. Table of
+		 * every shard is its own part of {@link #table}, twice as large as the
+		 * shard.
+		 * 
+		 * @param shard shard.
+		 */
+		private void number(int shard) {
+			int from = 2 * shardStart[shard];
+			int capacity = 2 * (shardStart[shard + 1] - shardStart[shard]);
+			for (int i = from; i < from + capacity; i++) {
+				table.put(i, -1);
+			}
+			int count = 0;
+			for (int i = shardStart[shard]; i < shardStart[shard + 1]; i++) {
+				int state = order.get(i);
+				int hash = hashes.get(state);
+				int slot = Integer.remainderUnsigned(hash, capacity);
+				while (true) {
+					int other = table.get(from + slot);
+					if (other == -1) {
+						table.put(from + slot, state);
+						refined.put(state, count++);
+						break;
+					}
+					if (hashes.get(other) == hash && sameSignature(state, other)) {
+						refined.put(state, refined.get(other));
+						break;
+					}
+					slot = slot + 1 == capacity ? 0 : slot + 1;
+				}
+			}
+			shardBlocks[shard] = count;
+		}
+
+		/**
+		 * @param state state.
+		 * @return hash of signature of <code>state</code>.
+		 */
+		private int hash(int state) {
+			int hash = blocks.get(state);
+			for (int symbol = 0; symbol < dka.symbolCount(); symbol++) {
+				hash = hash * 0x9E3779B1 + blocks.get(target(dka, state, symbol, sink));
+			}
+			hash ^= hash >>> 16;
+			hash *= 0x85EBCA6B;
+			hash ^= hash >>> 13;
+			hash *= 0xC2B2AE35;
+			return hash ^ (hash >>> 16);
+		}
+
+		/**
+		 * @param first  first state.
+		 * @param second second state.
+		 * @return <code>true</code> if both states have the same signature.
+		 */
+		private boolean sameSignature(int first, int second) {
+			if (blocks.get(first) != blocks.get(second)) {
+				return false;
+			}
+			for (int symbol = 0; symbol < dka.symbolCount(); symbol++) {
+				if (blocks.get(target(dka, first, symbol, sink)) != blocks.get(target(dka, second, symbol, sink))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Shard is chosen by high bits of hash, while hash tables use the low ones.
+		 * 
+		 * @param hash hash of signature.
+		 * @return shard of signature.
+		 */
+		private int shard(int hash) {
+			return (int) (((hash & 0xFFFFFFFFL) * tasks) >>> 32);
+		}
+
+		/**
+		 * @param chunk chunk, or {@link #tasks} for end of the last chunk.
+		 * @return first state of <code>chunk</code>.
+		 */
+		private int chunkStart(int chunk) {
+			return (int) ((long) n * chunk / tasks);
+		}
+
+		/**
+		 * Runs <code>task</code> for every index from zero to {@link #tasks} in
+		 * pool and waits for all of them.
+		 * 
+		 * @param task task.
+		 */
+		private void parallel(IntConsumer task) {
+			Parallelism.parallel(pool, tasks, index -> {
+				task.accept(index);
+				return null;
+			});
+		}
+	}
+}
@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming writer of {@link Dka} in text format of <code>MinDka</code>: states,
+ * symbols, acceptable states and initial state, each on its own line, followed
+ * by one line per defined transition.
+ * <p>
+ * Lines are encoded straight into one large byte buffer which is written into
+ * channel whenever it fills up, so no line is kept after it is written and
+ * output of any size needs only the buffer. Names of symbols are encoded once
+ * and name of every state once per row of its transitions.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class DkaWriter {
+
+	/**
+	 * Constant used for separating symbols inside text.
+	 */
+	private static final byte SYMBOL_SEPARATOR = ',';
+
+	/**
+	 * Constant representing separator between transitions.
+	 */
+	private static final byte[] TRANSITION_SEPARATOR = "->".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * Size of output buffer.
+	 */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Channel where output is written.
+	 */
+	private final WritableByteChannel channel;
+
+	/**
+	 * Output buffer.
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/**
+	 * Encoded line separator.
+	 */
+	private final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param channel channel where output is written.
+	 */
+	public DkaWriter(WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Writes <code>dka</code> and flushes buffered output into channel.
+	 * 
+	 * @param dka automaton.
+	 * @throws IOException if output could not be written.
+	 */
+	public void write(Dka dka) throws IOException {
+		int n = dka.stateCount();
+		int k = dka.symbolCount();
+		for (int state = 0; state < n; state++) {
+			if (state > 0) {
+				put(SYMBOL_SEPARATOR);
+			}
+			put(encode(dka.states(), state));
+		}
+		put(lineSeparator);
+		byte[][] symbols = new byte[k][];
+		for (int symbol = 0; symbol < k; symbol++) {
+			symbols[symbol] = encode(dka.symbols(), symbol);
+			if (symbol > 0) {
+				put(SYMBOL_SEPARATOR);
+			}
+			put(symbols[symbol]);
+		}
+		put(lineSeparator);
+		boolean first = true;
+		for (int state = 0; state < n; state++) {
+			if (dka.isAcceptable(state)) {
+				if (!first) {
+					put(SYMBOL_SEPARATOR);
+				}
+				put(encode(dka.states(), state));
+				first = false;
+			}
+		}
+		put(lineSeparator);
+		put(encode(dka.states(), dka.initialState()));
+		put(lineSeparator);
+
+		for (int state = 0; state < n; state++) {
+			byte[] name = null;
+			for (int symbol = 0; symbol < k; symbol++) {
+				int next = dka.next(state, symbol);
+				if (next == Dka.UNDEFINED) {
+					continue;
+				}
+				if (name == null) {
+					name = encode(dka.states(), state);
+				}
+				put(name);
+				put(SYMBOL_SEPARATOR);
+				put(symbols[symbol]);
+				put(TRANSITION_SEPARATOR);
+				put(encode(dka.states(), next));
+				put(lineSeparator);
+			}
+		}
+		drain();
+	}
+
+	/**
+	 * @param table table of names.
+	 * @param index index of name.
+	 * @return UTF-8 encoded name.
+	 */
+	private static byte[] encode(SymbolTable table, int index) {
+		return table.name(index).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Appends one byte.
+	 * 
+	 * @param value byte.
+	 * @throws IOException if buffer could not be drained.
+	 */
+	private void put(byte value) throws IOException {
+		if (!buffer.hasRemaining()) {
+			drain();
+		}
+		buffer.put(value);
+	}
+
+	/**
+	 * Appends bytes, writing them directly into channel if they do not fit into
+	 * empty buffer.
+	 * 
+	 * @param bytes bytes.
+	 * @throws IOException if bytes could not be written.
+	 */
+	private void put(byte[] bytes) throws IOException {
+		if (bytes.length > buffer.remaining()) {
+			drain();
+			if (bytes.length > buffer.capacity()) {
+				ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+				while (wrapped.hasRemaining()) {
+					channel.write(wrapped);
+				}
+				return;
+			}
+		}
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Writes buffered bytes into channel.
+	 * 
+	 * @throws IOException if bytes could not be written.
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,792 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * General parser of context-free grammars, an implementation of <i>Earley</i>
+ * algorithm with <i>Leo</i>'s optimization.
+ * <p>
+ * Parser accepts any {@link Grammar}, including ambiguous and left-recursive
+ * ones. Set <code>j</code> holds items <code>(X -> &alpha;.&beta;, i)</code>
+ * for which <code>&alpha;</code> derives signs between positions
+ * <code>i</code> and <code>j</code>. Nullable nonterminals are skipped when
+ * they are predicted, as proposed by <i>Aycock</i> and <i>Horspool</i>, so
+ * completion never has to look back into the current set. Items which wait on
+ * the same symbol are linked into lists, so completion visits only those. When
+ * a nonterminal is completed into a set with only one item waiting on it, which
+ * is completed by it as well, the whole chain of such items is skipped and only
+ * its topmost item is added (<i>Leo</i>), so right recursion does not leave
+ * quadratically many items. With this, every <i>LR(k)</i> grammar is parsed in
+ * linear time.
+ * </p>
+ * <p>
+ * Every item remembers the item it was advanced from and the completed item or
+ * nullable nonterminal over which it was advanced. If input is parsable,
+ * derivation trace is rebuilt from these links, without recursion, as
+ * nonterminals of the leftmost derivation in order of expansion, which is the
+ * same trace that {@link Parser} writes for its grammar. Chains skipped by
+ * <i>Leo</i> items are found again through lists of waiting items. Ambiguous
+ * input gets trace of the first derivation found. If input is not parsable and
+ * grammar is <i>LL(1)</i>, trace is that of predictive parser up to the sign
+ * where it fails, which for grammar of {@link Parser} is its trace as well;
+ * for other grammars no trace is written.
+ * </p>
+ * <p>
+ * Program reads grammar from file given with {@value #GRAMMAR_OPTION}, or uses
+ * grammar of {@link Parser}, and otherwise takes the same arguments as
+ * {@link Parser}.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class EarleyParser implements Recognizer {
+
+	/**
+	 * Command line option used for reading grammar from file.
+	 */
+	private static final String GRAMMAR_OPTION = "--grammar=";
+
+	/**
+	 * Next symbol of completed item.
+	 */
+	private static final int COMPLETE = Integer.MIN_VALUE;
+
+	/**
+	 * Link of item which was not advanced over a nonterminal.
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * Number of fields of one item in {@link #items}.
+	 */
+	private static final int ITEM_SIZE = 5;
+
+	/**
+	 * Field with dotted production of item.
+	 */
+	private static final int DOTTED = 0;
+
+	/**
+	 * Field with origin of item.
+	 */
+	private static final int ORIGIN = 1;
+
+	/**
+	 * Field with item this one was advanced from, {@link #NONE} for predicted
+	 * item or <code>-(top + 2)</code> for <i>Leo</i> item, which was advanced
+	 * from the topmost item <code>top</code> of a skipped chain.
+	 */
+	private static final int PREVIOUS = 2;
+
+	/**
+	 * Field with completed item this one was advanced over, <code>-(x + 2)</code>
+	 * for skipped nullable nonterminal <code>x</code> or {@link #NONE} for a
+	 * terminal.
+	 */
+	private static final int CHILD = 3;
+
+	/**
+	 * Field with next item of the same set which waits on the same symbol, or
+	 * {@link #NONE}.
+	 */
+	private static final int NEXT_WAITING = 4;
+
+	/**
+	 * Initial number of items in {@link #items}.
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	/**
+	 * Number of added items.
+	 */
+	private static final Metrics.Counter ITEMS = Metrics.counter("EarleyParser.items");
+
+	/**
+	 * Number of added <i>Leo</i> items.
+	 */
+	private static final Metrics.Counter LEO_ITEMS = Metrics.counter("EarleyParser.leoItems");
+
+	/**
+	 * Time spent parsing.
+	 */
+	private static final Metrics.Timer PARSE = Metrics.timer("EarleyParser.parse");
+
+	/**
+	 * Grammar.
+	 */
+	private final Grammar grammar;
+
+	/**
+	 * Derivation trace, or <code>null</code> if it is not generated.
+	 */
+	private final TraceWriter trace;
+
+	/**
+	 * Start nonterminal <code>S'</code> of added production <code>S' -> S</code>.
+	 */
+	private final int augmented;
+
+	/**
+	 * Left side of production of every dotted production.
+	 */
+	private final int[] dottedLhs;
+
+	/**
+	 * Symbol after dot of every dotted production, or {@link #COMPLETE}. Dotted
+	 * production with dot moved one symbol further is the next one.
+	 */
+	private final int[] dottedNext;
+
+	/**
+	 * Dotted productions of every nonterminal with dot at the start.
+	 */
+	private final int[][] predictions;
+
+	/**
+	 * Dotted production <code>S' -> .S</code>.
+	 */
+	private final int start;
+
+	/**
+	 * Names of nonterminals in <i>UTF-8</i>.
+	 */
+	private final byte[][] names;
+
+	/**
+	 * Items of all sets, {@value #ITEM_SIZE} fields each.
+	 */
+	private int[] items = new int[INITIAL_CAPACITY * ITEM_SIZE];
+
+	/**
+	 * Number of items.
+	 */
+	private int itemCount;
+
+	/**
+	 * Index of the first item of every set.
+	 */
+	private int[] setStarts = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Items of the current set, by dotted production and origin.
+	 */
+	private final LongIntMap current = new LongIntMap();
+
+	/**
+	 * The last item which waits on symbol, by set and symbol.
+	 */
+	private final LongIntMap waiting = new LongIntMap();
+
+	/**
+	 * Topmost item of chain which a completed nonterminal skips, by set and
+	 * nonterminal, or {@link #NONE} if it skips none.
+	 */
+	private final LongIntMap leoTops = new LongIntMap();
+
+	/**
+	 * Reusable stack of keys of chain whose topmost item is searched for.
+	 */
+	private final IntList chain = new IntList();
+
+	/**
+	 * Reusable stack of pending parts of derivation trace.
+	 */
+	private long[] pending = new long[64];
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param grammar grammar.
+	 * @param tracing flag which determines whether derivation trace is generated.
+	 */
+	public EarleyParser(Grammar grammar, boolean tracing) {
+		this.grammar = grammar;
+		this.trace = tracing ? new TraceWriter() : null;
+		augmented = grammar.nonterminalCount();
+		int productions = grammar.productionCount();
+		int size = 2;
+		for (int p = 0; p < productions; p++) {
+			size += grammar.rhs(p).length + 1;
+		}
+		dottedLhs = new int[size];
+		dottedNext = new int[size];
+		int[] firsts = new int[productions];
+		int dotted = 0;
+		for (int p = 0; p < productions; p++) {
+			firsts[p] = dotted;
+			for (int symbol : grammar.rhs(p)) {
+				dottedLhs[dotted] = grammar.lhs(p);
+				dottedNext[dotted++] = symbol;
+			}
+			dottedLhs[dotted] = grammar.lhs(p);
+			dottedNext[dotted++] = COMPLETE;
+		}
+		start = dotted;
+		dottedLhs[start] = augmented;
+		dottedNext[start] = 0;
+		dottedLhs[start + 1] = augmented;
+		dottedNext[start + 1] = COMPLETE;
+		predictions = new int[augmented][];
+		names = new byte[augmented][];
+		for (int x = 0; x < augmented; x++) {
+			int[] own = grammar.productions(x);
+			predictions[x] = new int[own.length];
+			for (int i = 0; i < own.length; i++) {
+				predictions[x][i] = firsts[own[i]];
+			}
+			names[x] = grammar.name(x).getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Main entry of this program.
+	 * 
+	 * @param args arguments given through command line.
+	 */
+	public static void main(String[] args) {
+		String grammarFile = null;
+		boolean editing = false;
+		for (String arg : args) {
+			if (arg.startsWith(GRAMMAR_OPTION)) {
+				grammarFile = arg.substring(GRAMMAR_OPTION.length());
+			} else if (arg.startsWith(Parser.EDITS_OPTION)) {
+				editing = true;
+			}
+		}
+		Grammar grammar;
+		try {
+			if (grammarFile != null && editing) {
+				throw new IllegalArgumentException(
+						"Option " + Parser.EDITS_OPTION + " needs grammar of " + Parser.class.getSimpleName() + ".");
+			}
+			grammar = grammarFile == null ? Grammar.parserGrammar() : Grammar.read(Paths.get(grammarFile));
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+		Parser.run(args, tracing -> new EarleyParser(grammar, tracing));
+	}
+
+	/**
+	 * Parses <code>input</code> and writes its derivation trace onto
+	 * <code>traceOutput</code>.
+	 * 
+	 * @param input       input sequence.
+	 * @param traceOutput stream where derivation trace is written.
+	 * @return <code>true</code> if input sequence is parsable, otherwise
+	 *         <code>false</code>.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	@Override
+	public boolean parse(char[] input, OutputStream traceOutput) throws IOException {
+		if (trace != null) {
+			trace.start(traceOutput);
+		}
+		long startTime = Metrics.ENABLED ? PARSE.start() : 0;
+		itemCount = 0;
+		waiting.clear();
+		leoTops.clear();
+		if (setStarts.length < input.length + 2) {
+			setStarts = new int[input.length + 2];
+		}
+		try {
+			int accepted = recognize(input);
+			if (trace != null) {
+				if (accepted != NONE) {
+					traceDerivation(accepted);
+				} else if (grammar.isLL1()) {
+					tracePrediction(input);
+				}
+			}
+			return accepted != NONE;
+		} finally {
+			if (Metrics.ENABLED) {
+				ITEMS.add(itemCount);
+				PARSE.stop(startTime);
+			}
+			if (trace != null) {
+				trace.finish();
+			}
+		}
+	}
+
+	/**
+	 * Builds sets of items until the last one or until a set is empty.
+	 * 
+	 * @param input input sequence.
+	 * @return completed item <code>(S' -> S., 0)</code> of the last set, or
+	 *         {@link #NONE} if input is not parsable.
+	 */
+	private int recognize(char[] input) {
+		current.clear();
+		setStarts[0] = 0;
+		add(start, 0, 0, NONE, NONE);
+		for (int j = 0;; j++) {
+			process(j);
+			if (j == input.length) {
+				return current.get(key(start + 1, 0), NONE);
+			}
+			current.clear();
+			setStarts[j + 1] = itemCount;
+			int symbol = Grammar.terminal(input[j]);
+			for (int w = waiting.get(key(j, symbol), NONE); w != NONE; w = items[w * ITEM_SIZE + NEXT_WAITING]) {
+				add(items[w * ITEM_SIZE + DOTTED] + 1, items[w * ITEM_SIZE + ORIGIN], j + 1, w, NONE);
+			}
+			if (itemCount == setStarts[j + 1]) {
+				return NONE;
+			}
+		}
+	}
+
+	/**
+	 * Predicts and completes items of set <code>j</code>, including those added
+	 * while it is processed.
+	 * 
+	 * @param j set.
+	 */
+	private void process(int j) {
+		for (int item = setStarts[j]; item < itemCount; item++) {
+			int dotted = items[item * ITEM_SIZE + DOTTED];
+			int next = dottedNext[dotted];
+			if (next == COMPLETE) {
+				complete(item, j);
+			} else if (next >= 0) {
+				for (int prediction : predictions[next]) {
+					add(prediction, j, j, NONE, NONE);
+				}
+				if (grammar.isNullable(next)) {
+					add(dotted + 1, items[item * ITEM_SIZE + ORIGIN], j, item, -(next + 2));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Advances items which wait on nonterminal of completed <code>item</code>
+	 * at its origin, or only the topmost item of chain they make.
+	 * 
+	 * @param item completed item.
+	 * @param j    set of item.
+	 */
+	private void complete(int item, int j) {
+		int x = dottedLhs[items[item * ITEM_SIZE + DOTTED]];
+		int origin = items[item * ITEM_SIZE + ORIGIN];
+		int first = waiting.get(key(origin, x), NONE);
+		if (origin < j) {
+			int top = leoTop(origin, x);
+			if (top != NONE && top != first) {
+				if (Metrics.ENABLED) {
+					LEO_ITEMS.add(1);
+				}
+				add(items[top * ITEM_SIZE + DOTTED] + 1, items[top * ITEM_SIZE + ORIGIN], j, -(top + 2), item);
+				return;
+			}
+		}
+		for (int w = first; w != NONE; w = items[w * ITEM_SIZE + NEXT_WAITING]) {
+			add(items[w * ITEM_SIZE + DOTTED] + 1, items[w * ITEM_SIZE + ORIGIN], j, w, item);
+		}
+	}
+
+	/**
+	 * Finds topmost item of chain skipped by completing <code>x</code> at
+	 * <code>set</code>. Chain continues while the only item waiting on a
+	 * nonterminal is completed by it, and its origin is an earlier set.
+	 * 
+	 * @param set set.
+	 * @param x   completed nonterminal.
+	 * @return item whose advancement completes the chain, or {@link #NONE} if
+	 *         <code>x</code> is not the last symbol of the only item waiting on
+	 *         it.
+	 */
+	private int leoTop(int set, int x) {
+		int top = NONE;
+		int last = NONE;
+		chain.clear();
+		while (true) {
+			long key = key(set, x);
+			int known = leoTops.get(key, COMPLETE);
+			if (known != COMPLETE) {
+				top = known;
+				break;
+			}
+			int w = waiting.get(key, NONE);
+			if (w == NONE || items[w * ITEM_SIZE + NEXT_WAITING] != NONE
+					|| dottedNext[items[w * ITEM_SIZE + DOTTED] + 1] != COMPLETE) {
+				leoTops.put(key, NONE);
+				break;
+			}
+			chain.add(set);
+			chain.add(x);
+			last = w;
+			int origin = items[w * ITEM_SIZE + ORIGIN];
+			if (origin == set) {
+				break;
+			}
+			set = origin;
+			x = dottedLhs[items[w * ITEM_SIZE + DOTTED]];
+		}
+		if (top == NONE) {
+			top = last;
+		}
+		for (int i = 0; i < chain.size(); i += 2) {
+			leoTops.put(key(chain.get(i), chain.get(i + 1)), top);
+		}
+		return top;
+	}
+
+	/**
+	 * Adds item <code>(dotted, origin)</code> into set <code>j</code>, unless it
+	 * is already there, and links it into list of items waiting on its next
+	 * symbol.
+	 * 
+	 * @param dotted   dotted production.
+	 * @param origin   origin.
+	 * @param j        current set.
+	 * @param previous item it was advanced from.
+	 * @param child    completed item it was advanced over.
+	 */
+	private void add(int dotted, int origin, int j, int previous, int child) {
+		if (!current.putIfAbsent(key(dotted, origin), itemCount)) {
+			return;
+		}
+		if ((itemCount + 1) * ITEM_SIZE > items.length) {
+			items = Arrays.copyOf(items, items.length * 2);
+		}
+		int base = itemCount * ITEM_SIZE;
+		items[base + DOTTED] = dotted;
+		items[base + ORIGIN] = origin;
+		items[base + PREVIOUS] = previous;
+		items[base + CHILD] = child;
+		items[base + NEXT_WAITING] = NONE;
+		int next = dottedNext[dotted];
+		if (next != COMPLETE) {
+			long key = key(j, next);
+			items[base + NEXT_WAITING] = waiting.get(key, NONE);
+			waiting.put(key, itemCount);
+		}
+		itemCount++;
+	}
+
+	/**
+	 * @param high the first value.
+	 * @param low  the second value.
+	 * @return key made of both values.
+	 */
+	private static long key(int high, int low) {
+		return (long) high << 32 | low & 0xffffffffL;
+	}
+
+	/**
+	 * Writes nonterminals of derivation of completed <code>root</code> in order
+	 * of expansion. Pending parts are kept on {@link #pending} as kind and value:
+	 * completed item, nullable nonterminal or item of skipped chain whose
+	 * advancement is a completed item.
+	 * 
+	 * @param root completed item <code>(S' -> S., 0)</code>.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	private void traceDerivation(int root) throws IOException {
+		int size = 0;
+		pending[size++] = pendingPart(PendingKind.ITEM, root);
+		while (size > 0) {
+			long part = pending[--size];
+			int value = (int) part;
+			switch (PendingKind.values()[(int) (part >>> 32)]) {
+			case NULLABLE:
+				for (int x : grammar.emptyDerivation(value)) {
+					trace(x);
+				}
+				continue;
+			case CHAIN:
+				trace(dottedLhs[items[value * ITEM_SIZE + DOTTED]]);
+				size = pushChildren(value, size);
+				continue;
+			default:
+				break;
+			}
+			int previous = items[value * ITEM_SIZE + PREVIOUS];
+			if (previous >= NONE) {
+				trace(dottedLhs[items[value * ITEM_SIZE + DOTTED]]);
+				size = pushChildren(value, size);
+				continue;
+			}
+			// items of skipped chain, from the bottom one to the topmost one
+			int top = -(previous + 2);
+			int bottom = items[value * ITEM_SIZE + CHILD];
+			size = push(pendingPart(PendingKind.ITEM, bottom), size);
+			int set = items[bottom * ITEM_SIZE + ORIGIN];
+			int x = dottedLhs[items[bottom * ITEM_SIZE + DOTTED]];
+			while (true) {
+				int w = waiting.get(key(set, x), NONE);
+				size = push(pendingPart(PendingKind.CHAIN, w), size);
+				if (w == top) {
+					break;
+				}
+				set = items[w * ITEM_SIZE + ORIGIN];
+				x = dottedLhs[items[w * ITEM_SIZE + DOTTED]];
+			}
+		}
+	}
+
+	/**
+	 * Pushes parts of derivation which <code>item</code> was advanced over, so
+	 * the leftmost one is on top.
+	 * 
+	 * @param item item.
+	 * @param size number of pending parts.
+	 * @return new number of pending parts.
+	 */
+	private int pushChildren(int item, int size) {
+		for (int i = item; items[i * ITEM_SIZE + PREVIOUS] != NONE; i = items[i * ITEM_SIZE + PREVIOUS]) {
+			int child = items[i * ITEM_SIZE + CHILD];
+			if (child >= 0) {
+				size = push(pendingPart(PendingKind.ITEM, child), size);
+			} else if (child != NONE) {
+				size = push(pendingPart(PendingKind.NULLABLE, -(child + 2)), size);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @param part pending part.
+	 * @param size number of pending parts.
+	 * @return new number of pending parts.
+	 */
+	private int push(long part, int size) {
+		if (size == pending.length) {
+			pending = Arrays.copyOf(pending, size * 2);
+		}
+		pending[size] = part;
+		return size + 1;
+	}
+
+	/**
+	 * @param kind  kind of part.
+	 * @param value its item or nonterminal.
+	 * @return pending part.
+	 */
+	private static long pendingPart(PendingKind kind, int value) {
+		return (long) kind.ordinal() << 32 | value & 0xffffffffL;
+	}
+
+	/**
+	 * Writes trace of predictive parser of <i>LL(1)</i> grammar, which expands
+	 * nonterminals until input does not match. As recursive descent of
+	 * {@link Parser} does, production whose leading terminal signs do not fit
+	 * into the rest of input is not taken, nonterminal is expanded as at the end
+	 * of input instead, if it can be.
+	 * 
+	 * @param input input sequence.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	private void tracePrediction(char[] input) throws IOException {
+		IntList stack = chain;
+		stack.clear();
+		stack.add(0);
+		int position = 0;
+		while (stack.size() > 0) {
+			int symbol = stack.removeLast();
+			if (Grammar.isTerminal(symbol)) {
+				if (position == input.length || input[position] != Grammar.character(symbol)) {
+					return;
+				}
+				position++;
+				continue;
+			}
+			trace(symbol);
+			int p = grammar.predict(symbol, position == input.length ? Grammar.END : input[position]);
+			if (p == NONE) {
+				return;
+			}
+			int[] rhs = grammar.rhs(p);
+			int terminals = 0;
+			while (terminals < rhs.length && Grammar.isTerminal(rhs[terminals])) {
+				terminals++;
+			}
+			if (terminals > input.length - position && grammar.predict(symbol, Grammar.END) != NONE) {
+				rhs = grammar.rhs(grammar.predict(symbol, Grammar.END));
+			}
+			for (int i = rhs.length - 1; i >= 0; i--) {
+				stack.add(rhs[i]);
+			}
+		}
+	}
+
+	/**
+	 * Appends name of nonterminal <code>x</code> to derivation trace, unless it
+	 * is the added start nonterminal.
+	 * 
+	 * @param x nonterminal.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	private void trace(int x) throws IOException {
+		if (x != augmented) {
+			trace.write(names[x]);
+		}
+	}
+
+	/**
+	 * Kind of pending part of derivation trace.
+	 */
+	private enum PendingKind {
+
+		/**
+		 * Completed item.
+		 */
+		ITEM,
+
+		/**
+		 * Nullable nonterminal which derives the empty word.
+		 */
+		NULLABLE,
+
+		/**
+		 * Item of skipped chain, whose advancement is completed by the part below
+		 * it.
+		 */
+		CHAIN
+	}
+
+	/**
+	 * Hash map from <code>long</code> keys to <code>int</code> values, with open
+	 * addressing. It is cleared in constant time by starting a new generation.
+	 */
+	private static class LongIntMap {
+
+		/**
+		 * Keys.
+		 */
+		private long[] keys = new long[16];
+
+		/**
+		 * Values.
+		 */
+		private int[] values = new int[16];
+
+		/**
+		 * Generation of every slot, the slot is empty unless it is the current
+		 * one.
+		 */
+		private int[] generations = new int[16];
+
+		/**
+		 * Current generation.
+		 */
+		private int generation = 1;
+
+		/**
+		 * Number of entries.
+		 */
+		private int size;
+
+		/**
+		 * @param key     key.
+		 * @param missing value if key is not present.
+		 * @return value of key.
+		 */
+		int get(long key, int missing) {
+			int mask = keys.length - 1;
+			for (int slot = hash(key) & mask; generations[slot] == generation; slot = (slot + 1) & mask) {
+				if (keys[slot] == key) {
+					return values[slot];
+				}
+			}
+			return missing;
+		}
+
+		/**
+		 * @param key   key.
+		 * @param value value.
+		 */
+		void put(long key, int value) {
+			int slot = slot(key);
+			if (generations[slot] != generation) {
+				generations[slot] = generation;
+				keys[slot] = key;
+				size++;
+			}
+			values[slot] = value;
+			grow();
+		}
+
+		/**
+		 * @param key   key.
+		 * @param value value.
+		 * @return <code>true</code> if key was added.
+		 */
+		boolean putIfAbsent(long key, int value) {
+			int slot = slot(key);
+			if (generations[slot] == generation) {
+				return false;
+			}
+			generations[slot] = generation;
+			keys[slot] = key;
+			values[slot] = value;
+			size++;
+			grow();
+			return true;
+		}
+
+		/**
+		 * Removes all entries.
+		 */
+		void clear() {
+			size = 0;
+			if (++generation == 0) {
+				Arrays.fill(generations, 0);
+				generation = 1;
+			}
+		}
+
+		/**
+		 * @param key key.
+		 * @return slot of key or empty slot where it belongs.
+		 */
+		private int slot(long key) {
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			while (generations[slot] == generation && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/**
+		 * Doubles table when it is half full.
+		 */
+		private void grow() {
+			if (size * 2 <= keys.length) {
+				return;
+			}
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			int[] oldGenerations = generations;
+			int oldGeneration = generation;
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			generations = new int[oldKeys.length * 2];
+			generation = 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldGenerations[i] == oldGeneration) {
+					int slot = slot(oldKeys[i]);
+					generations[slot] = generation;
+					keys[slot] = oldKeys[i];
+					values[slot] = oldValues[i];
+				}
+			}
+		}
+
+		/**
+		 * @param key key.
+		 * @return mixed bits of key.
+		 */
+		private static int hash(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ h >>> 32);
+		}
+	}
+}
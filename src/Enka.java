@@ -0,0 +1,367 @@
+import java.util.BitSet;
+
+/**
+ * Immutable model of epsilon-NFA. States are interned in natural ordering of
+ * their names, so sets of states kept as {@link BitSet}s are iterated in the
+ * same order as {@link java.util.TreeSet}s of names.
+ * <p>
+ * Epsilon closure of every state is computed once, when model is created.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class Enka {
+
+	/**
+	 * Constant used for epsilon sign.
+	 */
+	public static final String EPSILON = "$";
+
+	/**
+	 * Constant representing empty state set.
+	 */
+	public static final String EMPTY_STATE = "#";
+
+	/**
+	 * Constant used for separating states inside text.
+	 */
+	private static final char STATE_SEPARATOR = ',';
+
+	/**
+	 * Constant used for separating steps of simulation.
+	 */
+	static final char STEP_SEPARATOR = '|';
+
+	/**
+	 * Shared empty array of states.
+	 */
+	private static final int[] NO_STATES = new int[0];
+
+	/**
+	 * Number of simulated steps.
+	 */
+	private static final Metrics.Counter STEPS = Metrics.counter("SimEnka.steps");
+
+	/**
+	 * Total size of sets of current states, over every step.
+	 */
+	private static final Metrics.Counter STATES_VISITED = Metrics.counter("SimEnka.statesVisited");
+
+	/**
+	 * Number of applied epsilon closures.
+	 */
+	private static final Metrics.Counter CLOSURES = Metrics.counter("SimEnka.closures");
+
+	/**
+	 * Total size of applied epsilon closures.
+	 */
+	private static final Metrics.Counter CLOSURE_STATES = Metrics.counter("SimEnka.closureStates");
+
+	/**
+	 * Time spent simulating input sequences.
+	 */
+	private static final Metrics.Timer SIMULATE = Metrics.timer("SimEnka.simulate");
+
+	/**
+	 * Every possible state.
+	 */
+	private final SymbolTable states;
+
+	/**
+	 * Alphabet symbols.
+	 */
+	private final SymbolTable symbols;
+
+	/**
+	 * Flags of acceptable states, indexed by state.
+	 */
+	private final boolean[] acceptable;
+
+	/**
+	 * Initial state.
+	 */
+	private final int initialState;
+
+	/**
+	 * Transitions, <code>transitions[state * symbolCount + symbol]</code> is an
+	 * array of next states.
+	 */
+	private final int[][] transitions;
+
+	/**
+	 * Epsilon closure of every state, sorted.
+	 */
+	private final int[][] closures;
+
+	/**
+	 * Constructor. Arrays are not copied, caller must not modify them afterwards.
+	 * 
+	 * @param states             every possible state.
+	 * @param symbols            alphabet symbols.
+	 * @param acceptable         flags of acceptable states.
+	 * @param initialState       initial state.
+	 * @param transitions        flat transition table, <code>null</code> entries
+	 *                           mean no next states.
+	 * @param epsilonTransitions epsilon transitions of every state,
+	 *                           <code>null</code> entries mean no next states.
+	 */
+	public Enka(SymbolTable states, SymbolTable symbols, boolean[] acceptable, int initialState,
+			int[][] transitions, int[][] epsilonTransitions) {
+		this(states, symbols, acceptable, initialState, transitions, epsilonTransitions, false);
+	}
+
+	/**
+	 * Constructor used when epsilon closures are already known, for example when
+	 * automaton is loaded from its compiled image.
+	 * 
+	 * @param states             every possible state.
+	 * @param symbols            alphabet symbols.
+	 * @param acceptable         flags of acceptable states.
+	 * @param initialState       initial state.
+	 * @param transitions        flat transition table, <code>null</code> entries
+	 *                           mean no next states.
+	 * @param epsilonTransitions epsilon transitions of every state.
+	 * @param closed             <code>true</code> if
+	 *                           <code>epsilonTransitions</code> are already sorted
+	 *                           epsilon closures and are used as they are.
+	 */
+	Enka(SymbolTable states, SymbolTable symbols, boolean[] acceptable, int initialState, int[][] transitions,
+			int[][] epsilonTransitions, boolean closed) {
+		if (acceptable.length != states.size() || transitions.length != states.size() * symbols.size()
+				|| epsilonTransitions.length != states.size()) {
+			throw new IllegalArgumentException("Transition table does not match states and symbols.");
+		}
+		this.states = states;
+		this.symbols = symbols;
+		this.acceptable = acceptable;
+		this.initialState = initialState;
+		this.transitions = transitions;
+		for (int i = 0; i < transitions.length; i++) {
+			if (transitions[i] == null) {
+				transitions[i] = NO_STATES;
+			}
+		}
+		this.closures = closed ? epsilonTransitions : calculateClosures(epsilonTransitions);
+	}
+
+	/**
+	 * Calculates epsilon closure of every state.
+	 * 
+	 * @param epsilonTransitions epsilon transitions of every state.
+	 * @return sorted epsilon closure of every state.
+	 */
+	private static int[][] calculateClosures(int[][] epsilonTransitions) {
+		int n = epsilonTransitions.length;
+		int[][] closures = new int[n][];
+		BitSet closure = new BitSet(n);
+		int[] stack = new int[n];
+		for (int state = 0; state < n; state++) {
+			closure.clear();
+			closure.set(state);
+			int size = 0;
+			stack[size++] = state;
+			while (size > 0) {
+				int current = stack[--size];
+				if (epsilonTransitions[current] == null) {
+					continue;
+				}
+				for (int next : epsilonTransitions[current]) {
+					if (!closure.get(next)) {
+						closure.set(next);
+						stack[size++] = next;
+					}
+				}
+			}
+			closures[state] = closure.stream().toArray();
+		}
+		return closures;
+	}
+
+	/**
+	 * @return table of states.
+	 */
+	public SymbolTable states() {
+		return states;
+	}
+
+	/**
+	 * @return table of alphabet symbols.
+	 */
+	public SymbolTable symbols() {
+		return symbols;
+	}
+
+	/**
+	 * @return number of states.
+	 */
+	public int stateCount() {
+		return states.size();
+	}
+
+	/**
+	 * @return number of alphabet symbols.
+	 */
+	public int symbolCount() {
+		return symbols.size();
+	}
+
+	/**
+	 * @return initial state.
+	 */
+	public int initialState() {
+		return initialState;
+	}
+
+	/**
+	 * Checks whether <code>state</code> is acceptable.
+	 * 
+	 * @param state state.
+	 * @return <code>true</code> if {@code state} is acceptable, otherwise
+	 *         <code>false</code>.
+	 */
+	public boolean isAcceptable(int state) {
+		return acceptable[state];
+	}
+
+	/**
+	 * Returns next states for <code>state</code> and <code>symbol</code>, without
+	 * epsilon closure.
+	 * 
+	 * @param state  current state.
+	 * @param symbol transition symbol.
+	 * @return next states, must not be modified.
+	 */
+	public int[] next(int state, int symbol) {
+		return transitions[state * symbols.size() + symbol];
+	}
+
+	/**
+	 * Returns epsilon closure of <code>state</code>.
+	 * 
+	 * @param state state.
+	 * @return sorted epsilon closure, must not be modified.
+	 */
+	public int[] closure(int state) {
+		return closures[state];
+	}
+
+	/**
+	 * Stores epsilon closure of initial state into <code>result</code>.
+	 * 
+	 * @param result set where result is stored.
+	 */
+	public void initialStates(BitSet result) {
+		result.clear();
+		for (int state : closures[initialState]) {
+			result.set(state);
+		}
+	}
+
+	/**
+	 * Calculates states reachable from <code>currentStates</code> by reading
+	 * <code>symbol</code>, including their epsilon closure.
+	 * 
+	 * @param currentStates current states.
+	 * @param symbol        transition symbol, or <code>-1</code> for symbol not in
+	 *                      alphabet.
+	 * @param result        set where next states are stored.
+	 */
+	public void step(BitSet currentStates, int symbol, BitSet result) {
+		result.clear();
+		if (symbol < 0) {
+			return;
+		}
+		int k = symbols.size();
+		int applied = 0;
+		long appliedStates = 0;
+		for (int state = currentStates.nextSetBit(0); state >= 0; state = currentStates.nextSetBit(state + 1)) {
+			for (int next : transitions[state * k + symbol]) {
+				if (!result.get(next)) {
+					for (int reachable : closures[next]) {
+						result.set(reachable);
+					}
+					if (Metrics.ENABLED) {
+						applied++;
+						appliedStates += closures[next].length;
+					}
+				}
+			}
+		}
+		if (Metrics.ENABLED) {
+			CLOSURES.add(applied);
+			CLOSURE_STATES.add(appliedStates);
+		}
+	}
+
+	/**
+	 * Checks whether <code>currentStates</code> contains an acceptable state.
+	 * 
+	 * @param currentStates current states.
+	 * @return <code>true</code> if some state is acceptable.
+	 */
+	public boolean isAcceptable(BitSet currentStates) {
+		for (int state = currentStates.nextSetBit(0); state >= 0; state = currentStates.nextSetBit(state + 1)) {
+			if (acceptable[state]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Simulates this automaton on <code>sequence</code> and appends states after
+	 * every step onto <code>output</code>. Steps are separated by
+	 * <code>'|'</code>, states by <code>','</code> and empty set is written as
+	 * {@value #EMPTY_STATE}. Line is terminated by <code>'\n'</code>.
+	 * 
+	 * @param sequence input sequence of symbol indexes.
+	 * @param output   where result is appended.
+	 */
+	public void simulate(int[] sequence, StringBuilder output) {
+		long start = Metrics.ENABLED ? SIMULATE.start() : 0;
+		BitSet current = new BitSet(states.size());
+		BitSet next = new BitSet(states.size());
+		initialStates(current);
+		appendStates(current, output);
+		long visited = Metrics.ENABLED ? current.cardinality() : 0;
+		for (int symbol : sequence) {
+			step(current, symbol, next);
+			output.append(STEP_SEPARATOR);
+			appendStates(next, output);
+			if (Metrics.ENABLED) {
+				visited += next.cardinality();
+			}
+			BitSet tmp = current;
+			current = next;
+			next = tmp;
+		}
+		output.append('\n');
+		if (Metrics.ENABLED) {
+			STEPS.add(sequence.length);
+			STATES_VISITED.add(visited);
+			SIMULATE.stop(start);
+		}
+	}
+
+	/**
+	 * Appends names of <code>currentStates</code> onto <code>output</code>.
+	 * 
+	 * @param currentStates set of states.
+	 * @param output        where names are appended.
+	 */
+	public void appendStates(BitSet currentStates, StringBuilder output) {
+		if (currentStates.isEmpty()) {
+			output.append(EMPTY_STATE);
+			return;
+		}
+		boolean first = true;
+		for (int state = currentStates.nextSetBit(0); state >= 0; state = currentStates.nextSetBit(state + 1)) {
+			if (!first) {
+				output.append(STATE_SEPARATOR);
+			}
+			output.append(states.name(state));
+			first = false;
+		}
+	}
+}
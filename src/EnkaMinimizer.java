@@ -0,0 +1,401 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimization of {@link Enka} straight into minimal {@link Dka}, by
+ * <i>Brzozowski</i>'s algorithm: automaton is reversed and determinized, and
+ * the result is reversed and determinized once more.
+ * <p>
+ * Determinizing a reversed automaton whose states are all reachable gives a
+ * DKA without identical states, so the second determinization gives the
+ * minimal DKA of the language of <code>enka</code> and DKA of <code>enka</code>
+ * itself is never built. Both determinizations are lazy subset constructions:
+ * sets of states are {@link BitSet}s, interned in a hash map, and only sets
+ * reachable from the initial one are created, in breadth-first order. The
+ * empty set is not a state and transitions into it are left undefined, so
+ * unlike {@link DkaMinimizer}, which keeps a state from which no acceptable
+ * state can be reached if input has one, the result has no such state unless
+ * its language is empty.
+ * </p>
+ * <p>
+ * Epsilon transitions are reversed together with the others: a reversed step
+ * adds every state whose epsilon closure contains a predecessor, so epsilon
+ * closures of <code>enka</code> are reversed once and no epsilon-free automaton
+ * is built.
+ * </p>
+ * <p>
+ * States of the minimal DKA are named <code>q0</code>, <code>q1</code>, ... in
+ * breadth-first order from its initial state <code>q0</code>, taking symbols in
+ * their order, so automata of the same language get the same names.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class EnkaMinimizer {
+
+	/**
+	 * Prefix of names of states of minimal DKA.
+	 */
+	private static final String STATE_PREFIX = "q";
+
+	/**
+	 * Number of states of DKA of reversed language, built by the first
+	 * determinization.
+	 */
+	private static final Metrics.Counter REVERSED_STATES = Metrics.counter("MinDka.reversedStates");
+
+	/**
+	 * Time spent minimizing epsilon-NFAs.
+	 */
+	private static final Metrics.Timer BRZOZOWSKI = Metrics.timer("MinDka.brzozowski");
+
+	/**
+	 * Utility class.
+	 */
+	private EnkaMinimizer() {
+	}
+
+	/**
+	 * Creates minimal DKA which accepts the same language as <code>enka</code>.
+	 * 
+	 * @param enka automaton.
+	 * @return minimal automaton.
+	 */
+	public static Dka minimize(Enka enka) {
+		long start = Metrics.ENABLED ? BRZOZOWSKI.start() : 0;
+		SymbolTable symbols = alphabet(enka.symbols());
+		int k = symbols.size();
+		Subsets reversed = determinize(reverse(enka, symbols), k);
+		Subsets minimal = determinize(reverse(reversed, k), k);
+		Dka dka = dka(minimal, symbols);
+		if (Metrics.ENABLED) {
+			REVERSED_STATES.add(reversed.count);
+			BRZOZOWSKI.stop(start);
+		}
+		return dka;
+	}
+
+	/**
+	 * Creates alphabet of minimal DKA, every symbol of <code>symbols</code>
+	 * except {@value Enka#EPSILON} in natural ordering, as symbols of DKA are.
+	 * 
+	 * @param symbols symbols of epsilon-NFA.
+	 * @return alphabet.
+	 */
+	private static SymbolTable alphabet(SymbolTable symbols) {
+		List<String> names = new ArrayList<>(symbols.size());
+		for (int symbol = 0; symbol < symbols.size(); symbol++) {
+			if (!symbols.name(symbol).equals(Enka.EPSILON)) {
+				names.add(symbols.name(symbol));
+			}
+		}
+		return SymbolTable.sorted(names.toArray(new String[names.size()]));
+	}
+
+	/**
+	 * Reverses <code>enka</code>. Reversed automaton starts in reversed epsilon
+	 * closure of acceptable states and accepts sets which contain initial state
+	 * of <code>enka</code>.
+	 * 
+	 * @param enka    automaton.
+	 * @param symbols alphabet of minimal DKA.
+	 * @return reversed automaton, whose symbols are indexes in
+	 *         <code>symbols</code>.
+	 */
+	private static Reversal reverse(Enka enka, SymbolTable symbols) {
+		int n = enka.stateCount();
+		int k = symbols.size();
+		int[] original = new int[k];
+		for (int symbol = 0; symbol < k; symbol++) {
+			original[symbol] = enka.symbols().indexOf(symbols.name(symbol));
+		}
+		Builder predecessors = new Builder(n * k);
+		Builder closures = new Builder(n);
+		for (int pass = 0; pass < 2; pass++) {
+			for (int state = 0; state < n; state++) {
+				for (int symbol = 0; symbol < k; symbol++) {
+					for (int next : enka.next(state, original[symbol])) {
+						predecessors.add(pass, next * k + symbol, state);
+					}
+				}
+				for (int reachable : enka.closure(state)) {
+					closures.add(pass, reachable, state);
+				}
+			}
+			if (pass == 0) {
+				predecessors.allocate();
+				closures.allocate();
+			}
+		}
+		Reversal reversal = new Reversal(predecessors.rows, closures.rows, enka.initialState());
+		for (int state = 0; state < n; state++) {
+			if (enka.isAcceptable(state)) {
+				reversal.close(state, reversal.initial);
+			}
+		}
+		return reversal;
+	}
+
+	/**
+	 * Reverses DKA given by <code>subsets</code>. Reversed automaton starts in
+	 * acceptable states and accepts sets which contain initial state.
+	 * 
+	 * @param subsets deterministic automaton.
+	 * @param k       number of symbols.
+	 * @return reversed automaton.
+	 */
+	private static Reversal reverse(Subsets subsets, int k) {
+		Builder predecessors = new Builder(subsets.count * k);
+		for (int pass = 0; pass < 2; pass++) {
+			for (int state = 0; state < subsets.count; state++) {
+				for (int symbol = 0; symbol < k; symbol++) {
+					int next = subsets.transitions.get(state * k + symbol);
+					if (next != Dka.UNDEFINED) {
+						predecessors.add(pass, next * k + symbol, state);
+					}
+				}
+			}
+			if (pass == 0) {
+				predecessors.allocate();
+			}
+		}
+		Reversal reversal = new Reversal(predecessors.rows, null, Subsets.INITIAL);
+		reversal.initial.or(subsets.acceptable);
+		return reversal;
+	}
+
+	/**
+	 * Determinizes <code>reversal</code> by lazy subset construction.
+	 * 
+	 * @param reversal nondeterministic automaton.
+	 * @param k        number of symbols.
+	 * @return deterministic automaton of reachable nonempty sets, and the
+	 *         initial set even if it is empty.
+	 */
+	private static Subsets determinize(Reversal reversal, int k) {
+		Map<BitSet, Integer> indexes = new HashMap<>();
+		List<BitSet> sets = new ArrayList<>();
+		Subsets subsets = new Subsets();
+		indexes.put(reversal.initial, Subsets.INITIAL);
+		sets.add(reversal.initial);
+		BitSet next = new BitSet();
+		for (int state = 0; state < sets.size(); state++) {
+			BitSet current = sets.get(state);
+			// set is needed as a key only from now on
+			sets.set(state, null);
+			if (current.get(reversal.finalState)) {
+				subsets.acceptable.set(state);
+			}
+			for (int symbol = 0; symbol < k; symbol++) {
+				reversal.step(current, symbol, k, next);
+				if (next.isEmpty()) {
+					subsets.transitions.add(Dka.UNDEFINED);
+					continue;
+				}
+				Integer index = indexes.putIfAbsent(next, sets.size());
+				if (index == null) {
+					subsets.transitions.add(sets.size());
+					sets.add(next);
+					next = new BitSet();
+				} else {
+					subsets.transitions.add(index);
+				}
+			}
+		}
+		subsets.count = sets.size();
+		return subsets;
+	}
+
+	/**
+	 * Names states of <code>subsets</code> and creates DKA.
+	 * 
+	 * @param subsets minimal automaton.
+	 * @param symbols alphabet symbols.
+	 * @return minimal DKA.
+	 */
+	private static Dka dka(Subsets subsets, SymbolTable symbols) {
+		int n = subsets.count;
+		int k = symbols.size();
+		String[] names = new String[n];
+		for (int state = 0; state < n; state++) {
+			names[state] = STATE_PREFIX + state;
+		}
+		// indexes of states must follow natural ordering of their names
+		SymbolTable states = SymbolTable.sorted(names);
+		int[] indexes = new int[n];
+		for (int state = 0; state < n; state++) {
+			indexes[state] = states.indexOf(names[state]);
+		}
+		boolean[] acceptable = new boolean[n];
+		int[] transitions = new int[n * k];
+		for (int state = 0; state < n; state++) {
+			acceptable[indexes[state]] = subsets.acceptable.get(state);
+			for (int symbol = 0; symbol < k; symbol++) {
+				int next = subsets.transitions.get(state * k + symbol);
+				transitions[indexes[state] * k + symbol] = next == Dka.UNDEFINED ? Dka.UNDEFINED : indexes[next];
+			}
+		}
+		return new Dka(states, symbols, acceptable, indexes[Subsets.INITIAL], transitions);
+	}
+
+	/**
+	 * Reversed automaton without names, input of subset construction.
+	 */
+	private static class Reversal {
+
+		/**
+		 * Predecessors, <code>predecessors[state * symbolCount + symbol]</code> are
+		 * states which go into <code>state</code> by <code>symbol</code>.
+		 */
+		private final int[][] predecessors;
+
+		/**
+		 * Reversed epsilon closure of every state, or <code>null</code> if
+		 * automaton has no epsilon transitions.
+		 */
+		private final int[][] closures;
+
+		/**
+		 * State whose sets are acceptable.
+		 */
+		private final int finalState;
+
+		/**
+		 * Initial set.
+		 */
+		private final BitSet initial = new BitSet();
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param predecessors predecessors of every state and symbol.
+		 * @param closures     reversed epsilon closures or <code>null</code>.
+		 * @param finalState   state whose sets are acceptable.
+		 */
+		Reversal(int[][] predecessors, int[][] closures, int finalState) {
+			this.predecessors = predecessors;
+			this.closures = closures;
+			this.finalState = finalState;
+		}
+
+		/**
+		 * Adds <code>state</code> with its reversed epsilon closure into
+		 * <code>result</code>, unless it is already there.
+		 * 
+		 * @param state  state.
+		 * @param result set of states closed under reversed epsilon transitions.
+		 */
+		void close(int state, BitSet result) {
+			if (result.get(state)) {
+				return;
+			}
+			if (closures == null) {
+				result.set(state);
+				return;
+			}
+			for (int reachable : closures[state]) {
+				result.set(reachable);
+			}
+		}
+
+		/**
+		 * Calculates states reachable from <code>current</code> by reading
+		 * <code>symbol</code>.
+		 * 
+		 * @param current current states.
+		 * @param symbol  transition symbol.
+		 * @param k       number of symbols.
+		 * @param result  set where next states are stored.
+		 */
+		void step(BitSet current, int symbol, int k, BitSet result) {
+			result.clear();
+			for (int state = current.nextSetBit(0); state >= 0; state = current.nextSetBit(state + 1)) {
+				for (int previous : predecessors[state * k + symbol]) {
+					close(previous, result);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deterministic automaton built by subset construction, without names.
+	 */
+	private static class Subsets {
+
+		/**
+		 * Index of initial set.
+		 */
+		static final int INITIAL = 0;
+
+		/**
+		 * Number of states.
+		 */
+		private int count;
+
+		/**
+		 * Flags of acceptable states.
+		 */
+		private final BitSet acceptable = new BitSet();
+
+		/**
+		 * Flat transition table, row per state and column per symbol.
+		 */
+		private final IntList transitions = new IntList();
+	}
+
+	/**
+	 * Builder of rows of integers in two passes: the first one counts length of
+	 * every row and the second one fills rows.
+	 */
+	private static class Builder {
+
+		/**
+		 * Rows, allocated after the first pass.
+		 */
+		private final int[][] rows;
+
+		/**
+		 * Length of every row in the first pass, filled part of it in the second.
+		 */
+		private final int[] lengths;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param size number of rows.
+		 */
+		Builder(int size) {
+			rows = new int[size][];
+			lengths = new int[size];
+		}
+
+		/**
+		 * Counts or stores <code>value</code> at the end of row.
+		 * 
+		 * @param pass  <code>0</code> while counting, <code>1</code> while
+		 *              filling.
+		 * @param row   index of row.
+		 * @param value stored value.
+		 */
+		void add(int pass, int row, int value) {
+			if (pass == 1) {
+				rows[row][lengths[row]] = value;
+			}
+			lengths[row]++;
+		}
+
+		/**
+		 * Allocates rows after the first pass and resets their lengths.
+		 */
+		void allocate() {
+			for (int row = 0; row < rows.length; row++) {
+				rows[row] = new int[lengths[row]];
+				lengths[row] = 0;
+			}
+		}
+	}
+}
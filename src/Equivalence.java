@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Program that checks whether two automata accept the same language, or with
+ * option <code>--inclusion</code> whether language of the first one is a
+ * subset of language of the second one:
+ * 
+ * <pre>
+ * java Equivalence [--enka] [--inclusion] [--cache=&lt;directory&gt;] first.txt second.txt
+ * </pre>
+ * 
+ * Automata are given in <code>MinDka</code> format, or with option
+ * <code>--enka</code> in <code>SimEnka</code> format, whose input sequences are
+ * ignored. Program prints <code>true</code> or <code>false</code> and in the
+ * latter case a shortest counterexample on the next line, with symbols
+ * separated by <code>','</code> and empty word written as
+ * {@value Enka#EPSILON}. Checks are done by {@link LanguageChecker}.
+ * 
+ * @author dbrcina
+ *
+ */
+public class Equivalence {
+
+	/**
+	 * Option which selects epsilon-NFA input format.
+	 */
+	private static final String ENKA_OPTION = "--enka";
+
+	/**
+	 * Option which selects inclusion check.
+	 */
+	private static final String INCLUSION_OPTION = "--inclusion";
+
+	/**
+	 * Constant used for separating symbols of counterexample.
+	 */
+	private static final String SYMBOL_SEPARATOR = ",";
+
+	/**
+	 * Main entry of this program.
+	 * 
+	 * @param args arguments given through command line.
+	 */
+	public static void main(String[] args) {
+		boolean enka = false;
+		boolean inclusion = false;
+		List<String> files = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.equals(ENKA_OPTION)) {
+				enka = true;
+			} else if (arg.equals(INCLUSION_OPTION)) {
+				inclusion = true;
+			} else if (!arg.startsWith("--")) {
+				files.add(arg);
+			}
+		}
+		if (files.size() != 2) {
+			System.err.println("Usage: Equivalence [--enka] [--inclusion] [--cache=<directory>] first second");
+			System.exit(1);
+		}
+
+		List<String> counterexample;
+		try {
+			AutomatonCache cache = AutomatonCache.of(args);
+			CompiledAutomaton.Kind kind = enka ? CompiledAutomaton.Kind.ENKA : CompiledAutomaton.Kind.DKA;
+			CompiledAutomaton first = cache.load(AutomatonReader.open(Paths.get(files.get(0))), kind);
+			CompiledAutomaton second = cache.load(AutomatonReader.open(Paths.get(files.get(1))), kind);
+			if (enka) {
+				counterexample = inclusion ? LanguageChecker.inclusion(first.enka(), second.enka())
+						: LanguageChecker.equivalence(first.enka(), second.enka());
+			} else {
+				counterexample = inclusion ? LanguageChecker.inclusion(first.dka(), second.dka())
+						: LanguageChecker.equivalence(first.dka(), second.dka());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		if (counterexample == null) {
+			System.out.println(true);
+		} else {
+			System.out.println(false);
+			System.out.println(counterexample.isEmpty() ? Enka.EPSILON : String.join(SYMBOL_SEPARATOR, counterexample));
+		}
+	}
+}
@@ -0,0 +1,533 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Context-free grammar read from text definition.
+ * <p>
+ * Every line defines productions of one nonterminal,
+ * <code>X -> alternative | alternative</code>; the same nonterminal may be
+ * defined on several lines and the first defined one is the start symbol. An
+ * alternative is a sequence of symbols, where <code>&lt;name&gt;</code> is a
+ * nonterminal with name of more than one character, <code>\c</code> is
+ * character <code>c</code> as a terminal, <code>$</code> is the empty word and
+ * any other character is a nonterminal if it is defined and a terminal
+ * otherwise. Whitespace is ignored, as are empty lines and lines starting with
+ * <code>#</code>. Grammar of {@link Parser} is:
+ * </p>
+ * 
+ * <pre>
+ * S -> aAB | bBA
+ * A -> bC | a
+ * B -> ccSbc | $
+ * C -> AA
+ * </pre>
+ * <p>
+ * Nonterminals are indexes from zero, in order of definition, and terminal
+ * character <code>c</code> is symbol <code>-(c + 1)</code>.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class Grammar {
+
+	/**
+	 * Lookahead at the end of input.
+	 */
+	public static final int END = -1;
+
+	/**
+	 * Definition of grammar of {@link Parser}.
+	 */
+	private static final String PARSER_GRAMMAR = "S -> aAB | bBA\nA -> bC | a\nB -> ccSbc | $\nC -> AA\n";
+
+	/**
+	 * Separator of left and right side of line.
+	 */
+	private static final String ARROW = "->";
+
+	/**
+	 * Names of nonterminals.
+	 */
+	private final String[] names;
+
+	/**
+	 * Left side of every production.
+	 */
+	private final int[] lhs;
+
+	/**
+	 * Right side of every production.
+	 */
+	private final int[][] rhs;
+
+	/**
+	 * Productions of every nonterminal, in order of definition.
+	 */
+	private final int[][] productions;
+
+	/**
+	 * Flags of nonterminals which derive the empty word.
+	 */
+	private final boolean[] nullable;
+
+	/**
+	 * Nonterminals of derivation of the empty word of every nullable nonterminal,
+	 * in order of expansion.
+	 */
+	private final int[][] emptyDerivations;
+
+	/**
+	 * Production of every nonterminal and lookahead, <code>null</code> if
+	 * grammar is not <i>LL(1)</i> or is left-recursive.
+	 */
+	private final List<Map<Integer, Integer>> predictions;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param names names of nonterminals.
+	 * @param lhs   left side of every production.
+	 * @param rhs   right side of every production.
+	 */
+	private Grammar(String[] names, int[] lhs, int[][] rhs) {
+		this.names = names;
+		this.lhs = lhs;
+		this.rhs = rhs;
+		int[] counts = new int[names.length];
+		for (int x : lhs) {
+			counts[x]++;
+		}
+		productions = new int[names.length][];
+		for (int x = 0; x < names.length; x++) {
+			productions[x] = new int[counts[x]];
+			counts[x] = 0;
+		}
+		for (int p = 0; p < lhs.length; p++) {
+			productions[lhs[p]][counts[lhs[p]]++] = p;
+		}
+		nullable = new boolean[names.length];
+		emptyDerivations = new int[names.length][];
+		findNullable();
+		predictions = isLeftRecursive() ? null : predictions(first());
+	}
+
+	/**
+	 * @return grammar of {@link Parser}.
+	 */
+	public static Grammar parserGrammar() {
+		return parse(PARSER_GRAMMAR);
+	}
+
+	/**
+	 * Reads grammar from <code>file</code>.
+	 * 
+	 * @param file file with definition.
+	 * @return grammar.
+	 * @throws IOException              if file could not be read.
+	 * @throws IllegalArgumentException if definition is not valid.
+	 */
+	public static Grammar read(Path file) throws IOException {
+		return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Parses text definition of grammar.
+	 * 
+	 * @param definition definition.
+	 * @return grammar.
+	 * @throws IllegalArgumentException if definition is not valid.
+	 */
+	public static Grammar parse(String definition) {
+		// the first pass defines nonterminals, so right sides can tell them apart
+		Map<String, Integer> nonterminals = new LinkedHashMap<>();
+		List<String> lines = new ArrayList<>();
+		List<Integer> lefts = new ArrayList<>();
+		int number = 0;
+		for (String line : definition.split("\r?\n")) {
+			number++;
+			String trimmed = line.strip();
+			if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+				continue;
+			}
+			int arrow = trimmed.indexOf(ARROW);
+			if (arrow == -1) {
+				throw new IllegalArgumentException("Missing '" + ARROW + "' on line " + number + " of grammar.");
+			}
+			String left = trimmed.substring(0, arrow).strip();
+			if (left.startsWith("<") && left.endsWith(">") && left.length() > 2) {
+				left = left.substring(1, left.length() - 1);
+			} else if (left.codePointCount(0, left.length()) != 1 || "<>|$\\".contains(left)) {
+				throw new IllegalArgumentException("Invalid nonterminal on line " + number + " of grammar.");
+			}
+			lefts.add(nonterminals.computeIfAbsent(left, name -> nonterminals.size()));
+			lines.add(trimmed.substring(arrow + ARROW.length()));
+		}
+		if (nonterminals.isEmpty()) {
+			throw new IllegalArgumentException("Grammar has no productions.");
+		}
+
+		List<Integer> lhs = new ArrayList<>();
+		List<int[]> rhs = new ArrayList<>();
+		for (int i = 0; i < lines.size(); i++) {
+			String right = lines.get(i);
+			IntList symbols = new IntList();
+			int position = 0;
+			while (true) {
+				int c = position < right.length() ? right.codePointAt(position) : '|';
+				position += Character.charCount(c);
+				if (c == '|') {
+					lhs.add(lefts.get(i));
+					rhs.add(symbols.toArray());
+					symbols.clear();
+					if (position > right.length()) {
+						break;
+					}
+				} else if (c == '<') {
+					int end = right.indexOf('>', position);
+					Integer x = end == -1 ? null : nonterminals.get(right.substring(position, end));
+					if (x == null) {
+						throw new IllegalArgumentException("Undefined nonterminal in: " + right);
+					}
+					symbols.add(x);
+					position = end + 1;
+				} else if (c == '\\') {
+					if (position == right.length()) {
+						throw new IllegalArgumentException("Missing escaped character in: " + right);
+					}
+					symbols.add(terminal(right.charAt(position++)));
+				} else if (c != '$' && !Character.isWhitespace(c)) {
+					Integer x = nonterminals.get(new String(Character.toChars(c)));
+					if (x != null) {
+						symbols.add(x);
+					} else if (Character.charCount(c) == 1) {
+						symbols.add(terminal((char) c));
+					} else {
+						throw new IllegalArgumentException("Terminal is not one character in: " + right);
+					}
+				}
+			}
+		}
+		return new Grammar(nonterminals.keySet().toArray(new String[0]),
+				lhs.stream().mapToInt(Integer::intValue).toArray(), rhs.toArray(new int[0][]));
+	}
+
+	/**
+	 * @param c character.
+	 * @return terminal symbol of <code>c</code>.
+	 */
+	public static int terminal(char c) {
+		return -(c + 1);
+	}
+
+	/**
+	 * @param symbol symbol.
+	 * @return <code>true</code> if <code>symbol</code> is a terminal.
+	 */
+	public static boolean isTerminal(int symbol) {
+		return symbol < 0;
+	}
+
+	/**
+	 * @param symbol terminal symbol.
+	 * @return its character.
+	 */
+	public static char character(int symbol) {
+		return (char) (-symbol - 1);
+	}
+
+	/**
+	 * @return number of nonterminals.
+	 */
+	public int nonterminalCount() {
+		return names.length;
+	}
+
+	/**
+	 * @param x nonterminal.
+	 * @return its name.
+	 */
+	public String name(int x) {
+		return names[x];
+	}
+
+	/**
+	 * @return number of productions.
+	 */
+	public int productionCount() {
+		return lhs.length;
+	}
+
+	/**
+	 * @param p production.
+	 * @return its left side.
+	 */
+	public int lhs(int p) {
+		return lhs[p];
+	}
+
+	/**
+	 * @param p production.
+	 * @return its right side, which must not be modified.
+	 */
+	int[] rhs(int p) {
+		return rhs[p];
+	}
+
+	/**
+	 * @param x nonterminal.
+	 * @return its productions, which must not be modified.
+	 */
+	int[] productions(int x) {
+		return productions[x];
+	}
+
+	/**
+	 * @param x nonterminal.
+	 * @return <code>true</code> if <code>x</code> derives the empty word.
+	 */
+	public boolean isNullable(int x) {
+		return nullable[x];
+	}
+
+	/**
+	 * Returns derivation of the empty word from <code>x</code>, which uses the
+	 * first production that derives it in the fewest rounds.
+	 * 
+	 * @param x nullable nonterminal.
+	 * @return nonterminals in order of expansion, which must not be modified.
+	 */
+	int[] emptyDerivation(int x) {
+		return emptyDerivations[x];
+	}
+
+	/**
+	 * @return <code>true</code> if production of every nonterminal is determined
+	 *         by next character of input and no nonterminal derives a sequence
+	 *         starting with itself.
+	 */
+	public boolean isLL1() {
+		return predictions != null;
+	}
+
+	/**
+	 * Returns production of <i>LL(1)</i> grammar which expands <code>x</code>.
+	 * If lookahead selects none, the only production of <code>x</code> or its
+	 * only production which derives the empty word is taken, so error is found
+	 * by a later sign, as recursive descent does.
+	 * 
+	 * @param x         nonterminal.
+	 * @param lookahead next character or {@link #END}.
+	 * @return production, or <code>-1</code> if there is none.
+	 */
+	public int predict(int x, int lookahead) {
+		Integer p = predictions.get(x).get(lookahead);
+		if (p != null) {
+			return p;
+		}
+		if (productions[x].length == 1) {
+			return productions[x][0];
+		}
+		int nullableProduction = -1;
+		for (int q : productions[x]) {
+			if (isNullable(rhs[q], 0)) {
+				if (nullableProduction != -1) {
+					return -1;
+				}
+				nullableProduction = q;
+			}
+		}
+		return nullableProduction;
+	}
+
+	/**
+	 * Finds nullable nonterminals in rounds, so every derivation of the empty
+	 * word uses only nonterminals found in earlier rounds.
+	 */
+	private void findNullable() {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			boolean[] found = nullable.clone();
+			for (int p = 0; p < lhs.length; p++) {
+				if (found[lhs[p]] || !Arrays.stream(rhs[p]).allMatch(s -> s >= 0 && nullable[s])) {
+					continue;
+				}
+				found[lhs[p]] = true;
+				IntList derivation = new IntList();
+				derivation.add(lhs[p]);
+				for (int s : rhs[p]) {
+					for (int y : emptyDerivations[s]) {
+						derivation.add(y);
+					}
+				}
+				emptyDerivations[lhs[p]] = derivation.toArray();
+				changed = true;
+			}
+			System.arraycopy(found, 0, nullable, 0, found.length);
+		}
+	}
+
+	/**
+	 * @return terminal characters which may start word derived from every
+	 *         nonterminal.
+	 */
+	private BitSet[] first() {
+		BitSet[] first = new BitSet[names.length];
+		for (int x = 0; x < names.length; x++) {
+			first[x] = new BitSet();
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int p = 0; p < lhs.length; p++) {
+				BitSet target = first[lhs[p]];
+				int before = target.cardinality();
+				target.or(first(first, rhs[p], 0));
+				changed |= target.cardinality() != before;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * @param first    characters which may start every nonterminal.
+	 * @param sequence symbols.
+	 * @param from     index of the first symbol of suffix.
+	 * @return characters which may start word derived from suffix of
+	 *         <code>sequence</code>.
+	 */
+	private BitSet first(BitSet[] first, int[] sequence, int from) {
+		BitSet result = new BitSet();
+		for (int i = from; i < sequence.length; i++) {
+			int s = sequence[i];
+			if (isTerminal(s)) {
+				result.set(character(s));
+				break;
+			}
+			result.or(first[s]);
+			if (!nullable[s]) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param sequence symbols.
+	 * @param from     index of the first symbol of suffix.
+	 * @return <code>true</code> if suffix of <code>sequence</code> derives the
+	 *         empty word.
+	 */
+	private boolean isNullable(int[] sequence, int from) {
+		for (int i = from; i < sequence.length; i++) {
+			if (sequence[i] < 0 || !nullable[sequence[i]]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Searches for nonterminal which derives a sequence starting with itself.
+	 * 
+	 * @return <code>true</code> if there is one.
+	 */
+	private boolean isLeftRecursive() {
+		// nonterminals which may start sequence derived from every nonterminal
+		BitSet[] starts = new BitSet[names.length];
+		for (int x = 0; x < names.length; x++) {
+			starts[x] = new BitSet();
+		}
+		for (int p = 0; p < lhs.length; p++) {
+			for (int s : rhs[p]) {
+				if (isTerminal(s)) {
+					break;
+				}
+				starts[lhs[p]].set(s);
+				if (!nullable[s]) {
+					break;
+				}
+			}
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int x = 0; x < names.length; x++) {
+				int before = starts[x].cardinality();
+				for (int y = starts[x].nextSetBit(0); y >= 0; y = starts[x].nextSetBit(y + 1)) {
+					starts[x].or(starts[y]);
+				}
+				changed |= starts[x].cardinality() != before;
+			}
+		}
+		for (int x = 0; x < names.length; x++) {
+			if (starts[x].get(x)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Builds <i>LL(1)</i> table.
+	 * 
+	 * @param first characters which may start every nonterminal.
+	 * @return production of every nonterminal and lookahead, or
+	 *         <code>null</code> if some lookahead selects two productions.
+	 */
+	private List<Map<Integer, Integer>> predictions(BitSet[] first) {
+		// follow sets, with END as the last bit
+		int end = Character.MAX_VALUE + 1;
+		BitSet[] follow = new BitSet[names.length];
+		for (int x = 0; x < names.length; x++) {
+			follow[x] = new BitSet();
+		}
+		follow[0].set(end);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int p = 0; p < lhs.length; p++) {
+				for (int i = 0; i < rhs[p].length; i++) {
+					int s = rhs[p][i];
+					if (isTerminal(s)) {
+						continue;
+					}
+					int before = follow[s].cardinality();
+					follow[s].or(first(first, rhs[p], i + 1));
+					if (isNullable(rhs[p], i + 1)) {
+						follow[s].or(follow[lhs[p]]);
+					}
+					changed |= follow[s].cardinality() != before;
+				}
+			}
+		}
+
+		List<Map<Integer, Integer>> predictions = new ArrayList<>();
+		for (int x = 0; x < names.length; x++) {
+			Map<Integer, Integer> row = new HashMap<>();
+			for (int p : productions[x]) {
+				BitSet lookaheads = first(first, rhs[p], 0);
+				if (isNullable(rhs[p], 0)) {
+					lookaheads.or(follow[x]);
+				}
+				for (int c = lookaheads.nextSetBit(0); c >= 0; c = lookaheads.nextSetBit(c + 1)) {
+					if (row.put(c == end ? END : c, p) != null) {
+						return null;
+					}
+				}
+			}
+			predictions.add(row);
+		}
+		return predictions;
+	}
+}
@@ -0,0 +1,560 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * {@link Parser} which keeps what it learned about input sequence, so after an
+ * edit of sequence it parses again only the part which the edit affects.
+ * <p>
+ * Productions are expanded the same way as in {@link Parser}, but parse stack
+ * is persistent: every pushed item is a cell which points to the cell below
+ * it, and a stack is its top cell. Every pop is recorded as an event with
+ * popped cell, position in input, length of derivation trace and the end of
+ * part of input examined by all earlier decisions. Nonterminal events in order
+ * are the derivation tree in preorder, with the input position where each node
+ * starts, and derivation trace is kept whole in memory.
+ * </p>
+ * <p>
+ * After an edit, parsing resumes from the last event whose earlier decisions
+ * did not examine edited part, with its stack, position and trace, which are
+ * all restored in constant time. It stops as soon as it is about to pop a cell
+ * of the old parse behind the edit, at the same position shifted by the edit,
+ * because from there on it would repeat the old parse: the old events and
+ * trace after that point are kept and only shifted. So an edit costs time
+ * proportional to the part of parse it really changes, plus moving what lies
+ * behind it, which is little for edits near the end of long input. Smallest
+ * subtree containing the edit is not parsed again as a whole, since for nested
+ * input the subtree of its last signs is almost the whole input.
+ * </p>
+ * <p>
+ * Cells of replaced parts are not reused; when they outnumber live cells,
+ * sequence is parsed again from scratch.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class IncrementalParser implements Recognizer {
+
+	/**
+	 * No cell or event.
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * Initial capacity of arrays.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Number of popped items, old or new, parsed after edits.
+	 */
+	private static final Metrics.Counter STEPS = Metrics.counter("IncrementalParser.steps");
+
+	/**
+	 * Time spent parsing after edits.
+	 */
+	private static final Metrics.Timer EDIT = Metrics.timer("IncrementalParser.edit");
+
+	/**
+	 * Flag which determines whether derivation trace is generated.
+	 */
+	private final boolean tracing;
+
+	/**
+	 * Input sequence in its first {@link #length} characters.
+	 */
+	private char[] input = new char[INITIAL_CAPACITY];
+
+	/**
+	 * Length of input sequence.
+	 */
+	private int length;
+
+	/**
+	 * Item of every cell.
+	 */
+	private byte[] cellItems = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * Cell below every cell, or {@link #NONE}.
+	 */
+	private int[] cellNext = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Event which popped every cell, or {@link #NONE}.
+	 */
+	private int[] cellEvents = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Number of cells.
+	 */
+	private int cellCount;
+
+	/**
+	 * Events of parse of the current sequence.
+	 */
+	private final Events events = new Events();
+
+	/**
+	 * Events of the current parse after an edit.
+	 */
+	private final Events resumed = new Events();
+
+	/**
+	 * Derivation trace.
+	 */
+	private byte[] trace = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * Length of derivation trace.
+	 */
+	private int traceLength;
+
+	/**
+	 * Part of derivation trace written by the current parse after an edit.
+	 */
+	private byte[] resumedTrace = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * Length of {@link #resumedTrace}.
+	 */
+	private int resumedTraceLength;
+
+	/**
+	 * Whether input sequence is parsable.
+	 */
+	private boolean parsable;
+
+	/**
+	 * Top cell of parse stack of the current parse.
+	 */
+	private int stack;
+
+	/**
+	 * Position of next unread sign of the current parse.
+	 */
+	private int position;
+
+	/**
+	 * End of part of input examined by the current parse.
+	 */
+	private int examined;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param tracing flag which determines whether derivation trace is generated.
+	 */
+	public IncrementalParser(boolean tracing) {
+		this.tracing = tracing;
+	}
+
+	/**
+	 * Parses <code>input</code> from scratch and writes its derivation trace
+	 * onto <code>traceOutput</code>.
+	 * 
+	 * @param input       input sequence.
+	 * @param traceOutput stream where derivation trace is written.
+	 * @return <code>true</code> if input sequence is parsable, otherwise
+	 *         <code>false</code>.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	@Override
+	public boolean parse(char[] input, OutputStream traceOutput) throws IOException {
+		if (this.input.length < input.length) {
+			this.input = new char[input.length];
+		}
+		System.arraycopy(input, 0, this.input, 0, input.length);
+		length = input.length;
+		parseFromScratch();
+		writeTrace(traceOutput);
+		return parsable;
+	}
+
+	/**
+	 * Replaces characters from <code>start</code> to <code>end</code> with
+	 * <code>replacement</code> and parses the edited sequence.
+	 * 
+	 * @param start       index of the first replaced character.
+	 * @param end         index after the last replaced character.
+	 * @param replacement new characters.
+	 * @return <code>true</code> if edited sequence is parsable, otherwise
+	 *         <code>false</code>.
+	 * @throws IndexOutOfBoundsException if range is not within sequence.
+	 */
+	public boolean edit(int start, int end, CharSequence replacement) {
+		if (start < 0 || end < start || end > length) {
+			throw new IndexOutOfBoundsException("Edit " + start + ".." + end + " of sequence of length " + length);
+		}
+		long startTime = Metrics.ENABLED ? EDIT.start() : 0;
+		int delta = replacement.length() - (end - start);
+		if (length + delta > input.length) {
+			input = Arrays.copyOf(input, Math.max(input.length * 2, length + delta));
+		}
+		System.arraycopy(input, end, input, end + delta, length - end);
+		for (int i = 0; i < replacement.length(); i++) {
+			input[start + i] = replacement.charAt(i);
+		}
+		length += delta;
+
+		if (cellCount > 2 * events.count + INITIAL_CAPACITY) {
+			parseFromScratch();
+		} else {
+			int checkpoint = checkpoint(start);
+			stack = events.cells[checkpoint];
+			position = events.positions[checkpoint];
+			examined = events.examined[checkpoint];
+			int joined = run(events.traces[checkpoint], delta, start + replacement.length());
+			splice(checkpoint, joined, delta);
+		}
+		if (Metrics.ENABLED) {
+			STEPS.add(resumed.count);
+			EDIT.stop(startTime);
+		}
+		return parsable;
+	}
+
+	/**
+	 * @return <code>true</code> if the current sequence is parsable.
+	 */
+	public boolean isParsable() {
+		return parsable;
+	}
+
+	/**
+	 * Writes derivation trace of the current sequence.
+	 * 
+	 * @param out where trace is written.
+	 * @throws IOException if trace could not be written.
+	 */
+	public void writeTrace(OutputStream out) throws IOException {
+		out.write(trace, 0, traceLength);
+	}
+
+	/**
+	 * Parses the current sequence from scratch, dropping all cells.
+	 */
+	private void parseFromScratch() {
+		cellCount = 0;
+		events.count = 0;
+		traceLength = 0;
+		stack = push(NONE, Parser.S);
+		position = 0;
+		examined = 0;
+		run(0, 0, 0);
+		splice(0, NONE, 0);
+	}
+
+	/**
+	 * Finds the last event whose earlier decisions examined only characters
+	 * before <code>start</code>.
+	 * 
+	 * @param start index of the first edited character.
+	 * @return index of event.
+	 */
+	private int checkpoint(int start) {
+		// examined ends never decrease, the first event has examined nothing
+		int low = 0;
+		int high = events.count - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (events.examined[middle] <= start) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Parses from {@link #stack} and {@link #position} into {@link #resumed},
+	 * until parse ends or joins the old one. Old parse is joined when its cell is
+	 * about to be popped at or behind the end of edit, at the position where it
+	 * was popped before, shifted by the edit.
+	 * 
+	 * @param traceStart length of derivation trace before the first event.
+	 * @param delta      change of length made by the edit.
+	 * @param editEnd    index after the last inserted character.
+	 * @return old event where parse joined the old one, or {@link #NONE} if it
+	 *         ended.
+	 */
+	private int run(int traceStart, int delta, int editEnd) {
+		resumed.count = 0;
+		resumedTraceLength = 0;
+		while (stack != NONE) {
+			int old = cellEvents[stack];
+			if (old != NONE && position >= editEnd && position == events.positions[old] + delta) {
+				return old;
+			}
+			resumed.add(stack, position, traceStart + resumedTraceLength, examined);
+			cellEvents[stack] = NONE;
+			byte item = cellItems[stack];
+			stack = cellNext[stack];
+			if (!expand(item)) {
+				parsable = false;
+				return NONE;
+			}
+		}
+		examine(position + 1);
+		parsable = position == length;
+		return NONE;
+	}
+
+	/**
+	 * Expands one popped item the same way {@link Parser} does.
+	 * 
+	 * @param item parse stack item.
+	 * @return <code>false</code> if parse fails.
+	 */
+	private boolean expand(byte item) {
+		switch (item) {
+		case Parser.S:
+			trace('S');
+			examine(position + 1);
+			if (position == length) {
+				return false;
+			}
+			char sign = input[position++];
+			if (sign == 'a') {
+				stack = push(stack, Parser.B);
+				stack = push(stack, Parser.A);
+				return true;
+			} else if (sign == 'b') {
+				stack = push(stack, Parser.A);
+				stack = push(stack, Parser.B);
+				return true;
+			}
+			return false;
+		case Parser.A:
+			trace('A');
+			examine(position + 1);
+			if (position == length) {
+				return false;
+			} else if (input[position] == 'a') {
+				position++;
+				return true;
+			} else if (input[position] == 'b') {
+				position++;
+				stack = push(stack, Parser.C);
+				return true;
+			}
+			return false;
+		case Parser.B:
+			trace('B');
+			examine(position + 2);
+			if (length - position < 2 || input[position] != 'c') {
+				return true;
+			}
+			position++;
+			if (input[position] != 'c') {
+				return false;
+			}
+			position++;
+			stack = push(stack, Parser.TERMINAL_C);
+			stack = push(stack, Parser.TERMINAL_B);
+			stack = push(stack, Parser.S);
+			return true;
+		case Parser.C:
+			trace('C');
+			stack = push(stack, Parser.A);
+			stack = push(stack, Parser.A);
+			return true;
+		default:
+			examine(position + 1);
+			char expected = item == Parser.TERMINAL_B ? 'b' : 'c';
+			if (position == length || input[position] != expected) {
+				return false;
+			}
+			position++;
+			return true;
+		}
+	}
+
+	/**
+	 * Notes that characters before <code>end</code> were examined.
+	 * 
+	 * @param end index after examined character.
+	 */
+	private void examine(int end) {
+		if (end > examined) {
+			examined = end;
+		}
+	}
+
+	/**
+	 * Creates cell on top of <code>below</code>.
+	 * 
+	 * @param below top cell of stack.
+	 * @param item  parse stack item.
+	 * @return new top cell.
+	 */
+	private int push(int below, byte item) {
+		if (cellCount == cellItems.length) {
+			int capacity = cellCount * 2;
+			cellItems = Arrays.copyOf(cellItems, capacity);
+			cellNext = Arrays.copyOf(cellNext, capacity);
+			cellEvents = Arrays.copyOf(cellEvents, capacity);
+		}
+		cellItems[cellCount] = item;
+		cellNext[cellCount] = below;
+		cellEvents[cellCount] = NONE;
+		return cellCount++;
+	}
+
+	/**
+	 * Appends <code>production</code> sign to {@link #resumedTrace}.
+	 * 
+	 * @param production production sign.
+	 */
+	private void trace(char production) {
+		if (!tracing) {
+			return;
+		}
+		if (resumedTraceLength == resumedTrace.length) {
+			resumedTrace = Arrays.copyOf(resumedTrace, resumedTraceLength * 2);
+		}
+		resumedTrace[resumedTraceLength++] = (byte) production;
+	}
+
+	/**
+	 * Replaces old events from <code>checkpoint</code> up to
+	 * <code>joined</code>, or up to the end, with {@link #resumed} ones, and the
+	 * same part of derivation trace with {@link #resumedTrace}. Old events from
+	 * <code>joined</code> on are shifted by the edit, and the rest of parse and
+	 * its verdict stay the old ones.
+	 * 
+	 * @param checkpoint the first replaced event.
+	 * @param joined     the first kept old event, or {@link #NONE}.
+	 * @param delta      change of length made by the edit.
+	 */
+	private void splice(int checkpoint, int joined, int delta) {
+		int replacedEnd = joined == NONE ? events.count : joined;
+		int traceStart = checkpoint < events.count ? events.traces[checkpoint] : 0;
+		int traceTail = joined == NONE ? traceLength : events.traces[joined];
+		for (int e = checkpoint; e < replacedEnd; e++) {
+			if (cellEvents[events.cells[e]] == e) {
+				cellEvents[events.cells[e]] = NONE;
+			}
+		}
+
+		// events behind the joined one move after resumed ones
+		int kept = events.count - replacedEnd;
+		int first = checkpoint + resumed.count;
+		events.ensureCapacity(first + kept);
+		events.move(replacedEnd, first, kept);
+		int traceDelta = traceStart + resumedTraceLength - traceTail;
+		for (int e = first; e < first + kept; e++) {
+			events.positions[e] += delta;
+			events.traces[e] += traceDelta;
+			events.examined[e] = Math.max(events.examined[e] + delta, examined);
+			cellEvents[events.cells[e]] = e;
+		}
+		events.copy(resumed, checkpoint);
+		for (int e = checkpoint; e < first; e++) {
+			cellEvents[events.cells[e]] = e;
+		}
+		events.count = first + kept;
+
+		if (tracing) {
+			int tail = traceLength - traceTail;
+			int newLength = traceStart + resumedTraceLength + tail;
+			if (newLength > trace.length) {
+				trace = Arrays.copyOf(trace, Math.max(trace.length * 2, newLength));
+			}
+			System.arraycopy(trace, traceTail, trace, traceStart + resumedTraceLength, tail);
+			System.arraycopy(resumedTrace, 0, trace, traceStart, resumedTraceLength);
+			traceLength = newLength;
+		}
+	}
+
+	/**
+	 * Growable columns of events.
+	 */
+	private static class Events {
+
+		/**
+		 * Popped cell of every event.
+		 */
+		int[] cells = new int[INITIAL_CAPACITY];
+
+		/**
+		 * Position in input of every event.
+		 */
+		int[] positions = new int[INITIAL_CAPACITY];
+
+		/**
+		 * Length of derivation trace before every event.
+		 */
+		int[] traces = new int[INITIAL_CAPACITY];
+
+		/**
+		 * End of part of input examined before every event.
+		 */
+		int[] examined = new int[INITIAL_CAPACITY];
+
+		/**
+		 * Number of events.
+		 */
+		int count;
+
+		/**
+		 * Appends event.
+		 * 
+		 * @param cell     popped cell.
+		 * @param position position in input.
+		 * @param trace    length of derivation trace.
+		 * @param examined end of examined part of input.
+		 */
+		void add(int cell, int position, int trace, int examined) {
+			ensureCapacity(count + 1);
+			cells[count] = cell;
+			positions[count] = position;
+			traces[count] = trace;
+			this.examined[count] = examined;
+			count++;
+		}
+
+		/**
+		 * @param capacity required number of events.
+		 */
+		void ensureCapacity(int capacity) {
+			if (capacity > cells.length) {
+				int newCapacity = Math.max(cells.length * 2, capacity);
+				cells = Arrays.copyOf(cells, newCapacity);
+				positions = Arrays.copyOf(positions, newCapacity);
+				traces = Arrays.copyOf(traces, newCapacity);
+				examined = Arrays.copyOf(examined, newCapacity);
+			}
+		}
+
+		/**
+		 * Moves <code>n</code> events from index <code>from</code> to index
+		 * <code>to</code>.
+		 * 
+		 * @param from the first moved event.
+		 * @param to   its new index.
+		 * @param n    number of events.
+		 */
+		void move(int from, int to, int n) {
+			System.arraycopy(cells, from, cells, to, n);
+			System.arraycopy(positions, from, positions, to, n);
+			System.arraycopy(traces, from, traces, to, n);
+			System.arraycopy(examined, from, examined, to, n);
+		}
+
+		/**
+		 * Copies all events of <code>source</code> to index <code>to</code>.
+		 * 
+		 * @param source events.
+		 * @param to     index of the first copied event.
+		 */
+		void copy(Events source, int to) {
+			System.arraycopy(source.cells, 0, cells, to, source.count);
+			System.arraycopy(source.positions, 0, positions, to, source.count);
+			System.arraycopy(source.traces, 0, traces, to, source.count);
+			System.arraycopy(source.examined, 0, examined, to, source.count);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Growable list of integers, used where automata, grammars and their
+ * readers collect an unknown number of indexes.
+ * 
+ * @author dbrcina
+ *
+ */
+class IntList {
+
+	/**
+	 * Elements.
+	 */
+	private int[] elements = new int[16];
+
+	/**
+	 * Number of elements.
+	 */
+	private int size;
+
+	/**
+	 * @param value value to add.
+	 */
+	void add(int value) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+		elements[size++] = value;
+	}
+
+	/**
+	 * @param index index.
+	 * @return element at {@code index}.
+	 */
+	int get(int index) {
+		return elements[index];
+	}
+
+	/**
+	 * @return number of elements.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Removes the last element.
+	 * 
+	 * @return removed element.
+	 */
+	int removeLast() {
+		return elements[--size];
+	}
+
+	/**
+	 * @return copy of elements.
+	 */
+	int[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+	/**
+	 * @param from first index.
+	 * @param to   index after the last one.
+	 * @return sorted distinct elements of given range.
+	 */
+	int[] sortedRange(int from, int to) {
+		int[] range = Arrays.copyOfRange(elements, from, to);
+		Arrays.sort(range);
+		int size = 0;
+		for (int i = 0; i < range.length; i++) {
+			if (size == 0 || range[size - 1] != range[i]) {
+				range[size++] = range[i];
+			}
+		}
+		return size == range.length ? range : Arrays.copyOf(range, size);
+	}
+}
@@ -0,0 +1,412 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks language equivalence and inclusion of two automata without
+ * minimizing or determinizing them.
+ * <p>
+ * Pairs of states are explored in breadth-first order, so when languages
+ * differ the returned counterexample is a shortest word accepted by exactly
+ * one automaton (for inclusion, accepted by the first one only). Symbols of
+ * both alphabets are merged by name and a symbol missing from one automaton
+ * leads it into an implicit rejecting sink state.
+ * </p>
+ * <ul>
+ * <li>DKA equivalence uses <i>Hopcroft-Karp</i> algorithm, pairs whose states
+ * are already in the same class of a union-find structure are skipped.</li>
+ * <li>DKA inclusion explores the reachable part of the product automaton.</li>
+ * <li>Epsilon-NFA inclusion uses antichains: it explores pairs of one state of
+ * the first automaton and set of states of the second one, and skips a pair
+ * when a pair with the same state and a subset of its set was already seen.
+ * Sets are created on the fly, only for reachable pairs. Equivalence is
+ * checked as inclusion in both directions.</li>
+ * </ul>
+ * 
+ * @author dbrcina
+ *
+ */
+public class LanguageChecker {
+
+	/**
+	 * Constructor is private, class only has static methods.
+	 */
+	private LanguageChecker() {
+	}
+
+	/**
+	 * Checks whether <code>first</code> and <code>second</code> accept the same
+	 * language.
+	 * 
+	 * @param first  first automaton.
+	 * @param second second automaton.
+	 * @return shortest word accepted by exactly one automaton, or
+	 *         <code>null</code> if they are equivalent.
+	 */
+	public static List<String> equivalence(Dka first, Dka second) {
+		Alphabet alphabet = new Alphabet(first.symbols(), second.symbols());
+		// union-find over states of both automata and their sinks
+		int offset = first.stateCount() + 1;
+		int[] classes = new int[offset + second.stateCount() + 1];
+		for (int i = 0; i < classes.length; i++) {
+			classes[i] = i;
+		}
+		Trace trace = new Trace();
+		IntList firstStates = new IntList();
+		IntList secondStates = new IntList();
+
+		int initial = trace.add(-1, -1);
+		if (isAcceptable(first, first.initialState()) != isAcceptable(second, second.initialState())) {
+			return trace.word(initial, alphabet);
+		}
+		classes[first.initialState()] = offset + second.initialState();
+		firstStates.add(first.initialState());
+		secondStates.add(second.initialState());
+
+		for (int i = 0; i < trace.size(); i++) {
+			int p = firstStates.get(i);
+			int q = secondStates.get(i);
+			for (int symbol = 0; symbol < alphabet.size(); symbol++) {
+				int nextP = next(first, p, alphabet.firstSymbols[symbol]);
+				int nextQ = next(second, q, alphabet.secondSymbols[symbol]);
+				int classP = find(classes, nextP);
+				int classQ = find(classes, offset + nextQ);
+				if (classP == classQ) {
+					continue;
+				}
+				int index = trace.add(i, symbol);
+				if (isAcceptable(first, nextP) != isAcceptable(second, nextQ)) {
+					return trace.word(index, alphabet);
+				}
+				classes[classP] = classQ;
+				firstStates.add(nextP);
+				secondStates.add(nextQ);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether language of <code>first</code> is a subset of language of
+	 * <code>second</code>.
+	 * 
+	 * @param first  first automaton.
+	 * @param second second automaton.
+	 * @return shortest word accepted by <code>first</code> and rejected by
+	 *         <code>second</code>, or <code>null</code> if there is none.
+	 */
+	public static List<String> inclusion(Dka first, Dka second) {
+		Alphabet alphabet = new Alphabet(first.symbols(), second.symbols());
+		long width = second.stateCount() + 1L;
+		Set<Long> visited = new HashSet<>();
+		Trace trace = new Trace();
+		IntList firstStates = new IntList();
+		IntList secondStates = new IntList();
+
+		int initial = trace.add(-1, -1);
+		if (isAcceptable(first, first.initialState()) && !isAcceptable(second, second.initialState())) {
+			return trace.word(initial, alphabet);
+		}
+		visited.add(first.initialState() * width + second.initialState());
+		firstStates.add(first.initialState());
+		secondStates.add(second.initialState());
+
+		for (int i = 0; i < trace.size(); i++) {
+			int p = firstStates.get(i);
+			int q = secondStates.get(i);
+			for (int symbol = 0; symbol < alphabet.size(); symbol++) {
+				int nextP = next(first, p, alphabet.firstSymbols[symbol]);
+				if (nextP == first.stateCount()) {
+					// sink of the first automaton accepts nothing
+					continue;
+				}
+				int nextQ = next(second, q, alphabet.secondSymbols[symbol]);
+				if (!visited.add(nextP * width + nextQ)) {
+					continue;
+				}
+				int index = trace.add(i, symbol);
+				if (isAcceptable(first, nextP) && !isAcceptable(second, nextQ)) {
+					return trace.word(index, alphabet);
+				}
+				firstStates.add(nextP);
+				secondStates.add(nextQ);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether <code>first</code> and <code>second</code> accept the same
+	 * language.
+	 * 
+	 * @param first  first automaton.
+	 * @param second second automaton.
+	 * @return shortest word accepted by exactly one automaton, or
+	 *         <code>null</code> if they are equivalent.
+	 */
+	public static List<String> equivalence(Enka first, Enka second) {
+		List<String> missing = inclusion(first, second);
+		List<String> extra = inclusion(second, first);
+		if (missing == null) {
+			return extra;
+		}
+		return extra == null || missing.size() <= extra.size() ? missing : extra;
+	}
+
+	/**
+	 * Checks whether language of <code>first</code> is a subset of language of
+	 * <code>second</code>.
+	 * 
+	 * @param first  first automaton.
+	 * @param second second automaton.
+	 * @return shortest word accepted by <code>first</code> and rejected by
+	 *         <code>second</code>, or <code>null</code> if there is none.
+	 */
+	public static List<String> inclusion(Enka first, Enka second) {
+		Alphabet alphabet = new Alphabet(first.symbols(), second.symbols());
+		// minimal sets of the second automaton seen with every state of the first
+		List<List<BitSet>> antichains = new ArrayList<>(Collections.nCopies(first.stateCount(), null));
+		Trace trace = new Trace();
+		IntList firstStates = new IntList();
+		List<BitSet> secondStates = new ArrayList<>();
+
+		BitSet initial = new BitSet(second.stateCount());
+		second.initialStates(initial);
+		for (int p : first.closure(first.initialState())) {
+			if (insert(antichains, p, initial)) {
+				int index = trace.add(-1, -1);
+				if (first.isAcceptable(p) && !second.isAcceptable(initial)) {
+					return trace.word(index, alphabet);
+				}
+				firstStates.add(p);
+				secondStates.add(initial);
+			}
+		}
+
+		for (int i = 0; i < trace.size(); i++) {
+			int p = firstStates.get(i);
+			BitSet current = secondStates.get(i);
+			for (int symbol = 0; symbol < alphabet.size(); symbol++) {
+				int firstSymbol = alphabet.firstSymbols[symbol];
+				if (firstSymbol < 0 || first.next(p, firstSymbol).length == 0) {
+					continue;
+				}
+				BitSet next = new BitSet(second.stateCount());
+				second.step(current, alphabet.secondSymbols[symbol], next);
+				boolean accepted = second.isAcceptable(next);
+				for (int target : first.next(p, firstSymbol)) {
+					for (int nextP : first.closure(target)) {
+						if (!insert(antichains, nextP, next)) {
+							continue;
+						}
+						int index = trace.add(i, symbol);
+						if (first.isAcceptable(nextP) && !accepted) {
+							return trace.word(index, alphabet);
+						}
+						firstStates.add(nextP);
+						secondStates.add(next);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds pair of <code>state</code> and <code>set</code> into antichain of
+	 * <code>state</code>, unless that antichain already contains a subset of
+	 * <code>set</code>. Supersets of <code>set</code> are removed from antichain.
+	 * 
+	 * @param antichains antichain of every state.
+	 * @param state      state of the first automaton.
+	 * @param set        set of states of the second automaton.
+	 * @return <code>true</code> if pair was added.
+	 */
+	private static boolean insert(List<List<BitSet>> antichains, int state, BitSet set) {
+		List<BitSet> antichain = antichains.get(state);
+		if (antichain == null) {
+			antichain = new ArrayList<>();
+			antichains.set(state, antichain);
+		}
+		for (BitSet other : antichain) {
+			if (isSubset(other, set)) {
+				return false;
+			}
+		}
+		antichain.removeIf(other -> isSubset(set, other));
+		antichain.add(set);
+		return true;
+	}
+
+	/**
+	 * @param subset   candidate subset.
+	 * @param superset candidate superset.
+	 * @return <code>true</code> if every element of <code>subset</code> is in
+	 *         <code>superset</code>.
+	 */
+	private static boolean isSubset(BitSet subset, BitSet superset) {
+		if (subset.length() > superset.length()) {
+			return false;
+		}
+		for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+			if (!superset.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns next state of <code>dka</code>, where state
+	 * {@link Dka#stateCount()} is a rejecting sink.
+	 * 
+	 * @param dka    automaton.
+	 * @param state  current state or sink.
+	 * @param symbol symbol of automaton or <code>-1</code> if it does not have
+	 *               it.
+	 * @return next state or sink.
+	 */
+	private static int next(Dka dka, int state, int symbol) {
+		if (state == dka.stateCount() || symbol < 0) {
+			return dka.stateCount();
+		}
+		int next = dka.next(state, symbol);
+		return next == Dka.UNDEFINED ? dka.stateCount() : next;
+	}
+
+	/**
+	 * @param dka   automaton.
+	 * @param state state or sink.
+	 * @return <code>true</code> if state is acceptable.
+	 */
+	private static boolean isAcceptable(Dka dka, int state) {
+		return state < dka.stateCount() && dka.isAcceptable(state);
+	}
+
+	/**
+	 * Finds representative of class of <code>element</code>, halving paths
+	 * along the way.
+	 * 
+	 * @param classes parent of every element.
+	 * @param element element.
+	 * @return representative.
+	 */
+	private static int find(int[] classes, int element) {
+		while (classes[element] != element) {
+			classes[element] = classes[classes[element]];
+			element = classes[element];
+		}
+		return element;
+	}
+
+	/**
+	 * Symbols of both automata merged by name, without epsilon.
+	 */
+	private static class Alphabet {
+
+		/**
+		 * Names of merged symbols.
+		 */
+		private final List<String> names = new ArrayList<>();
+
+		/**
+		 * Symbol of the first automaton for every merged symbol, or
+		 * <code>-1</code>.
+		 */
+		private final int[] firstSymbols;
+
+		/**
+		 * Symbol of the second automaton for every merged symbol, or
+		 * <code>-1</code>.
+		 */
+		private final int[] secondSymbols;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param first  symbols of the first automaton.
+		 * @param second symbols of the second automaton.
+		 */
+		Alphabet(SymbolTable first, SymbolTable second) {
+			for (int i = 0; i < first.size(); i++) {
+				if (!first.name(i).equals(Enka.EPSILON)) {
+					names.add(first.name(i));
+				}
+			}
+			for (int i = 0; i < second.size(); i++) {
+				if (!second.name(i).equals(Enka.EPSILON) && first.indexOf(second.name(i)) < 0) {
+					names.add(second.name(i));
+				}
+			}
+			firstSymbols = new int[names.size()];
+			secondSymbols = new int[names.size()];
+			for (int i = 0; i < names.size(); i++) {
+				firstSymbols[i] = first.indexOf(names.get(i));
+				secondSymbols[i] = second.indexOf(names.get(i));
+			}
+		}
+
+		/**
+		 * @return number of merged symbols.
+		 */
+		int size() {
+			return names.size();
+		}
+	}
+
+	/**
+	 * Breadth-first search tree of explored pairs, kept as parent and symbol
+	 * of every pair.
+	 */
+	private static class Trace {
+
+		/**
+		 * Index of parent pair, <code>-1</code> for initial pairs.
+		 */
+		private final IntList parents = new IntList();
+
+		/**
+		 * Merged symbol read from parent pair.
+		 */
+		private final IntList symbols = new IntList();
+
+		/**
+		 * Adds pair.
+		 * 
+		 * @param parent index of parent pair.
+		 * @param symbol symbol read from parent pair.
+		 * @return index of added pair.
+		 */
+		int add(int parent, int symbol) {
+			parents.add(parent);
+			symbols.add(symbol);
+			return parents.size() - 1;
+		}
+
+		/**
+		 * @return number of pairs.
+		 */
+		int size() {
+			return parents.size();
+		}
+
+		/**
+		 * Returns word which leads from initial pair to pair <code>index</code>.
+		 * 
+		 * @param index    index of pair.
+		 * @param alphabet merged symbols.
+		 * @return names of symbols of word.
+		 */
+		List<String> word(int index, Alphabet alphabet) {
+			List<String> word = new ArrayList<>();
+			for (; parents.get(index) >= 0; index = parents.get(index)) {
+				word.add(alphabet.names.get(symbols.get(index)));
+			}
+			Collections.reverse(word);
+			return word;
+		}
+	}
+}
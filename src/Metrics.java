@@ -0,0 +1,422 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+/**
+ * Counters and timers of hot paths of every program.
+ * <p>
+ * Metrics are enabled by system property <code>metrics</code>:
+ * </p>
+ * <ul>
+ * <li><code>-Dmetrics=json</code> prints all metrics as JSON onto
+ * {@link System#err} when JVM exits,</li>
+ * <li><code>-Dmetrics=json:&lt;file&gt;</code> writes them into file
+ * instead,</li>
+ * <li><code>-Dmetrics=jfr</code> emits them every second as
+ * <code>automata.Metric</code> events into a running flight recording.</li>
+ * </ul>
+ * <p>
+ * Every use of a metric is guarded by {@link #ENABLED}. It is a constant, so
+ * when metrics are disabled the JIT compiler removes guarded code completely.
+ * Counters are striped {@link LongAdder}s and code on hot paths counts into
+ * local variables and adds them once per operation.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class Metrics {
+
+	/**
+	 * Value of system property <code>metrics</code>, empty if it is not set.
+	 */
+	private static final String MODE = System.getProperty("metrics", "");
+
+	/**
+	 * Whether metrics are collected.
+	 */
+	public static final boolean ENABLED = !MODE.isEmpty();
+
+	/**
+	 * Every registered metric, in order of registration.
+	 */
+	private static final List<Metric> METRICS = new ArrayList<>();
+
+	static {
+		if (MODE.equals("jfr")) {
+			FlightRecorder.addPeriodicEvent(MetricEvent.class, Metrics::emitEvents);
+		} else if (MODE.startsWith("json")) {
+			String file = MODE.startsWith("json:") ? MODE.substring("json:".length()) : null;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> export(file)));
+		} else if (ENABLED) {
+			throw new IllegalArgumentException("Unknown metrics mode: " + MODE);
+		}
+	}
+
+	/**
+	 * Constructor is private, class only has static methods.
+	 */
+	private Metrics() {
+	}
+
+	/**
+	 * Registers new counter.
+	 * 
+	 * @param name name of counter.
+	 * @return counter.
+	 */
+	public static Counter counter(String name) {
+		return register(new Counter(name));
+	}
+
+	/**
+	 * Registers new maximum.
+	 * 
+	 * @param name name of maximum.
+	 * @return maximum.
+	 */
+	public static Maximum maximum(String name) {
+		return register(new Maximum(name));
+	}
+
+	/**
+	 * Registers new timer.
+	 * 
+	 * @param name name of timer.
+	 * @return timer.
+	 */
+	public static Timer timer(String name) {
+		return register(new Timer(name));
+	}
+
+	/**
+	 * Registers rate of <code>counter</code> per second of <code>timer</code>,
+	 * computed when metrics are exported.
+	 * 
+	 * @param name    name of rate.
+	 * @param counter counted events.
+	 * @param timer   time spent on them.
+	 */
+	public static void rate(String name, Counter counter, Timer timer) {
+		register(new Rate(name, counter, timer));
+	}
+
+	/**
+	 * Adds metric into registry.
+	 * 
+	 * @param <T>    type of metric.
+	 * @param metric metric.
+	 * @return <code>metric</code>.
+	 */
+	private static synchronized <T extends Metric> T register(T metric) {
+		METRICS.add(metric);
+		return metric;
+	}
+
+	/**
+	 * Creates JSON object with value of every metric.
+	 * 
+	 * @return JSON text.
+	 */
+	public static synchronized String toJson() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < METRICS.size(); i++) {
+			Metric metric = METRICS.get(i);
+			sb.append(i == 0 ? "\n  \"" : ",\n  \"").append(metric.name).append("\": ");
+			metric.appendJson(sb);
+		}
+		return sb.append("\n}").toString();
+	}
+
+	/**
+	 * Writes JSON with every metric.
+	 * 
+	 * @param file file or <code>null</code> for {@link System#err}.
+	 */
+	private static void export(String file) {
+		String json = toJson();
+		if (file == null) {
+			System.err.println(json);
+			return;
+		}
+		try {
+			Files.write(Paths.get(file), (json + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Emits one event for every metric.
+	 */
+	private static synchronized void emitEvents() {
+		for (Metric metric : METRICS) {
+			MetricEvent event = new MetricEvent();
+			event.name = metric.name;
+			event.value = metric.value();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Base class of every metric.
+	 */
+	public abstract static class Metric {
+
+		/**
+		 * Name.
+		 */
+		final String name;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name name.
+		 */
+		Metric(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return current value as a number.
+		 */
+		abstract double value();
+
+		/**
+		 * Appends current value as JSON.
+		 * 
+		 * @param sb where value is appended.
+		 */
+		void appendJson(StringBuilder sb) {
+			sb.append(value());
+		}
+	}
+
+	/**
+	 * Counter of events.
+	 */
+	public static class Counter extends Metric {
+
+		/**
+		 * Count.
+		 */
+		private final LongAdder count = new LongAdder();
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name name.
+		 */
+		Counter(String name) {
+			super(name);
+		}
+
+		/**
+		 * Adds <code>n</code> events.
+		 * 
+		 * @param n number of events.
+		 */
+		public void add(long n) {
+			count.add(n);
+		}
+
+		/**
+		 * @return number of events.
+		 */
+		public long sum() {
+			return count.sum();
+		}
+
+		@Override
+		double value() {
+			return sum();
+		}
+
+		@Override
+		void appendJson(StringBuilder sb) {
+			sb.append(sum());
+		}
+	}
+
+	/**
+	 * Maximum of observed values.
+	 */
+	public static class Maximum extends Metric {
+
+		/**
+		 * Maximum.
+		 */
+		private final LongAccumulator maximum = new LongAccumulator(Math::max, 0);
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name name.
+		 */
+		Maximum(String name) {
+			super(name);
+		}
+
+		/**
+		 * Observes <code>value</code>.
+		 * 
+		 * @param value value.
+		 */
+		public void observe(long value) {
+			maximum.accumulate(value);
+		}
+
+		@Override
+		double value() {
+			return maximum.get();
+		}
+
+		@Override
+		void appendJson(StringBuilder sb) {
+			sb.append(maximum.get());
+		}
+	}
+
+	/**
+	 * Timer of operations, keeps their count, total and maximal duration.
+	 */
+	public static class Timer extends Metric {
+
+		/**
+		 * Number of timed operations.
+		 */
+		private final LongAdder count = new LongAdder();
+
+		/**
+		 * Total duration in nanoseconds.
+		 */
+		private final LongAdder nanos = new LongAdder();
+
+		/**
+		 * Maximal duration in nanoseconds.
+		 */
+		private final LongAccumulator maximum = new LongAccumulator(Math::max, 0);
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name name.
+		 */
+		Timer(String name) {
+			super(name);
+		}
+
+		/**
+		 * @return start time to be passed to {@link #stop(long)}.
+		 */
+		public long start() {
+			return System.nanoTime();
+		}
+
+		/**
+		 * Records operation started at <code>start</code>.
+		 * 
+		 * @param start value returned by {@link #start()}.
+		 */
+		public void stop(long start) {
+			long duration = System.nanoTime() - start;
+			count.increment();
+			nanos.add(duration);
+			maximum.accumulate(duration);
+		}
+
+		/**
+		 * @return total duration in seconds.
+		 */
+		double seconds() {
+			return nanos.sum() / 1e9;
+		}
+
+		@Override
+		double value() {
+			return nanos.sum();
+		}
+
+		@Override
+		void appendJson(StringBuilder sb) {
+			sb.append("{\"count\": ").append(count.sum()).append(", \"totalNanos\": ").append(nanos.sum())
+					.append(", \"maxNanos\": ").append(maximum.get()).append('}');
+		}
+	}
+
+	/**
+	 * Rate of counted events per second of timed operations.
+	 */
+	private static class Rate extends Metric {
+
+		/**
+		 * Counted events.
+		 */
+		private final Counter counter;
+
+		/**
+		 * Time spent on events.
+		 */
+		private final Timer timer;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name    name.
+		 * @param counter counted events.
+		 * @param timer   time spent on them.
+		 */
+		Rate(String name, Counter counter, Timer timer) {
+			super(name);
+			this.counter = counter;
+			this.timer = timer;
+		}
+
+		@Override
+		double value() {
+			double seconds = timer.seconds();
+			return seconds == 0 ? 0 : counter.sum() / seconds;
+		}
+
+		@Override
+		void appendJson(StringBuilder sb) {
+			sb.append(String.format(Locale.ROOT, "%.1f", value()));
+		}
+	}
+
+	/**
+	 * Flight recorder event with value of one metric.
+	 */
+	@Name("automata.Metric")
+	@Label("Automata Metric")
+	@Category("Automata")
+	@Period("1 s")
+	static class MetricEvent extends Event {
+
+		/**
+		 * Name of metric.
+		 */
+		@Label("Name")
+		String name;
+
+		/**
+		 * Value of metric; timers report total nanoseconds.
+		 */
+		@Label("Value")
+		double value;
+	}
+}
@@ -1,16 +1,39 @@
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Program that simulates minimization of DKA.
+ * <p>
+ * Automaton is loaded by {@link AutomatonCache} and minimized by
+ * {@link DkaMinimizer}. With option <code>--parallel</code> identical states are
+ * merged by all available processors, and with
+ * <code>--parallel=&lt;threads&gt;</code> by given number of threads. Option
+ * <code>--off-heap[=&lt;directory&gt;]</code> keeps tables of minimization
+ * outside of heap, see {@link Storage}; automaton itself stays outside of heap
+ * when it is mapped from {@link AutomatonCache}.
+ * </p>
+ * <p>
+ * With option <code>--match=&lt;file&gt;</code> minimized automaton is not
+ * printed; it is compiled by {@link DkaCompiler} and every line of given file
+ * is matched as a sequence of one-character symbols, printing <code>1</code>
+ * if it is accepted and <code>0</code> otherwise.
+ * </p>
+ * <p>
+ * With option <code>--enka</code> input is an epsilon-NFA in the format of
+ * {@link SimEnka}; its input sequences are not simulated, symbols which appear
+ * only in them are kept as symbols without transitions. It is minimized
+ * straight into minimal DKA by {@link EnkaMinimizer}, without building its
+ * non-minimal DKA, so options <code>--parallel</code> and
+ * <code>--off-heap</code> have no effect.
+ * </p>
  * 
  * @author dbrcina
  *
@@ -18,51 +41,14 @@ import java.util.TreeSet;
 public class MinDka {
 
 	/**
-	 * Every possible state.
+	 * Prefix of option which matches lines of a file.
 	 */
-	private static Set<String> allStates;
+	private static final String MATCH_OPTION = "--match=";
 
 	/**
-	 * Alphabet symbols.
+	 * Option which reads input as epsilon-NFA.
 	 */
-	private static Set<String> symbols;
-
-	/**
-	 * Acceptable states by this machine.
-	 */
-	private static Set<String> acceptableStates;
-
-	/**
-	 * Initial state.
-	 */
-	private static String initialState;
-
-	/**
-	 * Map that stores all possible transitions for this DKA. Key value is current
-	 * state and map value is another instance of {@link Map} whose key value is
-	 * transition symbol and map value is next transition state.
-	 */
-	private static Map<String, TreeMap<String, String>> transitions;
-
-	/**
-	 * Initialization static block.
-	 */
-	static {
-		allStates = new TreeSet<>();
-		symbols = new TreeSet<>();
-		acceptableStates = new TreeSet<>();
-		transitions = new TreeMap<>();
-	}
-
-	/**
-	 * Constant used for separating symbols inside text.
-	 */
-	private static final String SYMBOL_SEPARATOR = ",";
-
-	/**
-	 * Constant representing separator between transitions.
-	 */
-	private static final String TRANSITION_SEPARATOR = "->";
+	private static final String ENKA_OPTION = "--enka";
 
 	/**
 	 * Main entry of this program.
@@ -70,285 +56,139 @@ public class MinDka {
 	 * @param args arguments given through command line.
 	 */
 	public static void main(String[] args) {
+		boolean enka = Arrays.asList(args).contains(ENKA_OPTION);
+		Dka dka;
 		try {
-			initializeDKA();
+			dka = enka ? EnkaMinimizer.minimize(initializeENKA(args)) : initializeDKA(args);
 		} catch (Exception e) {
 			e.printStackTrace();
+			return;
 		}
-		removeUnreachableStates();
-		removeIdenticalStates();
-		generateOutput().forEach(System.out::println);
-		
-//		try (PrintWriter pwr = new PrintWriter(Files.newOutputStream(Paths.get("test.txt")))) {
-//			generateOutput().forEach(s -> pwr.println(s));
-//		} catch (IOException e) {
-//			e.printStackTrace();
-//		}
-	}
-
-	/**
-	 * Method used for initialization of automat's properties, reading from
-	 * {@link System#in} etc.
-	 */
-	private static void initializeDKA() {
-		try (Scanner sc = new Scanner(System.in)) {
-
-			// read first line..input all states
-			String line = sc.nextLine().trim();
-			String[] parts = line.split(SYMBOL_SEPARATOR);
-			for (String part : parts) {
-				allStates.add(part);
-			}
-
-			// read second line..input all symbols
-			line = sc.nextLine().trim();
-			parts = line.split(SYMBOL_SEPARATOR);
-			for (String part : parts) {
-				symbols.add(part);
-			}
-
-			// read third line..acceptable states
-			line = sc.nextLine().trim();
-			parts = line.split(SYMBOL_SEPARATOR);
-			for (String part : parts) {
-				acceptableStates.add(part);
-			}
-
-			// read fourth line..initial state
-			initialState = sc.nextLine().trim();
-
-			///////////////////////////////////////////////////
-
-			// read from sixth line...
-			while (sc.hasNextLine()) {
-				line = sc.nextLine().trim();
-
-				if (line.isEmpty()) {
-					break;
-				}
-
-				// split by -> sign
-				parts = line.split(TRANSITION_SEPARATOR);
-
-				// split left side by , sign
-				String[] leftSide = parts[0].split(SYMBOL_SEPARATOR);
-				String currentState = leftSide[0];
-				String symbol = leftSide[1];
-
-				TreeMap<String, String> transitionMap = transitions.get(currentState);
-				if (transitionMap == null) {
-					transitionMap = new TreeMap<>();
-				}
-
-				transitionMap.put(symbol, parts[1]);
-				transitions.put(currentState, transitionMap);
-			}
+		if (!enka) {
+			dka = minimize(dka, Storage.of(args), Parallelism.threads(args));
+		}
+		String matchFile = matchFile(args);
+		if (matchFile == null) {
+			write(dka, System.out);
+			return;
+		}
+		try {
+			match(dka, AutomatonCache.of(args), Paths.get(matchFile), System.out);
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Method used for clearing unreachable states in DKA.
-	 */
-	private static void removeUnreachableStates() {
-		Set<String> reachableStates = new HashSet<>();
-		reachableStates.add(initialState);
-
-		Set<String> helperSet = new HashSet<>();
-
-		while (!reachableStates.equals(helperSet)) {
-			helperSet.addAll(reachableStates);
-			for (String reachableState : helperSet) {
-				for (Map.Entry<String, TreeMap<String, String>> entry : transitions.entrySet()) {
-					if (reachableState.equals(entry.getKey())) {
-						entry.getValue().values().stream().forEach(s -> reachableStates.add(s));
-					}
-				}
-			}
+	 * Minimizes <code>dka</code> using tables allocated by <code>storage</code>.
+	 * 
+	 * @param dka     automaton.
+	 * @param storage allocator of tables.
+	 * @param threads number of threads which merge identical states, or
+	 *                <code>0</code> if minimization is sequential.
+	 * @return minimized automaton.
+	 */
+	private static Dka minimize(Dka dka, Storage storage, int threads) {
+		dka = DkaMinimizer.removeUnreachableStates(dka, storage);
+		if (threads == 0) {
+			return DkaMinimizer.removeIdenticalStates(dka, storage);
+		}
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return DkaMinimizer.removeIdenticalStates(dka, pool, storage);
+		} finally {
+			pool.shutdown();
 		}
-
-		refreshStates(reachableStates);
 	}
 
 	/**
-	 * Method used for removing all states that are not reachable from this automat.
+	 * Reads file given by option {@value #MATCH_OPTION}.
 	 * 
-	 * @param reachableStates collection of reachable states.
+	 * @param args arguments given through command line.
+	 * @return path of file or <code>null</code> if option is not given.
 	 */
-	private static void refreshStates(Set<String> reachableStates) {
-
-		// remove unreachable states from all states
-		allStates = new TreeSet<>(reachableStates);
-
-		// remove unreachable states from acceptable states
-		acceptableStates.removeIf(state -> !reachableStates.contains(state));
-
-		// remove undoable transitions
-		Iterator<Map.Entry<String, TreeMap<String, String>>> it = transitions.entrySet().iterator();
-		while (it.hasNext()) {
-			if (!reachableStates.contains(it.next().getKey())) {
-				it.remove();
+	private static String matchFile(String[] args) {
+		for (String arg : args) {
+			if (arg.startsWith(MATCH_OPTION)) {
+				return arg.substring(MATCH_OPTION.length());
 			}
 		}
+		return null;
 	}
 
 	/**
-	 * Method used for removing identical states.
-	 */
-	private static void removeIdenticalStates() {
-		Set<String> nonIdenticalStates = new TreeSet<>();
-		List<String> allStatesList = new ArrayList<>(allStates);
-
-		firstStep(nonIdenticalStates, allStatesList);
-
-		doAlgorithm(nonIdenticalStates, allStatesList);
-
-		finalStep(nonIdenticalStates, allStatesList);
-	}
-
-	/**
-	 * Helper method used for making first step in this algorithm. Non identical
-	 * states are those that are not identical. Identical states are states that are
-	 * <b>both</b> acceptable or not.
-	 * <p>
-	 * All non identical states are stored in <code>nonIdenticalStates</code> as one
-	 * pair like <code>(qi,qj)</code>.
-	 * </p>
+	 * Matches every line of <code>file</code> by compiled automaton, or by its
+	 * table if it could not be compiled.
 	 * 
-	 * @param nonIdenticalStates collection of non identical states.
-	 * @param allStates          collection of all states.
-	 */
-	private static void firstStep(Set<String> nonIdenticalStates, List<String> allStatesList) {
-		for (int i = 0; i < allStatesList.size(); i++) {
-			String qi = allStatesList.get(i);
-			for (int j = i + 1; j < allStatesList.size(); j++) {
-				String qj = allStatesList.get(j);
-				if (acceptableStates.contains(qi) ^ acceptableStates.contains(qj)) {
-					nonIdenticalStates.add(qi + SYMBOL_SEPARATOR + qj);
-				}
+	 * @param dka   minimized automaton.
+	 * @param cache cache of compiled matchers.
+	 * @param file  lines to match.
+	 * @param out   where results are printed.
+	 * @throws IOException if file could not be read.
+	 */
+	static void match(Dka dka, AutomatonCache cache, Path file, PrintStream out) throws IOException {
+		Dka.Matcher matcher = DkaCompiler.compile(dka, cache);
+		if (matcher == null) {
+			matcher = dka.matcher();
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				out.println(matcher.match(line) ? '1' : '0');
 			}
 		}
+		out.flush();
 	}
 
 	/**
-	 * Method used for executing minimization algorithm.
-	 * <p>
-	 * Every pair of states from <code>allStates</code> is checked whether it is in
-	 * <code>nonIdenticalStates</code>. If pair isn't marked as non identical, then
-	 * every symbol transition pair from {@link #transitions} is checked. If atleast
-	 * one pair is marked as non identical, then the initial pair is also marked as
-	 * non identical and put in <code>nonIdenticalStates</code>.
-	 * </p>
+	 * Minimizes <code>dka</code> and prints it onto <code>out</code>.
 	 * 
-	 * @param nonIdenticalStates collection of non identical states.
-	 * @param allStates          collection of all states.
-	 * @see #firstStep(Set, List)
+	 * @param dka automaton.
+	 * @param out where minimized automaton is printed.
 	 */
-	private static void doAlgorithm(Set<String> nonIdenticalStates, List<String> allStatesList) {
-		Set<String> helperSet = new HashSet<>();
-		while (!nonIdenticalStates.equals(helperSet)) {
-			helperSet.addAll(nonIdenticalStates);
-			for (int i = 0; i < allStatesList.size(); i++) {
-				String qi = allStatesList.get(i);
-				for (int j = i + 1; j < allStatesList.size(); j++) {
-					String qj = allStatesList.get(j);
-					if (!nonIdenticalStates.contains(qi + SYMBOL_SEPARATOR + qj)) {
-
-						// check for every transition
-						for (String symbol : symbols) {
-							String qis = transitions.get(qi).get(symbol);
-							String qjs = transitions.get(qj).get(symbol);
-							if (nonIdenticalStates.contains(qis + SYMBOL_SEPARATOR + qjs)
-									|| nonIdenticalStates.contains(qjs + SYMBOL_SEPARATOR + qis)) {
-
-								// atleast one is found as non identical
-								nonIdenticalStates.add(qi + SYMBOL_SEPARATOR + qj);
-								break;
-							}
-						}
-					}
-				}
-			}
-		}
+	static void run(Dka dka, PrintStream out) {
+		dka = DkaMinimizer.removeUnreachableStates(dka);
+		dka = DkaMinimizer.removeIdenticalStates(dka);
+		write(dka, out);
 	}
 
 	/**
-	 * Method used for removing all identical states from remaining states.
-	 * <p>
-	 * For example: if q1 = q2 = q3, q2 and q3 are replaced with q1 and q2, q3 are
-	 * removed from {@link #allStates} and {@link #transitions}.
-	 * </p>
+	 * Method used for initialization of automat's properties, reading from
+	 * {@link System#in} or from file given as the first argument.
 	 * 
-	 * @param nonIdenticalStates collection of non identical states.
-	 * @param allStates          collection of all states.
+	 * @param args arguments given through command line.
+	 * @return automaton.
+	 * @throws IOException if input could not be read.
 	 */
-	private static void finalStep(Set<String> nonIdenticalStates, List<String> allStatesList) {
-		for (int i = 0; i < allStatesList.size(); i++) {
-			String qi = allStatesList.get(i);
-			for (int j = i + 1; j < allStatesList.size(); j++) {
-				String qj = allStatesList.get(j);
-				if (!nonIdenticalStates.contains(qi + SYMBOL_SEPARATOR + qj)) {
-					allStates.remove(qj);
-					acceptableStates.remove(qj);
-					transitions.remove(qj);
-
-					// change initial state if neccessary
-					if (initialState.equals(qj)) {
-						initialState = qi;
-					}
-
-					// refresh every transition state qj with qi
-					for (Map.Entry<String, TreeMap<String, String>> entry : transitions.entrySet()) {
-						TreeMap<String, String> map = entry.getValue();
-						map.keySet().forEach(key -> {
-							if (map.get(key).equals(qj)) {
-								map.put(key, qi);
-							}
-						});
-					}
-				}
-			}
-		}
+	private static Dka initializeDKA(String[] args) throws IOException {
+		return AutomatonCache.load(args, CompiledAutomaton.Kind.DKA).dka();
 	}
 
 	/**
-	 * Generates {@link String} representation of minimized DKA.
+	 * Reads epsilon-NFA in the format of {@link SimEnka}, from {@link System#in}
+	 * or from file given as the first argument.
 	 * 
-	 * @return list of strings representing each row of DKA.
+	 * @param args arguments given through command line.
+	 * @return automaton.
+	 * @throws IOException if input could not be read.
 	 */
-	private static List<String> generateOutput() {
-		List<String> output = new ArrayList<>();
-		output.add(generate(allStates));
-		output.add(generate(symbols));
-		output.add(generate(acceptableStates));
-		output.add(initialState);
-
-		for (Map.Entry<String, TreeMap<String, String>> entry : transitions.entrySet()) {
-			for (Map.Entry<String, String> transitionState : entry.getValue().entrySet()) {
-				output.add(entry.getKey() + SYMBOL_SEPARATOR + transitionState.getKey() + TRANSITION_SEPARATOR
-						+ transitionState.getValue());
-			}
-		}
-
-		return output;
+	private static Enka initializeENKA(String[] args) throws IOException {
+		return AutomatonCache.load(args, CompiledAutomaton.Kind.ENKA).enka();
 	}
 
 	/**
-	 * Generates {@link String} representation of provided collection
-	 * <code>col</code>.
+	 * Writes minimized automaton onto <code>out</code> through
+	 * {@link DkaWriter}.
 	 * 
-	 * @param col collection.
-	 * @return {@link String} representation of {@code col}.
+	 * @param dka minimized automaton.
+	 * @param out where automaton is written.
 	 */
-	private static String generate(Collection<String> col) {
-		StringBuilder sb = new StringBuilder();
-		int size = col.size();
-		for (String s : col) {
-			sb.append(s);
-			if (size != 1) {
-				sb.append(SYMBOL_SEPARATOR);
-			}
-			size--;
+	private static void write(Dka dka, PrintStream out) {
+		try {
+			new DkaWriter(Channels.newChannel(out)).write(dka);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		return sb.toString();
+		out.flush();
 	}
-}
\ No newline at end of file
+}
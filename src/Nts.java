@@ -0,0 +1,668 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Immutable model of nondeterministic <i>Turing machine</i> with a tape of
+ * fixed length. Every (state, tape symbol) pair may have several transitions,
+ * stored in flat arrays in order of definition.
+ * <p>
+ * Configurations are explored breadth-first, one level of equally long runs at
+ * a time, and a level is expanded by tasks of a {@link ForkJoinPool}. Branch
+ * halts the same way deterministic machine does, when no transition is defined
+ * or head would leave the tape, and is accepted when it halts in an acceptable
+ * state. Tapes are persistent: a step copies only one block of cells and the
+ * arrays which lead to it, other blocks are shared with the parent
+ * configuration. Configurations which were already visited are pruned, so
+ * machines whose branches loop still end.
+ * </p>
+ * <p>
+ * Exploration ends at the first level with an accepting configuration, when
+ * every branch has halted, or when number of visited configurations reaches
+ * the budget. Among configurations of one level the smallest one by state,
+ * position and tape is reported, so result does not depend on scheduling. If
+ * no branch halted, the reported configuration is taken from the last explored
+ * level, never the initial one, and an exhausted budget is reported by
+ * {@link Exploration#isExhausted()}.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class Nts {
+
+	/**
+	 * Separator for output text.
+	 */
+	private static final char OUTPUT_SEPARATOR = '|';
+
+	/**
+	 * Levels with fewer configurations are expanded by the calling thread.
+	 */
+	private static final int MIN_PARALLEL_LEVEL = 256;
+
+	/**
+	 * Number of visited configurations.
+	 */
+	private static final Metrics.Counter CONFIGURATIONS = Metrics.counter("SimTS.configurations");
+
+	/**
+	 * Number of pruned configurations which were already visited.
+	 */
+	private static final Metrics.Counter DUPLICATES = Metrics.counter("SimTS.duplicateConfigurations");
+
+	/**
+	 * Every possible state.
+	 */
+	private final SymbolTable states;
+
+	/**
+	 * Tape symbols.
+	 */
+	private final SymbolTable tapeSymbols;
+
+	/**
+	 * Initial tape record.
+	 */
+	private final int[] tape;
+
+	/**
+	 * Flags of acceptable states, indexed by state.
+	 */
+	private final boolean[] acceptable;
+
+	/**
+	 * Initial state.
+	 */
+	private final int initialState;
+
+	/**
+	 * Initial position of head.
+	 */
+	private final int initialPosition;
+
+	/**
+	 * First transition of every (state, tape symbol) pair, transitions of a pair
+	 * end where transitions of the next one begin.
+	 */
+	private final int[] first;
+
+	/**
+	 * Next state of every transition.
+	 */
+	private final int[] nextStates;
+
+	/**
+	 * Written tape symbol of every transition.
+	 */
+	private final int[] writes;
+
+	/**
+	 * Head movement of every transition, {@link TS#LEFT} or {@link TS#RIGHT}.
+	 */
+	private final int[] moves;
+
+	/**
+	 * Weight of every tape cell in hash of tape.
+	 */
+	private final long[] weights;
+
+	/**
+	 * Constructor. Arrays are not copied, caller must not modify them afterwards.
+	 * 
+	 * @param states          every possible state.
+	 * @param tapeSymbols     tape symbols.
+	 * @param tape            initial tape record.
+	 * @param acceptable      flags of acceptable states.
+	 * @param initialState    initial state.
+	 * @param initialPosition initial position of head.
+	 * @param first           first transition of every (state, tape symbol)
+	 *                        pair, followed by number of transitions.
+	 * @param nextStates      next state of every transition.
+	 * @param writes          written tape symbol of every transition.
+	 * @param moves           head movement of every transition.
+	 */
+	public Nts(SymbolTable states, SymbolTable tapeSymbols, int[] tape, boolean[] acceptable, int initialState,
+			int initialPosition, int[] first, int[] nextStates, int[] writes, int[] moves) {
+		int count = nextStates.length;
+		if (acceptable.length != states.size() || first.length != states.size() * tapeSymbols.size() + 1
+				|| first[first.length - 1] != count || writes.length != count || moves.length != count) {
+			throw new IllegalArgumentException("Transition table does not match states and symbols.");
+		}
+		if (initialPosition < 0 || initialPosition >= tape.length) {
+			throw new IllegalArgumentException("Initial position is outside of tape.");
+		}
+		this.states = states;
+		this.tapeSymbols = tapeSymbols;
+		this.tape = tape;
+		this.acceptable = acceptable;
+		this.initialState = initialState;
+		this.initialPosition = initialPosition;
+		this.first = first;
+		this.nextStates = nextStates;
+		this.writes = writes;
+		this.moves = moves;
+		this.weights = new long[tape.length];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = mix(i + 1) | 1;
+		}
+	}
+
+	/**
+	 * @return table of states.
+	 */
+	public SymbolTable states() {
+		return states;
+	}
+
+	/**
+	 * @return table of tape symbols.
+	 */
+	public SymbolTable tapeSymbols() {
+		return tapeSymbols;
+	}
+
+	/**
+	 * Explores configurations of this machine, with head within the first
+	 * {@value TS#CELLS} cells of tape.
+	 * 
+	 * @param pool   pool which expands large levels, or <code>null</code> if
+	 *               exploration is sequential.
+	 * @param budget maximal number of visited configurations.
+	 * @return result of exploration.
+	 */
+	public Exploration explore(ForkJoinPool pool, long budget) {
+		return explore(pool, budget, TS.CELLS);
+	}
+
+	/**
+	 * Explores configurations of this machine, with head within the first
+	 * <code>cells</code> cells of tape.
+	 * 
+	 * @param pool   pool which expands large levels, or <code>null</code> if
+	 *               exploration is sequential.
+	 * @param budget maximal number of visited configurations.
+	 * @param cells  number of cells which head may reach.
+	 * @return result of exploration.
+	 */
+	public Exploration explore(ForkJoinPool pool, long budget, int cells) {
+		int last = Math.min(tape.length, cells) - 1;
+		Configuration initial = new Configuration(initialState, initialPosition, Tape.of(tape, weights));
+		Set<Configuration> visited = ConcurrentHashMap.newKeySet();
+		visited.add(initial);
+		AtomicLong count = new AtomicLong(1);
+		List<Configuration> level = List.of(initial);
+		List<Configuration> explored = level;
+		Configuration halted = null;
+		int depth = 0;
+		boolean exhausted = false;
+		while (!level.isEmpty()) {
+			List<Configuration> current = level;
+			explored = current;
+			int tasks = pool == null || current.size() < MIN_PARALLEL_LEVEL ? 1
+					: Parallelism.tasks(pool, current.size());
+			IntFunction<Expansion> task = index -> expand(current, current.size() * index / tasks,
+					current.size() * (index + 1) / tasks, last, visited, count, budget);
+			List<Expansion> expansions = tasks == 1 ? List.of(task.apply(0)) : Parallelism.parallel(pool, tasks, task);
+
+			Configuration accepted = null;
+			Configuration levelHalted = null;
+			List<Configuration> next = new ArrayList<>();
+			for (Expansion expansion : expansions) {
+				accepted = min(accepted, expansion.accepted);
+				levelHalted = min(levelHalted, expansion.halted);
+				next.addAll(expansion.successors);
+				exhausted |= expansion.truncated;
+			}
+			if (accepted != null) {
+				return new Exploration(format(accepted), true, false, depth, count.get());
+			}
+			if (halted == null) {
+				halted = levelHalted;
+			}
+			if (exhausted) {
+				break;
+			}
+			level = next;
+			depth++;
+		}
+		Configuration result = halted;
+		if (result == null) {
+			for (Configuration configuration : explored) {
+				result = min(result, configuration);
+			}
+		}
+		return new Exploration(format(result), false, exhausted, depth, Math.min(count.get(), budget));
+	}
+
+	/**
+	 * Expands part of one level.
+	 * 
+	 * @param level   configurations of level.
+	 * @param from    first expanded configuration.
+	 * @param to      position after the last expanded configuration.
+	 * @param last    the last position which head may reach.
+	 * @param visited configurations visited so far.
+	 * @param count   number of visited configurations.
+	 * @param budget  maximal number of visited configurations.
+	 * @return halted configurations and new successors.
+	 */
+	private Expansion expand(List<Configuration> level, int from, int to, int last, Set<Configuration> visited,
+			AtomicLong count, long budget) {
+		Expansion expansion = new Expansion();
+		int k = tapeSymbols.size();
+		long duplicates = 0;
+		for (int i = from; i < to; i++) {
+			Configuration configuration = level.get(i);
+			int state = configuration.state;
+			int position = configuration.position;
+			int pair = state * k + configuration.tape.get(position);
+			boolean halts = first[pair] == first[pair + 1];
+			for (int transition = first[pair]; transition < first[pair + 1]; transition++) {
+				int move = moves[transition];
+				if (position == 0 && move == TS.LEFT || position >= last && move == TS.RIGHT) {
+					halts = true;
+					continue;
+				}
+				if (expansion.truncated) {
+					continue;
+				}
+				Configuration successor = new Configuration(nextStates[transition], position + move,
+						configuration.tape.set(position, writes[transition], weights));
+				if (!visited.add(successor)) {
+					duplicates++;
+				} else if (count.incrementAndGet() > budget) {
+					expansion.truncated = true;
+				} else {
+					expansion.successors.add(successor);
+				}
+			}
+			if (halts) {
+				if (acceptable[state]) {
+					expansion.accepted = min(expansion.accepted, configuration);
+				} else {
+					expansion.halted = min(expansion.halted, configuration);
+				}
+			}
+		}
+		if (Metrics.ENABLED) {
+			CONFIGURATIONS.add(expansion.successors.size());
+			DUPLICATES.add(duplicates);
+		}
+		return expansion;
+	}
+
+	/**
+	 * @param a configuration or <code>null</code>.
+	 * @param b configuration or <code>null</code>.
+	 * @return smaller of configurations, ignoring <code>null</code>.
+	 */
+	private static Configuration min(Configuration a, Configuration b) {
+		if (a == null) {
+			return b;
+		}
+		return b == null || a.compareTo(b) <= 0 ? a : b;
+	}
+
+	/**
+	 * Formats configuration of this machine the same way
+	 * {@link TS#format(int, int, int[])} does.
+	 * 
+	 * @param configuration configuration.
+	 * @return configuration in form <code>state|position|tape|acceptable</code>.
+	 */
+	private String format(Configuration configuration) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(states.name(configuration.state)).append(OUTPUT_SEPARATOR).append(configuration.position)
+				.append(OUTPUT_SEPARATOR);
+		for (int i = 0; i < tape.length; i++) {
+			sb.append(tapeSymbols.name(configuration.tape.get(i)));
+		}
+		sb.append(OUTPUT_SEPARATOR).append(acceptable[configuration.state] ? 1 : 0);
+		return sb.toString();
+	}
+
+	/**
+	 * Mixes bits of <code>value</code>, finalizer of <i>SplitMix64</i>.
+	 * 
+	 * @param value value.
+	 * @return mixed value.
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * Result of exploration.
+	 */
+	public static class Exploration {
+
+		/**
+		 * Reported configuration.
+		 */
+		private final String configuration;
+
+		/**
+		 * Whether an accepting configuration was found.
+		 */
+		private final boolean accepted;
+
+		/**
+		 * Whether budget was exhausted.
+		 */
+		private final boolean exhausted;
+
+		/**
+		 * Number of steps of reported configuration, or of the last explored
+		 * level.
+		 */
+		private final int depth;
+
+		/**
+		 * Number of visited configurations.
+		 */
+		private final long configurations;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param configuration  reported configuration.
+		 * @param accepted       whether an accepting configuration was found.
+		 * @param exhausted      whether budget was exhausted.
+		 * @param depth          number of steps.
+		 * @param configurations number of visited configurations.
+		 */
+		private Exploration(String configuration, boolean accepted, boolean exhausted, int depth,
+				long configurations) {
+			this.configuration = configuration;
+			this.accepted = accepted;
+			this.exhausted = exhausted;
+			this.depth = depth;
+			this.configurations = configurations;
+		}
+
+		/**
+		 * @return the first accepting configuration, or if there is none, the
+		 *         first halted one, or if no branch halted, the smallest one of
+		 *         the last explored level, in form
+		 *         <code>state|position|tape|acceptable</code>. Unless it is
+		 *         accepted, it is not the result of machine if budget was
+		 *         exhausted, see {@link #isExhausted()}.
+		 */
+		public String configuration() {
+			return configuration;
+		}
+
+		/**
+		 * @return <code>true</code> if an accepting configuration was found.
+		 */
+		public boolean isAccepted() {
+			return accepted;
+		}
+
+		/**
+		 * @return <code>true</code> if exploration stopped because budget was
+		 *         exhausted.
+		 */
+		public boolean isExhausted() {
+			return exhausted;
+		}
+
+		/**
+		 * @return number of steps of accepting configuration, or of the last
+		 *         explored level.
+		 */
+		public int depth() {
+			return depth;
+		}
+
+		/**
+		 * @return number of visited configurations.
+		 */
+		public long configurations() {
+			return configurations;
+		}
+	}
+
+	/**
+	 * Configurations found by expansion of part of one level.
+	 */
+	private static class Expansion {
+
+		/**
+		 * New successors, in order of expansion.
+		 */
+		private final List<Configuration> successors = new ArrayList<>();
+
+		/**
+		 * The smallest configuration which halts in an acceptable state.
+		 */
+		private Configuration accepted;
+
+		/**
+		 * The smallest configuration which halts in a state which is not
+		 * acceptable.
+		 */
+		private Configuration halted;
+
+		/**
+		 * Whether successors were dropped because budget was exhausted.
+		 */
+		private boolean truncated;
+	}
+
+	/**
+	 * Configuration of machine: state, position of head and tape.
+	 */
+	private static final class Configuration implements Comparable<Configuration> {
+
+		/**
+		 * Current state.
+		 */
+		private final int state;
+
+		/**
+		 * Position of head.
+		 */
+		private final int position;
+
+		/**
+		 * Tape record.
+		 */
+		private final Tape tape;
+
+		/**
+		 * Hash code.
+		 */
+		private final int hash;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param state    current state.
+		 * @param position position of head.
+		 * @param tape     tape record.
+		 */
+		private Configuration(int state, int position, Tape tape) {
+			this.state = state;
+			this.position = position;
+			this.tape = tape;
+			long mixed = mix(tape.hash + state * 0x9e3779b97f4a7c15L + position * 0xc2b2ae3d27d4eb4fL);
+			this.hash = (int) (mixed ^ (mixed >>> 32));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Configuration)) {
+				return false;
+			}
+			Configuration other = (Configuration) obj;
+			return hash == other.hash && state == other.state && position == other.position
+					&& tape.equals(other.tape);
+		}
+
+		@Override
+		public int compareTo(Configuration other) {
+			if (state != other.state) {
+				return Integer.compare(state, other.state);
+			}
+			if (position != other.position) {
+				return Integer.compare(position, other.position);
+			}
+			return tape.compareTo(other.tape);
+		}
+	}
+
+	/**
+	 * Persistent tape record. Cells are kept in blocks of {@value #BLOCK} cells
+	 * and blocks in groups of {@value #GROUP} blocks; changed tape shares all
+	 * blocks and groups but one with the original.
+	 */
+	private static final class Tape implements Comparable<Tape> {
+
+		/**
+		 * Number of bits of position within block.
+		 */
+		private static final int BLOCK_BITS = 6;
+
+		/**
+		 * Number of cells of block.
+		 */
+		private static final int BLOCK = 1 << BLOCK_BITS;
+
+		/**
+		 * Number of bits of block within group.
+		 */
+		private static final int GROUP_BITS = 6;
+
+		/**
+		 * Number of blocks of group.
+		 */
+		private static final int GROUP = 1 << GROUP_BITS;
+
+		/**
+		 * Groups of blocks of cells, the last ones may be shorter.
+		 */
+		private final int[][][] groups;
+
+		/**
+		 * Sum of cells weighted by their positions.
+		 */
+		private final long hash;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param groups groups of blocks of cells.
+		 * @param hash   weighted sum of cells.
+		 */
+		private Tape(int[][][] groups, long hash) {
+			this.groups = groups;
+			this.hash = hash;
+		}
+
+		/**
+		 * Creates tape record.
+		 * 
+		 * @param cells   cells.
+		 * @param weights weight of every cell.
+		 * @return tape.
+		 */
+		private static Tape of(int[] cells, long[] weights) {
+			int blocks = (cells.length + BLOCK - 1) >>> BLOCK_BITS;
+			int[][][] groups = new int[(blocks + GROUP - 1) >>> GROUP_BITS][][];
+			for (int g = 0; g < groups.length; g++) {
+				groups[g] = new int[Math.min(GROUP, blocks - (g << GROUP_BITS))][];
+				for (int b = 0; b < groups[g].length; b++) {
+					int start = ((g << GROUP_BITS) + b) << BLOCK_BITS;
+					groups[g][b] = Arrays.copyOfRange(cells, start, Math.min(cells.length, start + BLOCK));
+				}
+			}
+			long hash = 0;
+			for (int i = 0; i < cells.length; i++) {
+				hash += cells[i] * weights[i];
+			}
+			return new Tape(groups, hash);
+		}
+
+		/**
+		 * @param position position of cell.
+		 * @return symbol in cell.
+		 */
+		private int get(int position) {
+			return groups[position >>> (BLOCK_BITS + GROUP_BITS)][(position >>> BLOCK_BITS) & (GROUP - 1)][position
+					& (BLOCK - 1)];
+		}
+
+		/**
+		 * Writes symbol into cell.
+		 * 
+		 * @param position position of cell.
+		 * @param symbol   written symbol.
+		 * @param weights  weight of every cell.
+		 * @return changed tape, or this one if symbol is already in cell.
+		 */
+		private Tape set(int position, int symbol, long[] weights) {
+			int old = get(position);
+			if (old == symbol) {
+				return this;
+			}
+			int g = position >>> (BLOCK_BITS + GROUP_BITS);
+			int b = (position >>> BLOCK_BITS) & (GROUP - 1);
+			int[][][] groups = this.groups.clone();
+			groups[g] = groups[g].clone();
+			groups[g][b] = groups[g][b].clone();
+			groups[g][b][position & (BLOCK - 1)] = symbol;
+			return new Tape(groups, hash + (symbol - old) * weights[position]);
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(hash);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Tape)) {
+				return false;
+			}
+			Tape other = (Tape) obj;
+			return hash == other.hash && compareTo(other) == 0;
+		}
+
+		@Override
+		public int compareTo(Tape other) {
+			for (int g = 0; g < groups.length; g++) {
+				if (groups[g] == other.groups[g]) {
+					continue;
+				}
+				for (int b = 0; b < groups[g].length; b++) {
+					int result = groups[g][b] == other.groups[g][b] ? 0
+							: Arrays.compare(groups[g][b], other.groups[g][b]);
+					if (result != 0) {
+						return result;
+					}
+				}
+			}
+			return 0;
+		}
+	}
+}
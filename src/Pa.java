@@ -0,0 +1,409 @@
+import java.util.Arrays;
+
+/**
+ * Immutable model of deterministic pushdown automaton. Epsilon sign
+ * {@value #EPSILON} is interned both as an input symbol, where it marks epsilon
+ * transitions, and as a stack symbol, where it marks empty stack.
+ * <p>
+ * Every transition is identified by its index. Transition for (state, input
+ * symbol, stack symbol) is found in one flat lookup table.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class Pa {
+
+	/**
+	 * Constant used for epsilon sign.
+	 */
+	public static final String EPSILON = "$";
+
+	/**
+	 * Value of an undefined transition.
+	 */
+	public static final int UNDEFINED = -1;
+
+	/**
+	 * Constant used for separating state and stack inside text.
+	 */
+	private static final char STACK_SEPARATOR = '#';
+
+	/**
+	 * Constant used for separating steps of simulation.
+	 */
+	private static final char STEP_SEPARATOR = '|';
+
+	/**
+	 * Constant representing automat failure.
+	 */
+	private static final String FAIL = "fail|";
+
+	/**
+	 * Number of applied transitions.
+	 */
+	private static final Metrics.Counter STEPS = Metrics.counter("SimPa.steps");
+
+	/**
+	 * Number of applied epsilon transitions.
+	 */
+	private static final Metrics.Counter EPSILON_MOVES = Metrics.counter("SimPa.epsilonMoves");
+
+	/**
+	 * Maximal depth of stack.
+	 */
+	private static final Metrics.Maximum STACK_DEPTH = Metrics.maximum("SimPa.maxStackDepth");
+
+	/**
+	 * Time spent simulating input sequences.
+	 */
+	private static final Metrics.Timer SIMULATE = Metrics.timer("SimPa.simulate");
+
+	/**
+	 * Every possible state.
+	 */
+	private final SymbolTable states;
+
+	/**
+	 * Input symbols, including {@value #EPSILON}.
+	 */
+	private final SymbolTable symbols;
+
+	/**
+	 * Stack symbols, including {@value #EPSILON}.
+	 */
+	private final SymbolTable stackSymbols;
+
+	/**
+	 * Flags of acceptable states, indexed by state.
+	 */
+	private final boolean[] acceptable;
+
+	/**
+	 * Initial state.
+	 */
+	private final int initialState;
+
+	/**
+	 * Initial stack symbol.
+	 */
+	private final int initialStackSymbol;
+
+	/**
+	 * Index of {@value #EPSILON} among input symbols.
+	 */
+	private final int epsilonSymbol;
+
+	/**
+	 * Index of {@value #EPSILON} among stack symbols.
+	 */
+	private final int emptyStackSymbol;
+
+	/**
+	 * Lookup table, <code>lookup[(state * symbolCount + symbol) * stackSymbolCount
+	 * + stackSymbol]</code> is transition index or {@link #UNDEFINED}.
+	 */
+	private final int[] lookup;
+
+	/**
+	 * Next state of every transition.
+	 */
+	private final int[] nextStates;
+
+	/**
+	 * Stack symbols pushed by every transition, first one ends up on top.
+	 */
+	private final int[][] pushes;
+
+	/**
+	 * Constructor. Arrays are not copied, caller must not modify them afterwards.
+	 * 
+	 * @param states             every possible state.
+	 * @param symbols            input symbols, must contain {@value #EPSILON}.
+	 * @param stackSymbols       stack symbols, must contain {@value #EPSILON}.
+	 * @param acceptable         flags of acceptable states.
+	 * @param initialState       initial state.
+	 * @param initialStackSymbol initial stack symbol.
+	 * @param lookup             flat lookup table of transition indexes.
+	 * @param nextStates         next state of every transition.
+	 * @param pushes             stack symbols pushed by every transition.
+	 */
+	public Pa(SymbolTable states, SymbolTable symbols, SymbolTable stackSymbols, boolean[] acceptable,
+			int initialState, int initialStackSymbol, int[] lookup, int[] nextStates, int[][] pushes) {
+		if (acceptable.length != states.size()
+				|| lookup.length != (long) states.size() * symbols.size() * stackSymbols.size()
+				|| nextStates.length != pushes.length) {
+			throw new IllegalArgumentException("Transition table does not match states and symbols.");
+		}
+		this.states = states;
+		this.symbols = symbols;
+		this.stackSymbols = stackSymbols;
+		this.acceptable = acceptable;
+		this.initialState = initialState;
+		this.initialStackSymbol = initialStackSymbol;
+		this.lookup = lookup;
+		this.nextStates = nextStates;
+		this.pushes = pushes;
+		this.epsilonSymbol = symbols.indexOf(EPSILON);
+		this.emptyStackSymbol = stackSymbols.indexOf(EPSILON);
+		if (epsilonSymbol == -1 || emptyStackSymbol == -1) {
+			throw new IllegalArgumentException("Epsilon sign is not interned.");
+		}
+	}
+
+	/**
+	 * @return table of states.
+	 */
+	public SymbolTable states() {
+		return states;
+	}
+
+	/**
+	 * @return table of input symbols.
+	 */
+	public SymbolTable symbols() {
+		return symbols;
+	}
+
+	/**
+	 * @return table of stack symbols.
+	 */
+	public SymbolTable stackSymbols() {
+		return stackSymbols;
+	}
+
+	/**
+	 * @return initial state.
+	 */
+	public int initialState() {
+		return initialState;
+	}
+
+	/**
+	 * @return initial stack symbol.
+	 */
+	public int initialStackSymbol() {
+		return initialStackSymbol;
+	}
+
+	/**
+	 * @return index of epsilon sign among input symbols.
+	 */
+	public int epsilonSymbol() {
+		return epsilonSymbol;
+	}
+
+	/**
+	 * @return index of epsilon sign among stack symbols.
+	 */
+	public int emptyStackSymbol() {
+		return emptyStackSymbol;
+	}
+
+	/**
+	 * Checks whether <code>state</code> is acceptable.
+	 * 
+	 * @param state state.
+	 * @return <code>true</code> if {@code state} is acceptable, otherwise
+	 *         <code>false</code>.
+	 */
+	public boolean isAcceptable(int state) {
+		return acceptable[state];
+	}
+
+	/**
+	 * Returns transition for given configuration.
+	 * 
+	 * @param state       current state.
+	 * @param symbol      input symbol, epsilon symbol or <code>-1</code> for symbol
+	 *                    not in alphabet.
+	 * @param stackSymbol symbol on top of stack.
+	 * @return transition index or {@link #UNDEFINED}.
+	 */
+	public int transition(int state, int symbol, int stackSymbol) {
+		if (symbol < 0 || stackSymbol < 0) {
+			return UNDEFINED;
+		}
+		return lookup[(state * symbols.size() + symbol) * stackSymbols.size() + stackSymbol];
+	}
+
+	/**
+	 * @return number of transitions.
+	 */
+	public int transitionCount() {
+		return nextStates.length;
+	}
+
+	/**
+	 * @param transition transition index.
+	 * @return next state of {@code transition}.
+	 */
+	public int nextState(int transition) {
+		return nextStates[transition];
+	}
+
+	/**
+	 * @param transition transition index.
+	 * @return stack symbols pushed by {@code transition}, must not be modified.
+	 */
+	public int[] push(int transition) {
+		return pushes[transition];
+	}
+
+	/**
+	 * Simulates this automaton on <code>sequence</code> and appends every
+	 * configuration onto <code>output</code>, followed by <code>1</code> if
+	 * sequence is accepted or <code>0</code> otherwise.
+	 * 
+	 * @param sequence input sequence of symbol indexes.
+	 * @param output   where result is appended.
+	 * @return <code>true</code> if sequence is accepted.
+	 */
+	public boolean simulate(int[] sequence, StringBuilder output) {
+		long start = Metrics.ENABLED ? SIMULATE.start() : 0;
+		long steps = 0;
+		long epsilonMoves = 0;
+		int depth = 0;
+		Stack stack = new Stack();
+		int state = initialState;
+		int top = initialStackSymbol;
+		appendConfiguration(state, null, top, output);
+
+		int i = 0;
+		boolean failed = false;
+		while (i < sequence.length) {
+			int transition = transition(state, sequence[i], top);
+			if (transition != UNDEFINED) {
+				i++;
+			} else {
+				transition = transition(state, epsilonSymbol, top);
+				if (Metrics.ENABLED && transition != UNDEFINED) {
+					epsilonMoves++;
+				}
+			}
+			if (transition == UNDEFINED) {
+				output.append(FAIL);
+				failed = true;
+				break;
+			}
+			state = stack.apply(this, transition);
+			top = stack.top();
+			appendConfiguration(state, stack, top, output);
+			if (Metrics.ENABLED) {
+				steps++;
+				depth = Math.max(depth, stack.size);
+			}
+		}
+
+		// check for epsilon transitions
+		while (!acceptable[state]) {
+			int transition = transition(state, epsilonSymbol, top);
+			if (transition == UNDEFINED) {
+				break;
+			}
+			state = stack.apply(this, transition);
+			top = stack.top();
+			appendConfiguration(state, stack, top, output);
+			if (Metrics.ENABLED) {
+				steps++;
+				epsilonMoves++;
+				depth = Math.max(depth, stack.size);
+			}
+		}
+
+		boolean accepted = acceptable[state] && !failed;
+		output.append(accepted ? '1' : '0');
+		if (Metrics.ENABLED) {
+			STEPS.add(steps);
+			EPSILON_MOVES.add(epsilonMoves);
+			STACK_DEPTH.observe(depth);
+			SIMULATE.stop(start);
+		}
+		return accepted;
+	}
+
+	/**
+	 * Appends configuration onto <code>output</code>.
+	 * 
+	 * @param state  current state.
+	 * @param stack  current stack, <code>null</code> if only {@code top} is known.
+	 * @param top    symbol on top of stack.
+	 * @param output where configuration is appended.
+	 */
+	private void appendConfiguration(int state, Stack stack, int top, StringBuilder output) {
+		output.append(states.name(state)).append(STACK_SEPARATOR);
+		if (stack == null) {
+			output.append(stackSymbols.name(top));
+		} else if (stack.size == 0) {
+			output.append(EPSILON);
+		} else {
+			for (int i = stack.size - 1; i >= 0; i--) {
+				output.append(stackSymbols.name(stack.elements[i]));
+			}
+		}
+		output.append(STEP_SEPARATOR);
+	}
+
+	/**
+	 * Growable stack of stack symbol indexes.
+	 */
+	static class Stack {
+
+		/**
+		 * Stack symbols, top is the last one.
+		 */
+		int[] elements = new int[16];
+
+		/**
+		 * Number of stack symbols.
+		 */
+		int size;
+
+		/**
+		 * Applies <code>transition</code> of <code>pa</code>: symbol on top is
+		 * removed and transition's symbols are pushed. If epsilon sign ends up on top
+		 * of a non-empty stack, it is removed.
+		 * 
+		 * @param pa         automaton.
+		 * @param transition transition index.
+		 * @return next state.
+		 */
+		int apply(Pa pa, int transition) {
+			if (size > 0) {
+				size--;
+			}
+			int[] push = pa.pushes[transition];
+			if (size + push.length > elements.length) {
+				elements = Arrays.copyOf(elements, Math.max(elements.length * 2, size + push.length));
+			}
+			for (int i = push.length - 1; i >= 0; i--) {
+				elements[size++] = push[i];
+			}
+			if (size > 1 && elements[size - 1] == pa.emptyStackSymbol) {
+				size--;
+			}
+			return pa.nextStates[transition];
+		}
+
+		/**
+		 * Replaces symbol on top with <code>symbols</code>.
+		 * 
+		 * @param symbols stack symbols, the last one ends up on top.
+		 */
+		void replaceTop(int[] symbols) {
+			size--;
+			if (size + symbols.length > elements.length) {
+				elements = Arrays.copyOf(elements, Math.max(elements.length * 2, size + symbols.length));
+			}
+			System.arraycopy(symbols, 0, elements, size, symbols.length);
+			size += symbols.length;
+		}
+
+		/**
+		 * @return symbol on top or <code>-1</code> if stack is empty.
+		 */
+		int top() {
+			return size == 0 ? -1 : elements[size - 1];
+		}
+	}
+}
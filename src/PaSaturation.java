@@ -0,0 +1,302 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Acceptance check of {@link Pa} which skips chains of epsilon transitions in
+ * one step.
+ * <p>
+ * Epsilon transition is taken whenever there is no transition for the current
+ * input symbol, or after the whole input while state is not acceptable. For
+ * every state, stack symbol on top and input symbol (or end of input), the
+ * maximal chain of such transitions which never looks below the original top
+ * of stack is compiled into one effect: next state and symbols which replace
+ * the original top. Effects are compiled when first needed and chains are
+ * bounded by {@value #MAX_CHAIN} transitions; longer ones continue with the
+ * next effect.
+ * </p>
+ * <p>
+ * Result is the same as the last character of
+ * {@link Pa#simulate(int[], StringBuilder)}, but configurations are not
+ * produced, so trace must still be simulated transition by transition.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class PaSaturation {
+
+	/**
+	 * Maximal number of transitions compiled into one effect.
+	 */
+	private static final int MAX_CHAIN = 64;
+
+	/**
+	 * Effect which is not compiled yet.
+	 */
+	private static final int UNKNOWN = -2;
+
+	/**
+	 * Effect of configuration without epsilon transition to take.
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * Number of applied effects.
+	 */
+	private static final Metrics.Counter EFFECTS = Metrics.counter("SimPa.effects");
+
+	/**
+	 * Number of epsilon transitions skipped by effects.
+	 */
+	private static final Metrics.Counter SKIPPED_MOVES = Metrics.counter("SimPa.skippedEpsilonMoves");
+
+	/**
+	 * Automaton.
+	 */
+	private final Pa pa;
+
+	/**
+	 * Number of input symbols, also column of symbols not in alphabet.
+	 */
+	private final int k;
+
+	/**
+	 * Number of stack symbols.
+	 */
+	private final int m;
+
+	/**
+	 * Effect of every configuration,
+	 * <code>effects[(state * (k + 1) + symbol) * m + stackSymbol]</code>, with
+	 * epsilon symbol standing for end of input.
+	 */
+	private final int[] effects;
+
+	/**
+	 * Next state of every effect.
+	 */
+	private final IntList nextStates = new IntList();
+
+	/**
+	 * Symbols which replace top of stack for every effect, the last one ends up
+	 * on top.
+	 */
+	private final List<int[]> replacements = new ArrayList<>();
+
+	/**
+	 * Number of transitions of every effect.
+	 */
+	private final IntList lengths = new IntList();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pa automaton.
+	 */
+	public PaSaturation(Pa pa) {
+		this.pa = pa;
+		this.k = pa.symbols().size();
+		this.m = pa.stackSymbols().size();
+		this.effects = new int[Math.multiplyExact(Math.multiplyExact(pa.states().size(), k + 1), m)];
+		Arrays.fill(effects, UNKNOWN);
+	}
+
+	/**
+	 * Checks whether automaton accepts <code>sequence</code>.
+	 * 
+	 * @param sequence input sequence of symbol indexes.
+	 * @return <code>true</code> if sequence is accepted.
+	 */
+	public boolean accepts(int[] sequence) {
+		Run run = start();
+		for (int symbol : sequence) {
+			if (!run.read(symbol)) {
+				return false;
+			}
+		}
+		return run.finish();
+	}
+
+	/**
+	 * @return run in initial configuration.
+	 */
+	public Run start() {
+		return new Run();
+	}
+
+	/**
+	 * Finds effect of configuration, compiling it if needed.
+	 * 
+	 * @param state  current state.
+	 * @param symbol column of input symbol.
+	 * @param top    symbol on top of stack.
+	 * @return effect or {@link #NONE}.
+	 */
+	private int effect(int state, int symbol, int top) {
+		int key = (state * (k + 1) + symbol) * m + top;
+		int effect = effects[key];
+		if (effect == UNKNOWN) {
+			effect = compile(state, symbol, top);
+			effects[key] = effect;
+		}
+		return effect;
+	}
+
+	/**
+	 * Checks whether epsilon transition is taken in given configuration.
+	 * 
+	 * @param state  current state.
+	 * @param symbol column of input symbol.
+	 * @param top    symbol on top of stack.
+	 * @return epsilon transition or {@link Pa#UNDEFINED}.
+	 */
+	private int epsilonMove(int state, int symbol, int top) {
+		if (symbol == pa.epsilonSymbol() ? pa.isAcceptable(state)
+				: pa.transition(state, symbol == k ? -1 : symbol, top) != Pa.UNDEFINED) {
+			return Pa.UNDEFINED;
+		}
+		return pa.transition(state, pa.epsilonSymbol(), top);
+	}
+
+	/**
+	 * Compiles chain of epsilon transitions from given configuration.
+	 * 
+	 * @param state  current state.
+	 * @param symbol column of input symbol.
+	 * @param top    symbol on top of stack.
+	 * @return effect or {@link #NONE}.
+	 */
+	private int compile(int state, int symbol, int top) {
+		int transition = epsilonMove(state, symbol, top);
+		if (transition == Pa.UNDEFINED) {
+			return NONE;
+		}
+		// symbols which replaced the original top, the last one is on top
+		int[] segment = { top };
+		int size = 1;
+		int length = 0;
+		while (transition != Pa.UNDEFINED && length < MAX_CHAIN) {
+			int[] push = pa.push(transition);
+			int[] next = Arrays.copyOf(segment, Math.max(segment.length, size - 1 + push.length));
+			int nextSize = size - 1;
+			for (int i = push.length - 1; i >= 0; i--) {
+				next[nextSize++] = push[i];
+			}
+			if (nextSize > 1 && next[nextSize - 1] == pa.emptyStackSymbol()) {
+				nextSize--;
+			}
+			if (nextSize == 0 || nextSize == 1 && next[0] == pa.emptyStackSymbol()) {
+				// depends on symbols below the original top
+				break;
+			}
+			segment = next;
+			size = nextSize;
+			state = pa.nextState(transition);
+			length++;
+			transition = epsilonMove(state, symbol, segment[size - 1]);
+		}
+		nextStates.add(state);
+		replacements.add(Arrays.copyOf(segment, size));
+		lengths.add(length);
+		return lengths.size() - 1;
+	}
+
+	/**
+	 * Acceptance check of one sequence, fed one symbol at a time. Only stack is
+	 * kept, so memory is proportional to its depth.
+	 */
+	public class Run {
+
+		/**
+		 * Current stack, initial stack symbol at the bottom.
+		 */
+		private final Pa.Stack stack = new Pa.Stack();
+
+		/**
+		 * Current state.
+		 */
+		private int state = pa.initialState();
+
+		/**
+		 * Whether run failed.
+		 */
+		private boolean failed;
+
+		/**
+		 * Constructor.
+		 */
+		private Run() {
+			stack.elements[stack.size++] = pa.initialStackSymbol();
+		}
+
+		/**
+		 * Reads one input symbol, after taking epsilon transitions which precede
+		 * it.
+		 * 
+		 * @param symbol symbol index, <code>-1</code> for symbol not in alphabet.
+		 * @return <code>false</code> if run failed.
+		 */
+		public boolean read(int symbol) {
+			if (failed) {
+				return false;
+			}
+			while (true) {
+				int top = stack.top();
+				int transition = pa.transition(state, symbol, top);
+				if (transition != Pa.UNDEFINED) {
+					state = stack.apply(pa, transition);
+					return true;
+				}
+				if (top < 0 || !saturate(symbol < 0 ? k : symbol, top)) {
+					failed = true;
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * Takes epsilon transitions after the whole input.
+		 * 
+		 * @return <code>true</code> if sequence is accepted.
+		 */
+		public boolean finish() {
+			if (failed) {
+				return false;
+			}
+			while (!pa.isAcceptable(state)) {
+				int top = stack.top();
+				if (top < 0 || !saturate(pa.epsilonSymbol(), top)) {
+					break;
+				}
+			}
+			return pa.isAcceptable(state);
+		}
+
+		/**
+		 * Applies effect of current configuration, or one epsilon transition if
+		 * chain could not be compiled.
+		 * 
+		 * @param symbol column of input symbol.
+		 * @param top    symbol on top of stack.
+		 * @return <code>false</code> if there is no epsilon transition to take.
+		 */
+		private boolean saturate(int symbol, int top) {
+			int effect = effect(state, symbol, top);
+			if (effect == NONE) {
+				return false;
+			}
+			if (lengths.get(effect) == 0) {
+				state = stack.apply(pa, pa.transition(state, pa.epsilonSymbol(), top));
+				return true;
+			}
+			stack.replaceTop(replacements.get(effect));
+			state = nextStates.get(effect);
+			if (Metrics.ENABLED) {
+				EFFECTS.add(1);
+				SKIPPED_MOVES.add(lengths.get(effect));
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming acceptance check of input sequences of <code>SimPa</code>.
+ * <p>
+ * Line of sequences is read from channel through one small buffer and every
+ * symbol is fed into {@link PaSaturation.Run} as soon as it is complete, so
+ * neither sequences nor trace are kept and memory is proportional only to
+ * depth of stack. Result of every sequence is printed as soon as the sequence
+ * ends. Sequences and symbols are split the same way
+ * {@link AutomatonReader#readSequences()} splits them.
+ * </p>
+ *
+ * @author dbrcina
+ *
+ */
+public class PaStream {
+
+	/**
+	 * Constant used for separating sequences.
+	 */
+	private static final byte SEQUENCE_SEPARATOR = '|';
+
+	/**
+	 * Constant used for separating symbols.
+	 */
+	private static final byte SYMBOL_SEPARATOR = ',';
+
+	/**
+	 * Size of input buffer.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Acceptance check.
+	 */
+	private final PaSaturation saturation;
+
+	/**
+	 * Names of input symbols.
+	 */
+	private final AutomatonReader.Names symbols;
+
+	/**
+	 * Where results are printed.
+	 */
+	private final PrintStream out;
+
+	/**
+	 * Bytes of current symbol.
+	 */
+	private ByteBuffer token = ByteBuffer.allocate(64);
+
+	/**
+	 * Run of current sequence.
+	 */
+	private PaSaturation.Run run;
+
+	/**
+	 * Whether current sequence has any byte.
+	 */
+	private boolean started;
+
+	/**
+	 * Number of empty symbols of current sequence which were not fed yet,
+	 * because they are dropped at end of sequence.
+	 */
+	private int emptySymbols;
+
+	/**
+	 * Number of empty sequences which were not reported yet, because they are
+	 * dropped at end of line.
+	 */
+	private int emptySequences;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pa  automaton.
+	 * @param out where results are printed.
+	 */
+	public PaStream(Pa pa, PrintStream out) {
+		this.saturation = new PaSaturation(pa);
+		this.symbols = AutomatonReader.Names.of(pa.symbols());
+		this.out = out;
+	}
+
+	/**
+	 * Checks sequences of input file in <code>SimPa</code> format. Only the
+	 * automaton, which follows the first line, is mapped into memory.
+	 *
+	 * @param file input file.
+	 * @param out  where results are printed.
+	 * @throws IOException if input could not be read.
+	 */
+	public static void check(Path file, PrintStream out) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long lineEnd = lineEnd(channel);
+			long start = Math.min(lineEnd + 1, channel.size());
+			if (channel.size() - start > Integer.MAX_VALUE) {
+				throw new IOException("Automaton is too large: " + file);
+			}
+			AutomatonReader reader = new AutomatonReader(
+					channel.map(FileChannel.MapMode.READ_ONLY, start, channel.size() - start));
+			Pa pa = reader.readPa();
+			channel.position(0);
+			new PaStream(pa, out).check(channel, lineEnd);
+		}
+	}
+
+	/**
+	 * Finds end of the first line.
+	 *
+	 * @param channel input.
+	 * @return position of the first <code>'\n'</code> or size of input.
+	 * @throws IOException if input could not be read.
+	 */
+	private static long lineEnd(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long position = 0;
+		channel.position(0);
+		while (channel.read(buffer) != -1) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				if (buffer.get() == '\n') {
+					return position + buffer.position() - 1;
+				}
+			}
+			position += buffer.limit();
+			buffer.clear();
+		}
+		return position;
+	}
+
+	/**
+	 * Checks every sequence of one line read from <code>channel</code>.
+	 *
+	 * @param channel input, positioned at start of line.
+	 * @param length  number of bytes of line, without line separator.
+	 * @throws IOException if input could not be read.
+	 */
+	public void check(ReadableByteChannel channel, long length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long remaining = length;
+		// line is trimmed, so whitespace is processed only when something follows it
+		boolean seen = false;
+		IntList whitespace = new IntList();
+		startSequence();
+		while (remaining > 0) {
+			buffer.clear();
+			if (buffer.capacity() > remaining) {
+				buffer.limit((int) remaining);
+			}
+			if (channel.read(buffer) == -1) {
+				break;
+			}
+			buffer.flip();
+			remaining -= buffer.remaining();
+			while (buffer.hasRemaining()) {
+				byte b = buffer.get();
+				if ((b & 0xff) <= ' ') {
+					if (seen) {
+						whitespace.add(b);
+					}
+					continue;
+				}
+				for (int i = 0; i < whitespace.size(); i++) {
+					process((byte) whitespace.get(i));
+				}
+				whitespace.clear();
+				seen = true;
+				process(b);
+			}
+		}
+		if (!seen) {
+			// empty line is one sequence of one empty symbol
+			report(emptySequence());
+		} else if (started) {
+			endSequence();
+		}
+		out.flush();
+	}
+
+	/**
+	 * Processes one byte of trimmed line.
+	 *
+	 * @param b byte.
+	 */
+	private void process(byte b) {
+		if (b == SEQUENCE_SEPARATOR) {
+			endSequence();
+			startSequence();
+		} else if (b == SYMBOL_SEPARATOR) {
+			started = true;
+			endSymbol();
+		} else {
+			started = true;
+			if (!token.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(token.capacity() * 2);
+				token.flip();
+				token = larger.put(token);
+			}
+			token.put(b);
+		}
+	}
+
+	/**
+	 * Starts new sequence.
+	 */
+	private void startSequence() {
+		run = saturation.start();
+		started = false;
+		emptySymbols = 0;
+		token.clear();
+	}
+
+	/**
+	 * Feeds completed symbol into run. Empty symbol is fed only when a
+	 * non-empty one follows it.
+	 */
+	private void endSymbol() {
+		if (token.position() == 0) {
+			emptySymbols++;
+			return;
+		}
+		for (; emptySymbols > 0; emptySymbols--) {
+			run.read(-1);
+		}
+		run.read(symbols.find(token, 0, token.position()));
+		token.clear();
+	}
+
+	/**
+	 * Ends current sequence and reports it, unless it is empty. Empty sequence
+	 * is reported only when a non-empty one follows it, and stands for one
+	 * unknown symbol.
+	 */
+	private void endSequence() {
+		if (!started) {
+			emptySequences++;
+			return;
+		}
+		endSymbol();
+		if (emptySequences > 0) {
+			boolean accepted = emptySequence();
+			for (; emptySequences > 0; emptySequences--) {
+				report(accepted);
+			}
+		}
+		report(run.finish());
+	}
+
+	/**
+	 * @return whether sequence of one empty symbol, which is not in alphabet, is
+	 *         accepted.
+	 */
+	private boolean emptySequence() {
+		PaSaturation.Run empty = saturation.start();
+		return empty.read(-1) && empty.finish();
+	}
+
+	/**
+	 * Prints result of one sequence.
+	 *
+	 * @param accepted whether sequence is accepted.
+	 */
+	private void report(boolean accepted) {
+		out.println(accepted ? '1' : '0');
+	}
+}
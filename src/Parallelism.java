@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+/**
+ * Number of threads of parallel work, shared by programs which take option
+ * <code>--parallel[=&lt;threads&gt;]</code>: without value all available
+ * processors are used, and without option work is sequential. Work is split
+ * into {@value #TASKS_PER_THREAD} tasks per thread, which are all forked into
+ * pool and then joined.
+ *
+ * @author dbrcina
+ *
+ */
+public class Parallelism {
+
+	/**
+	 * Option which enables parallel work.
+	 */
+	public static final String PARALLEL_OPTION = "--parallel";
+
+	/**
+	 * Number of tasks per thread of pool, so that slower tasks are balanced by
+	 * others.
+	 */
+	public static final int TASKS_PER_THREAD = 4;
+
+	/**
+	 * Constructor is private, class only has static methods.
+	 */
+	private Parallelism() {
+	}
+
+	/**
+	 * Reads number of threads from program arguments.
+	 *
+	 * @param args program arguments.
+	 * @return number of threads, or <code>0</code> if option
+	 *         {@value #PARALLEL_OPTION} is not given and work is sequential.
+	 */
+	public static int threads(String[] args) {
+		for (String arg : args) {
+			if (arg.equals(PARALLEL_OPTION)) {
+				return Runtime.getRuntime().availableProcessors();
+			}
+			if (arg.startsWith(PARALLEL_OPTION + "=")) {
+				return Integer.parseInt(arg.substring(PARALLEL_OPTION.length() + 1));
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Creates pool from program arguments. Caller shuts it down.
+	 *
+	 * @param args program arguments.
+	 * @return pool of {@link #threads(String[])} threads, or <code>null</code>
+	 *         if work is sequential.
+	 */
+	public static ForkJoinPool pool(String[] args) {
+		int threads = threads(args);
+		return threads == 0 ? null : new ForkJoinPool(threads);
+	}
+
+	/**
+	 * Returns number of tasks into which work is split.
+	 *
+	 * @param pool pool which runs tasks.
+	 * @param work number of units of work, no task gets less than one.
+	 * @return {@value #TASKS_PER_THREAD} tasks per thread of pool, at least one.
+	 */
+	public static int tasks(ForkJoinPool pool, int work) {
+		return Math.max(1, Math.min(work, pool.getParallelism() * TASKS_PER_THREAD));
+	}
+
+	/**
+	 * Runs <code>task</code> for every index from zero to <code>count</code> in
+	 * pool and waits for all of them.
+	 *
+	 * @param <T>   type of results.
+	 * @param pool  pool which runs tasks.
+	 * @param count number of tasks.
+	 * @param task  task.
+	 * @return results, in order of indexes.
+	 */
+	public static <T> List<T> parallel(ForkJoinPool pool, int count, IntFunction<T> task) {
+		List<ForkJoinTask<T>> forks = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int index = i;
+			forks.add(pool.submit(() -> task.apply(index)));
+		}
+		List<T> results = new ArrayList<>(count);
+		for (ForkJoinTask<T> fork : forks) {
+			results.add(fork.join());
+		}
+		return results;
+	}
+}
@@ -1,5 +1,20 @@
-import java.util.Scanner;
-import java.util.Stack;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * An implementation of <i>Recursive descent parser.</i><br>
@@ -16,29 +31,406 @@ import java.util.Stack;
  * If input sequence is parsable, <i>'DA'</i> is printed, otherwise
  * <i>'NE'.</i><br>
  * If input sequence is not parsable, parser should stop as soon as possible.
+ * <p>
+ * Recursion is not done through Java method calls. Every production pushes
+ * what is left to be parsed onto {@link #parseStack} which lives on the heap,
+ * so input sequences can be nested arbitrarily deep.
+ * </p>
+ * <p>
+ * Derivation trace is collected by {@link TraceWriter} and written onto
+ * {@link System#out} in large blocks. If program is started with
+ * {@value #NO_TRACE_OPTION} argument, trace is not generated at all and only
+ * <i>'DA'</i> or <i>'NE'</i> is printed.
+ * </p>
+ * <p>
+ * With {@value #BATCH_OPTION} argument followed by file path, every line of
+ * that file is parsed in parallel and results are printed in input order.
+ * </p>
+ * <p>
+ * With {@value #EDITS_OPTION} argument, input sequence is parsed by
+ * {@link IncrementalParser} and then edited by every line of given file,
+ * <code>start,end,replacement</code>, and result is printed after every edit.
+ * </p>
  * 
  * @author dbrcina
  *
  */
-public class Parser {
+public class Parser implements Recognizer {
 
 	/**
-	 * Underlaying stack used for storing terminal signs.
+	 * Parse stack item representing <i>S - production</i>.
 	 */
-	private static Stack<String> stack = new Stack<>();
+	static final byte S = 0;
+
+	/**
+	 * Parse stack item representing <i>A - production</i>.
+	 */
+	static final byte A = 1;
+
+	/**
+	 * Parse stack item representing <i>B - production</i>.
+	 */
+	static final byte B = 2;
+
+	/**
+	 * Parse stack item representing <i>C - production</i>.
+	 */
+	static final byte C = 3;
+
+	/**
+	 * Parse stack item representing terminal sign <i>b</i>.
+	 */
+	static final byte TERMINAL_B = 4;
+
+	/**
+	 * Parse stack item representing terminal sign <i>c</i>.
+	 */
+	static final byte TERMINAL_C = 5;
+
+	/**
+	 * Initial capacity of {@link #parseStack}.
+	 */
+	private static final int INITIAL_STACK_CAPACITY = 64;
+
+	/**
+	 * Command line option used for turning off derivation trace.
+	 */
+	static final String NO_TRACE_OPTION = "--no-trace";
+
+	/**
+	 * Command line option used for parsing every line of given file.
+	 */
+	static final String BATCH_OPTION = "--batch";
+
+	/**
+	 * Command line option used for editing input sequence by lines of given file.
+	 */
+	static final String EDITS_OPTION = "--edits=";
+
+	/**
+	 * Number of input sequences which are parsed in parallel before their results
+	 * are written onto {@link System#out}.
+	 */
+	private static final int BATCH_BLOCK_SIZE = 1 << 12;
+
+	/**
+	 * Number of expanded productions.
+	 */
+	private static final Metrics.Counter EXPANSIONS = Metrics.counter("Parser.expansions");
+
+	/**
+	 * Time spent parsing.
+	 */
+	private static final Metrics.Timer PARSE = Metrics.timer("Parser.parse");
+
+	/**
+	 * Input sequence.
+	 */
+	private char[] input;
+
+	/**
+	 * Position of next unread sign in {@link #input}.
+	 */
+	private int position;
+
+	/**
+	 * Underlaying stack used for storing productions and terminal signs that are
+	 * yet to be parsed.
+	 */
+	private byte[] parseStack = new byte[INITIAL_STACK_CAPACITY];
+
+	/**
+	 * Number of items currently stored in {@link #parseStack}.
+	 */
+	private int stackSize;
+
+	/**
+	 * Derivation trace, or <code>null</code> if it is not generated.
+	 */
+	private final TraceWriter trace;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param tracing flag which determines whether derivation trace is generated.
+	 */
+	public Parser(boolean tracing) {
+		this.trace = tracing ? new TraceWriter() : null;
+	}
 
 	/**
 	 * Main entry of this program.
+	 * <p>
+	 * If {@value #BATCH_OPTION} option is given followed by file path, every line
+	 * of that file is parsed as a separate input sequence.
+	 * </p>
 	 * 
-	 * @param args
+	 * @param args arguments given through command line.
 	 */
 	public static void main(String[] args) {
-		try (Scanner sc = new Scanner(System.in)) {
-			String[] input = sc.nextLine().split("");
-			for (int i = input.length - 1; i > -1; i--) {
-				stack.push(input[i]);
+		run(args, Parser::new);
+	}
+
+	/**
+	 * Runs this program with recognizers created by <code>recognizers</code>,
+	 * which are given flag whether derivation trace is generated. It is shared
+	 * with {@link EarleyParser}, which ignores its own options here.
+	 * 
+	 * @param args        arguments given through command line.
+	 * @param recognizers creates recognizer of input sequences.
+	 */
+	static void run(String[] args, Function<Boolean, ? extends Recognizer> recognizers) {
+		List<String> arguments = Arrays.asList(args);
+		boolean tracing = !arguments.contains(NO_TRACE_OPTION);
+		int batchIndex = arguments.indexOf(BATCH_OPTION);
+		try {
+			if (batchIndex != -1) {
+				if (batchIndex + 1 == args.length || args[batchIndex + 1].startsWith("--")) {
+					throw new IllegalArgumentException("Option " + BATCH_OPTION + " needs input file.");
+				}
+				parseBatch(Paths.get(args[batchIndex + 1]), tracing, () -> recognizers.apply(tracing));
+				return;
+			}
+			String edits = arguments.stream().filter(a -> a.startsWith(EDITS_OPTION)).findFirst().orElse(null);
+			try (BufferedReader br = new BufferedReader(new InputStreamReader(System.in))) {
+				String line = br.readLine();
+				char[] input = (line == null ? "" : line).toCharArray();
+				if (edits != null) {
+					parseEdits(input, Paths.get(edits.substring(EDITS_OPTION.length())), tracing);
+					return;
+				}
+				Recognizer parser = recognizers.apply(tracing);
+				boolean parsable = parser.parse(input, System.out);
+				if (tracing) {
+					System.out.println();
+				}
+				System.out.println(parsable ? "DA" : "NE");
 			}
-			System.out.println("\n" + (productionS() && stack.isEmpty() ? "DA" : "NE"));
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+		} catch (IOException | IndexOutOfBoundsException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Parses <code>input</code> and then edits it by every line of file
+	 * <code>file</code>, <code>start,end,replacement</code>, printing result
+	 * after parse and after every edit onto {@link System#out}.
+	 * 
+	 * @param input   input sequence.
+	 * @param file    file with edits.
+	 * @param tracing flag which determines whether derivation trace is generated.
+	 * @throws IOException if file could not be read.
+	 */
+	private static void parseEdits(char[] input, Path file, boolean tracing) throws IOException {
+		IncrementalParser parser = new IncrementalParser(tracing);
+		OutputStream out = new BufferedOutputStream(System.out, TraceWriter.BUFFER_SIZE);
+		boolean parsable = parser.parse(input, out);
+		try (BufferedReader br = Files.newBufferedReader(file)) {
+			String line;
+			do {
+				if (tracing) {
+					out.write('\n');
+				}
+				out.write((parsable ? "DA\n" : "NE\n").getBytes());
+				line = br.readLine();
+				if (line != null) {
+					String[] parts = line.split(",", 3);
+					if (parts.length < 2) {
+						throw new IllegalArgumentException("Invalid edit: " + line);
+					}
+					parsable = parser.edit(Integer.parseInt(parts[0].strip()), Integer.parseInt(parts[1].strip()),
+							parts.length == 3 ? parts[2] : "");
+					if (tracing) {
+						parser.writeTrace(out);
+					}
+				}
+			} while (line != null);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Parses every line of file <code>file</code> as a separate input sequence.
+	 * Lines are parsed in parallel, each thread using its own {@link Recognizer},
+	 * in blocks of {@value #BATCH_BLOCK_SIZE} lines. Results are printed onto
+	 * {@link System#out} in input order and throughput statistics are printed onto
+	 * {@link System#err}.
+	 * 
+	 * @param file        file with input sequences.
+	 * @param tracing     flag which determines whether derivation trace is
+	 *                    generated.
+	 * @param recognizers creates recognizer of every thread.
+	 * @throws IOException if file could not be read.
+	 */
+	static void parseBatch(Path file, boolean tracing, Supplier<? extends Recognizer> recognizers)
+			throws IOException {
+		ThreadLocal<Recognizer> parsers = ThreadLocal.withInitial(recognizers);
+		OutputStream out = new BufferedOutputStream(System.out, TraceWriter.BUFFER_SIZE);
+		long start = System.nanoTime();
+		long sequences = 0;
+		long signs = 0;
+		long parsable = 0;
+
+		try (BufferedReader br = Files.newBufferedReader(file)) {
+			List<String> block = new ArrayList<>(BATCH_BLOCK_SIZE);
+			boolean finished = false;
+			while (!finished) {
+				String line = br.readLine();
+				if (line != null) {
+					block.add(line);
+				} else {
+					finished = true;
+				}
+				if (block.size() < BATCH_BLOCK_SIZE && !finished) {
+					continue;
+				}
+
+				byte[][] results = new byte[block.size()][];
+				boolean[] verdicts = new boolean[block.size()];
+				List<String> lines = block;
+				IntStream.range(0, lines.size()).parallel().forEach(i -> {
+					ByteArrayOutputStream result = new ByteArrayOutputStream();
+					boolean acceptable;
+					try {
+						acceptable = parsers.get().parse(lines.get(i).toCharArray(), result);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					if (tracing) {
+						result.write('\n');
+					}
+					result.writeBytes((acceptable ? "DA" : "NE").getBytes());
+					result.write('\n');
+					results[i] = result.toByteArray();
+					verdicts[i] = acceptable;
+				});
+
+				for (int i = 0; i < results.length; i++) {
+					out.write(results[i]);
+					signs += lines.get(i).length();
+					if (verdicts[i]) {
+						parsable++;
+					}
+				}
+				sequences += results.length;
+				block = new ArrayList<>(BATCH_BLOCK_SIZE);
+			}
+		}
+		out.flush();
+
+		double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+		System.err.printf("sequences: %d, parsable: %d, signs: %d%n", sequences, parsable, signs);
+		System.err.printf("time: %.3f s, %.0f sequences/s, %.0f signs/s, threads: %d%n", seconds,
+				sequences / seconds, signs / seconds, ForkJoinPool.commonPool().getParallelism() + 1);
+	}
+
+	/**
+	 * Parses <code>input</code> starting from <i>S - production</i>. Items are
+	 * taken from {@link #parseStack} until it is empty or until some production
+	 * fails. Derivation trace is written onto <code>traceOutput</code>.
+	 * 
+	 * @param input       input sequence.
+	 * @param traceOutput stream where derivation trace is written.
+	 * @return <code>true</code> if input sequence is parsable, otherwise
+	 *         <code>false</code>.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	@Override
+	public boolean parse(char[] input, OutputStream traceOutput) throws IOException {
+		this.input = input;
+		if (trace != null) {
+			trace.start(traceOutput);
+		}
+		position = 0;
+		stackSize = 0;
+		push(S);
+		long start = Metrics.ENABLED ? PARSE.start() : 0;
+		long expansions = 0;
+		try {
+			while (stackSize > 0) {
+				boolean acceptable;
+				byte item = parseStack[--stackSize];
+				if (Metrics.ENABLED && item < TERMINAL_B) {
+					expansions++;
+				}
+				switch (item) {
+				case S:
+					acceptable = productionS();
+					break;
+				case A:
+					acceptable = productionA();
+					break;
+				case B:
+					acceptable = productionB();
+					break;
+				case C:
+					acceptable = productionC();
+					break;
+				case TERMINAL_B:
+					acceptable = terminal('b');
+					break;
+				default:
+					acceptable = terminal('c');
+					break;
+				}
+				if (!acceptable) {
+					return false;
+				}
+			}
+			return position == input.length;
+		} finally {
+			if (Metrics.ENABLED) {
+				EXPANSIONS.add(expansions);
+				PARSE.stop(start);
+			}
+			this.input = null;
+			if (trace != null) {
+				trace.finish();
+			}
+		}
+	}
+
+	/**
+	 * Pushes <code>item</code> onto {@link #parseStack}, enlarging it if
+	 * necessary.
+	 * 
+	 * @param item parse stack item.
+	 */
+	private void push(byte item) {
+		if (stackSize == parseStack.length) {
+			parseStack = Arrays.copyOf(parseStack, parseStack.length * 2);
+		}
+		parseStack[stackSize++] = item;
+	}
+
+	/**
+	 * Checks whether next unread sign is equal to <code>sign</code> and if it is,
+	 * it is consumed.
+	 * 
+	 * @param sign expected terminal sign.
+	 * @return <code>true</code> if expected sign was consumed, otherwise
+	 *         <code>false</code>.
+	 */
+	private boolean terminal(char sign) {
+		if (position == input.length || input[position] != sign) {
+			return false;
+		}
+		position++;
+		return true;
+	}
+
+	/**
+	 * Appends <code>production</code> sign to derivation trace, if it is
+	 * generated.
+	 * 
+	 * @param production production sign.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	private void trace(char production) throws IOException {
+		if (trace != null) {
+			trace.write((byte) production);
 		}
 	}
 
@@ -46,18 +438,23 @@ public class Parser {
 	 * An implementation of <i>S - production</i>.
 	 * 
 	 * @return <code>true</code> if input sequence is parsable, otherwise
-	 *         <code>false</.
+	 *         <code>false</code>.
+	 * @throws IOException if derivation trace could not be written.
 	 */
-	private static boolean productionS() {
-		System.out.print("S");
-		if (stack.isEmpty()) {
+	private boolean productionS() throws IOException {
+		trace('S');
+		if (position == input.length) {
 			return false;
 		}
-		String sign = stack.pop();
-		if (sign.equals("a")) {
-			return productionA() ? productionB() : false;
-		} else if (sign.equals("b")) {
-			return productionB() ? productionA() : false;
+		char sign = input[position++];
+		if (sign == 'a') {
+			push(B);
+			push(A);
+			return true;
+		} else if (sign == 'b') {
+			push(A);
+			push(B);
+			return true;
 		}
 		return false;
 	}
@@ -66,20 +463,22 @@ public class Parser {
 	 * An implementation of <i>A - production</i>.
 	 * 
 	 * @return <code>true</code> if input sequence is parsable, otherwise
-	 *         <code>false</.
+	 *         <code>false</code>.
+	 * @throws IOException if derivation trace could not be written.
 	 */
-	private static boolean productionA() {
-		System.out.print("A");
-		if (stack.empty()) {
+	private boolean productionA() throws IOException {
+		trace('A');
+		if (position == input.length) {
 			return false;
 		}
-		String sign = stack.peek();
-		if (sign.equals("a")) {
-			stack.pop();
+		char sign = input[position];
+		if (sign == 'a') {
+			position++;
+			return true;
+		} else if (sign == 'b') {
+			position++;
+			push(C);
 			return true;
-		} else if (sign.equals("b")) {
-			stack.pop();
-			return productionC();
 		}
 		return false;
 	}
@@ -88,35 +487,25 @@ public class Parser {
 	 * An implementation of <i>B - production</i>.
 	 * 
 	 * @return <code>true</code> if input sequence is parsable, otherwise
-	 *         <code>false</.
+	 *         <code>false</code>.
+	 * @throws IOException if derivation trace could not be written.
 	 */
-	private static boolean productionB() {
-		System.out.print("B");
-
-		if (stack.size() < 2) {
-			return true;
-		}
+	private boolean productionB() throws IOException {
+		trace('B');
 
-		if (!stack.peek().equals("c")) {
+		if (input.length - position < 2 || input[position] != 'c') {
 			return true;
 		}
-		stack.pop();
+		position++;
 
-		if (!stack.peek().equals("c")) {
+		if (input[position] != 'c') {
 			return false;
 		}
-		stack.pop();
-
-		if (!(productionS() && stack.peek().equals("b"))) {
-			return false;
-		}
-		stack.pop();
-
-		if (!stack.peek().equals("c")) {
-			return false;
-		}
-		stack.pop();
+		position++;
 
+		push(TERMINAL_C);
+		push(TERMINAL_B);
+		push(S);
 		return true;
 	}
 
@@ -124,11 +513,13 @@ public class Parser {
 	 * An implementation of <i>C - production</i>.
 	 * 
 	 * @return <code>true</code> if input sequence is parsable, otherwise
-	 *         <code>false</.
+	 *         <code>false</code>.
+	 * @throws IOException if derivation trace could not be written.
 	 */
-	private static boolean productionC() {
-		System.out.print("C");
-		boolean acceptable = productionA();
-		return acceptable ? productionA() : false;
+	private boolean productionC() throws IOException {
+		trace('C');
+		push(A);
+		push(A);
+		return true;
 	}
 }
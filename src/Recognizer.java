@@ -0,0 +1,24 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Parser of input sequences which writes derivation trace, one per thread in
+ * batch mode of {@link Parser}.
+ * 
+ * @author dbrcina
+ *
+ */
+public interface Recognizer {
+
+	/**
+	 * Parses <code>input</code> and writes its derivation trace onto
+	 * <code>traceOutput</code>.
+	 * 
+	 * @param input       input sequence.
+	 * @param traceOutput stream where derivation trace is written.
+	 * @return <code>true</code> if input sequence is parsable, otherwise
+	 *         <code>false</code>.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	boolean parse(char[] input, OutputStream traceOutput) throws IOException;
+}
@@ -0,0 +1,420 @@
+import java.util.Arrays;
+
+/**
+ * Compiler of regular expressions into {@link Enka}, using <i>Glushkov</i>
+ * construction. Every occurrence of a symbol in expression is one state and
+ * there is one more, initial state, so automaton has no epsilon transitions
+ * and only <code>m + 1</code> states for <code>m</code> symbol occurrences.
+ * <p>
+ * Syntax, from the lowest to the highest precedence:
+ * </p>
+ * <ul>
+ * <li><code>r|s</code> alternation,</li>
+ * <li><code>rs</code> concatenation,</li>
+ * <li><code>r*</code>, <code>r+</code> and <code>r?</code> repetition,</li>
+ * <li><code>(r)</code> grouping, <code>$</code> or <code>()</code> empty
+ * word, <code>&lt;name&gt;</code> symbol with name of more than one character,
+ * <code>\c</code> character <code>c</code> as a symbol, and any other
+ * character as a symbol. Whitespace is ignored.</li>
+ * </ul>
+ * <p>
+ * States are named <code>q0</code> (initial) to <code>qm</code>, in order of
+ * symbol occurrences in expression.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class RegexCompiler {
+
+	/**
+	 * Fragment which accepts only the empty word.
+	 */
+	private static final Fragment EMPTY = new Fragment(true, new int[0], new int[0]);
+
+	/**
+	 * Expression.
+	 */
+	private final String pattern;
+
+	/**
+	 * Position of next unread character.
+	 */
+	private int position;
+
+	/**
+	 * Symbols, starting with given ones.
+	 */
+	private final SymbolTable.Builder symbols = new SymbolTable.Builder();
+
+	/**
+	 * Symbol of every state, the initial state has none.
+	 */
+	private final IntList stateSymbols = new IntList();
+
+	/**
+	 * Sources of follow pairs, state <code>q</code> follows state
+	 * <code>p</code> if a word may read symbol of <code>q</code> right after
+	 * symbol of <code>p</code>.
+	 */
+	private final IntList followSources = new IntList();
+
+	/**
+	 * Targets of follow pairs.
+	 */
+	private final IntList followTargets = new IntList();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pattern expression.
+	 * @param symbols symbols which keep their indexes in compiled automaton.
+	 */
+	private RegexCompiler(String pattern, SymbolTable symbols) {
+		this.pattern = pattern;
+		for (int i = 0; i < symbols.size(); i++) {
+			this.symbols.intern(symbols.name(i));
+		}
+		stateSymbols.add(-1);
+	}
+
+	/**
+	 * Compiles <code>pattern</code> into automaton. Its alphabet starts with
+	 * <code>symbols</code>, under the same indexes, so sequences already read
+	 * with those symbols can be simulated directly, and continues with other
+	 * symbols of pattern.
+	 * 
+	 * @param pattern expression.
+	 * @param symbols symbols which keep their indexes.
+	 * @return automaton which accepts language of <code>pattern</code>.
+	 * @throws IllegalArgumentException if pattern is not valid.
+	 */
+	public static Enka compile(String pattern, SymbolTable symbols) {
+		return new RegexCompiler(pattern, symbols).compile();
+	}
+
+	/**
+	 * Parses expression and builds automaton.
+	 * 
+	 * @return automaton.
+	 */
+	private Enka compile() {
+		Fragment root = alternation();
+		skipWhitespace();
+		if (position < pattern.length()) {
+			throw error("Unexpected '" + pattern.charAt(position) + "'");
+		}
+		for (int state : root.first) {
+			followSources.add(0);
+			followTargets.add(state);
+		}
+
+		int n = stateSymbols.size();
+		int k = symbols.size();
+		String[] names = new String[n];
+		for (int state = 0; state < n; state++) {
+			names[state] = "q" + state;
+		}
+		SymbolTable states = SymbolTable.sorted(names);
+		int[] indexes = new int[n];
+		for (int state = 0; state < n; state++) {
+			indexes[state] = states.indexOf(names[state]);
+		}
+
+		boolean[] acceptable = new boolean[n];
+		acceptable[indexes[0]] = root.nullable;
+		for (int state : root.last) {
+			acceptable[indexes[state]] = true;
+		}
+
+		// follow pairs grouped by source and symbol of target
+		int[] start = new int[n * k + 1];
+		for (int i = 0; i < followSources.size(); i++) {
+			start[key(followSources.get(i), followTargets.get(i), k) + 1]++;
+		}
+		for (int i = 0; i < n * k; i++) {
+			start[i + 1] += start[i];
+		}
+		int[] fill = Arrays.copyOf(start, n * k);
+		int[] targets = new int[followSources.size()];
+		for (int i = 0; i < followSources.size(); i++) {
+			targets[fill[key(followSources.get(i), followTargets.get(i), k)]++] = indexes[followTargets.get(i)];
+		}
+		int[][] transitions = new int[n * k][];
+		for (int state = 0; state < n; state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				int key = state * k + symbol;
+				if (start[key] < start[key + 1]) {
+					transitions[indexes[state] * k + symbol] = distinct(targets, start[key], start[key + 1]);
+				}
+			}
+		}
+		return new Enka(states, symbols.build(), acceptable, indexes[0], transitions, new int[n][]);
+	}
+
+	/**
+	 * @param source source of follow pair.
+	 * @param target target of follow pair.
+	 * @param k      number of symbols.
+	 * @return key of pair, made of its source and symbol of its target.
+	 */
+	private int key(int source, int target, int k) {
+		return source * k + stateSymbols.get(target);
+	}
+
+	/**
+	 * @param values values.
+	 * @param from   first index.
+	 * @param to     index after the last one.
+	 * @return sorted distinct values of given range.
+	 */
+	private static int[] distinct(int[] values, int from, int to) {
+		int[] range = Arrays.copyOfRange(values, from, to);
+		Arrays.sort(range);
+		int size = 0;
+		for (int i = 0; i < range.length; i++) {
+			if (size == 0 || range[size - 1] != range[i]) {
+				range[size++] = range[i];
+			}
+		}
+		return size == range.length ? range : Arrays.copyOf(range, size);
+	}
+
+	/**
+	 * Parses alternation of concatenations.
+	 * 
+	 * @return fragment.
+	 */
+	private Fragment alternation() {
+		Fragment fragment = concatenation();
+		if (!accept('|')) {
+			return fragment;
+		}
+		boolean nullable = fragment.nullable;
+		IntList first = new IntList();
+		IntList last = new IntList();
+		do {
+			nullable |= fragment.nullable;
+			for (int state : fragment.first) {
+				first.add(state);
+			}
+			for (int state : fragment.last) {
+				last.add(state);
+			}
+			fragment = concatenation();
+		} while (accept('|'));
+		nullable |= fragment.nullable;
+		for (int state : fragment.first) {
+			first.add(state);
+		}
+		for (int state : fragment.last) {
+			last.add(state);
+		}
+		return new Fragment(nullable, first.toArray(), last.toArray());
+	}
+
+	/**
+	 * Parses concatenation of repetitions, possibly empty.
+	 * 
+	 * @return fragment.
+	 */
+	private Fragment concatenation() {
+		Fragment fragment = EMPTY;
+		while (true) {
+			skipWhitespace();
+			if (position == pattern.length() || pattern.charAt(position) == '|'
+					|| pattern.charAt(position) == ')') {
+				return fragment;
+			}
+			Fragment next = repetition();
+			follow(fragment.last, next.first);
+			fragment = new Fragment(fragment.nullable && next.nullable,
+					fragment.nullable ? concat(fragment.first, next.first) : fragment.first,
+					next.nullable ? concat(fragment.last, next.last) : next.last);
+		}
+	}
+
+	/**
+	 * Parses atom followed by any number of repetition operators.
+	 * 
+	 * @return fragment.
+	 */
+	private Fragment repetition() {
+		Fragment fragment = atom();
+		while (true) {
+			skipWhitespace();
+			if (accept('*')) {
+				follow(fragment.last, fragment.first);
+				fragment = new Fragment(true, fragment.first, fragment.last);
+			} else if (accept('+')) {
+				follow(fragment.last, fragment.first);
+			} else if (accept('?')) {
+				fragment = new Fragment(true, fragment.first, fragment.last);
+			} else {
+				return fragment;
+			}
+		}
+	}
+
+	/**
+	 * Parses group, empty word or symbol.
+	 * 
+	 * @return fragment.
+	 */
+	private Fragment atom() {
+		skipWhitespace();
+		if (position == pattern.length()) {
+			throw error("Missing expression");
+		}
+		int c = pattern.codePointAt(position);
+		position += Character.charCount(c);
+		switch (c) {
+		case '(':
+			Fragment fragment = alternation();
+			skipWhitespace();
+			if (!accept(')')) {
+				throw error("Missing ')'");
+			}
+			return fragment;
+		case '$':
+			return EMPTY;
+		case '<':
+			int end = pattern.indexOf('>', position);
+			if (end <= position) {
+				throw error("Invalid symbol name");
+			}
+			String name = pattern.substring(position, end);
+			position = end + 1;
+			return symbol(name);
+		case '\\':
+			if (position == pattern.length()) {
+				throw error("Missing escaped character");
+			}
+			c = pattern.codePointAt(position);
+			position += Character.charCount(c);
+			return symbol(new String(Character.toChars(c)));
+		case ')':
+		case '|':
+		case '*':
+		case '+':
+		case '?':
+		case '>':
+			position -= Character.charCount(c);
+			throw error("Unexpected '" + (char) c + "'");
+		default:
+			return symbol(new String(Character.toChars(c)));
+		}
+	}
+
+	/**
+	 * Creates new state which reads <code>name</code>.
+	 * 
+	 * @param name name of symbol.
+	 * @return fragment which accepts only that symbol.
+	 */
+	private Fragment symbol(String name) {
+		int state = stateSymbols.size();
+		stateSymbols.add(symbols.intern(name));
+		int[] states = { state };
+		return new Fragment(false, states, states);
+	}
+
+	/**
+	 * Adds follow pair for every state of <code>sources</code> and every state
+	 * of <code>targets</code>.
+	 * 
+	 * @param sources sources.
+	 * @param targets targets.
+	 */
+	private void follow(int[] sources, int[] targets) {
+		for (int source : sources) {
+			for (int target : targets) {
+				followSources.add(source);
+				followTargets.add(target);
+			}
+		}
+	}
+
+	/**
+	 * @param first  first array.
+	 * @param second second array.
+	 * @return elements of both arrays.
+	 */
+	private static int[] concat(int[] first, int[] second) {
+		if (second.length == 0) {
+			return first;
+		}
+		if (first.length == 0) {
+			return second;
+		}
+		int[] result = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	/**
+	 * Skips next character if it is <code>c</code>.
+	 * 
+	 * @param c character.
+	 * @return <code>true</code> if character was skipped.
+	 */
+	private boolean accept(char c) {
+		if (position < pattern.length() && pattern.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Skips whitespace.
+	 */
+	private void skipWhitespace() {
+		while (position < pattern.length() && Character.isWhitespace(pattern.charAt(position))) {
+			position++;
+		}
+	}
+
+	/**
+	 * @param message description of error.
+	 * @return exception which reports error at current position.
+	 */
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + position + " of regular expression.");
+	}
+
+	/**
+	 * Part of expression: whether it accepts the empty word, states which can
+	 * read its first symbol and states which can read its last symbol.
+	 */
+	private static class Fragment {
+
+		/**
+		 * Whether fragment accepts the empty word.
+		 */
+		final boolean nullable;
+
+		/**
+		 * States which can read the first symbol.
+		 */
+		final int[] first;
+
+		/**
+		 * States which can read the last symbol.
+		 */
+		final int[] last;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param nullable whether fragment accepts the empty word.
+		 * @param first    states which can read the first symbol.
+		 * @param last     states which can read the last symbol.
+		 */
+		Fragment(boolean nullable, int[] first, int[] last) {
+			this.nullable = nullable;
+			this.first = first;
+			this.last = last;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+import java.io.PrintStream;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trie of input sequences, used to simulate many sequences with common
+ * prefixes at once.
+ * <p>
+ * Every node is one distinct prefix. Trie is walked depth-first once, keeping
+ * one set of states per depth, so every distinct prefix is stepped exactly
+ * once and its states are written once into a shared buffer. Output lines are
+ * then assembled from those fragments in original order of sequences, with the
+ * same content as {@link Enka#simulate(int[], StringBuilder)} produces.
+ * </p>
+ *
+ * @author dbrcina
+ *
+ */
+public class SequenceTrie {
+
+	/**
+	 * Number of trie nodes, including root.
+	 */
+	private static final Metrics.Counter NODES = Metrics.counter("SimEnka.trieNodes");
+
+	/**
+	 * Parent of every node, root has <code>-1</code>.
+	 */
+	private final IntList parents = new IntList();
+
+	/**
+	 * Symbol which leads from parent into every node.
+	 */
+	private final IntList symbols = new IntList();
+
+	/**
+	 * Last node of every sequence.
+	 */
+	private final int[] ends;
+
+	/**
+	 * Length of every sequence.
+	 */
+	private final int[] lengths;
+
+	/**
+	 * Constructor, inserts all sequences.
+	 *
+	 * @param sequences sequences of symbol indexes, <code>-1</code> for symbol
+	 *                  not in alphabet.
+	 */
+	public SequenceTrie(List<int[]> sequences) {
+		ends = new int[sequences.size()];
+		lengths = new int[sequences.size()];
+		parents.add(-1);
+		symbols.add(-1);
+		Map<Long, Integer> children = new HashMap<>();
+		for (int i = 0; i < ends.length; i++) {
+			int[] sequence = sequences.get(i);
+			int node = 0;
+			for (int symbol : sequence) {
+				long key = ((long) node << 32) | (symbol & 0xFFFFFFFFL);
+				Integer child = children.get(key);
+				if (child == null) {
+					child = parents.size();
+					parents.add(node);
+					symbols.add(symbol);
+					children.put(key, child);
+				}
+				node = child;
+			}
+			ends[i] = node;
+			lengths[i] = sequence.length;
+		}
+	}
+
+	/**
+	 * @return number of nodes, including root.
+	 */
+	public int size() {
+		return parents.size();
+	}
+
+	/**
+	 * Simulates <code>enka</code> on every sequence and prints one line per
+	 * sequence onto <code>out</code>, in order of insertion.
+	 *
+	 * @param enka automaton.
+	 * @param out  where results are printed.
+	 */
+	public void simulate(Enka enka, PrintStream out) {
+		int size = size();
+		if (Metrics.ENABLED) {
+			NODES.add(size);
+		}
+
+		// children of every node, grouped by parent
+		int[] start = new int[size + 1];
+		for (int node = 1; node < size; node++) {
+			start[parents.get(node) + 1]++;
+		}
+		for (int node = 0; node < size; node++) {
+			start[node + 1] += start[node];
+		}
+		int[] fill = new int[size];
+		System.arraycopy(start, 0, fill, 0, size);
+		int[] children = new int[Math.max(size - 1, 0)];
+		for (int node = 1; node < size; node++) {
+			children[fill[parents.get(node)]++] = node;
+		}
+
+		// depth-first walk, states of node are written as fragment of text
+		StringBuilder text = new StringBuilder();
+		int[] textStart = new int[size];
+		int[] textEnd = new int[size];
+		int[] depths = new int[size];
+		int maxDepth = 0;
+		for (int length : lengths) {
+			maxDepth = Math.max(maxDepth, length);
+		}
+		BitSet[] sets = new BitSet[maxDepth + 1];
+		for (int depth = 0; depth <= maxDepth; depth++) {
+			sets[depth] = new BitSet(enka.stateCount());
+		}
+		int[] stack = new int[size];
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			int depth = node == 0 ? 0 : depths[parents.get(node)] + 1;
+			depths[node] = depth;
+			if (node == 0) {
+				enka.initialStates(sets[0]);
+			} else {
+				enka.step(sets[depth - 1], symbols.get(node), sets[depth]);
+			}
+			textStart[node] = text.length();
+			enka.appendStates(sets[depth], text);
+			textEnd[node] = text.length();
+			for (int i = start[node + 1] - 1; i >= start[node]; i--) {
+				stack[top++] = children[i];
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		int[] path = new int[maxDepth + 1];
+		for (int i = 0; i < ends.length; i++) {
+			int length = 0;
+			for (int node = ends[i]; node >= 0; node = parents.get(node)) {
+				path[length++] = node;
+			}
+			for (int j = length - 1; j >= 0; j--) {
+				if (j < length - 1) {
+					sb.append(Enka.STEP_SEPARATOR);
+				}
+				sb.append(text, textStart[path[j]], textEnd[path[j]]);
+			}
+			sb.append('\n');
+			out.print(sb);
+			sb.setLength(0);
+		}
+	}
+}
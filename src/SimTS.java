@@ -1,13 +1,27 @@
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A program which simulates <i>Turing machine</i>.
+ * <p>
+ * Machine is loaded by {@link AutomatonCache} and simulation is done by
+ * {@link TS}. With option <code>--compile</code> machine is first compiled
+ * into bytecode by {@link TSCompiler}, unless it is too large. Head stops at
+ * the last of the first {@value TS#CELLS} cells of tape, as in the original
+ * program; with option <code>--whole-tape</code> it may reach every cell of a
+ * longer tape, also when machine is nondeterministic.
+ * </p>
+ * <p>
+ * With option <code>--nondeterministic</code> transitions may list several
+ * successors and configurations are explored by {@link Nts}, by all available
+ * processors with <code>--parallel</code> or by given number of threads with
+ * <code>--parallel=&lt;threads&gt;</code>. Option
+ * <code>--budget=&lt;configurations&gt;</code> limits number of visited
+ * configurations, {@value #DEFAULT_BUDGET} by default. When budget is exhausted
+ * before an accepting configuration is found, printed configuration is not a
+ * result of machine, so a warning is printed onto {@link System#err} and
+ * program exits with status {@value #EXHAUSTED_STATUS}.
+ * </p>
  * 
  * @author dbrcina
  *
@@ -15,69 +29,34 @@ import java.util.function.Function;
 public class SimTS {
 
 	/**
-	 * Separator for input text.
+	 * Option which compiles machine before simulation.
 	 */
-	private static final String INPUT_SEPARATOR = ",";
-	/**
-	 * Separator for transitions.
-	 */
-	private static final String TRANSITION_SEPARATOR = "->";
-	/**
-	 * Separator for output text.
-	 */
-	private static final String OUTPUT_SEPARATOR = "|";
-	/**
-	 * Minimum index position.
-	 */
-	private static final int MIN_POSITION = 0;
-	/**
-	 * Maximum index position.
-	 */
-	private static final int MAX_POSITION = 69;
-	/**
-	 * All states.
-	 */
-	@SuppressWarnings("unused")
-	private static Set<String> states;
-	/**
-	 * All input symbols.
-	 */
-	@SuppressWarnings("unused")
-	private static Set<String> inputSymbols;
-	/**
-	 * All tape symbols.
-	 */
-	@SuppressWarnings("unused")
-	private static Set<String> tapeSymbols;
-	/**
-	 * Empty tape symbol.
-	 */
-	@SuppressWarnings("unused")
-	private static String emptyTapeSymbol;
-	/**
-	 * An array of tape records.
-	 */
-	private static String[] tapeRecord;
+	private static final String COMPILE_OPTION = "--compile";
+
 	/**
-	 * Acceptable states.
+	 * Option which lets head reach every cell of tape.
 	 */
-	private static Set<String> acceptableStates;
+	private static final String WHOLE_TAPE_OPTION = "--whole-tape";
+
 	/**
-	 * Initial state.
+	 * Option which reads nondeterministic machine.
 	 */
-	private static String initialState;
+	private static final String NONDETERMINISTIC_OPTION = "--nondeterministic";
+
 	/**
-	 * Initial position.
+	 * Prefix of option which limits number of visited configurations.
 	 */
-	private static Integer initialPosition;
+	private static final String BUDGET_OPTION = "--budget=";
+
 	/**
-	 * All transitions.
+	 * Default maximal number of visited configurations.
 	 */
-	private static Map<String, String> transitions;
+	private static final long DEFAULT_BUDGET = 1_000_000;
+
 	/**
-	 * Function used for converting an array into TreeSet.
+	 * Exit status of exploration which exhausted its budget.
 	 */
-	private static Function<String[], Set<String>> function = array -> new TreeSet<String>(Arrays.asList(array));
+	private static final int EXHAUSTED_STATUS = 2;
 
 	/**
 	 * Main entry of this program.
@@ -85,96 +64,82 @@ public class SimTS {
 	 * @param args arguments.
 	 */
 	public static void main(String[] args) {
+		int cells = Arrays.asList(args).contains(WHOLE_TAPE_OPTION) ? Integer.MAX_VALUE : TS.CELLS;
+		if (Arrays.asList(args).contains(NONDETERMINISTIC_OPTION)) {
+			explore(args, cells);
+			return;
+		}
+		TS ts;
 		try {
-			TSInitialization();
+			ts = TSInitialization(args);
 		} catch (Exception e) {
 			System.out.println("Error occured while initializing TS automata");
 			System.exit(-1);
+			return;
 		}
-		TSSimulation();
+		TS.Runner runner = Arrays.asList(args).contains(COMPILE_OPTION) ? TSCompiler.compile(ts) : null;
+		System.out.print(runner == null ? ts.simulate(cells) : ts.simulate(runner, cells));
 	}
 
 	/**
-	 * Initializatio of <i>Turing machine</i>.
+	 * Explores nondeterministic machine and prints the reported configuration.
+	 * If budget is exhausted, a warning is printed onto {@link System#err} and
+	 * program exits with status {@value #EXHAUSTED_STATUS}.
+	 * 
+	 * @param args  arguments.
+	 * @param cells number of cells which head may reach.
 	 */
-	private static void TSInitialization() {
-		try (Scanner sc = new Scanner(System.in)) {
-
-			// all states
-			states = function.apply(sc.nextLine().split(INPUT_SEPARATOR));
-
-			// input symbols
-			inputSymbols = function.apply(sc.nextLine().split(INPUT_SEPARATOR));
-
-			// track symbols
-			tapeSymbols = function.apply(sc.nextLine().split(INPUT_SEPARATOR));
-
-			// empty track symbol
-			emptyTapeSymbol = sc.nextLine();
-
-			// tape record
-			tapeRecord = sc.nextLine().trim().split("");
-
-			// acceptable states
-			acceptableStates = function.apply(sc.nextLine().split(INPUT_SEPARATOR));
-
-			// initial state
-			initialState = sc.nextLine();
-
-			// initial position of head
-			initialPosition = Integer.parseInt(sc.nextLine());
-
-			initTransitionsMap(sc);
+	private static void explore(String[] args, int cells) {
+		Nts nts;
+		try {
+			nts = AutomatonReader.open(args).readNts();
+		} catch (Exception e) {
+			System.out.println("Error occured while initializing TS automata");
+			System.exit(-1);
+			return;
+		}
+		ForkJoinPool pool = Parallelism.pool(args);
+		Nts.Exploration exploration;
+		try {
+			exploration = nts.explore(pool, budget(args), cells);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+		System.out.print(exploration.configuration());
+		System.out.flush();
+		if (exploration.isExhausted() && !exploration.isAccepted()) {
+			System.err.println("Budget exhausted after " + exploration.configurations()
+					+ " configurations, printed configuration is not a result of machine.");
+			System.exit(EXHAUSTED_STATUS);
 		}
-
 	}
 
 	/**
-	 * Initialization of transitions map.
+	 * Reads budget from option {@value #BUDGET_OPTION}.
 	 * 
-	 * @param sc scanner.
+	 * @param args arguments.
+	 * @return maximal number of visited configurations.
 	 */
-	private static void initTransitionsMap(Scanner sc) {
-		transitions = new TreeMap<>();
-		while (sc.hasNextLine()) {
-			String line = sc.nextLine();
-
-			if (line.isEmpty())
-				break;
-
-			String[] parts = line.split(TRANSITION_SEPARATOR);
-			transitions.put(parts[0], parts[1]);
+	private static long budget(String[] args) {
+		for (String arg : args) {
+			if (arg.startsWith(BUDGET_OPTION)) {
+				return Long.parseLong(arg.substring(BUDGET_OPTION.length()));
+			}
 		}
+		return DEFAULT_BUDGET;
 	}
 
 	/**
-	 * Simulation of <i>Turing machine.</i>
+	 * Initializatio of <i>Turing machine</i>, reading from {@link System#in} or
+	 * from file given as the first argument.
+	 * 
+	 * @param args arguments.
+	 * @return machine.
+	 * @throws Exception if machine could not be read.
 	 */
-	private static void TSSimulation() {
-		String currentState = initialState;
-		int currentPosition = initialPosition;
-		String currentTapeSymbol = tapeRecord[currentPosition];
-		String transitionResult = transitions.get(currentState + INPUT_SEPARATOR + currentTapeSymbol);
-
-		while (transitionResult != null) {
-			String[] resultParts = transitionResult.split(INPUT_SEPARATOR);
-			String direction = resultParts[2];
-
-			if (currentPosition == MIN_POSITION && direction.equals("L")
-					|| currentPosition == MAX_POSITION && direction.equals("R"))
-				break;
-
-			currentState = resultParts[0];
-			tapeRecord[currentPosition] = resultParts[1];
-			currentPosition = direction.equals("R") ? ++currentPosition : --currentPosition;
-			currentTapeSymbol = tapeRecord[currentPosition];
-			transitionResult = transitions.get(currentState + INPUT_SEPARATOR + currentTapeSymbol);
-		}
-
-		System.out.print(currentState + OUTPUT_SEPARATOR + currentPosition + OUTPUT_SEPARATOR);
-		for (String record : tapeRecord) {
-			System.out.print(record);
-		}
-		System.out.print(OUTPUT_SEPARATOR + (acceptableStates.contains(currentState) ? 1 : 0));
+	private static TS TSInitialization(String[] args) throws Exception {
+		return AutomatonCache.load(args, CompiledAutomaton.Kind.TS).ts();
 	}
 }
@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Allocator of flat tables used by large automata and their minimization.
+ * <p>
+ * By default tables live on heap. With option <code>--off-heap</code> they are
+ * allocated as direct buffers, which are not scanned nor moved by garbage
+ * collector but are limited by <code>-XX:MaxDirectMemorySize</code>. With
+ * <code>--off-heap=&lt;directory&gt;</code> they are memory mapped temporary
+ * files in given directory, limited only by disk and paged in and out by
+ * operating system, so tables can be larger than both heap and physical
+ * memory. Temporary files are deleted as soon as they are mapped.
+ * </p>
+ * <p>
+ * Every table is zero-filled and has native byte order. One table holds at
+ * most {@link Integer#MAX_VALUE} bytes.
+ * </p>
+ *
+ * @author dbrcina
+ *
+ */
+public class Storage {
+
+	/**
+	 * Option which enables off-heap tables.
+	 */
+	public static final String OFF_HEAP_OPTION = "--off-heap";
+
+	/**
+	 * Storage which allocates tables on heap.
+	 */
+	public static final Storage HEAP = new Storage(false, null);
+
+	/**
+	 * Whether tables are allocated outside of heap.
+	 */
+	private final boolean offHeap;
+
+	/**
+	 * Directory of memory mapped tables or <code>null</code> for direct buffers.
+	 */
+	private final Path directory;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param offHeap   whether tables are allocated outside of heap.
+	 * @param directory directory of memory mapped tables or <code>null</code>
+	 *                  for direct buffers.
+	 */
+	public Storage(boolean offHeap, Path directory) {
+		this.offHeap = offHeap;
+		this.directory = directory;
+	}
+
+	/**
+	 * Creates storage from program arguments.
+	 *
+	 * @param args program arguments.
+	 * @return storage, {@link #HEAP} if option {@value #OFF_HEAP_OPTION} is not
+	 *         given.
+	 */
+	public static Storage of(String[] args) {
+		for (String arg : args) {
+			if (arg.equals(OFF_HEAP_OPTION)) {
+				return new Storage(true, null);
+			}
+			if (arg.startsWith(OFF_HEAP_OPTION + "=")) {
+				return new Storage(true, Paths.get(arg.substring(OFF_HEAP_OPTION.length() + 1)));
+			}
+		}
+		return HEAP;
+	}
+
+	/**
+	 * Allocates table of integers.
+	 *
+	 * @param length number of integers.
+	 * @return zero-filled table.
+	 */
+	public IntBuffer allocateInts(int length) {
+		if (!offHeap) {
+			return IntBuffer.wrap(new int[length]);
+		}
+		if (length > Integer.MAX_VALUE / Integer.BYTES) {
+			throw new IllegalArgumentException("Table of " + length + " integers is too large.");
+		}
+		return allocate(length * Integer.BYTES).asIntBuffer();
+	}
+
+	/**
+	 * Allocates table of bytes.
+	 *
+	 * @param length number of bytes.
+	 * @return zero-filled table.
+	 */
+	public ByteBuffer allocateBytes(int length) {
+		return offHeap ? allocate(length) : ByteBuffer.wrap(new byte[length]);
+	}
+
+	/**
+	 * Allocates off-heap buffer.
+	 *
+	 * @param bytes size in bytes.
+	 * @return zero-filled buffer in native byte order.
+	 */
+	private ByteBuffer allocate(int bytes) {
+		if (directory == null) {
+			return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		}
+		try {
+			Files.createDirectories(directory);
+			Path file = Files.createTempFile(directory, "table", ".tmp");
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes).order(ByteOrder.nativeOrder());
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Computes length of a table with <code>rows</code> rows of
+	 * <code>columns</code> elements.
+	 *
+	 * @param rows    number of rows.
+	 * @param columns number of columns.
+	 * @return number of elements.
+	 * @throws IllegalArgumentException if table would have more than
+	 *                                  {@link Integer#MAX_VALUE} elements.
+	 */
+	public static int length(int rows, int columns) {
+		long length = (long) rows * columns;
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Table of " + rows + " x " + columns + " elements is too large.");
+		}
+		return (int) length;
+	}
+}
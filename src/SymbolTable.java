@@ -0,0 +1,288 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table which maps names of states and symbols onto consecutive
+ * integer indexes starting from <code>0</code>. Every automaton model keeps its
+ * names in such tables and works with indexes only.
+ * <p>
+ * Tables of very large automata do not have to hold their names as
+ * {@link String}s: {@link #mapped(IntBuffer, ByteBuffer)} decodes names from a
+ * buffer on demand and {@link #subset(SymbolTable, IntBuffer)} is a view of
+ * some names of another table.
+ * </p>
+ * 
+ * @author dbrcina
+ *
+ */
+public class SymbolTable {
+
+	/**
+	 * Names ordered by their indexes.
+	 */
+	private final String[] names;
+
+	/**
+	 * Map from name onto its index.
+	 */
+	private final Map<String, Integer> indexes;
+
+	/**
+	 * Constructor. Duplicate names are ignored.
+	 * 
+	 * @param names names ordered by their indexes.
+	 */
+	public SymbolTable(String[] names) {
+		List<String> unique = new ArrayList<>(names.length);
+		indexes = new HashMap<>();
+		for (String name : names) {
+			if (indexes.putIfAbsent(name, unique.size()) == null) {
+				unique.add(name);
+			}
+		}
+		this.names = unique.toArray(new String[unique.size()]);
+	}
+
+	/**
+	 * Constructor used by tables which keep their names elsewhere.
+	 */
+	private SymbolTable() {
+		names = null;
+		indexes = null;
+	}
+
+	/**
+	 * Creates table whose names are decoded from <code>blob</code> when they are
+	 * needed. Names must be unique and sorted in their natural ordering, like
+	 * names of tables created by {@link #sorted(String[])}, because they are
+	 * looked up by binary search.
+	 * 
+	 * @param offsets offset of every name in <code>blob</code>, followed by
+	 *                length of <code>blob</code>.
+	 * @param blob    UTF-8 encoded names.
+	 * @return new table.
+	 */
+	static SymbolTable mapped(IntBuffer offsets, ByteBuffer blob) {
+		return new Mapped(offsets, blob);
+	}
+
+	/**
+	 * Creates view of names of <code>table</code> stored under
+	 * <code>indexes</code>, in their order.
+	 * 
+	 * @param table   table.
+	 * @param indexes increasing indexes of names in <code>table</code>.
+	 * @return new table.
+	 */
+	static SymbolTable subset(SymbolTable table, IntBuffer indexes) {
+		return new Subset(table, indexes);
+	}
+
+	/**
+	 * Creates new table whose indexes follow natural ordering of
+	 * <code>names</code>.
+	 * 
+	 * @param names names.
+	 * @return new sorted table.
+	 */
+	public static SymbolTable sorted(String[] names) {
+		String[] copy = names.clone();
+		Arrays.sort(copy);
+		return new SymbolTable(copy);
+	}
+
+	/**
+	 * Returns index of <code>name</code>.
+	 * 
+	 * @param name name.
+	 * @return index of {@code name} or <code>-1</code> if it is not in this table.
+	 */
+	public int indexOf(String name) {
+		Integer index = indexes.get(name);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns name stored under <code>index</code>.
+	 * 
+	 * @param index index.
+	 * @return name.
+	 */
+	public String name(int index) {
+		return names[index];
+	}
+
+	/**
+	 * @return number of names stored in this table.
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * Table of sorted names decoded from a buffer on demand.
+	 */
+	private static class Mapped extends SymbolTable {
+
+		/**
+		 * Offset of every name, followed by length of {@link #blob}.
+		 */
+		private final IntBuffer offsets;
+
+		/**
+		 * UTF-8 encoded names.
+		 */
+		private final ByteBuffer blob;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param offsets offset of every name, followed by length of blob.
+		 * @param blob    UTF-8 encoded names.
+		 */
+		Mapped(IntBuffer offsets, ByteBuffer blob) {
+			this.offsets = offsets;
+			this.blob = blob;
+		}
+
+		@Override
+		public int indexOf(String name) {
+			int low = 0;
+			int high = size() - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int comparison = name(middle).compareTo(name);
+				if (comparison < 0) {
+					low = middle + 1;
+				} else if (comparison > 0) {
+					high = middle - 1;
+				} else {
+					return middle;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String name(int index) {
+			int start = offsets.get(index);
+			byte[] bytes = new byte[offsets.get(index + 1) - start];
+			blob.get(start, bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public int size() {
+			return offsets.limit() - 1;
+		}
+	}
+
+	/**
+	 * View of some names of another table.
+	 */
+	private static class Subset extends SymbolTable {
+
+		/**
+		 * Viewed table.
+		 */
+		private final SymbolTable table;
+
+		/**
+		 * Increasing indexes of names in {@link #table}.
+		 */
+		private final IntBuffer indexes;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param table   viewed table.
+		 * @param indexes increasing indexes of names in viewed table.
+		 */
+		Subset(SymbolTable table, IntBuffer indexes) {
+			this.table = table;
+			this.indexes = indexes;
+		}
+
+		@Override
+		public int indexOf(String name) {
+			int index = table.indexOf(name);
+			int low = 0;
+			int high = size() - 1;
+			while (index >= 0 && low <= high) {
+				int middle = (low + high) >>> 1;
+				int value = indexes.get(middle);
+				if (value < index) {
+					low = middle + 1;
+				} else if (value > index) {
+					high = middle - 1;
+				} else {
+					return middle;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String name(int index) {
+			return table.name(indexes.get(index));
+		}
+
+		@Override
+		public int size() {
+			return indexes.limit();
+		}
+	}
+
+	/**
+	 * A builder which interns names in order of their first appearance.
+	 */
+	public static class Builder {
+
+		/**
+		 * Names ordered by their indexes.
+		 */
+		private final List<String> names = new ArrayList<>();
+
+		/**
+		 * Map from name onto its index.
+		 */
+		private final Map<String, Integer> indexes = new HashMap<>();
+
+		/**
+		 * Returns index of <code>name</code>, assigning next free index if it was not
+		 * seen before.
+		 * 
+		 * @param name name.
+		 * @return index of {@code name}.
+		 */
+		public int intern(String name) {
+			Integer index = indexes.get(name);
+			if (index == null) {
+				index = names.size();
+				indexes.put(name, index);
+				names.add(name);
+			}
+			return index;
+		}
+
+		/**
+		 * @return number of names interned so far.
+		 */
+		public int size() {
+			return names.size();
+		}
+
+		/**
+		 * @return new table with all names interned so far.
+		 */
+		public SymbolTable build() {
+			return new SymbolTable(names.toArray(new String[names.size()]));
+		}
+	}
+}
@@ -0,0 +1,343 @@
+/**
+ * Immutable model of deterministic <i>Turing machine</i> with a tape of fixed
+ * length. Transitions are stored in flat arrays, row per state and column per
+ * tape symbol.
+ * 
+ * @author dbrcina
+ *
+ */
+public class TS {
+
+	/**
+	 * Value of an undefined transition.
+	 */
+	public static final int UNDEFINED = -1;
+
+	/**
+	 * Head movement to the left.
+	 */
+	public static final int LEFT = -1;
+
+	/**
+	 * Head movement to the right.
+	 */
+	public static final int RIGHT = 1;
+
+	/**
+	 * Number of cells at the start of tape which head may reach by default. Head
+	 * of the original program stops at position <code>69</code>, so cells of
+	 * longer tapes after it are never reached.
+	 */
+	public static final int CELLS = 70;
+
+	/**
+	 * Separator for output text.
+	 */
+	private static final char OUTPUT_SEPARATOR = '|';
+
+	/**
+	 * Number of simulated steps.
+	 */
+	private static final Metrics.Counter STEPS = Metrics.counter("SimTS.steps");
+
+	/**
+	 * Number of distinct tape cells under head during simulation.
+	 */
+	private static final Metrics.Counter CELLS_TOUCHED = Metrics.counter("SimTS.cellsTouched");
+
+	/**
+	 * Time spent simulating.
+	 */
+	private static final Metrics.Timer SIMULATE = Metrics.timer("SimTS.simulate");
+
+	static {
+		Metrics.rate("SimTS.stepsPerSecond", STEPS, SIMULATE);
+	}
+
+	/**
+	 * Every possible state.
+	 */
+	private final SymbolTable states;
+
+	/**
+	 * Tape symbols.
+	 */
+	private final SymbolTable tapeSymbols;
+
+	/**
+	 * Initial tape record.
+	 */
+	private final int[] tape;
+
+	/**
+	 * Flags of acceptable states, indexed by state.
+	 */
+	private final boolean[] acceptable;
+
+	/**
+	 * Initial state.
+	 */
+	private final int initialState;
+
+	/**
+	 * Initial position of head.
+	 */
+	private final int initialPosition;
+
+	/**
+	 * Next state for every (state, tape symbol) pair or {@link #UNDEFINED}.
+	 */
+	private final int[] nextStates;
+
+	/**
+	 * Written tape symbol for every (state, tape symbol) pair.
+	 */
+	private final int[] writes;
+
+	/**
+	 * Head movement for every (state, tape symbol) pair, {@link #LEFT} or
+	 * {@link #RIGHT}.
+	 */
+	private final int[] moves;
+
+	/**
+	 * Constructor. Arrays are not copied, caller must not modify them afterwards.
+	 * 
+	 * @param states          every possible state.
+	 * @param tapeSymbols     tape symbols.
+	 * @param tape            initial tape record.
+	 * @param acceptable      flags of acceptable states.
+	 * @param initialState    initial state.
+	 * @param initialPosition initial position of head.
+	 * @param nextStates      next state for every (state, tape symbol) pair.
+	 * @param writes          written tape symbol for every pair.
+	 * @param moves           head movement for every pair.
+	 */
+	public TS(SymbolTable states, SymbolTable tapeSymbols, int[] tape, boolean[] acceptable, int initialState,
+			int initialPosition, int[] nextStates, int[] writes, int[] moves) {
+		int size = states.size() * tapeSymbols.size();
+		if (acceptable.length != states.size() || nextStates.length != size || writes.length != size
+				|| moves.length != size) {
+			throw new IllegalArgumentException("Transition table does not match states and symbols.");
+		}
+		if (initialPosition < 0 || initialPosition >= tape.length) {
+			throw new IllegalArgumentException("Initial position is outside of tape.");
+		}
+		this.states = states;
+		this.tapeSymbols = tapeSymbols;
+		this.tape = tape;
+		this.acceptable = acceptable;
+		this.initialState = initialState;
+		this.initialPosition = initialPosition;
+		this.nextStates = nextStates;
+		this.writes = writes;
+		this.moves = moves;
+	}
+
+	/**
+	 * @return table of states.
+	 */
+	public SymbolTable states() {
+		return states;
+	}
+
+	/**
+	 * @return table of tape symbols.
+	 */
+	public SymbolTable tapeSymbols() {
+		return tapeSymbols;
+	}
+
+	/**
+	 * @return copy of initial tape record.
+	 */
+	public int[] tape() {
+		return tape.clone();
+	}
+
+	/**
+	 * @return initial state.
+	 */
+	public int initialState() {
+		return initialState;
+	}
+
+	/**
+	 * @return initial position of head.
+	 */
+	public int initialPosition() {
+		return initialPosition;
+	}
+
+	/**
+	 * Checks whether <code>state</code> is acceptable.
+	 * 
+	 * @param state state.
+	 * @return <code>true</code> if {@code state} is acceptable, otherwise
+	 *         <code>false</code>.
+	 */
+	public boolean isAcceptable(int state) {
+		return acceptable[state];
+	}
+
+	/**
+	 * @param state  current state.
+	 * @param symbol tape symbol under head.
+	 * @return next state or {@link #UNDEFINED}.
+	 */
+	public int nextState(int state, int symbol) {
+		return nextStates[state * tapeSymbols.size() + symbol];
+	}
+
+	/**
+	 * @param state  current state.
+	 * @param symbol tape symbol under head.
+	 * @return tape symbol that is written.
+	 */
+	public int write(int state, int symbol) {
+		return writes[state * tapeSymbols.size() + symbol];
+	}
+
+	/**
+	 * @param state  current state.
+	 * @param symbol tape symbol under head.
+	 * @return head movement, {@link #LEFT} or {@link #RIGHT}.
+	 */
+	public int move(int state, int symbol) {
+		return moves[state * tapeSymbols.size() + symbol];
+	}
+
+	/**
+	 * Simulates this machine by <code>runner</code>, for example one compiled by
+	 * {@link TSCompiler}, within the first {@value #CELLS} cells of tape.
+	 * 
+	 * @param runner runner of this machine.
+	 * @return final configuration in form
+	 *         <code>state|position|tape|acceptable</code>.
+	 */
+	public String simulate(Runner runner) {
+		return simulate(runner, CELLS);
+	}
+
+	/**
+	 * Simulates this machine by <code>runner</code> within the first
+	 * <code>cells</code> cells of tape.
+	 * 
+	 * @param runner runner of this machine.
+	 * @param cells  number of cells which head may reach.
+	 * @return final configuration in form
+	 *         <code>state|position|tape|acceptable</code>.
+	 */
+	public String simulate(Runner runner, int cells) {
+		int[] tape = this.tape.clone();
+		int[] configuration = { initialState, initialPosition, lastPosition(cells) };
+		long start = Metrics.ENABLED ? SIMULATE.start() : 0;
+		long steps = runner.run(tape, configuration);
+		if (Metrics.ENABLED) {
+			STEPS.add(steps);
+			SIMULATE.stop(start);
+		}
+		return format(configuration[0], configuration[1], tape);
+	}
+
+	/**
+	 * Simulates this machine until no transition is defined or head would leave
+	 * the first {@value #CELLS} cells of tape.
+	 * 
+	 * @return final configuration in form
+	 *         <code>state|position|tape|acceptable</code>.
+	 */
+	public String simulate() {
+		return simulate(CELLS);
+	}
+
+	/**
+	 * Simulates this machine until no transition is defined or head would leave
+	 * the first <code>cells</code> cells of tape.
+	 * 
+	 * @param cells number of cells which head may reach.
+	 * @return final configuration in form
+	 *         <code>state|position|tape|acceptable</code>.
+	 */
+	public String simulate(int cells) {
+		int[] tape = this.tape.clone();
+		int k = tapeSymbols.size();
+		int state = initialState;
+		int position = initialPosition;
+		int last = lastPosition(cells);
+		long start = Metrics.ENABLED ? SIMULATE.start() : 0;
+		long steps = 0;
+		int leftmost = position;
+		int rightmost = position;
+
+		while (true) {
+			int index = state * k + tape[position];
+			int next = nextStates[index];
+			if (next == UNDEFINED) {
+				break;
+			}
+			int move = moves[index];
+			if (position == 0 && move == LEFT || position >= last && move == RIGHT) {
+				break;
+			}
+			state = next;
+			tape[position] = writes[index];
+			position += move;
+			if (Metrics.ENABLED) {
+				steps++;
+				leftmost = Math.min(leftmost, position);
+				rightmost = Math.max(rightmost, position);
+			}
+		}
+		if (Metrics.ENABLED) {
+			STEPS.add(steps);
+			CELLS_TOUCHED.add(rightmost - leftmost + 1);
+			SIMULATE.stop(start);
+		}
+		return format(state, position, tape);
+	}
+
+	/**
+	 * @param cells number of cells which head may reach.
+	 * @return the last position which head may reach.
+	 */
+	int lastPosition(int cells) {
+		return Math.min(tape.length, cells) - 1;
+	}
+
+	/**
+	 * Formats configuration of this machine.
+	 * 
+	 * @param state    current state.
+	 * @param position position of head.
+	 * @param tape     tape record.
+	 * @return configuration in form <code>state|position|tape|acceptable</code>.
+	 */
+	public String format(int state, int position, int[] tape) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(states.name(state)).append(OUTPUT_SEPARATOR).append(position).append(OUTPUT_SEPARATOR);
+		for (int symbol : tape) {
+			sb.append(tapeSymbols.name(symbol));
+		}
+		sb.append(OUTPUT_SEPARATOR).append(acceptable[state] ? 1 : 0);
+		return sb.toString();
+	}
+
+	/**
+	 * Simulation of one machine with transitions built into code.
+	 */
+	public interface Runner {
+
+		/**
+		 * Runs machine until no transition is defined or head would pass the
+		 * last position it may reach.
+		 * 
+		 * @param tape          tape record, modified in place.
+		 * @param configuration initial state and position of head, replaced by
+		 *                      final ones, followed by the last position head
+		 *                      may reach.
+		 * @return number of steps.
+		 */
+		long run(int[] tape, int[] configuration);
+	}
+}
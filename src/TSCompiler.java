@@ -0,0 +1,127 @@
+/**
+ * Compiler of {@link TS} into a {@link TS.Runner} whose transitions are built
+ * into code.
+ * <p>
+ * Every state becomes one block which switches on tape symbol under head,
+ * writes, moves and either stays in its own loop, when machine remains in the
+ * same state, or jumps to block of the next state. There is no table lookup
+ * per step, so JIT compiles the machine as plain branches. Generated source is
+ * compiled by {@link ClassCompiler}; machines with more than
+ * {@value #MAX_TRANSITIONS} transitions, whose method would be too large for
+ * JIT to compile, are not compiled and are simulated by {@link TS#simulate()}.
+ * </p>
+ *
+ * @author dbrcina
+ *
+ */
+public class TSCompiler {
+
+	/**
+	 * Maximal number of transitions of compiled machine.
+	 */
+	public static final int MAX_TRANSITIONS = 200;
+
+	/**
+	 * Name of generated class.
+	 */
+	private static final String CLASS_NAME = "CompiledTS";
+
+	/**
+	 * Constructor.
+	 */
+	private TSCompiler() {
+	}
+
+	/**
+	 * Compiles <code>ts</code>.
+	 *
+	 * @param ts machine.
+	 * @return runner or <code>null</code> if machine is too large or compiler is
+	 *         not available.
+	 */
+	public static TS.Runner compile(TS ts) {
+		if (transitionCount(ts) > MAX_TRANSITIONS || !ClassCompiler.isAvailable()) {
+			return null;
+		}
+		try {
+			return ClassCompiler.define(ClassCompiler.compile(CLASS_NAME, source(ts)), TS.Runner.class);
+		} catch (IllegalStateException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param ts machine.
+	 * @return number of defined transitions.
+	 */
+	private static int transitionCount(TS ts) {
+		int count = 0;
+		for (int state = 0; state < ts.states().size(); state++) {
+			for (int symbol = 0; symbol < ts.tapeSymbols().size(); symbol++) {
+				if (ts.nextState(state, symbol) != TS.UNDEFINED) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Generates source of runner.
+	 *
+	 * @param ts machine.
+	 * @return source of class {@value #CLASS_NAME}.
+	 */
+	static String source(TS ts) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("public final class ").append(CLASS_NAME).append(" implements TS.Runner {\n");
+		sb.append("\tpublic long run(int[] tape, int[] configuration) {\n");
+		sb.append("\t\tint state = configuration[0];\n");
+		sb.append("\t\tint position = configuration[1];\n");
+		sb.append("\t\tint last = configuration[2];\n");
+		sb.append("\t\tlong steps = 0;\n");
+		sb.append("\t\tmachine: while (true) {\n");
+		sb.append("\t\t\tswitch (state) {\n");
+		for (int state = 0; state < ts.states().size(); state++) {
+			sb.append("\t\t\tcase ").append(state).append(":\n");
+			sb.append("\t\t\t\twhile (true) {\n");
+			sb.append("\t\t\t\t\tswitch (tape[position]) {\n");
+			for (int symbol = 0; symbol < ts.tapeSymbols().size(); symbol++) {
+				int next = ts.nextState(state, symbol);
+				if (next == TS.UNDEFINED) {
+					continue;
+				}
+				boolean right = ts.move(state, symbol) == TS.RIGHT;
+				sb.append("\t\t\t\t\tcase ").append(symbol).append(":\n");
+				sb.append("\t\t\t\t\t\tif (position ").append(right ? ">= last" : "== 0").append(") {\n");
+				sb.append("\t\t\t\t\t\t\tbreak machine;\n");
+				sb.append("\t\t\t\t\t\t}\n");
+				if (ts.write(state, symbol) != symbol) {
+					sb.append("\t\t\t\t\t\ttape[position] = ").append(ts.write(state, symbol)).append(";\n");
+				}
+				sb.append("\t\t\t\t\t\tposition").append(right ? "++" : "--").append(";\n");
+				sb.append("\t\t\t\t\t\tsteps++;\n");
+				if (next == state) {
+					sb.append("\t\t\t\t\t\tcontinue;\n");
+				} else {
+					sb.append("\t\t\t\t\t\tstate = ").append(next).append(";\n");
+					sb.append("\t\t\t\t\t\tcontinue machine;\n");
+				}
+			}
+			sb.append("\t\t\t\t\tdefault:\n");
+			sb.append("\t\t\t\t\t\tbreak machine;\n");
+			sb.append("\t\t\t\t\t}\n");
+			sb.append("\t\t\t\t}\n");
+		}
+		sb.append("\t\t\tdefault:\n");
+		sb.append("\t\t\t\tbreak machine;\n");
+		sb.append("\t\t\t}\n");
+		sb.append("\t\t}\n");
+		sb.append("\t\tconfiguration[0] = state;\n");
+		sb.append("\t\tconfiguration[1] = position;\n");
+		sb.append("\t\treturn steps;\n");
+		sb.append("\t}\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Derivation trace of {@link Parser} and {@link EarleyParser}. Trace is
+ * collected into reusable buffer and written onto its stream in large blocks,
+ * when buffer is full and when parse is finished.
+ * 
+ * @author dbrcina
+ *
+ */
+class TraceWriter {
+
+	/**
+	 * Size of buffer in bytes, also used for buffering whole output of
+	 * {@link Parser}.
+	 */
+	static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Reusable buffer where derivation trace is collected before it is written
+	 * onto {@link #output}.
+	 */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/**
+	 * Number of bytes currently stored in {@link #buffer}.
+	 */
+	private int length;
+
+	/**
+	 * Stream where derivation trace is written.
+	 */
+	private OutputStream output;
+
+	/**
+	 * Starts trace of one parse which is written onto <code>output</code>.
+	 * 
+	 * @param output stream where derivation trace is written.
+	 */
+	void start(OutputStream output) {
+		this.output = output;
+		length = 0;
+	}
+
+	/**
+	 * Appends <code>sign</code> to derivation trace. If {@link #buffer} is full,
+	 * it is flushed first.
+	 * 
+	 * @param sign sign of trace.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	void write(byte sign) throws IOException {
+		if (length == buffer.length) {
+			flush();
+		}
+		buffer[length++] = sign;
+	}
+
+	/**
+	 * Appends <code>signs</code> to derivation trace. If they do not fit into
+	 * {@link #buffer}, it is flushed first.
+	 * 
+	 * @param signs signs of trace.
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	void write(byte[] signs) throws IOException {
+		if (length + signs.length > buffer.length) {
+			flush();
+		}
+		if (signs.length > buffer.length) {
+			output.write(signs);
+			return;
+		}
+		System.arraycopy(signs, 0, buffer, length, signs.length);
+		length += signs.length;
+	}
+
+	/**
+	 * Writes what is left in {@link #buffer} and finishes trace of current
+	 * parse.
+	 * 
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	void finish() throws IOException {
+		try {
+			flush();
+		} finally {
+			output = null;
+		}
+	}
+
+	/**
+	 * Writes content of {@link #buffer} onto {@link #output} and empties buffer
+	 * so it can be reused.
+	 * 
+	 * @throws IOException if derivation trace could not be written.
+	 */
+	private void flush() throws IOException {
+		if (length > 0) {
+			output.write(buffer, 0, length);
+			length = 0;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of cache of {@link AutomatonServer}: requests which differ only in
+ * input sequences must share the cached automaton and print the same output as
+ * automaton parsed together with their sequences.
+ * 
+ * @author dbrcina
+ *
+ */
+class AutomatonServerTest {
+
+	/**
+	 * Definition of epsilon-NFA.
+	 */
+	private static final String ENKA = "p,q,r\na,b\nr\np\np,a->q\np,$->r\nq,b->p,r\nr,a->p,q\n";
+
+	/**
+	 * Definition of pushdown automaton which accepts a<sup>n</sup>b<sup>n</sup>.
+	 */
+	private static final String PA = "q0,q1,q2\na,b\nK,A\nq2\nq0\nK\nq0,a,K->q0,AK\nq0,a,A->q0,AA\n"
+			+ "q0,b,A->q1,$\nq1,b,A->q1,$\nq1,$,K->q2,K\n";
+
+	@Test
+	void reusesEnkaForOtherSequences() {
+		AutomatonServer server = new AutomatonServer(4, 1 << 20);
+		CompiledAutomaton first = server.load(AutomatonServer.Program.SIM_ENKA, request("a,b|b|a,a", ENKA));
+		CompiledAutomaton second = server.load(AutomatonServer.Program.SIM_ENKA, request("b,a,c|a|$", ENKA));
+		assertSame(first.enka(), second.enka());
+		assertEquals(output("a,b|b|a,a", ENKA, CompiledAutomaton.Kind.ENKA, this::simulateEnka),
+				print(first, this::simulateEnka));
+		assertEquals(output("b,a,c|a|$", ENKA, CompiledAutomaton.Kind.ENKA, this::simulateEnka),
+				print(second, this::simulateEnka));
+	}
+
+	@Test
+	void reusesPaForOtherSequences() {
+		AutomatonServer server = new AutomatonServer(4, 1 << 20);
+		CompiledAutomaton first = server.load(AutomatonServer.Program.SIM_PA, request("a,b|a,a,b,b", PA));
+		CompiledAutomaton second = server.load(AutomatonServer.Program.SIM_PA, request("a,a,b|c,a,b|b", PA));
+		assertSame(first.pa(), second.pa());
+		assertEquals(output("a,b|a,a,b,b", PA, CompiledAutomaton.Kind.PA, this::simulatePa),
+				print(first, this::simulatePa));
+		assertEquals(output("a,a,b|c,a,b|b", PA, CompiledAutomaton.Kind.PA, this::simulatePa),
+				print(second, this::simulatePa));
+	}
+
+	@Test
+	void parsesAgainOtherDefinition() {
+		AutomatonServer server = new AutomatonServer(4, 1 << 20);
+		CompiledAutomaton first = server.load(AutomatonServer.Program.SIM_ENKA, request("a", ENKA));
+		CompiledAutomaton second = server.load(AutomatonServer.Program.SIM_ENKA,
+				request("a", ENKA.replace("\nr\np\n", "\nq\np\n")));
+		assertNotSame(first.enka(), second.enka());
+	}
+
+	/**
+	 * @param sequences  line of input sequences.
+	 * @param definition definition of automaton.
+	 * @return text input of request.
+	 */
+	private static byte[] request(String sequences, String definition) {
+		return (sequences + '\n' + definition).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param sequences  line of input sequences.
+	 * @param definition definition of automaton.
+	 * @param kind       kind of automaton.
+	 * @param program    simulation which prints its output.
+	 * @return output of automaton parsed together with its sequences.
+	 */
+	private static String output(String sequences, String definition, CompiledAutomaton.Kind kind,
+			BiConsumer<CompiledAutomaton, PrintStream> program) {
+		return print(RandomAutomata.load(sequences + '\n' + definition, kind), program);
+	}
+
+	/**
+	 * @param automaton loaded automaton.
+	 * @param program   simulation which prints its output.
+	 * @return output of simulation.
+	 */
+	private static String print(CompiledAutomaton automaton, BiConsumer<CompiledAutomaton, PrintStream> program) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (PrintStream printer = new PrintStream(out, false, StandardCharsets.UTF_8)) {
+			program.accept(automaton, printer);
+		}
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param automaton loaded epsilon-NFA.
+	 * @param out       where results are printed.
+	 */
+	private void simulateEnka(CompiledAutomaton automaton, PrintStream out) {
+		SimEnka.simulation(automaton.enka(), automaton.sequences(), out);
+	}
+
+	/**
+	 * @param automaton loaded pushdown automaton.
+	 * @param out       where results are printed.
+	 */
+	private void simulatePa(CompiledAutomaton automaton, PrintStream out) {
+		SimPa.simulation(automaton.pa(), automaton.sequences(), out);
+	}
+}
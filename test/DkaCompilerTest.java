@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Differential tests of {@link DkaCompiler}: compiled matchers of random DKA
+ * must agree with table matchers and with plain simulation, also on symbols
+ * and characters which are not in the alphabet.
+ * 
+ * @author dbrcina
+ *
+ */
+class DkaCompilerTest {
+
+	/**
+	 * Number of random automata, each one is compiled.
+	 */
+	private static final int AUTOMATA = 15;
+
+	/**
+	 * Number of random inputs per automaton.
+	 */
+	private static final int INPUTS = 2000;
+
+	@Test
+	void compiledMatcherAgreesWithSimulation() {
+		Random random = new Random(46);
+		AutomatonCache cache = new AutomatonCache(null);
+		for (int i = 0; i < AUTOMATA; i++) {
+			Dka dka = RandomAutomata.dka(random, 1 + random.nextInt(10), 1 + random.nextInt(4));
+			if (random.nextBoolean()) {
+				dka = DkaMinimizer.minimize(dka);
+			}
+			check(random, dka, DkaCompiler.compile(dka, cache), "automaton " + i);
+		}
+	}
+
+	@Test
+	void cachedClassFileGivesTheSameMatcher(@TempDir Path directory) {
+		Random random = new Random(4646);
+		AutomatonCache cache = new AutomatonCache(directory);
+		Dka dka = RandomAutomata.dka(random, 8, 3);
+		check(random, dka, DkaCompiler.compile(dka, cache), "compiled");
+		check(random, dka, DkaCompiler.compile(dka, cache), "cached");
+	}
+
+	/**
+	 * Compares <code>matcher</code> with table matcher and plain simulation of
+	 * <code>dka</code> on random inputs.
+	 * 
+	 * @param random  source of randomness.
+	 * @param dka     automaton.
+	 * @param matcher compiled matcher of automaton.
+	 * @param message message of failed assertion.
+	 */
+	private static void check(Random random, Dka dka, Dka.Matcher matcher, String message) {
+		assertNotNull(matcher, message);
+		Dka.Matcher table = dka.matcher();
+		int k = dka.symbolCount();
+		for (int i = 0; i < INPUTS; i++) {
+			int length = random.nextInt(12);
+			int[] symbols = new int[length];
+			List<String> word = new ArrayList<>();
+			StringBuilder text = new StringBuilder();
+			for (int j = 0; j < length; j++) {
+				// occasionally a symbol or character outside of alphabet
+				symbols[j] = random.nextInt(50) == 0 ? (random.nextBoolean() ? -1 : k)
+						: random.nextInt(k);
+				String name = symbols[j] >= 0 && symbols[j] < k ? dka.symbols().name(symbols[j]) : "?";
+				word.add(name);
+				text.append(name);
+			}
+			boolean expected = RandomAutomata.accepts(dka, word);
+			assertEquals(expected, table.match(symbols), message);
+			assertEquals(expected, matcher.match(symbols), message);
+			assertEquals(expected, matcher.match(text), message);
+		}
+	}
+}
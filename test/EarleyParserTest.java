@@ -0,0 +1,250 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of {@link EarleyParser}: on grammar of {@link Parser} it
+ * must accept the same inputs and write the same trace as {@link Parser}, also
+ * for rejected inputs, and on small random grammars it must agree with a naive
+ * <i>Earley</i> recognizer, which has neither nullable skipping nor <i>Leo</i>
+ * items, and write a valid leftmost derivation.
+ * 
+ * @author dbrcina
+ *
+ */
+class EarleyParserTest {
+
+	/**
+	 * Nonterminals of random grammars, <code>S</code> is the start symbol.
+	 */
+	private static final String NONTERMINALS = "SABC";
+
+	/**
+	 * Terminals of random grammars.
+	 */
+	private static final String TERMINALS = "ab";
+
+	@Test
+	void agreesWithParserOnItsGrammar() throws IOException {
+		Random random = new Random(48);
+		Parser parser = new Parser(true);
+		EarleyParser earley = new EarleyParser(Grammar.parserGrammar(), true);
+		for (int i = 0; i < 20000; i++) {
+			String input;
+			if (i % 2 == 0) {
+				input = ParserInputs.sentence(random, 0);
+				if (random.nextInt(3) == 0 && !input.isEmpty()) {
+					char[] chars = input.toCharArray();
+					chars[random.nextInt(chars.length)] = "abc".charAt(random.nextInt(3));
+					input = new String(chars);
+				}
+			} else {
+				input = ParserInputs.word(random, "abc", random.nextInt(12));
+			}
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			assertEquals(parser.parse(input.toCharArray(), expected), earley.parse(input.toCharArray(), actual), input);
+			assertEquals(expected.toString(), actual.toString(), input);
+		}
+	}
+
+	@Test
+	void tracesRejectedInputsAsParser() throws IOException {
+		Parser parser = new Parser(true);
+		EarleyParser earley = new EarleyParser(Grammar.parserGrammar(), true);
+		ByteArrayOutputStream trace = new ByteArrayOutputStream();
+		assertEquals(false, earley.parse("bc".toCharArray(), trace));
+		assertEquals("SBA", trace.toString());
+		int rejected = 0;
+		for (int length = 0; length <= 8; length++) {
+			int words = (int) Math.pow(3, length);
+			for (int w = 0; w < words; w++) {
+				char[] input = new char[length];
+				for (int i = 0, rest = w; i < length; i++, rest /= 3) {
+					input[i] = "abc".charAt(rest % 3);
+				}
+				ByteArrayOutputStream expected = new ByteArrayOutputStream();
+				ByteArrayOutputStream actual = new ByteArrayOutputStream();
+				boolean parsable = parser.parse(input, expected);
+				assertEquals(parsable, earley.parse(input, actual), new String(input));
+				assertEquals(expected.toString(), actual.toString(), new String(input));
+				rejected += parsable ? 0 : 1;
+			}
+		}
+		assertTrue(rejected > 0);
+	}
+
+	@Test
+	void agreesWithNaiveRecognizerOnRandomGrammars() throws IOException {
+		Random random = new Random(4848);
+		for (int g = 0; g < 800; g++) {
+			List<List<String>> productions = new ArrayList<>();
+			StringBuilder definition = new StringBuilder();
+			int nonterminals = 1 + random.nextInt(NONTERMINALS.length());
+			for (int x = 0; x < nonterminals; x++) {
+				List<String> alternatives = new ArrayList<>();
+				definition.append(NONTERMINALS.charAt(x)).append(" ->");
+				for (int i = 1 + random.nextInt(3); i > 0; i--) {
+					StringBuilder rhs = new StringBuilder();
+					for (int j = random.nextInt(4); j > 0; j--) {
+						rhs.append(random.nextBoolean() ? TERMINALS.charAt(random.nextInt(TERMINALS.length()))
+								: NONTERMINALS.charAt(random.nextInt(nonterminals)));
+					}
+					alternatives.add(rhs.toString());
+					definition.append(alternatives.size() > 1 ? " | " : " ")
+							.append(rhs.length() == 0 ? "$" : rhs);
+				}
+				productions.add(alternatives);
+				definition.append('\n');
+			}
+			EarleyParser parser = new EarleyParser(Grammar.parse(definition.toString()), true);
+			for (int t = 0; t < 40; t++) {
+				String input = ParserInputs.word(random, TERMINALS, random.nextInt(9));
+				ByteArrayOutputStream trace = new ByteArrayOutputStream();
+				boolean parsable = parser.parse(input.toCharArray(), trace);
+				assertEquals(recognize(productions, input), parsable, definition + input);
+				if (parsable) {
+					assertTrue(derives(productions, new ArrayDeque<>(List.of('S')), trace.toString(), 0, input, 0),
+							definition + input + " " + trace);
+				}
+			}
+		}
+	}
+
+	@Test
+	void parsesLongRightAndLeftRecursion() throws IOException {
+		int n = 50000;
+		String[] grammars = { "S -> aS | $", "S -> Sa | $", "S -> aSb | $" };
+		String[] inputs = { "a".repeat(n), "a".repeat(n), "a".repeat(n / 2) + "b".repeat(n / 2) };
+		for (int i = 0; i < grammars.length; i++) {
+			EarleyParser parser = new EarleyParser(Grammar.parse(grammars[i]), true);
+			ByteArrayOutputStream trace = new ByteArrayOutputStream();
+			assertTrue(parser.parse(inputs[i].toCharArray(), trace), grammars[i]);
+			assertEquals("S".repeat(i < 2 ? n + 1 : n / 2 + 1), trace.toString(), grammars[i]);
+			assertEquals(false, parser.parse((inputs[i] + "b").toCharArray(), new ByteArrayOutputStream()),
+					grammars[i]);
+		}
+	}
+
+	/**
+	 * Naive <i>Earley</i> recognizer which repeats prediction, scanning and
+	 * completion in every set until nothing changes. Item is a list of
+	 * nonterminal, alternative, dot position and origin.
+	 * 
+	 * @param productions alternatives of every nonterminal.
+	 * @param input       input.
+	 * @return <code>true</code> if <code>S</code> derives input.
+	 */
+	private static boolean recognize(List<List<String>> productions, String input) {
+		int n = input.length();
+		List<Set<List<Integer>>> sets = new ArrayList<>();
+		for (int j = 0; j <= n; j++) {
+			sets.add(new HashSet<>());
+		}
+		for (int i = 0; i < productions.get(0).size(); i++) {
+			sets.get(0).add(List.of(0, i, 0, 0));
+		}
+		for (int j = 0; j <= n; j++) {
+			Set<List<Integer>> set = sets.get(j);
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (List<Integer> item : new ArrayList<>(set)) {
+					String rhs = productions.get(item.get(0)).get(item.get(1));
+					int dot = item.get(2);
+					int origin = item.get(3);
+					if (dot == rhs.length()) {
+						for (List<Integer> waiting : new ArrayList<>(sets.get(origin))) {
+							String other = productions.get(waiting.get(0)).get(waiting.get(1));
+							if (waiting.get(2) < other.length()
+									&& other.charAt(waiting.get(2)) == NONTERMINALS.charAt(item.get(0))) {
+								changed |= set.add(List.of(waiting.get(0), waiting.get(1), waiting.get(2) + 1,
+										waiting.get(3)));
+							}
+						}
+						continue;
+					}
+					int x = NONTERMINALS.indexOf(rhs.charAt(dot));
+					if (x < 0) {
+						if (j < n && input.charAt(j) == rhs.charAt(dot)) {
+							sets.get(j + 1).add(List.of(item.get(0), item.get(1), dot + 1, origin));
+						}
+						continue;
+					}
+					for (int i = 0; i < productions.get(x).size(); i++) {
+						changed |= set.add(List.of(x, i, 0, j));
+					}
+				}
+			}
+		}
+		for (List<Integer> item : sets.get(n)) {
+			if (item.get(0) == 0 && item.get(3) == 0
+					&& item.get(2) == productions.get(0).get(item.get(1)).length()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether <code>trace</code> from <code>index</code> on is a
+	 * leftmost derivation of <code>input</code> from <code>position</code> on,
+	 * starting with sentential form on <code>stack</code>.
+	 * 
+	 * @param productions alternatives of every nonterminal.
+	 * @param stack       unexpanded symbols, the leftmost on top.
+	 * @param trace       expanded nonterminals in order of expansion.
+	 * @param index       index of next expanded nonterminal in trace.
+	 * @param input       input.
+	 * @param position    index of next unmatched input sign.
+	 * @return <code>true</code> if trace is a derivation of input.
+	 */
+	private static boolean derives(List<List<String>> productions, Deque<Character> stack, String trace, int index,
+			String input, int position) {
+		// every nonterminal on stack takes a trace entry and every terminal a sign
+		int nonterminals = 0;
+		for (char symbol : stack) {
+			nonterminals += NONTERMINALS.indexOf(symbol) >= 0 ? 1 : 0;
+		}
+		if (nonterminals > trace.length() - index || stack.size() - nonterminals > input.length() - position) {
+			return false;
+		}
+		if (stack.isEmpty()) {
+			return index == trace.length() && position == input.length();
+		}
+		char symbol = stack.pop();
+		try {
+			int x = NONTERMINALS.indexOf(symbol);
+			if (x < 0) {
+				return position < input.length() && input.charAt(position) == symbol
+						&& derives(productions, stack, trace, index, input, position + 1);
+			}
+			if (index == trace.length() || trace.charAt(index) != symbol) {
+				return false;
+			}
+			for (String rhs : productions.get(x)) {
+				Deque<Character> expanded = new ArrayDeque<>(stack);
+				for (int i = rhs.length() - 1; i >= 0; i--) {
+					expanded.push(rhs.charAt(i));
+				}
+				if (derives(productions, expanded, trace, index + 1, input, position)) {
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			stack.push(symbol);
+		}
+	}
+}
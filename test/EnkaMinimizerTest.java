@@ -0,0 +1,146 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of {@link EnkaMinimizer}: <i>Brzozowski</i>'s result for
+ * random epsilon-NFA is compared with forward subset construction followed by
+ * {@link DkaMinimizer}.
+ * 
+ * @author dbrcina
+ *
+ */
+class EnkaMinimizerTest {
+
+	/**
+	 * Number of random automata.
+	 */
+	private static final int AUTOMATA = 5000;
+
+	@Test
+	void agreesWithSubsetConstructionAndMinimization() {
+		Random random = new Random(50);
+		for (int i = 0; i < AUTOMATA; i++) {
+			Enka enka = RandomAutomata.enka(random, 1 + random.nextInt(9), 1 + random.nextInt(3));
+			Dka minimal = EnkaMinimizer.minimize(enka);
+			Dka reference = DkaMinimizer.minimize(determinize(enka, minimal.symbols()));
+			String message = "automaton " + i;
+			assertNull(LanguageChecker.equivalence(minimal, reference), message);
+			assertEquals(liveStates(reference), minimal.stateCount(), message);
+			assertEquals(minimal.stateCount(), DkaMinimizer.minimize(minimal).stateCount(), message);
+		}
+	}
+
+	@Test
+	void acceptsLanguageOfAutomaton() {
+		Random random = new Random(5050);
+		String[] symbols = RandomAutomata.alphabet(2);
+		List<List<String>> words = RandomAutomata.words(symbols, 7);
+		for (int i = 0; i < 500; i++) {
+			Enka enka = RandomAutomata.enka(random, 1 + random.nextInt(6), symbols.length);
+			Dka minimal = EnkaMinimizer.minimize(enka);
+			for (List<String> word : words) {
+				assertEquals(RandomAutomata.accepts(enka, word), RandomAutomata.accepts(minimal, word),
+						"automaton " + i + " on " + word);
+			}
+		}
+	}
+
+	@Test
+	void namesStatesInBreadthFirstOrder() {
+		Enka enka = RandomAutomata.load("a\ns0,s1,s2\na,b\ns2\ns0\ns0,b->s1\ns1,$->s2\ns2,a->s0\n",
+				CompiledAutomaton.Kind.ENKA).enka();
+		Dka minimal = EnkaMinimizer.minimize(enka);
+		assertEquals(2, minimal.stateCount());
+		int q0 = minimal.initialState();
+		assertEquals("q0", minimal.states().name(q0));
+		assertEquals("q1", minimal.states().name(minimal.next(q0, minimal.symbols().indexOf("b"))));
+		assertEquals(Dka.UNDEFINED, minimal.next(q0, minimal.symbols().indexOf("a")));
+	}
+
+	/**
+	 * Counts states of minimal DKA from which an acceptable state can be
+	 * reached, which are the states {@link EnkaMinimizer} keeps; the result of
+	 * empty language has one state.
+	 * 
+	 * @param dka minimal DKA.
+	 * @return number of live states.
+	 */
+	private static int liveStates(Dka dka) {
+		int n = dka.stateCount();
+		boolean[] live = new boolean[n];
+		for (int state = 0; state < n; state++) {
+			live[state] = dka.isAcceptable(state);
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int state = 0; state < n; state++) {
+				for (int symbol = 0; symbol < dka.symbolCount() && !live[state]; symbol++) {
+					int next = dka.next(state, symbol);
+					if (next != Dka.UNDEFINED && live[next]) {
+						live[state] = true;
+						changed = true;
+					}
+				}
+			}
+		}
+		int count = 0;
+		for (boolean flag : live) {
+			count += flag ? 1 : 0;
+		}
+		return live[dka.initialState()] ? count : 1;
+	}
+
+	/**
+	 * Determinizes <code>enka</code> by forward subset construction; the empty
+	 * set is not a state.
+	 * 
+	 * @param enka    automaton.
+	 * @param symbols alphabet of result, symbols of automaton without epsilon.
+	 * @return DKA of the same language.
+	 */
+	private static Dka determinize(Enka enka, SymbolTable symbols) {
+		int k = symbols.size();
+		Map<BitSet, Integer> indexes = new HashMap<>();
+		List<BitSet> sets = new ArrayList<>();
+		BitSet initial = new BitSet();
+		enka.initialStates(initial);
+		indexes.put(initial, 0);
+		sets.add(initial);
+		List<Integer> transitions = new ArrayList<>();
+		for (int state = 0; state < sets.size(); state++) {
+			for (int symbol = 0; symbol < k; symbol++) {
+				BitSet next = new BitSet();
+				enka.step(sets.get(state), enka.symbols().indexOf(symbols.name(symbol)), next);
+				if (next.isEmpty()) {
+					transitions.add(Dka.UNDEFINED);
+					continue;
+				}
+				Integer index = indexes.putIfAbsent(next, sets.size());
+				if (index == null) {
+					index = sets.size();
+					sets.add(next);
+				}
+				transitions.add(index);
+			}
+		}
+		int n = sets.size();
+		String[] names = new String[n];
+		boolean[] acceptable = new boolean[n];
+		for (int state = 0; state < n; state++) {
+			names[state] = String.format("p%06d", state);
+			acceptable[state] = enka.isAcceptable(sets.get(state));
+		}
+		return new Dka(SymbolTable.sorted(names), symbols, acceptable, 0,
+				transitions.stream().mapToInt(Integer::intValue).toArray());
+	}
+}
@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of {@link IncrementalParser}: after every edit its verdict
+ * and trace must equal those of {@link Parser} run on the edited sequence from
+ * scratch.
+ * 
+ * @author dbrcina
+ *
+ */
+class IncrementalParserTest {
+
+	@Test
+	void randomEditsAgreeWithParser() throws IOException {
+		Random random = new Random(49);
+		for (int t = 0; t < 3000; t++) {
+			StringBuilder sequence = new StringBuilder(random.nextBoolean() ? ParserInputs.sentence(random, 0)
+					: ParserInputs.word(random, "abc", random.nextInt(20)));
+			IncrementalParser parser = new IncrementalParser(true);
+			parser.parse(sequence.toString().toCharArray(), OutputStream.nullOutputStream());
+			// edits are sometimes undone, so that parsable sequences come back
+			Deque<Object[]> undo = new ArrayDeque<>();
+			for (int k = 0; k < 30; k++) {
+				int start;
+				int end;
+				String replacement;
+				if (!undo.isEmpty() && random.nextBoolean()) {
+					Object[] edit = undo.pop();
+					start = (Integer) edit[0];
+					end = (Integer) edit[1];
+					replacement = (String) edit[2];
+				} else {
+					start = random.nextInt(sequence.length() + 1);
+					end = Math.min(sequence.length(), start + random.nextInt(4));
+					replacement = random.nextInt(3) == 0 ? ""
+							: ParserInputs.word(random, "abc", 1 + random.nextInt(3));
+					if (random.nextInt(4) == 0) {
+						String sentence = ParserInputs.sentence(random, 2);
+						replacement = sentence.substring(0, Math.min(sentence.length(), 6));
+					}
+					undo.push(new Object[] { start, start + replacement.length(), sequence.substring(start, end) });
+				}
+				sequence.replace(start, end, replacement);
+				boolean parsable = parser.edit(start, end, replacement);
+				check(sequence, parser, parsable);
+			}
+		}
+	}
+
+	@Test
+	void editsOfDeeplyNestedSequenceAgreeWithParser() throws IOException {
+		StringBuilder sequence = new StringBuilder(ParserInputs.nested(5000));
+		IncrementalParser parser = new IncrementalParser(true);
+		assertTrue(parser.parse(sequence.toString().toCharArray(), OutputStream.nullOutputStream()));
+		int n = sequence.length();
+		for (int position : new int[] { n - 1, n - 2, n - 200, n / 2, 3, 0 }) {
+			String original = sequence.substring(position, position + 1);
+			String other = original.equals("b") ? "c" : "b";
+			sequence.replace(position, position + 1, other);
+			check(sequence, parser, parser.edit(position, position + 1, other));
+			sequence.replace(position, position + 1, original);
+			check(sequence, parser, parser.edit(position, position + 1, original));
+		}
+	}
+
+	@Test
+	void rejectsEditOutsideOfSequence() throws IOException {
+		IncrementalParser parser = new IncrementalParser(true);
+		parser.parse("aa".toCharArray(), OutputStream.nullOutputStream());
+		assertThrows(IndexOutOfBoundsException.class, () -> parser.edit(1, 3, "a"));
+		assertThrows(IndexOutOfBoundsException.class, () -> parser.edit(2, 1, "a"));
+		assertThrows(IndexOutOfBoundsException.class, () -> parser.edit(-1, 0, "a"));
+	}
+
+	/**
+	 * Compares state of <code>parser</code> with {@link Parser} run on
+	 * <code>sequence</code> from scratch.
+	 * 
+	 * @param sequence edited sequence.
+	 * @param parser   incremental parser after edit.
+	 * @param parsable verdict returned by edit.
+	 * @throws IOException if trace could not be written.
+	 */
+	private static void check(CharSequence sequence, IncrementalParser parser, boolean parsable)
+			throws IOException {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		String input = sequence.toString();
+		assertEquals(new Parser(true).parse(input.toCharArray(), expected), parsable, input);
+		assertEquals(parsable, parser.isParsable(), input);
+		parser.writeTrace(actual);
+		assertEquals(expected.toString(), actual.toString(), input);
+	}
+}
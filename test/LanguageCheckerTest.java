@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of {@link LanguageChecker}: results of
+ * <i>Hopcroft-Karp</i> and antichain checks on small random automata are
+ * compared with exhaustive enumeration of short words.
+ * 
+ * @author dbrcina
+ *
+ */
+class LanguageCheckerTest {
+
+	/**
+	 * Number of random pairs of automata per test.
+	 */
+	private static final int PAIRS = 1500;
+
+	/**
+	 * Length of the longest enumerated word, which covers the shortest
+	 * counterexample of DKA with at most three states each, sinks included.
+	 */
+	private static final int MAX_LENGTH = 8;
+
+	@Test
+	void dkaEquivalenceReturnsShortestCounterexample() {
+		Random random = new Random(36);
+		for (int i = 0; i < PAIRS; i++) {
+			Dka first = RandomAutomata.dka(random, 1 + random.nextInt(3), 1 + random.nextInt(3));
+			Dka second = RandomAutomata.dka(random, 1 + random.nextInt(3), 1 + random.nextInt(3));
+			Predicate<List<String>> different = w -> RandomAutomata.accepts(first, w) != RandomAutomata
+					.accepts(second, w);
+			assertShortest(shortest(alphabet(first, second), different), LanguageChecker.equivalence(first, second),
+					different, "pair " + i);
+		}
+	}
+
+	@Test
+	void dkaInclusionReturnsShortestCounterexample() {
+		Random random = new Random(3636);
+		for (int i = 0; i < PAIRS; i++) {
+			Dka first = RandomAutomata.dka(random, 1 + random.nextInt(3), 1 + random.nextInt(3));
+			Dka second = RandomAutomata.dka(random, 1 + random.nextInt(3), 1 + random.nextInt(3));
+			Predicate<List<String>> missing = w -> RandomAutomata.accepts(first, w)
+					&& !RandomAutomata.accepts(second, w);
+			assertShortest(shortest(alphabet(first, second), missing), LanguageChecker.inclusion(first, second),
+					missing, "pair " + i);
+		}
+	}
+
+	@Test
+	void dkaIsEquivalentToItsMinimization() {
+		Random random = new Random(42);
+		for (int i = 0; i < PAIRS; i++) {
+			Dka dka = RandomAutomata.dka(random, 1 + random.nextInt(8), 1 + random.nextInt(3));
+			assertNull(LanguageChecker.equivalence(dka, DkaMinimizer.minimize(dka)), "automaton " + i);
+		}
+	}
+
+	@Test
+	void enkaChecksAgreeWithEnumeration() {
+		Random random = new Random(360);
+		for (int i = 0; i < PAIRS; i++) {
+			Enka first = RandomAutomata.enka(random, 1 + random.nextInt(3), 1 + random.nextInt(2));
+			Enka second = RandomAutomata.enka(random, 1 + random.nextInt(3), 1 + random.nextInt(2));
+			String[] symbols = RandomAutomata.alphabet(2);
+			Predicate<List<String>> missing = w -> RandomAutomata.accepts(first, w)
+					&& !RandomAutomata.accepts(second, w);
+			Predicate<List<String>> different = w -> RandomAutomata.accepts(first, w) != RandomAutomata
+					.accepts(second, w);
+			check(shortest(symbols, missing), LanguageChecker.inclusion(first, second), missing, "pair " + i);
+			check(shortest(symbols, different), LanguageChecker.equivalence(first, second), different,
+					"pair " + i);
+		}
+	}
+
+	/**
+	 * Checks that <code>actual</code> is a shortest counterexample.
+	 * 
+	 * @param expected       the first shortest counterexample or
+	 *                       <code>null</code>.
+	 * @param actual         result of check.
+	 * @param counterexample property of counterexample.
+	 * @param message        message of failed assertion.
+	 */
+	private static void assertShortest(List<String> expected, List<String> actual,
+			Predicate<List<String>> counterexample, String message) {
+		if (expected == null) {
+			assertNull(actual, message);
+			return;
+		}
+		assertNotNull(actual, message);
+		assertTrue(counterexample.test(actual), message);
+		assertEquals(expected.size(), actual.size(), message);
+	}
+
+	/**
+	 * Checks result of epsilon-NFA check, whose shortest counterexample may be
+	 * longer than enumerated words.
+	 * 
+	 * @param expected       the first enumerated counterexample or
+	 *                       <code>null</code>.
+	 * @param actual         result of check.
+	 * @param counterexample property of counterexample.
+	 * @param message        message of failed assertion.
+	 */
+	private static void check(List<String> expected, List<String> actual, Predicate<List<String>> counterexample,
+			String message) {
+		if (actual != null && expected == null) {
+			assertTrue(counterexample.test(actual), message);
+			assertTrue(actual.size() > MAX_LENGTH, message);
+			return;
+		}
+		assertShortest(expected, actual, counterexample, message);
+	}
+
+	/**
+	 * @param predicate property of word.
+	 * @param symbols   names of symbols.
+	 * @return the first enumerated word which has property, or <code>null</code>.
+	 */
+	private static List<String> shortest(String[] symbols, Predicate<List<String>> predicate) {
+		for (List<String> word : RandomAutomata.words(symbols, MAX_LENGTH)) {
+			if (predicate.test(word)) {
+				return word;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param first  first automaton.
+	 * @param second second automaton.
+	 * @return names of symbols of the larger alphabet, which contains the other.
+	 */
+	private static String[] alphabet(Dka first, Dka second) {
+		return RandomAutomata.alphabet(Math.max(first.symbolCount(), second.symbolCount()));
+	}
+}
@@ -0,0 +1,85 @@
+import java.util.Random;
+
+/**
+ * Inputs of {@link Parser} grammar used by tests:
+ * 
+ * <pre>
+ * S -> aAB | bBA
+ * A -> bC | a
+ * B -> ccSbc | epsilon
+ * C -> AA
+ * </pre>
+ * 
+ * @author dbrcina
+ *
+ */
+final class ParserInputs {
+
+	/**
+	 * Maximal depth of nested <code>S</code> in random sentences.
+	 */
+	private static final int MAX_DEPTH = 4;
+
+	/**
+	 * Utility class.
+	 */
+	private ParserInputs() {
+	}
+
+	/**
+	 * Generates random sentence derived from <code>S</code>.
+	 * 
+	 * @param random source of randomness.
+	 * @param depth  current nesting depth.
+	 * @return sentence.
+	 */
+	static String sentence(Random random, int depth) {
+		if (random.nextBoolean()) {
+			return "a" + a(random, depth) + b(random, depth);
+		}
+		return "b" + b(random, depth) + a(random, depth);
+	}
+
+	/**
+	 * Creates sentence in which <code>S</code> is nested <code>depth</code>
+	 * times through <code>B</code>.
+	 * 
+	 * @param depth nesting depth.
+	 * @return sentence.
+	 */
+	static String nested(int depth) {
+		return "aacc".repeat(depth) + "aa" + "bc".repeat(depth);
+	}
+
+	/**
+	 * @param random  source of randomness.
+	 * @param letters letters of word.
+	 * @param length  length of word.
+	 * @return random word.
+	 */
+	static String word(Random random, String letters, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(letters.charAt(random.nextInt(letters.length())));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param random source of randomness.
+	 * @param depth  current nesting depth.
+	 * @return random sentence derived from <code>A</code>.
+	 */
+	private static String a(Random random, int depth) {
+		return random.nextInt(depth + 2) == 0 ? "b" + a(random, depth + 1) + a(random, depth + 1) : "a";
+	}
+
+	/**
+	 * @param random source of randomness.
+	 * @param depth  current nesting depth.
+	 * @return random sentence derived from <code>B</code>.
+	 */
+	private static String b(Random random, int depth) {
+		return depth < MAX_DEPTH && random.nextInt(3) == 0 ? "cc" + sentence(random, depth + 1) + "bc" : "";
+	}
+}
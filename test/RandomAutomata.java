@@ -0,0 +1,191 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Small random automata and reference implementations used by tests:
+ * acceptance is checked by the plainest possible simulation and words are
+ * enumerated exhaustively, so that optimized algorithms can be compared
+ * against them.
+ * 
+ * @author dbrcina
+ *
+ */
+final class RandomAutomata {
+
+	/**
+	 * Utility class.
+	 */
+	private RandomAutomata() {
+	}
+
+	/**
+	 * Creates random DKA with states <code>p0</code>, <code>p1</code>, ... and
+	 * symbols <code>a</code>, <code>b</code>, ... Some transitions are left
+	 * undefined.
+	 * 
+	 * @param random  source of randomness.
+	 * @param states  number of states, at most <code>10</code>.
+	 * @param symbols number of symbols, at most <code>26</code>.
+	 * @return automaton.
+	 */
+	static Dka dka(Random random, int states, int symbols) {
+		String[] stateNames = new String[states];
+		for (int state = 0; state < states; state++) {
+			stateNames[state] = "p" + state;
+		}
+		boolean[] acceptable = new boolean[states];
+		int[] transitions = new int[states * symbols];
+		for (int state = 0; state < states; state++) {
+			acceptable[state] = random.nextInt(3) == 0;
+			for (int symbol = 0; symbol < symbols; symbol++) {
+				transitions[state * symbols + symbol] = random.nextInt(8) == 0 ? Dka.UNDEFINED
+						: random.nextInt(states);
+			}
+		}
+		return new Dka(SymbolTable.sorted(stateNames), SymbolTable.sorted(alphabet(symbols)), acceptable,
+				random.nextInt(states), transitions);
+	}
+
+	/**
+	 * Creates random epsilon-NFA with states <code>s0</code>, <code>s1</code>,
+	 * ... and symbols <code>a</code>, <code>b</code>, ..., by loading its
+	 * textual definition.
+	 * 
+	 * @param random  source of randomness.
+	 * @param states  number of states.
+	 * @param symbols number of symbols, at most <code>26</code>.
+	 * @return automaton.
+	 */
+	static Enka enka(Random random, int states, int symbols) {
+		StringBuilder sb = new StringBuilder("a\n");
+		for (int state = 0; state < states; state++) {
+			sb.append(state > 0 ? "," : "").append('s').append(state);
+		}
+		sb.append('\n').append(String.join(",", alphabet(symbols))).append('\n');
+		boolean first = true;
+		for (int state = 0; state < states; state++) {
+			if (random.nextInt(4) == 0) {
+				sb.append(first ? "" : ",").append('s').append(state);
+				first = false;
+			}
+		}
+		sb.append("\ns").append(random.nextInt(states)).append('\n');
+		for (int state = 0; state < states; state++) {
+			for (int symbol = 0; symbol < symbols; symbol++) {
+				if (random.nextInt(3) == 0) {
+					continue;
+				}
+				sb.append('s').append(state).append(',').append((char) ('a' + symbol)).append("->");
+				int count = random.nextInt(3);
+				if (count == 0) {
+					sb.append(Enka.EMPTY_STATE);
+				}
+				for (int i = 0; i < count; i++) {
+					sb.append(i > 0 ? "," : "").append('s').append(random.nextInt(states));
+				}
+				sb.append('\n');
+			}
+			if (random.nextInt(3) == 0) {
+				sb.append('s').append(state).append(',').append(Enka.EPSILON).append("->s")
+						.append(random.nextInt(states)).append('\n');
+			}
+		}
+		return load(sb.toString(), CompiledAutomaton.Kind.ENKA).enka();
+	}
+
+	/**
+	 * Loads automaton from its textual definition.
+	 * 
+	 * @param text definition.
+	 * @param kind kind of automaton.
+	 * @return loaded automaton.
+	 */
+	static CompiledAutomaton load(String text, CompiledAutomaton.Kind kind) {
+		return CompiledAutomaton.parse(new AutomatonReader(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))),
+				kind);
+	}
+
+	/**
+	 * @param symbols number of symbols.
+	 * @return names <code>a</code>, <code>b</code>, ... of symbols.
+	 */
+	static String[] alphabet(int symbols) {
+		String[] names = new String[symbols];
+		for (int symbol = 0; symbol < symbols; symbol++) {
+			names[symbol] = String.valueOf((char) ('a' + symbol));
+		}
+		return names;
+	}
+
+	/**
+	 * Enumerates every word over <code>symbols</code> in order of length.
+	 * 
+	 * @param symbols   names of symbols.
+	 * @param maxLength maximal length of word.
+	 * @return words, shorter before longer.
+	 */
+	static List<List<String>> words(String[] symbols, int maxLength) {
+		List<List<String>> words = new ArrayList<>();
+		words.add(List.of());
+		for (int i = 0; i < words.size(); i++) {
+			List<String> word = words.get(i);
+			if (word.size() == maxLength) {
+				continue;
+			}
+			for (String symbol : symbols) {
+				List<String> longer = new ArrayList<>(word);
+				longer.add(symbol);
+				words.add(longer);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Checks whether <code>dka</code> accepts <code>word</code>; symbol which is
+	 * not in its alphabet rejects it.
+	 * 
+	 * @param dka  automaton.
+	 * @param word names of symbols.
+	 * @return <code>true</code> if word is accepted.
+	 */
+	static boolean accepts(Dka dka, List<String> word) {
+		int state = dka.initialState();
+		for (String name : word) {
+			int symbol = dka.symbols().indexOf(name);
+			if (symbol < 0) {
+				return false;
+			}
+			state = dka.next(state, symbol);
+			if (state == Dka.UNDEFINED) {
+				return false;
+			}
+		}
+		return dka.isAcceptable(state);
+	}
+
+	/**
+	 * Checks whether <code>enka</code> accepts <code>word</code>; symbol which
+	 * is not in its alphabet rejects it.
+	 * 
+	 * @param enka automaton.
+	 * @param word names of symbols.
+	 * @return <code>true</code> if word is accepted.
+	 */
+	static boolean accepts(Enka enka, List<String> word) {
+		BitSet current = new BitSet();
+		BitSet next = new BitSet();
+		enka.initialStates(current);
+		for (String name : word) {
+			enka.step(current, enka.symbols().indexOf(name), next);
+			BitSet swap = current;
+			current = next;
+			next = swap;
+		}
+		return enka.isAcceptable(current);
+	}
+}
@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of {@link RegexCompiler}: automata of random expressions
+ * must accept the same short words as {@link java.util.regex.Pattern} of the
+ * same expressions.
+ * 
+ * @author dbrcina
+ *
+ */
+class RegexCompilerTest {
+
+	/**
+	 * Number of random expressions.
+	 */
+	private static final int EXPRESSIONS = 3000;
+
+	/**
+	 * Length of the longest enumerated word.
+	 */
+	private static final int MAX_LENGTH = 6;
+
+	/**
+	 * Symbols of random expressions.
+	 */
+	private static final String[] SYMBOLS = { "a", "b", "c" };
+
+	@Test
+	void acceptsLanguageOfExpression() {
+		Random random = new Random(40);
+		List<List<String>> words = RandomAutomata.words(SYMBOLS, MAX_LENGTH);
+		for (int i = 0; i < EXPRESSIONS; i++) {
+			StringBuilder pattern = new StringBuilder();
+			StringBuilder reference = new StringBuilder();
+			expression(random, 3, pattern, reference);
+			Enka enka = RegexCompiler.compile(pattern.toString(), new SymbolTable(new String[0]));
+			Pattern java = Pattern.compile(reference.toString());
+			for (List<String> word : words) {
+				assertEquals(java.matcher(String.join("", word)).matches(), RandomAutomata.accepts(enka, word),
+						pattern + " on " + word);
+			}
+		}
+	}
+
+	@Test
+	void hasStatePerSymbolOccurrenceAndNoEpsilonTransitions() {
+		Enka enka = RegexCompiler.compile("(a|b)* a (b|$) c?", new SymbolTable(new String[0]));
+		assertEquals(6, enka.stateCount());
+		for (int state = 0; state < enka.stateCount(); state++) {
+			assertEquals(1, enka.closure(state).length);
+		}
+	}
+
+	@Test
+	void keepsIndexesOfGivenSymbols() {
+		Enka enka = RegexCompiler.compile("a<long>b\\*", new SymbolTable(new String[] { "z", "b" }));
+		assertEquals(0, enka.symbols().indexOf("z"));
+		assertEquals(1, enka.symbols().indexOf("b"));
+		assertTrue(RandomAutomata.accepts(enka, List.of("a", "long", "b", "*")));
+	}
+
+	@Test
+	void rejectsInvalidExpressions() {
+		for (String pattern : new String[] { "(a", "a)", "(a|b))" }) {
+			assertThrows(IllegalArgumentException.class,
+					() -> RegexCompiler.compile(pattern, new SymbolTable(new String[0])), pattern);
+		}
+	}
+
+	/**
+	 * Writes random expression and equivalent {@link Pattern} expression.
+	 * 
+	 * @param random    source of randomness.
+	 * @param depth     maximal nesting depth.
+	 * @param pattern   where expression is written.
+	 * @param reference where equivalent <code>Pattern</code> expression is
+	 *                  written.
+	 */
+	private static void expression(Random random, int depth, StringBuilder pattern, StringBuilder reference) {
+		int choice = depth == 0 ? random.nextInt(2) : random.nextInt(7);
+		switch (choice) {
+		case 0:
+			String symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+			pattern.append(symbol);
+			reference.append(symbol);
+			break;
+		case 1:
+			pattern.append(random.nextBoolean() ? "$" : "()");
+			reference.append("(?:)");
+			break;
+		case 2:
+		case 3:
+			String operator = choice == 2 ? "|" : " ";
+			pattern.append('(');
+			reference.append("(?:");
+			int parts = 1 + random.nextInt(3);
+			for (int i = 0; i < parts; i++) {
+				if (i > 0) {
+					pattern.append(operator);
+					reference.append(choice == 2 ? "|" : "");
+				}
+				expression(random, depth - 1, pattern, reference);
+			}
+			pattern.append(')');
+			reference.append(')');
+			break;
+		default:
+			String repetition = "*+?".substring(choice - 4, choice - 3);
+			pattern.append('(');
+			reference.append("(?:");
+			expression(random, depth - 1, pattern, reference);
+			pattern.append(')').append(repetition);
+			reference.append(')').append(repetition);
+		}
+	}
+}